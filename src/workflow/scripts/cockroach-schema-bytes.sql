@@ -0,0 +1,29 @@
+-- For payloadencoding=binary or varint: the type, values and create_time columns hold raw bytes.
+
+CREATE DATABASE IF NOT EXISTS master;
+
+DROP TABLE IF EXISTS master.measurement;
+DROP TABLE IF EXISTS master.sensor;
+DROP TABLE IF EXISTS master.device;
+
+USE master;
+
+CREATE TABLE IF NOT EXISTS device (
+  ycsb_key VARCHAR(255) PRIMARY KEY,
+  name VARCHAR(255)
+);
+
+
+CREATE TABLE IF NOT EXISTS sensor (
+  ycsb_key VARCHAR(255) PRIMARY KEY,
+  name VARCHAR(255),
+  device_id VARCHAR(255) NOT NULL REFERENCES device(ycsb_key)
+);
+
+CREATE TABLE IF NOT EXISTS measurement (
+  ycsb_key VARCHAR(255) PRIMARY KEY,
+  type BYTEA,
+  sensor_id VARCHAR(255) NOT NULL REFERENCES sensor(ycsb_key) NOT NULL,
+  values BYTEA,
+  create_time BYTEA
+);
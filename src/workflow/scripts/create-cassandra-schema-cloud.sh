@@ -1,4 +1,12 @@
 #!/usr/bin/env bash
+# binary and varint payloads are raw bytes, they need the schema with bytes columns
+case "${PAYLOAD_ENCODING}" in
+  binary|varint) SCHEMA="cassandra-schema-cloud-bytes.cql";;
+  *) SCHEMA="cassandra-schema-cloud.cql";;
+esac
 echo "Creating Cassandra schema."
-cqlsh -f cassandra-schema-cloud.cql "$@"
+cqlsh -f ${SCHEMA} "$@"
+# the tables are empty again, so is the key space
+if [ -z ${KEYSPACE_MANIFEST+x} ]; then KEYSPACE_MANIFEST="./cassandra-keyspace.manifest"; fi
+rm -f ${KEYSPACE_MANIFEST}
 echo "Schema creation end."
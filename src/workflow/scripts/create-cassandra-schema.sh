@@ -1,4 +1,12 @@
 #!/usr/bin/env bash
+# binary and varint payloads are raw bytes, they need the schema with bytes columns
+case "${PAYLOAD_ENCODING}" in
+  binary|varint) SCHEMA="cassandra-schema-bytes.cql";;
+  *) SCHEMA="cassandra-schema.cql";;
+esac
 echo "Creating Cassandra schema."
-cqlsh -f cassandra-schema.cql
+cqlsh -f ${SCHEMA}
+# the tables are empty again, so is the key space
+if [ -z ${KEYSPACE_MANIFEST+x} ]; then KEYSPACE_MANIFEST="./cassandra-keyspace.manifest"; fi
+rm -f ${KEYSPACE_MANIFEST}
 echo "Schema creation end."
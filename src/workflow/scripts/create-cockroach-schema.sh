@@ -1,4 +1,12 @@
 #!/usr/bin/env bash
+# binary and varint payloads are raw bytes, they need the schema with bytes columns
+case "${PAYLOAD_ENCODING}" in
+  binary|varint) SCHEMA="cockroach-schema-bytes.sql";;
+  *) SCHEMA="cockroach-schema.sql";;
+esac
 echo "Creating Cockroach schema."
-cockroach sql --insecure --user=${COCKROACH_USER} --host=${COCKROACH_HOST} --port=${COCKROACH_PORT} < cockroach-schema.sql
+cockroach sql --insecure --user=${COCKROACH_USER} --host=${COCKROACH_HOST} --port=${COCKROACH_PORT} < ${SCHEMA}
+# the tables are empty again, so is the key space
+if [ -z ${KEYSPACE_MANIFEST+x} ]; then KEYSPACE_MANIFEST="./cockroach-keyspace.manifest"; fi
+rm -f ${KEYSPACE_MANIFEST}
 echo "Schema creation end."
@@ -18,7 +18,22 @@ COMMON_ARGS="-P ../workloads/workload1 \
 -cp ${CLASSPATH} \
 -jvm-args \"-Dlog4j.configurationFile=log4j.xml -DlogName=${LOG_NAME} \" \
 -p exportfile=${LOG_NAME}.report \
+-p keyspacemanifest=${KEYSPACE_MANIFEST}"
+
+# Row counts are only known when the tables were counted, otherwise the workload reads the manifest.
+if [ -n "${DEVICE_ROWS}" ]; then
+  COMMON_ARGS="${COMMON_ARGS} \
 -p device_rows=${DEVICE_ROWS} -p sensor_rows=${SENSOR_ROWS} -p measurement_rows=${MEASUREMENT_ROWS}"
+fi
+
+# binary and varint payloads need the schema created with the same PAYLOAD_ENCODING, whose payload columns hold
+# bytes, and a DB binding that writes the bytes of the values rather than their text
+if [ -n "${PAYLOAD_ENCODING}" ]; then
+  COMMON_ARGS="${COMMON_ARGS} -p payloadencoding=${PAYLOAD_ENCODING}"
+  case "${PAYLOAD_ENCODING}" in
+    binary|varint) COMMON_ARGS="${COMMON_ARGS} -p payloadcolumns=bytes";;
+  esac
+fi
 
 # Cassandra default input args
 CASSANDRA_KEYSPACE="master"
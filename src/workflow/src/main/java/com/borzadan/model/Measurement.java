@@ -6,7 +6,7 @@ import com.yahoo.ycsb.StringByteIterator;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * Represents different kinds of sensor measurements.
@@ -14,7 +14,11 @@ import java.util.Random;
 public class Measurement {
 
     interface Factory {
-        Measurement generate(String id, String sensorId);
+        /**
+         * @param random The random source of the calling thread; values are drawn only from it so runs
+         *               can be replayed from the same seed.
+         */
+        Measurement generate(String id, String sensorId, SplittableRandom random);
     }
 
     public static final String TABLE_NAME = "measurement";
@@ -46,6 +50,23 @@ public class Measurement {
         return values;
     }
 
+    /**
+     * @return The DB fields of this measurement with the payload written in the given encoding.
+     */
+    public Map<String, ByteIterator> dbValues(PayloadEncoding encoding) {
+        if (encoding == PayloadEncoding.TEXT) {
+            return dbValues();
+        }
+        final double[] parsed = new double[values.length];
+        for (int i = 0; i < values.length; i ++) {
+            parsed[i] = Double.parseDouble(values[i]);
+        }
+        final Map<String, ByteIterator> row = new HashMap<>();
+        row.put(SENSOR_ID, new StringByteIterator(sensorId));
+        encoding.encode(row, type, parsed, Long.parseLong(timestamp), new StringBuilder());
+        return row;
+    }
+
     @Override
     public String toString() {
         return "Measurement{" +
@@ -62,55 +83,77 @@ public class Measurement {
      */
     public enum Type implements Factory {
 
-        TEMPERATURE() {
-            @Override
-            public Measurement generate(String id, String sensorId) {
-                Measurement m = newMeasurement(id, sensorId);
-                m.type = Type.TEMPERATURE;
-                m.values = new String[1];
-                m.values[0] = String.valueOf(r.nextInt(100));
-                return m;
-            }
-        },
-        SPEED() {
-            @Override
-            public Measurement generate(String id, String sensorId) {
-                Measurement m = newMeasurement(id, sensorId);
-                m.type = Type.SPEED;
-                m.values = new String[1];
-                m.values[0] = String.valueOf(r.nextDouble());
-                return m;
-            }
-        },
-        DISTANCE() {
-            @Override
-            public Measurement generate(String id, String sensorId) {
-                Measurement m = newMeasurement(id, sensorId);
-                m.type = Type.DISTANCE;
-                m.values = new String[1];
-                m.values[0] = String.valueOf(r.nextDouble());
-                return m;
-            }
-        },
-        GEO() {
-            @Override
-            public Measurement generate(String id, String sensorId) {
-                Measurement m = newMeasurement(id, sensorId);
-                m.type = Type.GEO;
-                m.values = new String[2];
-                m.values[0] = String.valueOf(r.nextDouble());
-                m.values[1] = String.valueOf(r.nextDouble());
-                return m;
+        TEMPERATURE(1, true),
+        SPEED(1, false),
+        DISTANCE(1, false),
+        GEO(2, false);
+
+        private final int arity;
+        private final boolean integral;
+
+        Type(int arity, boolean integral) {
+            this.arity = arity;
+            this.integral = integral;
+        }
+
+        /**
+         * @return How many values one measurement of this type has.
+         */
+        public int arity() {
+            return arity;
+        }
+
+        /**
+         * @return Whether the values of this type are whole numbers.
+         */
+        public boolean isIntegral() {
+            return integral;
+        }
+
+        /**
+         * @return One random value of this type, drawing exactly what {@link #generate} draws for it.
+         */
+        public double nextValue(SplittableRandom r) {
+            return integral ? r.nextInt(100) : r.nextDouble();
+        }
+
+        /**
+         * Appends a value of this type in the text format of {@link Measurement#values}.
+         */
+        public void appendValue(StringBuilder sb, double value) {
+            if (integral) {
+                sb.append((long) value);
+            } else {
+                sb.append(value);
             }
-        };
+        }
+
+        @Override
+        public Measurement generate(String id, String sensorId, SplittableRandom r) {
+            return generate(id, sensorId, System.currentTimeMillis(), r);
+        }
 
-        private static final Random r = new Random();
+        /**
+         * Like {@link #generate(String, String, SplittableRandom)}, for a measurement taken at timestampMillis.
+         */
+        public Measurement generate(String id, String sensorId, long timestampMillis, SplittableRandom r) {
+            final Measurement m = newMeasurement(id, sensorId, timestampMillis);
+            m.type = this;
+            m.values = new String[arity];
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < arity; i ++) {
+                sb.setLength(0);
+                appendValue(sb, nextValue(r));
+                m.values[i] = sb.toString();
+            }
+            return m;
+        }
 
-        private static Measurement newMeasurement(String id, String sensorId) {
+        private static Measurement newMeasurement(String id, String sensorId, long timestampMillis) {
             final Measurement m = new Measurement();
             m.id = id;
             m.sensorId = sensorId;
-            m.timestamp = String.valueOf(System.currentTimeMillis());
+            m.timestamp = String.valueOf(timestampMillis);
             return m;
         }
 
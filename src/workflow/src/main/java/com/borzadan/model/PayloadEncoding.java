@@ -0,0 +1,313 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.NumericByteIterator;
+import com.yahoo.ycsb.Utils;
+
+import java.util.Map;
+
+/**
+ * How the payload fields of a measurement row (type, values and timestamp) are written to the database. The row
+ * key and the sensor id stay text in every encoding.
+ * <ul>
+ * <li>TEXT: the type name, the values joined by '-' and the timestamp as a decimal string (the original format).
+ * <li>BINARY: one byte for the type, eight bytes per value (a long for integral types, the bits of a double
+ * otherwise) and the timestamp as a {@link NumericByteIterator}.
+ * <li>VARINT: one byte for the type, integral values as zig-zag varints, other values as eight bytes, and the
+ * timestamp as a zig-zag varint of its distance to {@link #VARINT_EPOCH_MILLIS}.
+ * </ul>
+ * Every encoding decodes what it encodes; {@link #decode} throws IllegalArgumentException for a malformed row.
+ */
+public enum PayloadEncoding {
+
+    TEXT {
+        @Override
+        public void encode(Map<String, ByteIterator> row, Measurement.Type type, double[] values,
+                           long timestampMillis, StringBuilder scratch) {
+            scratch.setLength(0);
+            for (int i = 0; i < type.arity(); i ++) {
+                type.appendValue(scratch, values[i]);
+                scratch.append('-');
+            }
+            // the fields of a reused row are refilled in place
+            TextField.in(row, Measurement.TYPE).set(type.toString());
+            TextField.in(row, Measurement.VALUES).set(scratch);
+            scratch.setLength(0);
+            TextField.in(row, Measurement.TIMESTAMP).set(scratch.append(timestampMillis));
+        }
+
+        @Override
+        Measurement.Type decodeType(ByteIterator type) {
+            try {
+                return Measurement.Type.valueOf(type.toString());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown measurement type " + type, e);
+            }
+        }
+
+        @Override
+        double[] decodeValues(Measurement.Type type, ByteIterator values) {
+            final String text = values.toString();
+            final double[] decoded = new double[type.arity()];
+            int start = 0;
+            for (int i = 0; i < decoded.length; i ++) {
+                final int sep = nextSeparator(text, start);
+                if (sep < 0) {
+                    throw new IllegalArgumentException("Expected " + decoded.length + " values in " + text);
+                }
+                try {
+                    decoded[i] = Double.parseDouble(text.substring(start, sep));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad value in " + text, e);
+                }
+                start = sep + 1;
+            }
+            if (start != text.length()) {
+                throw new IllegalArgumentException("Expected " + decoded.length + " values in " + text);
+            }
+            return decoded;
+        }
+
+        @Override
+        public long decodeTimestamp(ByteIterator timestamp) {
+            try {
+                return Long.parseLong(timestamp.toString());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad timestamp " + timestamp, e);
+            }
+        }
+    },
+
+    BINARY {
+        @Override
+        public void encode(Map<String, ByteIterator> row, Measurement.Type type, double[] values,
+                           long timestampMillis, StringBuilder scratch) {
+            final byte[] bytes = new byte[type.arity() * 8];
+            for (int i = 0; i < type.arity(); i ++) {
+                final long bits = type.isIntegral() ? (long) values[i] : Double.doubleToRawLongBits(values[i]);
+                writeLong(bits, bytes, i * 8);
+            }
+            row.put(Measurement.TYPE, encodeType(type));
+            row.put(Measurement.VALUES, new ByteArrayByteIterator(bytes));
+            row.put(Measurement.TIMESTAMP, new NumericByteIterator(timestampMillis));
+        }
+
+        @Override
+        double[] decodeValues(Measurement.Type type, ByteIterator values) {
+            final byte[] bytes = values.toArray();
+            if (bytes.length != type.arity() * 8) {
+                throw new IllegalArgumentException("Expected " + type.arity() * 8 + " value bytes for " + type
+                        + ", got " + bytes.length);
+            }
+            final double[] decoded = new double[type.arity()];
+            for (int i = 0; i < decoded.length; i ++) {
+                final long bits = readLong(bytes, i * 8);
+                decoded[i] = type.isIntegral() ? bits : Double.longBitsToDouble(bits);
+            }
+            return decoded;
+        }
+
+        @Override
+        public long decodeTimestamp(ByteIterator timestamp) {
+            final byte[] bytes = timestamp.toArray();
+            if (bytes.length != 8) {
+                throw new IllegalArgumentException("Expected an 8 byte timestamp, got " + bytes.length + " bytes");
+            }
+            return Utils.bytesToLong(bytes);
+        }
+    },
+
+    VARINT {
+        @Override
+        public void encode(Map<String, ByteIterator> row, Measurement.Type type, double[] values,
+                           long timestampMillis, StringBuilder scratch) {
+            // a varint takes at most 10 bytes
+            final byte[] buf = new byte[type.arity() * 10];
+            int len = 0;
+            for (int i = 0; i < type.arity(); i ++) {
+                if (type.isIntegral()) {
+                    len = writeVarint(zigZag((long) values[i]), buf, len);
+                } else {
+                    writeLong(Double.doubleToRawLongBits(values[i]), buf, len);
+                    len += 8;
+                }
+            }
+            final byte[] ts = new byte[10];
+            final int tsLen = writeVarint(zigZag(timestampMillis - VARINT_EPOCH_MILLIS), ts, 0);
+            row.put(Measurement.TYPE, encodeType(type));
+            row.put(Measurement.VALUES, new ByteArrayByteIterator(buf, 0, len));
+            row.put(Measurement.TIMESTAMP, new ByteArrayByteIterator(ts, 0, tsLen));
+        }
+
+        @Override
+        double[] decodeValues(Measurement.Type type, ByteIterator values) {
+            final byte[] bytes = values.toArray();
+            final double[] decoded = new double[type.arity()];
+            final int[] pos = new int[1];
+            for (int i = 0; i < decoded.length; i ++) {
+                if (type.isIntegral()) {
+                    decoded[i] = unZigZag(readVarint(bytes, pos));
+                } else {
+                    if (pos[0] + 8 > bytes.length) {
+                        throw new IllegalArgumentException("Truncated values for " + type);
+                    }
+                    decoded[i] = Double.longBitsToDouble(readLong(bytes, pos[0]));
+                    pos[0] += 8;
+                }
+            }
+            if (pos[0] != bytes.length) {
+                throw new IllegalArgumentException("Trailing bytes after the values of " + type);
+            }
+            return decoded;
+        }
+
+        @Override
+        public long decodeTimestamp(ByteIterator timestamp) {
+            final byte[] bytes = timestamp.toArray();
+            final int[] pos = new int[1];
+            final long delta = unZigZag(readVarint(bytes, pos));
+            if (pos[0] != bytes.length) {
+                throw new IllegalArgumentException("Trailing bytes after the timestamp");
+            }
+            return VARINT_EPOCH_MILLIS + delta;
+        }
+    };
+
+    /**
+     * The base of the varint timestamps, 2019-01-01T00:00:00Z. Timestamps near it take few bytes.
+     */
+    public static final long VARINT_EPOCH_MILLIS = 1546300800000L;
+
+    private static final Measurement.Type[] TYPES = Measurement.Type.values();
+
+    /**
+     * Writes the type, values and timestamp fields of a measurement row.
+     *
+     * @param values The first type.arity() entries are the values.
+     * @param scratch A builder the text encoding may reuse, so that encoding a row doesn't need a new one.
+     */
+    public abstract void encode(Map<String, ByteIterator> row, Measurement.Type type, double[] values,
+                                long timestampMillis, StringBuilder scratch);
+
+    /**
+     * Reads a measurement row written by {@link #encode}. The id of the returned measurement is not set.
+     *
+     * @throws IllegalArgumentException if a field is missing or malformed.
+     */
+    public Measurement decode(Map<String, ByteIterator> row) {
+        final Measurement m = new Measurement();
+        m.type = decodeType(field(row, Measurement.TYPE));
+        m.sensorId = field(row, Measurement.SENSOR_ID).toString();
+        final double[] values = decodeValues(m.type, field(row, Measurement.VALUES));
+        m.values = new String[values.length];
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i ++) {
+            sb.setLength(0);
+            m.type.appendValue(sb, values[i]);
+            m.values[i] = sb.toString();
+        }
+        m.timestamp = String.valueOf(decodeTimestamp(field(row, Measurement.TIMESTAMP)));
+        return m;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the timestamp is malformed.
+     */
+    public abstract long decodeTimestamp(ByteIterator timestamp);
+
+    abstract double[] decodeValues(Measurement.Type type, ByteIterator values);
+
+    Measurement.Type decodeType(ByteIterator type) {
+        final byte[] bytes = type.toArray();
+        if (bytes.length != 1 || bytes[0] < 0 || bytes[0] >= TYPES.length) {
+            throw new IllegalArgumentException("Bad measurement type field of " + bytes.length + " bytes");
+        }
+        return TYPES[bytes[0]];
+    }
+
+    /**
+     * @return The encoding with the given name, ignoring case.
+     * @throws IllegalArgumentException if there is no such encoding.
+     */
+    public static PayloadEncoding fromName(String name) {
+        for (PayloadEncoding encoding : values()) {
+            if (encoding.name().equalsIgnoreCase(name)) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown payload encoding \"" + name + "\"");
+    }
+
+    /**
+     * @return The index of the '-' ending the value that starts at start, or -1. A '-' that is the value's sign or
+     * follows the exponent marker of a double ("1.0E-4") is part of the value.
+     */
+    private static int nextSeparator(String text, int start) {
+        for (int i = start + 1; i < text.length(); i ++) {
+            if (text.charAt(i) == '-' && text.charAt(i - 1) != 'E') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteIterator field(Map<String, ByteIterator> row, String name) {
+        final ByteIterator value = row.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field " + name);
+        }
+        return value;
+    }
+
+    private static ByteIterator encodeType(Measurement.Type type) {
+        return new ByteArrayByteIterator(new byte[] {(byte) type.ordinal()});
+    }
+
+    private static void writeLong(long value, byte[] dst, int offset) {
+        for (int i = 7; i >= 0; i --) {
+            dst[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] src, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i ++) {
+            value = (value << 8) | (src[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(long value, byte[] dst, int offset) {
+        while ((value & ~0x7fL) != 0) {
+            dst[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        dst[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static long readVarint(byte[] src, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= src.length) {
+                throw new IllegalArgumentException("Truncated varint");
+            }
+            final byte b = src[pos[0]++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes");
+    }
+}
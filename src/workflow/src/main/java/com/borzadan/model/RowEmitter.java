@@ -0,0 +1,119 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteIterator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Writes device, sensor and measurement rows straight into reusable field maps and hands them to a
+ * {@link RowVisitor}, without building {@link Device}, {@link Sensor} or {@link Measurement} objects.
+ * <p>
+ * The rows have the same fields as the {@code dbValues()} of the model classes, with the measurement payload
+ * written in the emitter's {@link PayloadEncoding}. Each table has a
+ * fixed ring of field maps ("slots") that are filled in turn: a visitor that collects rows into a batch can keep
+ * up to {@code slots} of them before the first one is overwritten. Text fields are refilled in place as well, so a
+ * row costs no String or iterator per field.
+ * <p>
+ * Not thread safe, every client thread needs its own emitter.
+ */
+public final class RowEmitter {
+
+    private final Slots devices;
+    private final Slots sensors;
+    private final Slots measurements;
+    private final PayloadEncoding encoding;
+    private final StringBuilder sb = new StringBuilder();
+    private final double[] values = new double[maxArity()];
+
+    /**
+     * An emitter writing measurement payloads as text.
+     *
+     * @param slots How many rows of one table a visitor may hold at the same time.
+     */
+    public RowEmitter(int slots) {
+        this(slots, PayloadEncoding.TEXT);
+    }
+
+    /**
+     * @param slots How many rows of one table a visitor may hold at the same time.
+     * @param encoding How measurement payloads are written.
+     */
+    public RowEmitter(int slots, PayloadEncoding encoding) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("slots must be at least 1, was " + slots);
+        }
+        devices = new Slots(slots);
+        sensors = new Slots(slots);
+        measurements = new Slots(slots);
+        this.encoding = encoding;
+    }
+
+    public void device(String id, RowVisitor visitor) {
+        final Map<String, ByteIterator> row = devices.next();
+        TextField.in(row, Device.NAME).set("device-", id);
+        visitor.visit(Device.TABLE_NAME, id, row);
+    }
+
+    public void sensor(String id, String deviceId, RowVisitor visitor) {
+        final Map<String, ByteIterator> row = sensors.next();
+        TextField.in(row, Sensor.NAME).set("sensor-", id);
+        TextField.in(row, Sensor.DEVICE_ID).set(deviceId);
+        visitor.visit(Sensor.TABLE_NAME, id, row);
+    }
+
+    /**
+     * Emits a measurement of the given type with random values drawn from {@code random}.
+     */
+    public void measurement(String id, String sensorId, Measurement.Type type, SplittableRandom random,
+                            RowVisitor visitor) {
+        measurement(id, sensorId, type, System.currentTimeMillis(), random, visitor);
+    }
+
+    /**
+     * Emits a measurement of the given type taken at timestampMillis, with random values drawn from {@code random}.
+     */
+    public void measurement(String id, String sensorId, Measurement.Type type, long timestampMillis,
+                            SplittableRandom random, RowVisitor visitor) {
+        for (int i = 0; i < type.arity(); i ++) {
+            values[i] = type.nextValue(random);
+        }
+        final Map<String, ByteIterator> row = measurements.next();
+        TextField.in(row, Measurement.SENSOR_ID).set(sensorId);
+        encoding.encode(row, type, values, timestampMillis, sb);
+        visitor.visit(Measurement.TABLE_NAME, id, row);
+    }
+
+    private static int maxArity() {
+        int max = 0;
+        for (Measurement.Type type : Measurement.Type.values()) {
+            max = Math.max(max, type.arity());
+        }
+        return max;
+    }
+
+    /**
+     * Ring of field maps for one table. Every row of a table sets the same fields, so a map never needs clearing,
+     * and its text fields are refilled in place.
+     */
+    private static final class Slots {
+        private final List<Map<String, ByteIterator>> maps;
+        private int next;
+
+        Slots(int size) {
+            maps = new ArrayList<>(size);
+            for (int i = 0; i < size; i ++) {
+                maps.add(new HashMap<>(8));
+            }
+        }
+
+        Map<String, ByteIterator> next() {
+            final Map<String, ByteIterator> map = maps.get(next);
+            next = next + 1 == maps.size() ? 0 : next + 1;
+            return map;
+        }
+    }
+}
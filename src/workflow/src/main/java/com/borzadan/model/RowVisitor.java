@@ -0,0 +1,22 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteIterator;
+
+import java.util.Map;
+
+/**
+ * Receives the rows produced by a {@link RowEmitter}.
+ */
+public interface RowVisitor {
+
+    /**
+     * Called once per row.
+     *
+     * @param table The table the row belongs to.
+     * @param key The row key.
+     * @param fields The row's field/value pairs. The map is owned by the emitter and is refilled for a later
+     *               row, so a visitor that keeps it after the call must not hold it for longer than the number of
+     *               slots the emitter was created with.
+     */
+    void visit(String table, String key, Map<String, ByteIterator> fields);
+}
@@ -0,0 +1,100 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteIterator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A text field value that is refilled for every row instead of being built anew, so that emitting a row allocates
+ * no String and no iterator per field. It reads like a {@link com.yahoo.ycsb.StringByteIterator} of the same
+ * text: one byte per char, which holds for the Latin-1 ids and names written here.
+ * <p>
+ * A field belongs to the field map it is in, see {@link #in}, and lives as long as the map's slot.
+ */
+final class TextField extends ByteIterator {
+
+    private byte[] bytes = new byte[32];
+    private int length;
+    private int off;
+
+    /**
+     * @return The text field under key in row, put there on first use.
+     */
+    static TextField in(Map<String, ByteIterator> row, String key) {
+        final ByteIterator field = row.get(key);
+        if (field instanceof TextField) {
+            return (TextField) field;
+        }
+        final TextField created = new TextField();
+        row.put(key, created);
+        return created;
+    }
+
+    /**
+     * Replaces the text with prefix followed by text.
+     */
+    TextField set(String prefix, CharSequence text) {
+        length = 0;
+        off = 0;
+        append(prefix);
+        append(text);
+        return this;
+    }
+
+    TextField set(CharSequence text) {
+        return set("", text);
+    }
+
+    private void append(CharSequence text) {
+        final int end = length + text.length();
+        if (end > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(end, 2 * bytes.length));
+        }
+        for (int i = 0; i < text.length(); i ++) {
+            bytes[length + i] = (byte) text.charAt(i);
+        }
+        length = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return off < length;
+    }
+
+    @Override
+    public byte nextByte() {
+        return bytes[off++];
+    }
+
+    @Override
+    public long bytesLeft() {
+        return length - off;
+    }
+
+    @Override
+    public void reset() {
+        off = 0;
+    }
+
+    @Override
+    public byte[] toArray() {
+        final byte[] copy = Arrays.copyOfRange(bytes, off, length);
+        off = length;
+        return copy;
+    }
+
+    /**
+     * Like {@link com.yahoo.ycsb.StringByteIterator#toString}, the whole text of an unread field, which stays
+     * unread; else what is left of it, consumed.
+     */
+    @Override
+    public String toString() {
+        final String text = new String(bytes, off, length - off, StandardCharsets.ISO_8859_1);
+        if (off > 0) {
+            off = length;
+        }
+        return text;
+    }
+}
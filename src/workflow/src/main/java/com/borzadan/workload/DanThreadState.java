@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import com.borzadan.model.Measurement;
+import com.borzadan.model.RowEmitter;
+import com.yahoo.ycsb.Utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * State owned by a single {@link DanWorkload} client thread.
+ * <p>
+ * All random decisions of the thread (operation, measurement type and values, random IDs, scan lengths) are drawn
+ * from one {@link SplittableRandom} whose seed is derived from the run seed and the thread id. Rows are written
+ * through the thread's own {@link RowEmitter}. Nothing here is shared, so there is no contention between threads,
+ * and re-running with the same seed and thread count replays the same choices.
+ */
+final class DanThreadState {
+
+  private static final Measurement.Type[] MEASUREMENT_TYPES = Measurement.Type.values();
+
+  private final int threadId;
+  private final SplittableRandom random;
+  private final OperationChooser operationChooser;
+  private final RowEmitter rowEmitter;
+
+  DanThreadState(long runSeed, int threadId, OperationChooser operationChooser, RowEmitter rowEmitter) {
+    this.threadId = threadId;
+    // hash the run seed before mixing in the thread id, so that seed s thread t+1 and seed s+1 thread t differ
+    this.random = new SplittableRandom(Utils.fnvhash64(Utils.fnvhash64(runSeed) ^ threadId));
+    this.operationChooser = operationChooser;
+    this.rowEmitter = rowEmitter;
+  }
+
+  int getThreadId() {
+    return threadId;
+  }
+
+  SplittableRandom random() {
+    return random;
+  }
+
+  RowEmitter rowEmitter() {
+    return rowEmitter;
+  }
+
+  String nextOperation() {
+    return operationChooser.next(random);
+  }
+
+  /**
+   * @return A random measurement type; the type is also the factory for its measurements.
+   */
+  Measurement.Type nextMeasurementType() {
+    return MEASUREMENT_TYPES[random.nextInt(MEASUREMENT_TYPES.length)];
+  }
+
+  /**
+   * @return A uniformly chosen number in [0, bound).
+   */
+  int nextInt(int bound) {
+    return random.nextInt(bound);
+  }
+}
@@ -19,20 +19,28 @@ package com.borzadan.workload;
 
 import com.borzadan.model.Device;
 import com.borzadan.model.Measurement;
+import com.borzadan.model.PayloadEncoding;
+import com.borzadan.model.RowEmitter;
+import com.borzadan.model.RowVisitor;
 import com.borzadan.model.Sensor;
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.*;
+import com.yahoo.ycsb.keys.KeyCodec;
+import com.yahoo.ycsb.keys.KeyCodecFactory;
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.workloads.CoreWorkload;
+import com.yahoo.ycsb.workloads.DeterministicValues;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.yahoo.ycsb.Client.*;
 
@@ -65,7 +73,8 @@ import static com.yahoo.ycsb.Client.*;
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the
  * number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertstart</b>: for parallel loads and runs, defines the starting record for this
- * YCSB instance (default: 0)
+ * YCSB instance. With the sequential distribution, the workers of a {@link Coordinator} number devices, sensors and
+ * measurements from past the rows the workers with a lower insertstart load (default: 0)
  * <LI><b>insertcount</b>: for parallel loads and runs, defines the number of records for this
  * YCSB instance (default: recordcount)
  * <LI><b>zeropadding</b>: for generating a record sequence compatible with string sort order by
@@ -77,14 +86,59 @@ import static com.yahoo.ycsb.Client.*;
  * order ("hashed") (default: hashed)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
+ * <LI><b>keycodec</b>: how device, sensor and measurement numbers are hashed into IDs - md5, fnv64,
+ * murmur128 or a {@link KeyCodec} class name (default: md5, compatible with previously loaded data)
+ * <LI><b>deterministicvalueformat</b>: the format of the values written and verified when dataintegrity is on -
+ * legacy (readable by earlier versions) or checksum (verified without rebuilding the value), see
+ * {@link DeterministicValues} (default: legacy)
+ * <LI><b>deterministicvalueseed</b>: the seed of the checksum format's filler (default: 0)
+ * <LI><b>randomseed</b>: seed for the per-thread random streams. Runs with the same seed and thread count make
+ * the same random choices (default: derived from the clock and logged at startup)
+ * <LI><b>insertbatchsize</b>: how many rows of the same table are written with one {@link DB#insertBatch} call
+ * during load. 1 keeps the row-by-row inserts. A failed batch is retried in full, rows already written included,
+ * up to core_workload_insertion_retry_limit times (default: 1)
+ * <LI><b>measurementspersensor</b>: how many measurements are loaded for each sensor; the maximum for the
+ * uniform and zipfian distributions (default: 0)
+ * <LI><b>minmeasurementspersensor</b>: the minimum for the uniform and zipfian distributions (default: 0)
+ * <LI><b>measurementspersensordistribution</b>: how the number of measurements per sensor is chosen - constant,
+ * uniform or zipfian (default: constant)
+ * <LI><b>measurementkeylayout</b>: hashed (a hash of the measurement number) or timeordered
+ * (sensor id, inverted time bucket and inverted sequence number, so a sensor's measurements are stored together,
+ * newest first). Point reads, updates and read-modify-writes need the hashed layout (default: hashed)
+ * <LI><b>measurementtimebucketms</b>: the width of a time bucket of the timeordered layout (default: 3600000)
+ * <LI><b>measurementscanmode</b>: key (scan from a random measurement key), latest (the latest measurements of a
+ * random sensor) or range (the measurements of a random sensor in the last measurementscanwindowms). latest and
+ * range need the timeordered layout (default: key)
+ * <LI><b>measurementscanwindowms</b>: the time window read by range scans (default: 3600000)
+ * <LI><b>payloadencoding</b>: how the type, values and timestamp of measurements are stored - text, binary or
+ * varint, see {@link PayloadEncoding}. With binary and varint every read decodes and checks the payload, and is
+ * reported as VERIFY; they can't be combined with dataintegrity (default: text)
+ * <LI><b>payloadcolumns</b>: text or bytes, what the type, values and create_time columns of the measurement table
+ * hold. binary and varint write raw bytes, which text columns mangle or reject as invalid UTF-8, so they need bytes
+ * (the -bytes schemas in scripts, blob or BYTEA) and a DB binding that stores the bytes of a value rather than its
+ * toString() (default: text)
+ * <LI><b>visibilityprobefraction</b>: the fraction of updates whose visibility to other client threads is
+ * measured as VISIBILITY, see {@link VisibilityProbe}. Probed updates also write the timestamp field, so this
+ * can't be combined with dataintegrity (default: 0, no probing)
+ * <LI><b>visibilitytimeoutms</b>: how long a probed write may take to become visible (default: 10000)
+ * <LI><b>visibilitypollintervalus</b>: how often a pending probe is read again (default: 500)
+ * <LI><b>visibilitymaxpending</b>: the most probes pending at a time, further writes are not probed
+ * (default: 10000)
+ * <LI><b>pipeline</b>: with true, reads, updates, inserts and key scans are built on generator threads ahead of the
+ * client threads that run them, see {@link OperationPipeline}. An insert only has its sensor chosen ahead, the
+ * measurement is numbered and generated when it runs (default: false)
+ * <LI><b>keyspacemanifest</b>: a file that records which device, sensor and measurement numbers have been
+ * written, see {@link KeyspaceManifest}. It is read at startup in place of device_rows, sensor_rows and
+ * measurement_rows, unless those are set, and refused if it records numbers below its counts as never written.
+ * It is written back with this run's acknowledged inserts at the end.
+ * The workers of a {@link Coordinator} each write theirs to keyspacemanifest.worker-N, which the coordinator merges
+ * into keyspacemanifest once they are all done (default: none)
  * </ul>
  */
-public class DanWorkload extends Workload {
+public class DanWorkload extends Workload implements PipelinedWorkload {
 
   private static final Logger LOG = LoggerFactory.getLogger("DanWorkload");
 
-  private static final Random RANDOM = new Random();
-
   /**
    * The name of the property for the field length distribution. Options are "uniform", "zipfian"
    * (favouring short records), "constant", and "histogram".
@@ -177,6 +231,11 @@ public class DanWorkload extends Workload {
    */
   private boolean dataintegrity;
 
+  /**
+   * Builds and verifies the field values when dataintegrity is on.
+   */
+  private DeterministicValues deterministicvalues;
+
   /**
    * The name of the property for the proportion of transactions that are reads.
    */
@@ -330,10 +389,118 @@ public class DanWorkload extends Workload {
 
   private static final String MEASUREMENT_ROWS = "measurement_rows";
 
+  /**
+   * Default key codec. MD5 hex is what earlier versions of this workload wrote.
+   */
+  private static final String KEY_CODEC_PROPERTY_DEFAULT = "md5";
+
+  /**
+   * The name of the property for the run-level random seed.
+   */
+  private static final String RANDOM_SEED_PROPERTY = "randomseed";
+
+  /**
+   * The name of the property for the maximum number of rows written by one batch insert.
+   */
+  private static final String INSERT_BATCH_SIZE_PROPERTY = "insertbatchsize";
+
+  private static final String INSERT_BATCH_SIZE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The name of the property for the (maximum) number of measurements loaded per sensor.
+   */
+  private static final String MEASUREMENTS_PER_SENSOR_PROPERTY = "measurementspersensor";
+
+  private static final String MEASUREMENTS_PER_SENSOR_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The name of the property for the minimum number of measurements loaded per sensor.
+   */
+  private static final String MIN_MEASUREMENTS_PER_SENSOR_PROPERTY = "minmeasurementspersensor";
+
+  private static final String MIN_MEASUREMENTS_PER_SENSOR_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The name of the property for the distribution of the number of measurements per sensor. Options are
+   * "constant", "uniform" and "zipfian" (favouring sensors with few measurements).
+   */
+  private static final String MEASUREMENTS_PER_SENSOR_DISTRIBUTION_PROPERTY = "measurementspersensordistribution";
+
+  private static final String MEASUREMENTS_PER_SENSOR_DISTRIBUTION_PROPERTY_DEFAULT = "constant";
+
+  /**
+   * The name of the property for the measurement key layout, "hashed" or "timeordered".
+   */
+  private static final String MEASUREMENT_KEY_LAYOUT_PROPERTY = "measurementkeylayout";
+
+  private static final String MEASUREMENT_KEY_LAYOUT_PROPERTY_DEFAULT = "hashed";
+
+  /**
+   * The name of the property for the time bucket width of the timeordered layout, in milliseconds.
+   */
+  private static final String MEASUREMENT_TIME_BUCKET_PROPERTY = "measurementtimebucketms";
+
+  private static final String MEASUREMENT_TIME_BUCKET_PROPERTY_DEFAULT = "3600000";
+
+  /**
+   * The name of the property for the scan mode, "key", "latest" or "range".
+   */
+  private static final String MEASUREMENT_SCAN_MODE_PROPERTY = "measurementscanmode";
+
+  private static final String MEASUREMENT_SCAN_MODE_PROPERTY_DEFAULT = "key";
+
+  /**
+   * The name of the property for the window read by range scans, in milliseconds.
+   */
+  private static final String MEASUREMENT_SCAN_WINDOW_PROPERTY = "measurementscanwindowms";
+
+  private static final String MEASUREMENT_SCAN_WINDOW_PROPERTY_DEFAULT = "3600000";
+
+  /**
+   * The name of the property for the measurement payload encoding.
+   */
+  private static final String PAYLOAD_ENCODING_PROPERTY = "payloadencoding";
+
+  private static final String PAYLOAD_ENCODING_PROPERTY_DEFAULT = "text";
+
+  /**
+   * The name of the property for the type of the payload columns.
+   */
+  private static final String PAYLOAD_COLUMNS_PROPERTY = "payloadcolumns";
+
+  private static final String PAYLOAD_COLUMNS_PROPERTY_DEFAULT = "text";
+
+  /**
+   * The name of the property for the fraction of updates whose visibility is probed.
+   */
+  private static final String VISIBILITY_PROBE_FRACTION_PROPERTY = "visibilityprobefraction";
+
+  private static final String VISIBILITY_PROBE_FRACTION_PROPERTY_DEFAULT = "0";
+
+  private static final String VISIBILITY_TIMEOUT_PROPERTY = "visibilitytimeoutms";
+
+  private static final String VISIBILITY_TIMEOUT_PROPERTY_DEFAULT = "10000";
+
+  private static final String VISIBILITY_POLL_INTERVAL_PROPERTY = "visibilitypollintervalus";
+
+  private static final String VISIBILITY_POLL_INTERVAL_PROPERTY_DEFAULT = "500";
+
+  private static final String VISIBILITY_MAX_PENDING_PROPERTY = "visibilitymaxpending";
+
+  private static final String VISIBILITY_MAX_PENDING_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * The name of the property for the path of the key-space manifest.
+   */
+  private static final String KEYSPACE_MANIFEST_PROPERTY = "keyspacemanifest";
+
   private static final int NUM_SENSORS = 10;
 
+  private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
   private NumberGenerator keysequence;
-  private DiscreteGenerator operationchooser;
+  private OperationChooser operationchooser;
+  private long randomseed;
   private NumberGenerator deviceKeyChooser;
   private NumberGenerator sensorKeyChooser;
   private NumberGenerator measurementKeyChooser;
@@ -346,6 +513,31 @@ public class DanWorkload extends Workload {
   private int zeropadding;
   private int insertionRetryLimit;
   private int insertionRetryInterval;
+  private int insertbatchsize;
+  private NumberGenerator measurementspersensor;
+  /**
+   * Null for the hashed layout.
+   */
+  private MeasurementKeyLayout timeorderedkeys;
+  private String scanmode;
+  private long scanwindowms;
+  private PayloadEncoding payloadencoding;
+  /**
+   * Null when no updates are probed.
+   */
+  private VisibilityProbe visibilityprobe;
+  private double visibilityprobefraction;
+  private KeyCodec keycodec;
+  /**
+   * Null when no manifest is kept.
+   */
+  private KeyspaceManifest keyspacemanifest;
+  private Path keyspacemanifestpath;
+  /**
+   * Where this run's inserts are acknowledged: the manifest itself, or for a coordinated worker one of its own.
+   */
+  private KeyspaceManifest keyspaceacknowledgements;
+  private Path keyspaceacknowledgementspath;
 
   private final List<String> fieldnames = Arrays.asList(Measurement.VALUES, Measurement.TIMESTAMP, Measurement.TYPE, Measurement.SENSOR_ID);;
 
@@ -373,6 +565,79 @@ public class DanWorkload extends Workload {
     value.set(intValue);
   }
 
+  /**
+   * Sets the device, sensor and measurement counts from the *_rows properties when any of them is given, else
+   * from the key-space manifest when there is one. Operations pick any ID below the count, so a manifest whose
+   * acknowledged IDs don't cover all of them is refused, and the *_rows properties have to be set instead.
+   */
+  private void readKeyspace(final Properties p) throws WorkloadException {
+    final String manifest = p.getProperty(KEYSPACE_MANIFEST_PROPERTY);
+    if (manifest != null) {
+      keyspacemanifestpath = Paths.get(manifest);
+      try {
+        keyspacemanifest = KeyspaceManifest.read(keyspacemanifestpath);
+      } catch (IOException e) {
+        throw new WorkloadException("Could not read the key-space manifest " + manifest, e);
+      }
+      final String worker = p.getProperty(Coordinator.WORKER_PROPERTY);
+      if (worker == null) {
+        keyspaceacknowledgements = keyspacemanifest;
+        keyspaceacknowledgementspath = keyspacemanifestpath;
+      } else {
+        keyspaceacknowledgements = new KeyspaceManifest();
+        keyspaceacknowledgementspath = workerManifest(keyspacemanifestpath, worker);
+      }
+    }
+    final boolean explicit = p.getProperty(DEVICE_ROWS) != null || p.getProperty(SENSOR_ROWS) != null
+        || p.getProperty(MEASUREMENT_ROWS) != null;
+    if (explicit || keyspacemanifest == null || !keyspacemanifest.isLoaded()) {
+      readExistingValue(p, DEVICE_ROWS, DEVICE_NUM);
+      readExistingValue(p, SENSOR_ROWS, SENSOR_NUM);
+      readExistingValue(p, MEASUREMENT_ROWS, MEASUREMENT_NUM);
+      LOG.info("Key space from properties: devices={}, sensors={}, measurements={}.",
+          DEVICE_NUM.get(), SENSOR_NUM.get(), MEASUREMENT_NUM.get());
+      if (keyspacemanifest != null && !keyspacemanifest.isLoaded()
+          && Integer.parseInt(p.getProperty(Coordinator.WORKER_PROPERTY, "0")) == 0) {
+        // a new manifest starts out with the rows that were counted, of which only the first worker tells
+        keyspaceacknowledgements.acknowledge(KeyspaceManifest.Entity.DEVICE, 0, DEVICE_NUM.get());
+        keyspaceacknowledgements.acknowledge(KeyspaceManifest.Entity.SENSOR, 0, SENSOR_NUM.get());
+        keyspaceacknowledgements.acknowledge(KeyspaceManifest.Entity.MEASUREMENT, 1, MEASUREMENT_NUM.get() + 1);
+      }
+      return;
+    }
+    DEVICE_NUM.set(toInt(keyspacemanifest.highWaterMark(KeyspaceManifest.Entity.DEVICE)));
+    SENSOR_NUM.set(toInt(keyspacemanifest.highWaterMark(KeyspaceManifest.Entity.SENSOR)));
+    // measurement numbers start at 1, so the count is the highest number
+    MEASUREMENT_NUM.set(toInt(Math.max(0, keyspacemanifest.highWaterMark(KeyspaceManifest.Entity.MEASUREMENT) - 1)));
+    LOG.info("Key space from manifest {}: devices={}, sensors={}, measurements={}.",
+        keyspacemanifestpath, DEVICE_NUM.get(), SENSOR_NUM.get(), MEASUREMENT_NUM.get());
+    for (KeyspaceManifest.Entity entity : KeyspaceManifest.Entity.values()) {
+      final List<long[]> gaps =
+          keyspacemanifest.unacknowledged(entity, entity == KeyspaceManifest.Entity.MEASUREMENT ? 1 : 0);
+      if (!gaps.isEmpty()) {
+        final StringBuilder missing = new StringBuilder();
+        for (long[] gap : gaps.subList(0, Math.min(gaps.size(), 10))) {
+          missing.append(" [").append(gap[0]).append(", ").append(gap[1]).append(')');
+        }
+        throw new WorkloadException("The key-space manifest " + keyspacemanifestpath + " has " + gaps.size()
+            + " ranges of " + entity + " IDs that were never acknowledged, which operations would pick:" + missing
+            + (gaps.size() > 10 ? " ..." : "") + ". Set " + DEVICE_ROWS + ", " + SENSOR_ROWS + " and "
+            + MEASUREMENT_ROWS + " instead.");
+      }
+    }
+  }
+
+  private static Path workerManifest(Path manifest, Object worker) {
+    return manifest.resolveSibling(manifest.getFileName() + ".worker-" + worker);
+  }
+
+  private static int toInt(long value) throws WorkloadException {
+    if (value > Integer.MAX_VALUE) {
+      throw new WorkloadException("Key-space manifest value " + value + " doesn't fit the workload's counters");
+    }
+    return (int) value;
+  }
+
   private static NumberGenerator getFieldLengthGenerator(Properties p) throws WorkloadException {
     NumberGenerator fieldlengthgenerator;
     String fieldlengthdistribution = p.getProperty(
@@ -403,6 +668,79 @@ public class DanWorkload extends Workload {
     return fieldlengthgenerator;
   }
 
+  private void initVisibilityProbe(Properties p) throws WorkloadException {
+    visibilityprobefraction = Double.parseDouble(
+        p.getProperty(VISIBILITY_PROBE_FRACTION_PROPERTY, VISIBILITY_PROBE_FRACTION_PROPERTY_DEFAULT));
+    if (visibilityprobefraction <= 0) {
+      return;
+    }
+    if (dataintegrity) {
+      throw new WorkloadException(VISIBILITY_PROBE_FRACTION_PROPERTY + " can't be combined with "
+          + DATA_INTEGRITY_PROPERTY + ", probed updates write the timestamp field too");
+    }
+    visibilityprobe = new VisibilityProbe(
+        Integer.parseInt(p.getProperty(VISIBILITY_MAX_PENDING_PROPERTY, VISIBILITY_MAX_PENDING_PROPERTY_DEFAULT)),
+        Long.parseLong(p.getProperty(VISIBILITY_TIMEOUT_PROPERTY, VISIBILITY_TIMEOUT_PROPERTY_DEFAULT)),
+        Long.parseLong(p.getProperty(VISIBILITY_POLL_INTERVAL_PROPERTY, VISIBILITY_POLL_INTERVAL_PROPERTY_DEFAULT)),
+        payloadencoding, measurements);
+  }
+
+  private void initMeasurementKeyLayout(Properties p) throws WorkloadException {
+    final String layout = p.getProperty(MEASUREMENT_KEY_LAYOUT_PROPERTY, MEASUREMENT_KEY_LAYOUT_PROPERTY_DEFAULT);
+    scanmode = p.getProperty(MEASUREMENT_SCAN_MODE_PROPERTY, MEASUREMENT_SCAN_MODE_PROPERTY_DEFAULT);
+    scanwindowms = Long.parseLong(
+        p.getProperty(MEASUREMENT_SCAN_WINDOW_PROPERTY, MEASUREMENT_SCAN_WINDOW_PROPERTY_DEFAULT));
+    if (!scanmode.equals("key") && !scanmode.equals("latest") && !scanmode.equals("range")) {
+      throw new WorkloadException("Unknown measurement scan mode \"" + scanmode + "\"");
+    }
+    if (layout.equals("hashed")) {
+      if (!scanmode.equals("key")) {
+        throw new WorkloadException(MEASUREMENT_SCAN_MODE_PROPERTY + "=" + scanmode + " needs "
+            + MEASUREMENT_KEY_LAYOUT_PROPERTY + "=timeordered");
+      }
+      return;
+    }
+    if (!layout.equals("timeordered")) {
+      throw new WorkloadException("Unknown measurement key layout \"" + layout + "\"");
+    }
+    // a point operation picks a random measurement number and hashes it, which doesn't give a timeordered key
+    for (String pointOperation : new String[] {
+        READ_PROPORTION_PROPERTY, UPDATE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY}) {
+      if (Double.parseDouble(p.getProperty(pointOperation, "0")) > 0) {
+        throw new WorkloadException(pointOperation + " must be 0 with "
+            + MEASUREMENT_KEY_LAYOUT_PROPERTY + "=timeordered, use scans to read measurements");
+      }
+    }
+    timeorderedkeys = new MeasurementKeyLayout(Long.parseLong(
+        p.getProperty(MEASUREMENT_TIME_BUCKET_PROPERTY, MEASUREMENT_TIME_BUCKET_PROPERTY_DEFAULT)));
+  }
+
+  private static NumberGenerator getMeasurementsPerSensorGenerator(Properties p) throws WorkloadException {
+    String distribution = p.getProperty(
+        MEASUREMENTS_PER_SENSOR_DISTRIBUTION_PROPERTY, MEASUREMENTS_PER_SENSOR_DISTRIBUTION_PROPERTY_DEFAULT);
+    int max = Integer.parseInt(
+        p.getProperty(MEASUREMENTS_PER_SENSOR_PROPERTY, MEASUREMENTS_PER_SENSOR_PROPERTY_DEFAULT));
+    int min = Integer.parseInt(
+        p.getProperty(MIN_MEASUREMENTS_PER_SENSOR_PROPERTY, MIN_MEASUREMENTS_PER_SENSOR_PROPERTY_DEFAULT));
+    if (min < 0 || max < 0) {
+      throw new WorkloadException("The number of measurements per sensor can not be negative.");
+    }
+    if (distribution.equals("constant")) {
+      return new ConstantIntegerGenerator(max);
+    }
+    if (min > max) {
+      throw new WorkloadException(MIN_MEASUREMENTS_PER_SENSOR_PROPERTY + " (" + min + ") is bigger than "
+          + MEASUREMENTS_PER_SENSOR_PROPERTY + " (" + max + ")");
+    }
+    if (distribution.equals("uniform")) {
+      return new UniformLongGenerator(min, max);
+    } else if (distribution.equals("zipfian")) {
+      return new ZipfianGenerator(min, max);
+    }
+    throw new WorkloadException(
+        "Unknown measurements per sensor distribution \"" + distribution + "\"");
+  }
+
   /**
    * Initialize the scenario.
    * Called once, in the main client thread, before any operations are started.
@@ -410,9 +748,7 @@ public class DanWorkload extends Workload {
   @Override
   public void init(Properties p) throws WorkloadException {
 
-    readExistingValue(p, DEVICE_ROWS, DEVICE_NUM);
-    readExistingValue(p, SENSOR_ROWS, SENSOR_NUM);
-    readExistingValue(p, MEASUREMENT_ROWS, MEASUREMENT_NUM);
+    readKeyspace(p);
 
     fieldcount = fieldnames.size() - 1;
 
@@ -444,6 +780,8 @@ public class DanWorkload extends Workload {
     }
     zeropadding =
         Integer.parseInt(p.getProperty(ZERO_PADDING_PROPERTY, ZERO_PADDING_PROPERTY_DEFAULT));
+    keycodec = KeyCodecFactory.newKeyCodec(
+        p.getProperty(KeyCodecFactory.KEY_CODEC_PROPERTY, KEY_CODEC_PROPERTY_DEFAULT));
 
     dataintegrity = Boolean.parseBoolean(
         p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
@@ -455,6 +793,7 @@ public class DanWorkload extends Workload {
       System.err.println("Must have constant field size to check data integrity.");
       System.exit(-1);
     }
+    deterministicvalues = DeterministicValues.fromProperties(p);
 
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
@@ -473,7 +812,9 @@ public class DanWorkload extends Workload {
     }
 
     keysequence = new CounterGenerator(insertstart);
-    operationchooser = createOperationGenerator(p);
+    operationchooser = createOperationChooser(p);
+    randomseed = Long.parseLong(p.getProperty(RANDOM_SEED_PROPERTY, String.valueOf(System.nanoTime())));
+    LOG.info("Using {}={}, pass it again to replay this run's random choices.", RANDOM_SEED_PROPERTY, randomseed);
 
     transactioninsertkeysequence = new AcknowledgedCounterGenerator(recordcount);
     if (requestdistrib.compareTo("uniform") == 0) {
@@ -481,9 +822,20 @@ public class DanWorkload extends Workload {
       sensorKeyChooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
       measurementKeyChooser = new UniformLongGenerator(insertstart, insertstart + insertcount - 1);
     } else if (requestdistrib.compareTo("sequential") == 0) {
-      deviceKeyChooser = new SequentialGenerator(DEVICE_NUM.get(), DEVICE_NUM.get() + insertcount - 1);
-      sensorKeyChooser = new SequentialGenerator(SENSOR_NUM.get(), Integer.MAX_VALUE);
-      measurementKeyChooser = new SequentialGenerator(MEASUREMENT_NUM.get() + 1, Integer.MAX_VALUE);
+      // coordinated workers each start past the rows the ones with a lower insertstart write, so their keys don't
+      // meet
+      final long offset = p.getProperty(Coordinator.WORKER_PROPERTY) == null ? 0 : insertstart;
+      final long sensorStart = SENSOR_NUM.get() + offset * NUM_SENSORS;
+      final long measurementStart = MEASUREMENT_NUM.get() + 1 + offset * NUM_SENSORS * Math.max(1,
+          Long.parseLong(p.getProperty(MEASUREMENTS_PER_SENSOR_PROPERTY, MEASUREMENTS_PER_SENSOR_PROPERTY_DEFAULT)));
+      if (measurementStart > Integer.MAX_VALUE || sensorStart > Integer.MAX_VALUE) {
+        throw new WorkloadException("insertstart=" + insertstart + " numbers sensors from " + sensorStart
+            + " and measurements from " + measurementStart + ", past " + Integer.MAX_VALUE);
+      }
+      deviceKeyChooser = new SequentialGenerator(DEVICE_NUM.get() + offset,
+          DEVICE_NUM.get() + offset + insertcount - 1);
+      sensorKeyChooser = new SequentialGenerator(sensorStart, Integer.MAX_VALUE);
+      measurementKeyChooser = new SequentialGenerator(measurementStart, Integer.MAX_VALUE);
     } else if (requestdistrib.compareTo("zipfian") == 0) {
       // it does this by generating a random "next key" in part by taking the modulus over the
       // number of keys.
@@ -533,10 +885,47 @@ public class DanWorkload extends Workload {
         INSERTION_RETRY_LIMIT, INSERTION_RETRY_LIMIT_DEFAULT));
     insertionRetryInterval = Integer.parseInt(p.getProperty(
         INSERTION_RETRY_INTERVAL, INSERTION_RETRY_INTERVAL_DEFAULT));
+    insertbatchsize = Integer.parseInt(p.getProperty(INSERT_BATCH_SIZE_PROPERTY, INSERT_BATCH_SIZE_PROPERTY_DEFAULT));
+    if (insertbatchsize < 1) {
+      throw new WorkloadException(INSERT_BATCH_SIZE_PROPERTY + " must be at least 1, was " + insertbatchsize);
+    }
+    measurementspersensor = getMeasurementsPerSensorGenerator(p);
+    initMeasurementKeyLayout(p);
+    try {
+      payloadencoding = PayloadEncoding.fromName(
+          p.getProperty(PAYLOAD_ENCODING_PROPERTY, PAYLOAD_ENCODING_PROPERTY_DEFAULT));
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException(e.getMessage(), e);
+    }
+    if (dataintegrity && payloadencoding != PayloadEncoding.TEXT) {
+      throw new WorkloadException(DATA_INTEGRITY_PROPERTY + " compares text values, it needs "
+          + PAYLOAD_ENCODING_PROPERTY + "=text");
+    }
+    final String payloadcolumns = p.getProperty(PAYLOAD_COLUMNS_PROPERTY, PAYLOAD_COLUMNS_PROPERTY_DEFAULT);
+    if (!payloadcolumns.equals("text") && !payloadcolumns.equals("bytes")) {
+      throw new WorkloadException("Unknown " + PAYLOAD_COLUMNS_PROPERTY + " " + payloadcolumns
+          + ", expected text or bytes");
+    }
+    if (payloadencoding != PayloadEncoding.TEXT && payloadcolumns.equals("text")) {
+      throw new WorkloadException(PAYLOAD_ENCODING_PROPERTY + "=" + p.getProperty(PAYLOAD_ENCODING_PROPERTY)
+          + " writes raw bytes, which text columns mangle or reject: create the measurement table with bytes "
+          + "columns, store the values with a binding that writes their bytes, and set "
+          + PAYLOAD_COLUMNS_PROPERTY + "=bytes");
+    }
+    initVisibilityProbe(p);
 
     printWorkflowProperties(p);
   }
 
+  /**
+   * Each client thread gets its own random stream, seeded from the run seed and the thread id.
+   */
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+    // a batch holds at most insertbatchsize rows of a table, so that many field maps per table are enough
+    return new DanThreadState(randomseed, mythreadid, operationchooser, new RowEmitter(insertbatchsize, payloadencoding));
+  }
+
   private void printWorkflowProperties(Properties p) {
     String [] properties = {
       WORKLOAD_PROPERTY, DATA_INTEGRITY_PROPERTY, REQUEST_DISTRIBUTION_PROPERTY, THREAD_COUNT_PROPERTY, RECORD_COUNT_PROPERTY,
@@ -592,114 +981,230 @@ public class DanWorkload extends Workload {
    */
   private String buildDeterministicValue(String key, String fieldkey) {
     debug("buildDeterministicValue key=" + key + ", fieldKey=" + fieldkey);
-    int size = fieldlengthgenerator.nextValue().intValue();
-    StringBuilder sb = new StringBuilder(size);
-    sb.append(key);
-    sb.append(':');
-    sb.append(fieldkey);
-    while (sb.length() < size) {
-      sb.append(':');
-      sb.append(sb.toString().hashCode());
-    }
-    sb.setLength(size);
-
-    debug("buildDeterministicValue value=" + sb.toString());
-    return sb.toString();
+    final String value = deterministicvalues.build(key, fieldkey, fieldlengthgenerator.nextValue().intValue());
+    debug("buildDeterministicValue value=" + value);
+    return value;
   }
 
-  private String hash1(String id) {
-    MessageDigest messageDigest = null;
-    try {
-      messageDigest = MessageDigest.getInstance("MD5");
-    } catch (NoSuchAlgorithmException e) {
-      e.printStackTrace();
-      return null;
-    }
-    messageDigest.update(id.getBytes(),0, id.length());
-    return new BigInteger(1,messageDigest.digest()).toString(16);
+  private long nextMeasurementNumber() {
+    final int totalMeasurements = MEASUREMENT_NUM.incrementAndGet();
+    final long nextMeasurementId = measurementKeyChooser.nextValue().longValue();
+    LOG.debug("totalMeasurements={}, nextMeasurementId={}.", totalMeasurements, nextMeasurementId);
+    return nextMeasurementId;
   }
 
-  private Device generateDevice(final int numSensors) {
-    debug("generateDevice");
-    final Device d = new Device();
-    d.id = hash(String.valueOf(deviceKeyChooser.nextValue().longValue()));
-    d.name  = "device-" + d.id;
-    d.sensors.addAll(generateSensors(d.id, numSensors));
-    return d;
+  private String measurementKey(String sensorId, long timestampMillis, long measurementNumber) {
+    return timeorderedkeys == null
+        ? hash(measurementNumber) : timeorderedkeys.key(sensorId, timestampMillis, measurementNumber);
   }
 
-  private Collection<Sensor> generateSensors(String deviceId, final int sensorNum) {
-    debug("generateSensors deviceId=" + deviceId + ", sensorNum=" + sensorNum);
-    final Collection<Sensor> sensors = new ArrayList<>(sensorNum);
-    for (int i = 0; i < sensorNum; i ++) {
-      sensors.add(generateSensor(deviceId, 0));
+  /**
+   * Default hash to be used for IDs.
+   */
+  private String hash(long id) {
+    final String hash = keycodec.encode(id);
+    if (LOG.isDebugEnabled()) {
+      debug("hashed '" + id + "' to '" + hash + "'");
     }
-    return sensors;
+    return hash;
   }
 
-  private Sensor generateSensor(String deviceId, final int numMeasurements) {
-    final Sensor s = new Sensor();
-    s.id = hash(String.valueOf(sensorKeyChooser.nextValue().longValue()));
-    s.deviceId = deviceId;
-    s.name = "sensor-" + s.id;
-    s.measurementList.addAll(generateMeasurements(s.id, numMeasurements));
-    return s;
+  /**
+   * Do one insert operation. Because it will be called concurrently from multiple client threads,
+   * this function must be thread safe. However, avoid synchronized, or the threads will block waiting
+   * for each other, and it will be difficult to reach the target throughput. Ideally, this function would
+   * have no side effects other than DB operations.
+   */
+  @Override
+  public boolean doInsert(DB db, Object threadstate) {
+    debug("doInsert");
+    final DanThreadState state = (DanThreadState) threadstate;
+    final RowEmitter rows = state.rowEmitter();
+
+    final long deviceNumber = deviceKeyChooser.nextValue().longValue();
+    final String deviceId = hash(deviceNumber);
+    final RowBatch devices = new RowBatch(db, Device.TABLE_NAME);
+    rows.device(deviceId, devices);
+    final boolean devicesOk = devices.flush();
+    if (devicesOk) {
+      acknowledge(KeyspaceManifest.Entity.DEVICE, deviceNumber);
+    }
+
+    final String[] sensorIds = new String[NUM_SENSORS];
+    final RowBatch sensors = new RowBatch(db, Sensor.TABLE_NAME);
+    final KeyspaceManifest.Ids sensorNumbers = new KeyspaceManifest.Ids();
+    for (int i = 0; i < NUM_SENSORS; i++) {
+      final long sensorNumber = sensorKeyChooser.nextValue().longValue();
+      sensorNumbers.add(sensorNumber);
+      sensorIds[i] = hash(sensorNumber);
+      rows.sensor(sensorIds[i], deviceId, sensors);
+    }
+    final boolean sensorsOk = sensors.flush();
+    if (sensorsOk) {
+      acknowledge(KeyspaceManifest.Entity.SENSOR, sensorNumbers);
+    }
+
+    // measurements are generated and written one by one, at most insertbatchsize of them are alive at a time
+    final RowBatch measurementRows = new RowBatch(db, Measurement.TABLE_NAME);
+    final KeyspaceManifest.Ids measurementNumbers = new KeyspaceManifest.Ids();
+    for (String sensorId : sensorIds) {
+      final int count = measurementspersensor.nextValue().intValue();
+      for (int i = 0; i < count; i++) {
+        final long now = System.currentTimeMillis();
+        final long measurementNumber = nextMeasurementNumber();
+        measurementNumbers.add(measurementNumber);
+        rows.measurement(measurementKey(sensorId, now, measurementNumber), sensorId, state.nextMeasurementType(),
+            now, state.random(), measurementRows);
+      }
+    }
+    final boolean measurementsOk = measurementRows.flush();
+    if (measurementsOk) {
+      acknowledge(KeyspaceManifest.Entity.MEASUREMENT, measurementNumbers);
+    }
+    return devicesOk && sensorsOk && measurementsOk;
   }
 
-  private List<Measurement> generateMeasurements(String sensorId, final int numMeasurements) {
-    final List<Measurement> measurements = new ArrayList<>(numMeasurements);
-    for (int i = 0; i < numMeasurements; i ++) {
-      final int measurmentType = RANDOM.nextInt(Measurement.Type.values().length);
-      final int totalMeasurements = MEASUREMENT_NUM.incrementAndGet();
-      final long nextMeasurementId = measurementKeyChooser.nextValue().longValue();
-      final String measurementIdHash = hash(String.valueOf(nextMeasurementId));
-      LOG.debug("totalMeasurements={}, nextMeasurementId={}, hash={}.", totalMeasurements, nextMeasurementId, measurementIdHash);
-      measurements.add(Measurement.Type.values()[measurmentType].generate(measurementIdHash, sensorId));
+  /**
+   * Records a written row in the key-space manifest, if one is kept. Only called once the row was written, so a
+   * failed write never makes the manifest claim a row that may not exist.
+   */
+  private void acknowledge(KeyspaceManifest.Entity entity, long number) {
+    if (keyspaceacknowledgements != null) {
+      keyspaceacknowledgements.acknowledge(entity, number);
     }
-    return measurements;
   }
 
   /**
-   * Default hash to be used for IDs.
+   * Records written rows in the key-space manifest, like {@link #acknowledge(KeyspaceManifest.Entity, long)}, once
+   * all of them were written.
    */
-  private String hash(String str) {
-    final String hash = hash1(str);
-    debug("hashed '" + str + "' to '" + hash + "'");
-    return hash;
+  private void acknowledge(KeyspaceManifest.Entity entity, KeyspaceManifest.Ids numbers) {
+    if (keyspaceacknowledgements != null) {
+      keyspaceacknowledgements.acknowledge(entity, numbers);
+    }
   }
 
-  static class BooleanHolder {
-    Boolean b;
+  @Override
+  public void cleanup() throws WorkloadException {
+    if (keyspaceacknowledgements == null) {
+      return;
+    }
+    try {
+      keyspaceacknowledgements.write(keyspaceacknowledgementspath);
+      LOG.info("Wrote key-space manifest {}.", keyspaceacknowledgementspath);
+    } catch (IOException e) {
+      throw new WorkloadException("Could not write the key-space manifest " + keyspaceacknowledgementspath, e);
+    }
   }
 
   /**
-   * Do one insert operation. Because it will be called concurrently from multiple client threads,
-   * this function must be thread safe. However, avoid synchronized, or the threads will block waiting
-   * for each other, and it will be difficult to reach the target throughput. Ideally, this function would
-   * have no side effects other than DB operations.
+   * Merges the key-space manifests the workers of a coordinated run wrote into keyspacemanifest, and deletes them.
    */
   @Override
-  public boolean doInsert(DB db, Object threadstate) {
-    debug("doInsert");
-    final Device d = generateDevice(NUM_SENSORS);
+  public void mergeWorkers(Properties p, int workers) throws WorkloadException {
+    final String manifest = p.getProperty(KEYSPACE_MANIFEST_PROPERTY);
+    if (manifest == null) {
+      return;
+    }
+    final Path path = Paths.get(manifest);
+    try {
+      final KeyspaceManifest merged = KeyspaceManifest.read(path);
+      final List<Path> parts = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        final Path part = workerManifest(path, i);
+        if (Files.exists(part)) {
+          merged.merge(KeyspaceManifest.read(part));
+          parts.add(part);
+        }
+      }
+      if (parts.isEmpty()) {
+        return;
+      }
+      merged.write(path);
+      for (Path part : parts) {
+        Files.delete(part);
+      }
+      LOG.info("Merged the key-space manifests of {} workers into {}.", parts.size(), path);
+    } catch (IOException e) {
+      throw new WorkloadException("Could not merge the workers' key-space manifests into " + manifest, e);
+    }
+  }
 
-    final BooleanHolder b = new BooleanHolder();
-    b.b = doRetryInsert(db, Device.TABLE_NAME, d.id, d.dbValues());
+  /**
+   * Collects rows of one table and writes them with {@link DB#insertBatch} every insertbatchsize rows, or
+   * row by row when insertbatchsize is 1. A batch that ends up with a single row is written as a plain insert.
+   */
+  private final class RowBatch implements RowVisitor {
+    private final DB db;
+    private final String table;
+    private final List<String> keys;
+    private final List<Map<String, ByteIterator>> values;
+    private boolean ok = true;
+
+    RowBatch(DB db, String table) {
+      this.db = db;
+      this.table = table;
+      this.keys = new ArrayList<>(insertbatchsize);
+      this.values = new ArrayList<>(insertbatchsize);
+    }
 
-    d.sensors.forEach(s -> {
-      b.b &= doRetryInsert(db, Sensor.TABLE_NAME, s.id, s.dbValues());
-    });
+    @Override
+    public void visit(String rowTable, String key, Map<String, ByteIterator> rowValues) {
+      if (!table.equals(rowTable)) {
+        throw new IllegalArgumentException("Batch for " + table + " got a " + rowTable + " row");
+      }
+      if (insertbatchsize == 1) {
+        ok &= doRetryInsert(db, table, key, rowValues);
+        return;
+      }
+      keys.add(key);
+      values.add(rowValues);
+      if (keys.size() == insertbatchsize) {
+        flush();
+      }
+    }
 
-    return b.b;
+    /**
+     * Writes the rows still pending.
+     *
+     * @return true if every row added so far was written.
+     */
+    boolean flush() {
+      if (keys.isEmpty()) {
+        return ok;
+      }
+      if (keys.size() == 1) {
+        ok &= doRetryInsert(db, table, keys.get(0), values.get(0));
+      } else {
+        ok &= doRetryInsertBatch(db, table, keys, values);
+      }
+      keys.clear();
+      values.clear();
+      return ok;
+    }
   }
 
   private boolean doRetryInsert(DB db, String table, String dbkey, Map<String, ByteIterator> values) {
-    debug("doRetryInsert table=" + table + ", dbKey=" + dbkey + ", values=" + valuesToString(values));
+    if (LOG.isDebugEnabled()) {
+      debug("doRetryInsert table=" + table + ", dbKey=" + dbkey + ", values=" + valuesToString(values));
+    }
+    return doRetry(() -> db.insert(table, dbkey, values));
+  }
 
+  private boolean doRetryInsertBatch(DB db, String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    debug("doRetryInsertBatch table=" + table + ", rows=" + keys.size());
+    return doRetry(() -> db.insertBatch(table, keys, values));
+  }
+
+  /**
+   * Runs a write, retrying it up to core_workload_insertion_retry_limit times. A retried batch is written again
+   * in full, so stores should treat inserts as upserts.
+   */
+  private boolean doRetry(Supplier<Status> write) {
     Status status;
     int numOfRetries = 0;
     do {
-      status = db.insert(table, dbkey, values);
+      status = write.get();
       if (null != status && status.isOk()) {
         break;
       }
@@ -735,30 +1240,219 @@ public class DanWorkload extends Workload {
    */
   @Override
   public boolean doTransaction(DB db, Object threadstate) {
-    String operation = operationchooser.nextString();
+    final DanThreadState state = (DanThreadState) threadstate;
+    String operation = state.nextOperation();
     debug("doTransaction operation = " + operation);
     if (operation == null) {
       return false;
     }
 
+    if (visibilityprobe != null) {
+      visibilityprobe.pollOne(db, state.getThreadId());
+    }
+
+    doOperation(db, state, operation);
+    return true;
+  }
+
+  private void doOperation(DB db, DanThreadState state, String operation) {
     switch (operation) {
     case "READ":
-      doTransactionRead(db);
+      doTransactionRead(db, state);
       break;
     case "UPDATE":
-      doTransactionUpdate(db);
+      doTransactionUpdate(db, state);
       break;
     case "INSERT":
-      doTransactionInsert(db);
+      doTransactionInsert(db, state);
       break;
     case "SCAN":
-      doTransactionScan(db);
+      doTransactionScan(db, state);
       break;
     default:
-      doTransactionReadModifyWrite(db);
+      doTransactionReadModifyWrite(db, state);
     }
+  }
 
-    return true;
+  /**
+   * Reads, updates, inserts and scans from a random key are issued without waiting. Read-modify-writes, latest and
+   * range scans, and every operation of runs with visibility probes, wait on the blocking view of the DB.
+   */
+  @Override
+  public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    if (visibilityprobe != null) {
+      return super.doTransactionAsync(db, threadstate);
+    }
+    final DanThreadState state = (DanThreadState) threadstate;
+    final String operation = state.nextOperation();
+    debug("doTransactionAsync operation = " + operation);
+    if (operation == null) {
+      return CompletableFuture.completedFuture(false);
+    }
+
+    final CompletableFuture<Void> done;
+    switch (operation) {
+    case "READ":
+      done = doTransactionReadAsync(db, state);
+      break;
+    case "UPDATE":
+      done = doTransactionUpdateAsync(db, state);
+      break;
+    case "INSERT":
+      done = doTransactionInsertAsync(db, state);
+      break;
+    case "SCAN":
+      if (scanmode.equals("key")) {
+        done = doTransactionScanAsync(db, state);
+        break;
+      }
+      doOperation(db.blocking(), state, operation);
+      done = DONE;
+      break;
+    default:
+      doOperation(db.blocking(), state, operation);
+      done = DONE;
+    }
+    return done.thenApply(ignored -> true);
+  }
+
+  private static final PreparedOperation SKIP = (db, threadstate) -> true;
+
+  /**
+   * Reads, updates, inserts and scans from a random key get their keys and values on the generator thread.
+   * Read-modify-writes, latest and range scans, and every operation of runs with visibility probes, only have
+   * their operation chosen and are built by the client thread that runs them.
+   */
+  @Override
+  public PreparedOperation prepareTransaction(Object threadstate) {
+    final DanThreadState state = (DanThreadState) threadstate;
+    final String operation = state.nextOperation();
+    if (operation == null) {
+      return null;
+    }
+    if (visibilityprobe == null) {
+      switch (operation) {
+      case "READ":
+        return prepareRead(state);
+      case "UPDATE":
+        return prepareUpdate(state);
+      case "INSERT":
+        return prepareTransactionInsert(state);
+      case "SCAN":
+        if (scanmode.equals("key")) {
+          return prepareScan(state);
+        }
+        break;
+      default:
+        break;
+      }
+    }
+    return (db, clientstate) -> {
+      final DanThreadState client = (DanThreadState) clientstate;
+      if (visibilityprobe != null) {
+        visibilityprobe.pollOne(db, client.getThreadId());
+      }
+      doOperation(db, client, operation);
+      return true;
+    };
+  }
+
+  /**
+   * A load insert writes a whole device at a time, in batches, so it is built by the client thread that runs it.
+   */
+  @Override
+  public PreparedOperation prepareInsert(Object threadstate) {
+    return this::doInsert;
+  }
+
+  private PreparedOperation prepareRead(DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping read.");
+      return SKIP;
+    }
+    final String measurementId = selectRandomMeasurementId(state);
+    return (db, clientstate) -> {
+      final HashMap<String, ByteIterator> cells = new HashMap<>();
+      readCompleted(measurementId, db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, cells), cells);
+      return true;
+    };
+  }
+
+  private PreparedOperation prepareUpdate(DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping update.");
+      return SKIP;
+    }
+    final String measurementId = selectRandomMeasurementId(state);
+    final Map<String, ByteIterator> values = payloadencoding == PayloadEncoding.TEXT
+        ? buildSingleValue(measurementId, Measurement.VALUES)
+        : payloadUpdate(rewrittenMeasurement(state, measurementId));
+    return (db, clientstate) -> {
+      debug("doTransactionUpdate measurementId=" + measurementId + ", values=" + values);
+      final Status update = db.update(Measurement.TABLE_NAME, measurementId, values);
+      debug("doTransactionUpdate update status: " + update);
+      final Map<String, ByteIterator> readMap = new HashMap<>();
+      final Status read = db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, readMap);
+      updateReadCompleted(measurementId, values, read, readMap);
+      return true;
+    };
+  }
+
+  /**
+   * Only the sensor is chosen when the insert is prepared. The measurement number is drawn when it runs, so that
+   * inserts still queued in the rings, or left there at the end of the run, don't advance the measurement count
+   * reads and updates choose from.
+   */
+  private PreparedOperation prepareTransactionInsert(DanThreadState state) {
+    if (SENSOR_NUM.get() == 0) {
+      debug("sensor num is 0, skipping insert.");
+      return SKIP;
+    }
+    final String sensorId = selectRandomSensorId(state);
+    return (db, clientstate) -> {
+      insertMeasurement(db, (DanThreadState) clientstate, sensorId);
+      return true;
+    };
+  }
+
+  private PreparedOperation prepareScan(DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping scan.");
+      return SKIP;
+    }
+    final int len = 30 + state.nextInt(30);
+    final String measurementId = selectRandomMeasurementId(state);
+    return (db, clientstate) -> {
+      final Status status = db.scan(Measurement.TABLE_NAME, measurementId, len, fieldnamesSet, new Vector<>());
+      debug("doTransactionScan scan status = " + status);
+      return true;
+    };
+  }
+
+  /**
+   * Decodes a measurement row read back in a binary payload encoding and reports the outcome as VERIFY.
+   *
+   * @return The decoded measurement, or null if the row was empty or malformed.
+   */
+  private Measurement verifyPayload(String key, Map<String, ByteIterator> cells) {
+    Status verifyStatus = Status.OK;
+    Measurement decoded = null;
+    long startTime = System.nanoTime();
+    if (!cells.isEmpty()) {
+      try {
+        decoded = payloadencoding.decode(cells);
+        decoded.id = key;
+      } catch (IllegalArgumentException e) {
+        debug("verifyPayload key=" + key + " " + e.getMessage());
+        verifyStatus = Status.UNEXPECTED_STATE;
+      }
+    } else {
+      verifyStatus = Status.ERROR;
+    }
+    long endTime = System.nanoTime();
+    measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
+    measurements.reportStatus("VERIFY", verifyStatus);
+    return decoded;
   }
 
   /**
@@ -768,13 +1462,14 @@ public class DanWorkload extends Workload {
    * Bucket 1 means incorrect data was returned.
    * Bucket 2 means null data was returned when some data was expected.
    */
-  private void verifyRow(String key, HashMap<String, ByteIterator> cells) {
+  private void verifyRow(String key, Map<String, ByteIterator> cells) {
     debug("verifyRow key=" + key + ", values=" + valuesToString(cells));
     Status verifyStatus = Status.OK;
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(buildDeterministicValue(key, entry.getKey()))) {
+        if (!deterministicvalues.verify(key, entry.getKey(), entry.getValue().toString(),
+            fieldlengthgenerator.nextValue().intValue())) {
           verifyStatus = Status.UNEXPECTED_STATE;
           break;
         }
@@ -788,22 +1483,22 @@ public class DanWorkload extends Workload {
     measurements.reportStatus("VERIFY", verifyStatus);
   }
 
-  private String selectRandomMeasurementId() {
+  private String selectRandomMeasurementId(DanThreadState state) {
     debug("select random measurement for total measurement #" + MEASUREMENT_NUM.get());
-    return selectRandomHashId(MEASUREMENT_NUM.get());
+    return selectRandomHashId(state, MEASUREMENT_NUM.get());
   }
 
-  private String selectRandomSensorId() {
+  private String selectRandomSensorId(DanThreadState state) {
     debug("select random sensor for total sensor #" + SENSOR_NUM.get());
-    return selectRandomHashId(SENSOR_NUM.get());
+    return selectRandomHashId(state, SENSOR_NUM.get());
   }
 
-  private String selectRandomHashId(final int intId) {
+  private String selectRandomHashId(DanThreadState state, final int intId) {
     debug("Selecting random hash id for max limit " + intId);
-    return hash(String.valueOf(RANDOM.nextInt(intId)));
+    return hash(state.nextInt(intId));
   }
 
-  private void doTransactionRead(DB db) {
+  private void doTransactionRead(DB db, DanThreadState state) {
 
     if (MEASUREMENT_NUM.get() == 0) {
       debug("measurement num is 0, skipping read.");
@@ -812,12 +1507,27 @@ public class DanWorkload extends Workload {
 
     // choose a random key
 
-    String measurementId = selectRandomMeasurementId();
+    String measurementId = selectRandomMeasurementId(state);
 
     debug("doTransactionRead measurementId=" + measurementId + ", fieldNamesSet=" + fieldnamesSet);
 
     HashMap<String, ByteIterator> cells = new HashMap<>();
     Status status = db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, cells);
+    readCompleted(measurementId, status, cells);
+  }
+
+  private CompletableFuture<Void> doTransactionReadAsync(AsyncDB db, DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping read.");
+      return DONE;
+    }
+    final String measurementId = selectRandomMeasurementId(state);
+    final HashMap<String, ByteIterator> cells = new HashMap<>();
+    return db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, cells)
+        .thenAccept(status -> readCompleted(measurementId, status, cells));
+  }
+
+  private void readCompleted(String measurementId, Status status, Map<String, ByteIterator> cells) {
     debug("doTransactionRead read status=" + status + ", cells=" + cells);
     if (!status.isOk()) {
       LOG.error("doTransactionRead error for measurementId={}, status={}.", measurementId, status);
@@ -825,17 +1535,19 @@ public class DanWorkload extends Workload {
 
     if (dataintegrity) {
       verifyRow(measurementId, cells);
+    } else if (payloadencoding != PayloadEncoding.TEXT) {
+      verifyPayload(measurementId, cells);
     }
   }
 
-  private void doTransactionReadModifyWrite(DB db) {
+  private void doTransactionReadModifyWrite(DB db, DanThreadState state) {
 
     if (MEASUREMENT_NUM.get() == 0) {
       debug("measurement num is 0, skipping read-modify-write.");
       return;
     }
 
-    final String measurementId = selectRandomMeasurementId();
+    final String measurementId = selectRandomMeasurementId(state);
 
     debug("doTransactionReadModifyWrite measurementId=" + measurementId);
 
@@ -851,7 +1563,18 @@ public class DanWorkload extends Workload {
       return;
     }
 
-    cells.put(Measurement.VALUES, new StringByteIterator(cells.get(Measurement.VALUES).toString() + "-u"));
+    if (payloadencoding == PayloadEncoding.TEXT) {
+      cells.put(Measurement.VALUES, new StringByteIterator(cells.get(Measurement.VALUES).toString() + "-u"));
+    } else {
+      // the modification is a new timestamp, the values are written back as they were read
+      final Measurement m = verifyPayload(measurementId, cells);
+      if (m == null) {
+        return;
+      }
+      m.timestamp = String.valueOf(System.currentTimeMillis());
+      cells.clear();
+      cells.putAll(m.dbValues(payloadencoding));
+    }
     debug("readModifyWrite update measurementId=" + measurementId + ", values=" + cells);
     Status update = db.update(Measurement.TABLE_NAME, measurementId, cells);
     debug("readModifyWrite update status=" + update);
@@ -866,18 +1589,29 @@ public class DanWorkload extends Workload {
     measurements.measureIntended("READ-MODIFY-WRITE", (int) ((en - ist) / 1000));
   }
 
-  private void doTransactionScan(DB db) {
+  private void doTransactionScan(DB db, DanThreadState state) {
 
     if (MEASUREMENT_NUM.get() == 0) {
       debug("measurement num is 0, skipping scan.");
       return;
     }
 
-    // choose a random key
-    final String measurementId = selectRandomMeasurementId();
-
     //  choose a random scan length
-    final int len = 30 + RANDOM.nextInt(30);
+    final int len = 30 + state.nextInt(30);
+
+    switch (scanmode) {
+    case "latest":
+      doTransactionScanLatest(db, state, len);
+      return;
+    case "range":
+      doTransactionScanRange(db, state, len);
+      return;
+    default:
+      break;
+    }
+
+    // choose a random key
+    final String measurementId = selectRandomMeasurementId(state);
 
     debug("doTransactionScan measurementId=" + measurementId + ", startkeyname=" + measurementId + ", len=" + len
       + ", fieldNamesSet=" + fieldnamesSet);
@@ -886,7 +1620,68 @@ public class DanWorkload extends Workload {
     debug("doTransactionScan scan status = " + status);
   }
 
-  private void doTransactionUpdate(DB db) {
+  private CompletableFuture<Void> doTransactionScanAsync(AsyncDB db, DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping scan.");
+      return DONE;
+    }
+    final int len = 30 + state.nextInt(30);
+    final String measurementId = selectRandomMeasurementId(state);
+    return db.scan(Measurement.TABLE_NAME, measurementId, len, fieldnamesSet, new Vector<>())
+        .thenAccept(status -> debug("doTransactionScan scan status = " + status));
+  }
+
+  /**
+   * Reads the latest len measurements of a random sensor.
+   */
+  private void doTransactionScanLatest(DB db, DanThreadState state, int len) {
+    final String sensorId = selectRandomSensorId(state);
+    final Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    Status status = db.scan(Measurement.TABLE_NAME, timeorderedkeys.latestStartKey(sensorId), len, fieldnamesSet,
+        result);
+    if (LOG.isDebugEnabled()) {
+      debug("doTransactionScanLatest sensorId=" + sensorId + ", len=" + len + ", status=" + status + ", rows="
+          + countSensorRows(result, sensorId, Long.MIN_VALUE));
+    }
+  }
+
+  /**
+   * Reads the measurements a random sensor took in the last scan window, newest first. The DB interface has no end
+   * key, so at most len rows are read and the rows past the window or of the next sensor are only counted out.
+   */
+  private void doTransactionScanRange(DB db, DanThreadState state, int len) {
+    final String sensorId = selectRandomSensorId(state);
+    final long to = System.currentTimeMillis();
+    final long from = to - scanwindowms;
+    final Vector<HashMap<String, ByteIterator>> result = new Vector<>();
+    Status status = db.scan(Measurement.TABLE_NAME, timeorderedkeys.rangeStartKey(sensorId, to), len, fieldnamesSet,
+        result);
+    if (LOG.isDebugEnabled()) {
+      debug("doTransactionScanRange sensorId=" + sensorId + ", from=" + from + ", to=" + to + ", status=" + status
+          + ", rows=" + countSensorRows(result, sensorId, from));
+    }
+  }
+
+  /**
+   * @return How many leading rows of a time ordered scan belong to the sensor and were taken at or after fromMillis.
+   */
+  private int countSensorRows(Vector<HashMap<String, ByteIterator>> rows, String sensorId, long fromMillis) {
+    int count = 0;
+    for (HashMap<String, ByteIterator> row : rows) {
+      final ByteIterator rowSensor = row.get(Measurement.SENSOR_ID);
+      final ByteIterator rowTimestamp = row.get(Measurement.TIMESTAMP);
+      if (rowSensor == null || !sensorId.equals(rowSensor.toString())) {
+        break;
+      }
+      if (rowTimestamp != null && payloadencoding.decodeTimestamp(rowTimestamp) < fromMillis) {
+        break;
+      }
+      count++;
+    }
+    return count;
+  }
+
+  private void doTransactionUpdate(DB db, DanThreadState state) {
 
     if (MEASUREMENT_NUM.get() == 0) {
       debug("measurement num is 0, skipping update.");
@@ -894,49 +1689,136 @@ public class DanWorkload extends Workload {
     }
 
     // choose a random key
-    final String measurementId = selectRandomMeasurementId();
+    final String measurementId = selectRandomMeasurementId(state);
 
-    HashMap<String, ByteIterator> values;
+    Map<String, ByteIterator> values;
+    final boolean probed = visibilityprobe != null && state.random().nextDouble() < visibilityprobefraction;
+    long version = 0;
 
-    values = buildSingleValue(measurementId, Measurement.VALUES);
+    if (payloadencoding == PayloadEncoding.TEXT) {
+      values = buildSingleValue(measurementId, Measurement.VALUES);
+      if (probed) {
+        version = visibilityprobe.nextVersion();
+        values.put(Measurement.TIMESTAMP, new StringByteIterator(String.valueOf(version)));
+      }
+    } else if (probed) {
+      version = visibilityprobe.nextVersion();
+      values = payloadUpdate(state.nextMeasurementType().generate(measurementId, null, version, state.random()));
+    } else {
+      values = payloadUpdate(rewrittenMeasurement(state, measurementId));
+    }
 
     debug("doTransactionUpdate measurementId=" + measurementId + ", values=" + values);
     Status update = db.update(Measurement.TABLE_NAME, measurementId, values);
     debug("doTransactionUpdate update status: " + update);
+    if (probed && update.isOk()) {
+      visibilityprobe.published(measurementId, version, state.getThreadId());
+    }
     Map<String, ByteIterator> readMap = new HashMap<>();
     Status read = db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, readMap);
+    updateReadCompleted(measurementId, values, read, readMap);
+  }
+
+  private CompletableFuture<Void> doTransactionUpdateAsync(AsyncDB db, DanThreadState state) {
+    if (MEASUREMENT_NUM.get() == 0) {
+      debug("measurement num is 0, skipping update.");
+      return DONE;
+    }
+    final String measurementId = selectRandomMeasurementId(state);
+    final Map<String, ByteIterator> values = payloadencoding == PayloadEncoding.TEXT
+        ? buildSingleValue(measurementId, Measurement.VALUES)
+        : payloadUpdate(rewrittenMeasurement(state, measurementId));
+
+    debug("doTransactionUpdate measurementId=" + measurementId + ", values=" + values);
+    final Map<String, ByteIterator> readMap = new HashMap<>();
+    return db.update(Measurement.TABLE_NAME, measurementId, values)
+        .thenCompose(update -> {
+          debug("doTransactionUpdate update status: " + update);
+          return db.read(Measurement.TABLE_NAME, measurementId, fieldnamesSet, readMap);
+        })
+        .thenAccept(read -> updateReadCompleted(measurementId, values, read, readMap));
+  }
+
+  /**
+   * A new measurement for an update in a binary payload encoding: a lone VALUES field could not be decoded without
+   * the type, so the whole payload is rewritten.
+   */
+  private Measurement rewrittenMeasurement(DanThreadState state, String measurementId) {
+    return state.nextMeasurementType().generate(measurementId, null, state.random());
+  }
+
+  private Map<String, ByteIterator> payloadUpdate(Measurement m) {
+    final Map<String, ByteIterator> values = m.dbValues(payloadencoding);
+    values.remove(Measurement.SENSOR_ID);
+    return values;
+  }
+
+  private void updateReadCompleted(String measurementId, Map<String, ByteIterator> values, Status read,
+                                   Map<String, ByteIterator> readMap) {
     debug("doTransactionUpdate read status " + read);
     debug("doTransactionUpdate values " + readMap);
 
     if (dataintegrity) {
       verifyRow(measurementId, values);
+    } else if (payloadencoding != PayloadEncoding.TEXT) {
+      verifyPayload(measurementId, readMap);
     }
   }
 
-  private void doTransactionInsert(DB db) {
+  private void doTransactionInsert(DB db, DanThreadState state) {
 
     if (SENSOR_NUM.get() == 0) {
       debug("sensor num is 0, skipping insert.");
       return;
     }
 
-    String sensorId = selectRandomSensorId();
-    Measurement measurement = generateMeasurements(sensorId, 1).get(0);
+    insertMeasurement(db, state, selectRandomSensorId(state));
+  }
+
+  private void insertMeasurement(DB db, DanThreadState state, String sensorId) {
+    final long now = System.currentTimeMillis();
+    final long measurementNumber = nextMeasurementNumber();
+    Measurement measurement = state.nextMeasurementType()
+        .generate(measurementKey(sensorId, now, measurementNumber), sensorId, now, state.random());
 
     try {
       debug("doTransactionInsert measurement id =" + measurement.id + ", values=" + measurement.dbValues());
-      Status insert = db.insert(Measurement.TABLE_NAME, measurement.id, measurement.dbValues());
-      debug("doTransactionInsert insert status = " + insert);
-      if (insert.isOk()) {
-        int currentMeasurements = MEASUREMENT_NUM.incrementAndGet();
-        debug("current measurements: " + currentMeasurements);
-      }
+      Status insert = db.insert(Measurement.TABLE_NAME, measurement.id, measurement.dbValues(payloadencoding));
+      insertCompleted(measurementNumber, insert);
     } catch (Exception e) {
       LOG.error("Error while inserting in DB ", e);
       throw e;
     }
   }
 
+  private CompletableFuture<Void> doTransactionInsertAsync(AsyncDB db, DanThreadState state) {
+    if (SENSOR_NUM.get() == 0) {
+      debug("sensor num is 0, skipping insert.");
+      return DONE;
+    }
+    final String sensorId = selectRandomSensorId(state);
+    final long now = System.currentTimeMillis();
+    final long measurementNumber = nextMeasurementNumber();
+    final Measurement measurement = state.nextMeasurementType()
+        .generate(measurementKey(sensorId, now, measurementNumber), sensorId, now, state.random());
+    return db.insert(Measurement.TABLE_NAME, measurement.id, measurement.dbValues(payloadencoding))
+        .whenComplete((insert, error) -> {
+          if (error != null) {
+            LOG.error("Error while inserting in DB ", error);
+          }
+        })
+        .thenAccept(insert -> insertCompleted(measurementNumber, insert));
+  }
+
+  private void insertCompleted(long measurementNumber, Status insert) {
+    debug("doTransactionInsert insert status = " + insert);
+    if (insert.isOk()) {
+      int currentMeasurements = MEASUREMENT_NUM.incrementAndGet();
+      debug("current measurements: " + currentMeasurements);
+      acknowledge(KeyspaceManifest.Entity.MEASUREMENT, measurementNumber);
+    }
+  }
+
   /**
    * Creates a weighted discrete values with database operations for a workload to perform.
    * Weights/proportions are read from the properties list and defaults are used
@@ -944,10 +1826,10 @@ public class DanWorkload extends Workload {
    * Current operations are "READ", "UPDATE", "INSERT", "SCAN" and "READMODIFYWRITE".
    *
    * @param p The properties list to pull weights from.
-   * @return A generator that can be used to determine the next operation to perform.
+   * @return A chooser that client threads use, with their own random stream, to pick the next operation.
    * @throws IllegalArgumentException if the properties object was null.
    */
-  private static DiscreteGenerator createOperationGenerator(final Properties p) {
+  private static OperationChooser createOperationChooser(final Properties p) {
     if (p == null) {
       throw new IllegalArgumentException("Properties object cannot be null");
     }
@@ -962,7 +1844,7 @@ public class DanWorkload extends Workload {
     final double readmodifywriteproportion = Double.parseDouble(p.getProperty(
         READMODIFYWRITE_PROPORTION_PROPERTY, READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
 
-    final DiscreteGenerator operationchooser = new DiscreteGenerator();
+    final OperationChooser operationchooser = new OperationChooser();
     if (readproportion > 0) {
       operationchooser.addValue(readproportion, "READ");
     }
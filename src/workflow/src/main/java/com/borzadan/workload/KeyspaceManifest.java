@@ -0,0 +1,297 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The key space DanWorkload has written, kept in a properties file between runs so that a run doesn't need
+ * {@code SELECT count(*)} on every table to know which IDs exist.
+ * <p>
+ * For every entity it records the acknowledged ID numbers, i.e. of the rows written with an OK status, as a sorted
+ * list of {@code [start, end)} ranges that are merged as IDs are acknowledged, so an ID acknowledged twice counts
+ * once and a gap left by a failed write stays visible. The lowest and highest ID and the count are written next to
+ * the ranges as a summary. A manifest written before the ranges were kept is only read when its count equals the
+ * width of its bounds, since only then are all the IDs in them known to be there.
+ * Values of earlier runs are carried over, so the file describes everything written since it was created.
+ * <p>
+ * Acknowledgements come from all client threads and take a short lock per entity; an insert hands over all the IDs
+ * it wrote at once, see {@link Ids}.
+ */
+final class KeyspaceManifest {
+
+  enum Entity {
+    DEVICE, SENSOR, MEASUREMENT;
+
+    private final String prefix = name().toLowerCase(Locale.ROOT) + ".";
+  }
+
+  /**
+   * The ID numbers one operation wrote, coalesced into ranges as they are added. Adding them in increasing order,
+   * as the key choosers hand them out, keeps this to a range or a few. Not thread safe.
+   */
+  static final class Ids {
+    // start, end pairs
+    private long[] bounds = new long[8];
+    private int size;
+
+    void add(long id) {
+      if (size > 0 && bounds[size - 1] == id) {
+        bounds[size - 1] = id + 1;
+        return;
+      }
+      if (size == bounds.length) {
+        bounds = Arrays.copyOf(bounds, size * 2);
+      }
+      bounds[size++] = id;
+      bounds[size++] = id + 1;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+  }
+
+  private static final String LOW = "low";
+  private static final String HIGH_WATER_MARK = "highwatermark";
+  private static final String ACKNOWLEDGED = "acknowledged";
+  private static final String RANGES = "ranges";
+
+  /**
+   * Per entity, the end of every acknowledged range by its start. Ranges never overlap or touch.
+   */
+  private final List<TreeMap<Long, Long>> ranges = new ArrayList<>();
+  private final boolean loaded;
+
+  private KeyspaceManifest(Properties previous, boolean loaded) {
+    this.loaded = loaded;
+    for (Entity e : Entity.values()) {
+      ranges.add(new TreeMap<>());
+      final String list = previous.getProperty(e.prefix + RANGES);
+      if (list != null) {
+        for (String range : list.split(",")) {
+          final int dash = range.indexOf('-');
+          acknowledge(e, Long.parseLong(range.substring(0, dash).trim()),
+              Long.parseLong(range.substring(dash + 1).trim()));
+        }
+        continue;
+      }
+      final long count = Long.parseLong(previous.getProperty(e.prefix + ACKNOWLEDGED, "0"));
+      if (count > 0) {
+        final long low = Long.parseLong(previous.getProperty(e.prefix + LOW));
+        final long high = Long.parseLong(previous.getProperty(e.prefix + HIGH_WATER_MARK));
+        if (count != high - low) {
+          throw new IllegalArgumentException("the " + e + " IDs in [" + low + ", " + high + ") are " + count
+              + " acknowledged ones and " + (high - low - count) + " that may not exist, but the manifest predates "
+              + "acknowledged ranges and doesn't say which");
+        }
+        acknowledge(e, low, high);
+      }
+    }
+  }
+
+  /**
+   * An empty manifest.
+   */
+  KeyspaceManifest() {
+    this(new Properties(), false);
+  }
+
+  /**
+   * Reads the manifest at the given path, or returns an empty one if there is no file there.
+   */
+  static KeyspaceManifest read(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return new KeyspaceManifest();
+    }
+    final Properties p = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      p.load(in);
+    }
+    try {
+      return new KeyspaceManifest(p, true);
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed key-space manifest " + path + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return Whether this manifest was read from a file.
+   */
+  boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Records that the row with the given ID number was written.
+   */
+  void acknowledge(Entity entity, long id) {
+    acknowledge(entity, id, id + 1);
+  }
+
+  /**
+   * Records that the rows with ID numbers from start, inclusive, to end, exclusive, were written.
+   */
+  void acknowledge(Entity entity, long start, long end) {
+    if (start >= end) {
+      return;
+    }
+    final TreeMap<Long, Long> set = ranges.get(entity.ordinal());
+    synchronized (set) {
+      add(set, start, end);
+    }
+  }
+
+  /**
+   * Records that the rows with the given ID numbers were written.
+   */
+  void acknowledge(Entity entity, Ids ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    final TreeMap<Long, Long> set = ranges.get(entity.ordinal());
+    synchronized (set) {
+      for (int i = 0; i < ids.size; i += 2) {
+        add(set, ids.bounds[i], ids.bounds[i + 1]);
+      }
+    }
+  }
+
+  private static void add(TreeMap<Long, Long> set, long start, long end) {
+    final Map.Entry<Long, Long> before = set.floorEntry(start);
+    if (before != null && before.getValue() >= start) {
+      if (before.getValue() >= end) {
+        return;
+      }
+      start = before.getKey();
+    }
+    // absorb the ranges that overlap or touch this one
+    Map.Entry<Long, Long> next;
+    while ((next = set.ceilingEntry(start)) != null && next.getKey() <= end) {
+      end = Math.max(end, next.getValue());
+      set.remove(next.getKey());
+    }
+    set.put(start, end);
+  }
+
+  /**
+   * Adds what another manifest acknowledged, such as the one a worker of a coordinated run wrote.
+   */
+  void merge(KeyspaceManifest other) {
+    for (Entity e : Entity.values()) {
+      for (long[] range : other.ranges(e)) {
+        acknowledge(e, range[0], range[1]);
+      }
+    }
+  }
+
+  /**
+   * @return The acknowledged {@code [start, end)} ranges, in order.
+   */
+  List<long[]> ranges(Entity entity) {
+    final TreeMap<Long, Long> set = ranges.get(entity.ordinal());
+    final List<long[]> copy = new ArrayList<>();
+    synchronized (set) {
+      for (Map.Entry<Long, Long> range : set.entrySet()) {
+        copy.add(new long[] {range.getKey(), range.getValue()});
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * @return One more than the highest acknowledged ID number, or 0 if none was acknowledged.
+   */
+  long highWaterMark(Entity entity) {
+    final TreeMap<Long, Long> set = ranges.get(entity.ordinal());
+    synchronized (set) {
+      return set.isEmpty() ? 0 : set.lastEntry().getValue();
+    }
+  }
+
+  long acknowledged(Entity entity) {
+    long count = 0;
+    for (long[] range : ranges(entity)) {
+      count += range[1] - range[0];
+    }
+    return count;
+  }
+
+  /**
+   * @return The {@code [start, end)} ranges of IDs from first up to the high-water mark that were not acknowledged.
+   */
+  List<long[]> unacknowledged(Entity entity, long first) {
+    final List<long[]> gaps = new ArrayList<>();
+    long next = first;
+    for (long[] range : ranges(entity)) {
+      if (range[0] > next) {
+        gaps.add(new long[] {next, range[0]});
+      }
+      next = Math.max(next, range[1]);
+    }
+    return gaps;
+  }
+
+  /**
+   * Writes the manifest, replacing the file at path in one step so that a crash never leaves half a manifest.
+   */
+  void write(Path path) throws IOException {
+    final Properties p = new Properties();
+    for (Entity e : Entity.values()) {
+      final List<long[]> acknowledged = ranges(e);
+      if (acknowledged.isEmpty()) {
+        continue;
+      }
+      final StringBuilder list = new StringBuilder();
+      long count = 0;
+      for (long[] range : acknowledged) {
+        if (list.length() > 0) {
+          list.append(',');
+        }
+        list.append(range[0]).append('-').append(range[1]);
+        count += range[1] - range[0];
+      }
+      p.setProperty(e.prefix + LOW, String.valueOf(acknowledged.get(0)[0]));
+      p.setProperty(e.prefix + HIGH_WATER_MARK, String.valueOf(acknowledged.get(acknowledged.size() - 1)[1]));
+      p.setProperty(e.prefix + ACKNOWLEDGED, String.valueOf(count));
+      p.setProperty(e.prefix + RANGES, list.toString());
+    }
+    final Path absolute = path.toAbsolutePath();
+    final Path tmp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        p.store(out, "DanWorkload key-space manifest");
+      }
+      Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+/**
+ * The time-ordered measurement key layout: {@code <sensor id>:<time bucket>:<sequence>}.
+ * <p>
+ * The time bucket and the sequence are stored inverted ({@code Long.MAX_VALUE - value}) so that, in key order, the
+ * measurements of a sensor are grouped together, the newest bucket comes first and, within a bucket, the highest
+ * sequence comes first. A forward scan from {@link #latestStartKey}
+ * therefore returns the latest measurements of a sensor, and a forward scan from {@link #rangeStartKey} walks from
+ * a point in time back into the past. Bucket and sequence are fixed-width hex so that string order is numeric
+ * order.
+ */
+final class MeasurementKeyLayout {
+
+  static final char SEPARATOR = ':';
+
+  private static final int HEX_WIDTH = 16;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final long bucketMillis;
+
+  MeasurementKeyLayout(long bucketMillis) {
+    if (bucketMillis < 1) {
+      throw new IllegalArgumentException("time bucket must be at least 1 ms, was " + bucketMillis);
+    }
+    this.bucketMillis = bucketMillis;
+  }
+
+  /**
+   * @return The key of the measurement with the given sequence number, taken by the sensor at timestampMillis.
+   */
+  String key(String sensorId, long timestampMillis, long sequence) {
+    final char[] key = new char[sensorId.length() + 2 * HEX_WIDTH + 2];
+    int pos = writeBucketPrefix(key, sensorId, timestampMillis);
+    key[pos++] = SEPARATOR;
+    writeHex(Long.MAX_VALUE - sequence, key, pos);
+    return new String(key);
+  }
+
+  /**
+   * @return The key a scan for the latest measurements of the sensor starts at.
+   */
+  String latestStartKey(String sensorId) {
+    return sensorId + SEPARATOR;
+  }
+
+  /**
+   * @return The key a scan starts at to read the measurements of the sensor taken at or before toMillis, newest
+   * first.
+   */
+  String rangeStartKey(String sensorId, long toMillis) {
+    final char[] key = new char[sensorId.length() + HEX_WIDTH + 1];
+    writeBucketPrefix(key, sensorId, toMillis);
+    return new String(key);
+  }
+
+  private int writeBucketPrefix(char[] key, String sensorId, long timestampMillis) {
+    sensorId.getChars(0, sensorId.length(), key, 0);
+    int pos = sensorId.length();
+    key[pos++] = SEPARATOR;
+    writeHex(Long.MAX_VALUE - timestampMillis / bucketMillis, key, pos);
+    return pos + HEX_WIDTH;
+  }
+
+  private static void writeHex(long value, char[] dst, int offset) {
+    for (int i = HEX_WIDTH - 1; i >= 0; i--) {
+      dst[offset + i] = HEX[(int) (value & 0xf)];
+      value >>>= 4;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Weighted choice between operation names, like {@link com.yahoo.ycsb.generator.DiscreteGenerator}, but drawing
+ * from a random source supplied by the caller. Built once in init and then only read, so it can be shared by all
+ * client threads while each thread keeps its own seeded random stream.
+ */
+final class OperationChooser {
+
+  private String[] operations = new String[0];
+  private double[] cumulativeWeights = new double[0];
+  private double totalWeight;
+
+  void addValue(double weight, String operation) {
+    final int n = operations.length;
+    operations = Arrays.copyOf(operations, n + 1);
+    cumulativeWeights = Arrays.copyOf(cumulativeWeights, n + 1);
+    totalWeight += weight;
+    operations[n] = operation;
+    cumulativeWeights[n] = totalWeight;
+  }
+
+  /**
+   * @return The next operation, or null if no operation has a positive weight.
+   */
+  String next(SplittableRandom random) {
+    if (operations.length == 0) {
+      return null;
+    }
+    final double val = random.nextDouble() * totalWeight;
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (val < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    return operations[operations.length - 1];
+  }
+}
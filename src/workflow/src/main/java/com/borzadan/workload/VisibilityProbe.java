@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import com.borzadan.model.Measurement;
+import com.borzadan.model.PayloadEncoding;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long a write takes to become visible to other clients.
+ * <p>
+ * A probed write stores its version in the measurement's timestamp field and is published here once the store
+ * acknowledged it. Versions come from {@link #nextVersion()}: they are unique, and later than the millisecond of
+ * any write made before, so an earlier write of the row can't pass for the probed one. Every client thread polls
+ * one pending probe per operation: it reads the row and, once the stored timestamp is at least the probe's
+ * version, records the time since the acknowledgement as {@value #VISIBILITY}. Probes are never polled by the
+ * thread that wrote them. A probe that is not visible within the timeout is reported with the status TIMEOUT, and
+ * one that no longer fits among the pending probes when it is put back with the status DROPPED.
+ * <p>
+ * The resolution is the poll interval. The probe reads are not measured, see {@link DB#readUnmeasured}.
+ */
+final class VisibilityProbe {
+
+  static final String VISIBILITY = "VISIBILITY";
+
+  static final Status TIMEOUT = new Status("TIMEOUT", "The write did not become visible in time.");
+
+  static final Status DROPPED = new Status("DROPPED", "The probe was dropped, too many probes were pending.");
+
+  private static final Set<String> TIMESTAMP_FIELD = Collections.singleton(Measurement.TIMESTAMP);
+
+  private static final class Pending {
+    private final String key;
+    private final long version;
+    private final long ackNanos;
+    private final int writerThreadId;
+    private long nextPollNanos;
+
+    private Pending(String key, long version, long ackNanos, int writerThreadId) {
+      this.key = key;
+      this.version = version;
+      this.ackNanos = ackNanos;
+      this.writerThreadId = writerThreadId;
+      this.nextPollNanos = ackNanos;
+    }
+  }
+
+  private final BlockingQueue<Pending> pending;
+  private final long timeoutNanos;
+  private final long pollIntervalNanos;
+  private final PayloadEncoding encoding;
+  private final Measurements measurements;
+  private final AtomicLong lastVersion = new AtomicLong();
+
+  VisibilityProbe(int maxPending, long timeoutMillis, long pollIntervalMicros, PayloadEncoding encoding,
+                  Measurements measurements) {
+    this.pending = new ArrayBlockingQueue<>(maxPending);
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    this.pollIntervalNanos = TimeUnit.MICROSECONDS.toNanos(pollIntervalMicros);
+    this.encoding = encoding;
+    this.measurements = measurements;
+  }
+
+  /**
+   * @return The version of a probed write: a timestamp in milliseconds, after the current millisecond and after
+   * every version handed out before.
+   */
+  long nextVersion() {
+    final long now = System.currentTimeMillis() + 1;
+    return lastVersion.accumulateAndGet(now, (last, next) -> Math.max(last + 1, next));
+  }
+
+  /**
+   * Publishes an acknowledged write for the other threads to poll. When too many probes are pending the write is
+   * not probed.
+   */
+  void published(String key, long version, int writerThreadId) {
+    pending.offer(new Pending(key, version, System.nanoTime(), writerThreadId));
+  }
+
+  /**
+   * Polls at most one pending probe that another thread wrote and that is due.
+   */
+  void pollOne(DB db, int threadId) {
+    final Pending probe = pending.poll();
+    if (probe == null) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (probe.writerThreadId == threadId || now < probe.nextPollNanos) {
+      putBack(probe);
+      return;
+    }
+    final HashMap<String, ByteIterator> cells = new HashMap<>();
+    final Status read = db.readUnmeasured(Measurement.TABLE_NAME, probe.key, TIMESTAMP_FIELD, cells);
+    final long seen = System.nanoTime();
+    if (read.isOk() && isVisible(probe, cells)) {
+      measurements.measureHdrHistogram(VISIBILITY, (int) ((seen - probe.ackNanos) / 1000));
+      measurements.reportHdrHistogramStatus(VISIBILITY, Status.OK);
+    } else if (seen - probe.ackNanos > timeoutNanos) {
+      measurements.reportHdrHistogramStatus(VISIBILITY, TIMEOUT);
+    } else {
+      probe.nextPollNanos = seen + pollIntervalNanos;
+      putBack(probe);
+    }
+  }
+
+  /**
+   * Puts a probe back to be polled again. New writes may have taken its place meanwhile, in which case it is
+   * counted as dropped.
+   */
+  private void putBack(Pending probe) {
+    if (!pending.offer(probe)) {
+      measurements.reportHdrHistogramStatus(VISIBILITY, DROPPED);
+    }
+  }
+
+  private boolean isVisible(Pending probe, HashMap<String, ByteIterator> cells) {
+    final ByteIterator timestamp = cells.get(Measurement.TIMESTAMP);
+    if (timestamp == null) {
+      return false;
+    }
+    try {
+      return encoding.decodeTimestamp(timestamp) >= probe.version;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
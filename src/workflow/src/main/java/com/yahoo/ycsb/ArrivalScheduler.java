@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An open-loop load generator: arrivals happen on their own timeline at the target rate, whether or not earlier
+ * operations have completed, and client threads take them from a bounded queue. Each operation's intended start
+ * time is its arrival time, so when the database falls behind the time spent waiting in the queue is part of the
+ * measured intended latency instead of being hidden by a client that slows down with it.
+ * <p>
+ * With the "constant" mode arrivals are evenly spaced; with "poisson" the gaps between them are exponentially
+ * distributed, as for independent clients. When the queue is full the arrival thread waits, but arrival times keep
+ * following the timeline, so the queue bounds memory only and doesn't change the latencies reported.
+ */
+public final class ArrivalScheduler {
+
+  /**
+   * How operations are paced: closed (each client thread waits for its own schedule after every operation, the
+   * default), constant or poisson (open loop, at the target rate).
+   */
+  public static final String ARRIVALS_PROPERTY = "arrivals";
+
+  public static final String ARRIVALS_PROPERTY_DEFAULT = "closed";
+
+  /**
+   * The most arrivals waiting for a client thread.
+   */
+  public static final String QUEUE_SIZE_PROPERTY = "arrivals.queuesize";
+
+  public static final String QUEUE_SIZE_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * Returned by {@link #next} once the scheduler was stopped.
+   */
+  public static final long STOPPED = Long.MIN_VALUE;
+
+  private final boolean poisson;
+  private final double intervalNs;
+  /**
+   * Null for a fixed rate.
+   */
+  private final LoadSchedule schedule;
+  private final BlockingQueue<Long> queue;
+  private final SplittableRandom random = new SplittableRandom();
+  private final Thread thread;
+  private volatile boolean stopped;
+
+  ArrivalScheduler(boolean poisson, double opsPerSecond, int queueSize) {
+    this(poisson, opsPerSecond, null, queueSize);
+  }
+
+  /**
+   * Arrivals follow the rate of the schedule.
+   */
+  ArrivalScheduler(boolean poisson, LoadSchedule schedule, int queueSize) {
+    this(poisson, LoadSchedule.MIN_RATE, schedule, queueSize);
+  }
+
+  private ArrivalScheduler(boolean poisson, double opsPerSecond, LoadSchedule schedule, int queueSize) {
+    if (opsPerSecond <= 0) {
+      throw new IllegalArgumentException("An open-loop schedule needs a target rate, was " + opsPerSecond);
+    }
+    if (queueSize < 1) {
+      throw new IllegalArgumentException(QUEUE_SIZE_PROPERTY + " must be at least 1, was " + queueSize);
+    }
+    this.poisson = poisson;
+    this.intervalNs = TimeUnit.SECONDS.toNanos(1) / opsPerSecond;
+    this.schedule = schedule;
+    this.queue = new ArrayBlockingQueue<>(queueSize);
+    this.thread = new Thread(this::generate, "ArrivalScheduler");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * @param target The target number of operations per second for all client threads.
+   * @param schedule The target rate over time, or null to use target.
+   * @return The scheduler configured by the arrivals property, or null for closed-loop pacing.
+   * @throws IllegalArgumentException If the mode is unknown or an open-loop mode has no target.
+   */
+  public static ArrivalScheduler create(Properties props, double target, LoadSchedule schedule) {
+    final String mode = props.getProperty(ARRIVALS_PROPERTY, ARRIVALS_PROPERTY_DEFAULT);
+    final int queueSize = Integer.parseInt(props.getProperty(QUEUE_SIZE_PROPERTY, QUEUE_SIZE_PROPERTY_DEFAULT));
+    switch (mode) {
+    case "closed":
+      return null;
+    case "constant":
+      return schedule != null
+          ? new ArrivalScheduler(false, schedule, queueSize) : new ArrivalScheduler(false, target, queueSize);
+    case "poisson":
+      return schedule != null
+          ? new ArrivalScheduler(true, schedule, queueSize) : new ArrivalScheduler(true, target, queueSize);
+    default:
+      throw new IllegalArgumentException("Unknown " + ARRIVALS_PROPERTY + " " + mode
+          + ", must be closed, constant or poisson.");
+    }
+  }
+
+  /**
+   * Starts generating arrivals from now on.
+   */
+  public void start() {
+    thread.start();
+  }
+
+  /**
+   * Stops generating arrivals and releases the client threads waiting in {@link #next}.
+   */
+  public void stop() {
+    stopped = true;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Waits for the next arrival.
+   *
+   * @return The intended start time of the next operation, in System.nanoTime() terms, or {@link #STOPPED} once
+   * the scheduler or the workload was stopped.
+   */
+  public long next(Workload workload) throws InterruptedException {
+    while (!stopped && !workload.isStopRequested()) {
+      final Long arrival = queue.poll(100, TimeUnit.MILLISECONDS);
+      if (arrival != null) {
+        return arrival;
+      }
+    }
+    return STOPPED;
+  }
+
+  /**
+   * The gap from an arrival to the next one.
+   */
+  double nextIntervalNs(long arrival) {
+    final double mean = schedule == null ? intervalNs : schedule.intervalNs(arrival, 1);
+    if (!poisson) {
+      return mean;
+    }
+    return -Math.log(1 - random.nextDouble()) * mean;
+  }
+
+  private void generate() {
+    long arrival = System.nanoTime();
+    // the fractions of a nanosecond lost to rounding are carried over, so the rate is exact
+    double carry = 0;
+    try {
+      while (!stopped) {
+        final long now = System.nanoTime();
+        while (arrival <= now && !stopped) {
+          while (!queue.offer(arrival, 100, TimeUnit.MILLISECONDS)) {
+            if (stopped) {
+              return;
+            }
+          }
+          carry += nextIntervalNs(arrival);
+          arrival += (long) carry;
+          carry -= (long) carry;
+        }
+        LockSupport.parkNanos(arrival - System.nanoTime());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The asynchronous variant of {@link DB}: operations return at once and complete their future when the database
+ * answers, so one client thread can keep many operations in flight. Result maps and vectors are filled in before
+ * the future completes.
+ * <p>
+ * As with DB, each client thread is given its own instance, constructed with a no-argument constructor and set up
+ * in init(). Completions may run on any thread. Bindings without a native asynchronous driver don't need to
+ * implement this class, {@link BlockingAsyncDB} runs a blocking DB on a thread pool.
+ */
+public abstract class AsyncDB {
+  /**
+   * Properties for configuring this DB.
+   */
+  private Properties properties = new Properties();
+
+  private DB blocking;
+
+  /**
+   * Set the properties for this DB.
+   */
+  public void setProperties(Properties p) {
+    properties = p;
+  }
+
+  /**
+   * Get the set of properties for this DB.
+   */
+  public Properties getProperties() {
+    return properties;
+  }
+
+  /**
+   * Initialize any state for this DB.
+   * Called once per DB instance; there is one DB instance per client thread.
+   */
+  public void init() throws DBException {
+  }
+
+  /**
+   * Cleanup any state for this DB. Called once per DB instance, after every operation completed.
+   */
+  public void cleanup() throws DBException {
+  }
+
+  /**
+   * Read a record from the database.
+   *
+   * @see DB#read(String, String, Set, Map)
+   */
+  public abstract CompletableFuture<Status> read(String table, String key, Set<String> fields,
+                                                 Map<String, ByteIterator> result);
+
+  /**
+   * Read a record without measuring the read.
+   *
+   * @see DB#readUnmeasured(String, String, Set, Map)
+   */
+  public CompletableFuture<Status> readUnmeasured(String table, String key, Set<String> fields,
+                                                  Map<String, ByteIterator> result) {
+    return read(table, key, fields, result);
+  }
+
+  /**
+   * Perform a range scan for a set of records in the database.
+   *
+   * @see DB#scan(String, String, int, Set, Vector)
+   */
+  public abstract CompletableFuture<Status> scan(String table, String startkey, int recordcount, Set<String> fields,
+                                                 Vector<HashMap<String, ByteIterator>> result);
+
+  /**
+   * Update a record in the database.
+   *
+   * @see DB#update(String, String, Map)
+   */
+  public abstract CompletableFuture<Status> update(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Insert a record in the database.
+   *
+   * @see DB#insert(String, String, Map)
+   */
+  public abstract CompletableFuture<Status> insert(String table, String key, Map<String, ByteIterator> values);
+
+  /**
+   * Insert several records into the same table. The default implementation inserts them one after the other and
+   * stops at the first record that is not inserted successfully.
+   *
+   * @see DB#insertBatch(String, List, List)
+   */
+  public CompletableFuture<Status> insertBatch(String table, List<String> keys,
+                                               List<Map<String, ByteIterator>> values) {
+    if (keys.size() != values.size()) {
+      return CompletableFuture.completedFuture(Status.BAD_REQUEST);
+    }
+    return insertFrom(table, keys, values, 0);
+  }
+
+  private CompletableFuture<Status> insertFrom(String table, List<String> keys,
+                                               List<Map<String, ByteIterator>> values, int from) {
+    if (from == keys.size()) {
+      return CompletableFuture.completedFuture(Status.OK);
+    }
+    return insert(table, keys.get(from), values.get(from)).thenCompose(res ->
+        res == null || !res.isOk() ? CompletableFuture.completedFuture(res) : insertFrom(table, keys, values, from + 1));
+  }
+
+  /**
+   * Delete a record from the database.
+   *
+   * @see DB#delete(String, String)
+   */
+  public abstract CompletableFuture<Status> delete(String table, String key);
+
+  /**
+   * A blocking view of this DB, for workload code that doesn't have an asynchronous path. Every call waits for the
+   * operation to complete, so the calling thread has one operation in flight.
+   */
+  public final DB blocking() {
+    if (blocking == null) {
+      blocking = new BlockingView(this);
+    }
+    return blocking;
+  }
+
+  private static final class BlockingView extends DB {
+    private final AsyncDB db;
+
+    BlockingView(AsyncDB db) {
+      this.db = db;
+    }
+
+    @Override
+    public Properties getProperties() {
+      return db.getProperties();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return await(db.read(table, key, fields, result));
+    }
+
+    @Override
+    public Status readUnmeasured(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return await(db.readUnmeasured(table, key, fields, result));
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return await(db.scan(table, startkey, recordcount, fields, result));
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return await(db.update(table, key, values));
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return await(db.insert(table, key, values));
+    }
+
+    @Override
+    public Status insertBatch(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+      return await(db.insertBatch(table, keys, values));
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return await(db.delete(table, key));
+    }
+
+    private static Status await(CompletableFuture<Status> future) {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+}
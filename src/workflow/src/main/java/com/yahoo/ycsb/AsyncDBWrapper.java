@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.TraceScope;
+import org.apache.htrace.core.Tracer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Wrapper around a "real" AsyncDB that measures latencies and counts return codes, like {@link DBWrapper}. The
+ * latency is taken when the operation completes; the intended start time is read when it is issued, on the
+ * client thread that owns it. An operation whose future fails is counted as ERROR.
+ */
+public class AsyncDBWrapper extends AsyncDB {
+  private final AsyncDB db;
+  private final Measurements measurements;
+  private final Tracer tracer;
+  private final LatencyRecorder latency;
+  private final boolean tracing;
+
+  private final String scopeStringCleanup;
+  private final String scopeStringDelete;
+  private final String scopeStringInit;
+  private final String scopeStringInsert;
+  private final String scopeStringInsertBatch;
+  private final String scopeStringRead;
+  private final String scopeStringScan;
+  private final String scopeStringUpdate;
+
+  private final LatencyRecorder.Operation opDelete;
+  private final LatencyRecorder.Operation opInsert;
+  private final LatencyRecorder.Operation opInsertBatch;
+  private final LatencyRecorder.Operation opRead;
+  private final LatencyRecorder.Operation opScan;
+  private final LatencyRecorder.Operation opUpdate;
+
+  public AsyncDBWrapper(final AsyncDB db, final Tracer tracer) {
+    this.db = db;
+    measurements = Measurements.getMeasurements();
+    this.tracer = tracer;
+    latency = new LatencyRecorder(measurements);
+    tracing = DBWrapper.isTracing(tracer);
+    final String simple = db.getClass().getSimpleName();
+    scopeStringCleanup = simple + "#cleanup";
+    scopeStringDelete = simple + "#delete";
+    scopeStringInit = simple + "#init";
+    scopeStringInsert = simple + "#insert";
+    scopeStringInsertBatch = simple + "#insertBatch";
+    scopeStringRead = simple + "#read";
+    scopeStringScan = simple + "#scan";
+    scopeStringUpdate = simple + "#update";
+    opDelete = latency.operation("DELETE");
+    opInsert = latency.operation("INSERT");
+    opInsertBatch = latency.operation("INSERT-BATCH");
+    opRead = latency.operation("READ");
+    opScan = latency.operation("SCAN");
+    opUpdate = latency.operation("UPDATE");
+  }
+
+  /**
+   * @return A new trace scope, or null when not tracing, which try-with-resources skips.
+   */
+  private TraceScope trace(String scope) {
+    return tracing ? tracer.newScope(scope) : null;
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return db.getProperties();
+  }
+
+  @Override
+  @SuppressWarnings("try")
+  public void init() throws DBException {
+    try (final TraceScope span = trace(scopeStringInit)) {
+      db.init();
+      latency.configure(getProperties());
+    }
+  }
+
+  @Override
+  @SuppressWarnings("try")
+  public void cleanup() throws DBException {
+    try (final TraceScope span = trace(scopeStringCleanup)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      db.cleanup();
+      long en = System.nanoTime();
+      latency.measureCleanup(ist, st, en);
+    }
+  }
+
+  /**
+   * Issues the operation and records it once it completes. The trace scope covers issuing only.
+   */
+  @SuppressWarnings("try")
+  private CompletableFuture<Status> measured(LatencyRecorder.Operation op, String table, String scope,
+                                            Supplier<CompletableFuture<Status>> issue) {
+    final int group = measurements.getThreadGroup();
+    final long ist;
+    final long st;
+    final CompletableFuture<Status> future;
+    try (final TraceScope span = trace(scope)) {
+      ist = measurements.getIntendedtartTimeNs();
+      st = System.nanoTime();
+      future = issue.get();
+    }
+    return future.whenComplete((res, error) ->
+        latency.record(op, table, group, error == null ? res : Status.ERROR, ist, st, System.nanoTime()));
+  }
+
+  @Override
+  public CompletableFuture<Status> read(String table, String key, Set<String> fields,
+                                        Map<String, ByteIterator> result) {
+    return measured(opRead, table, scopeStringRead, () -> db.read(table, key, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> readUnmeasured(String table, String key, Set<String> fields,
+                                                  Map<String, ByteIterator> result) {
+    return db.read(table, key, fields, result);
+  }
+
+  @Override
+  public CompletableFuture<Status> scan(String table, String startkey, int recordcount, Set<String> fields,
+                                        Vector<HashMap<String, ByteIterator>> result) {
+    return measured(opScan, table, scopeStringScan, () -> db.scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> update(String table, String key, Map<String, ByteIterator> values) {
+    return measured(opUpdate, table, scopeStringUpdate, () -> db.update(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insert(String table, String key, Map<String, ByteIterator> values) {
+    return measured(opInsert, table, scopeStringInsert, () -> db.insert(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insertBatch(String table, List<String> keys,
+                                               List<Map<String, ByteIterator>> values) {
+    return measured(opInsertBatch, table, scopeStringInsertBatch, () -> db.insertBatch(table, keys, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> delete(String table, String key) {
+    return measured(opDelete, table, scopeStringDelete, () -> db.delete(table, key));
+  }
+}
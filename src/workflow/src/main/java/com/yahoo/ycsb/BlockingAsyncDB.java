@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Adapts blocking {@link DB} bindings to {@link AsyncDB}. Operations are handed round robin to a fixed number of
+ * threads, each of which owns one DB instance, so the DB's one-instance-per-thread contract still holds. At most
+ * that many operations run against the database at a time; the rest wait in the threads' queues.
+ */
+public class BlockingAsyncDB extends AsyncDB {
+  private final DB[] dbs;
+  private final ExecutorService[] executors;
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * @param dbs The DB instances to run the operations on, one thread is started for each.
+   */
+  public BlockingAsyncDB(DB[] dbs) {
+    this.dbs = dbs.clone();
+    this.executors = new ExecutorService[dbs.length];
+    for (int i = 0; i < dbs.length; i++) {
+      final String name = "BlockingAsyncDB-" + dbs[i].getClass().getSimpleName() + "-" + i;
+      executors[i] = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  /**
+   * Initializes each DB on the thread that will use it.
+   */
+  @Override
+  public void init() throws DBException {
+    forEachDb(db -> {
+      db.init();
+      return null;
+    });
+  }
+
+  /**
+   * Cleans up each DB on its own thread and stops the threads.
+   */
+  @Override
+  public void cleanup() throws DBException {
+    try {
+      forEachDb(db -> {
+        db.cleanup();
+        return null;
+      });
+    } finally {
+      for (ExecutorService executor : executors) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private interface DBTask {
+    Void run(DB db) throws DBException;
+  }
+
+  private void forEachDb(DBTask task) throws DBException {
+    for (int i = 0; i < dbs.length; i++) {
+      final DB db = dbs[i];
+      try {
+        executors[i].submit(() -> task.run(db)).get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof DBException) {
+          throw (DBException) e.getCause();
+        }
+        throw new DBException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DBException(e);
+      }
+    }
+  }
+
+  private CompletableFuture<Status> submit(Function<DB, Status> op) {
+    final int i = Math.floorMod(next.getAndIncrement(), dbs.length);
+    final DB db = dbs[i];
+    return CompletableFuture.supplyAsync(() -> op.apply(db), executors[i]);
+  }
+
+  @Override
+  public CompletableFuture<Status> read(String table, String key, Set<String> fields,
+                                        Map<String, ByteIterator> result) {
+    return submit(db -> db.read(table, key, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> scan(String table, String startkey, int recordcount, Set<String> fields,
+                                        Vector<HashMap<String, ByteIterator>> result) {
+    return submit(db -> db.scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public CompletableFuture<Status> update(String table, String key, Map<String, ByteIterator> values) {
+    return submit(db -> db.update(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insert(String table, String key, Map<String, ByteIterator> values) {
+    return submit(db -> db.insert(table, key, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> insertBatch(String table, List<String> keys,
+                                               List<Map<String, ByteIterator>> values) {
+    return submit(db -> db.insertBatch(table, keys, values));
+  }
+
+  @Override
+  public CompletableFuture<Status> delete(String table, String key) {
+    return submit(db -> db.delete(table, key));
+  }
+}
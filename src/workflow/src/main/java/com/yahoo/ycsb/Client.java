@@ -149,11 +149,51 @@ public final class Client {
    */
   public static final String LABEL_PROPERTY = "label";
 
+  /**
+   * How client threads run operations: "blocking" waits for each operation, "async" keeps up to asyncinflight
+   * operations in flight per client thread through an {@link AsyncDB}.
+   */
+  public static final String CLIENT_ENGINE_PROPERTY = "clientengine";
+
+  public static final String CLIENT_ENGINE_PROPERTY_DEFAULT = "blocking";
+
+  /**
+   * The AsyncDB class used by the async engine. If not set, the blocking db is run by a {@link BlockingAsyncDB}.
+   */
+  public static final String ASYNC_DB_PROPERTY = "asyncdb";
+
+  /**
+   * The most operations one client thread of the async engine has in flight.
+   */
+  public static final String ASYNC_IN_FLIGHT_PROPERTY = "asyncinflight";
+
+  public static final String ASYNC_IN_FLIGHT_PROPERTY_DEFAULT = "64";
+
+  /**
+   * How many threads, each with its own DB instance, a {@link BlockingAsyncDB} runs per client thread.
+   */
+  public static final String ASYNC_ADAPTER_THREADS_PROPERTY = "asyncadapterthreads";
+
+  public static final String ASYNC_ADAPTER_THREADS_PROPERTY_DEFAULT = "8";
+
   /**
    * An optional thread used to track progress and measure JVM stats.
    */
   private static StatusThread statusthread = null;
 
+  private static LoadScheduleMonitor schedulemonitor = null;
+
+  private static ConcurrencyController concurrency = null;
+
+  private static OperationPipeline pipeline = null;
+
+  /**
+   * When the warm-up ended and how many operations were done by then, 0 if it didn't.
+   */
+  private static volatile long warmupendtime = 0;
+
+  private static volatile int warmupops = 0;
+
   // HTrace integration related constants.
 
   /**
@@ -183,6 +223,17 @@ public final class Client {
     System.out.println("          multiple properties can be specified, and override any");
     System.out.println("          values in the propertyfile");
     System.out.println("  -s:  show status during run (default: no status)");
+    System.out.println("  -p clientengine=async:  keep asyncinflight operations in flight per thread (default: 64)");
+    System.out.println("  -p arrivals=poisson|constant:  open-loop arrivals at the target rate (default: closed)");
+    System.out.println("  -p schedule=\"ramp 100 1000 60s, step 1000 5m\":  follow a load schedule instead of the target");
+    System.out.println("  -p slo.p99ms=n:  stop the schedule once the p99 latency is above n ms (default: no SLO)");
+    System.out.println("  -p warmup.time=n | warmup.ops=n:  measure the first n seconds or operations as WARMUP-op");
+    System.out.println("  -p coordinator=host:port:  run as one of the workers of a com.yahoo.ycsb.Coordinator");
+    System.out.println("  -p operationbudget=shared:  threads claim operations as they go instead of a fixed share");
+    System.out.println("  -p dbpool.size=n:  share n DB instances between the client threads (default: one each)");
+    System.out.println("  -p pipeline=true:  prepare operations on pipeline.generators threads ahead of the DB threads");
+    System.out.println("  -p concurrency=adaptive:  search for the number of threads with the best throughput");
+    System.out.println("  -p threadmode=virtual:  run each client thread on a virtual thread, when the runtime has them");
     System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
     System.out.println("");
     System.out.println("Required properties:");
@@ -205,42 +256,96 @@ public final class Client {
   }
 
 
+  /**
+   * Creates the exporter loaded from conf, writing to either sysout or the export file.
+   */
+  static MeasurementsExporter createExporter(Properties props) throws IOException {
+    // if no destination file is provided the results will be written to stdout
+    OutputStream out;
+    String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
+    if (exportFile == null) {
+      out = System.out;
+    } else {
+      out = new FileOutputStream(exportFile);
+    }
+
+    // if no exporter is provided the default text one will be used
+    String exporterStr = props.getProperty(EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try {
+      return (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
+          .newInstance(out);
+    } catch (Exception e) {
+      System.err.println("Could not find exporter " + exporterStr
+          + ", will use default text reporter.");
+      e.printStackTrace();
+      return new TextMeasurementsExporter(out);
+    }
+  }
+
+  /**
+   * Exports how evenly the operations were spread over the client threads, and how long after the first thread the
+   * last one was done.
+   */
+  private static void exportThreadBalance(MeasurementsExporter exporter, List<ClientThread> clients, long starttime)
+      throws IOException {
+    int min = Integer.MAX_VALUE;
+    int max = 0;
+    long sum = 0;
+    long firstFinish = Long.MAX_VALUE;
+    long lastFinish = 0;
+    for (ClientThread client : clients) {
+      final int ops = client.getOpsDone();
+      min = Math.min(min, ops);
+      max = Math.max(max, ops);
+      sum += ops;
+      if (client.getFinishTimeMillis() > 0) {
+        firstFinish = Math.min(firstFinish, client.getFinishTimeMillis());
+        lastFinish = Math.max(lastFinish, client.getFinishTimeMillis());
+      }
+    }
+    if (clients.isEmpty()) {
+      return;
+    }
+    final double mean = (double) sum / clients.size();
+    double squares = 0;
+    for (ClientThread client : clients) {
+      squares += (client.getOpsDone() - mean) * (client.getOpsDone() - mean);
+    }
+    exporter.write("THREADS", "MinOperations", min);
+    exporter.write("THREADS", "MaxOperations", max);
+    exporter.write("THREADS", "AverageOperations", mean);
+    exporter.write("THREADS", "StdDevOperations", Math.sqrt(squares / clients.size()));
+    if (lastFinish > 0) {
+      exporter.write("THREADS", "FirstFinished(ms)", firstFinish - starttime);
+      exporter.write("THREADS", "LastFinished(ms)", lastFinish - starttime);
+    }
+  }
+
   /**
    * Exports the measurements to either sysout or a file using the exporter
    * loaded from conf.
    *
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, int opcount, long runtime, long warmuptime,
+                                         int warmupopcount, List<ClientThread> clients, long starttime)
       throws IOException {
     MeasurementsExporter exporter = null;
     try {
-      // if no destination file is provided the results will be written to stdout
-      OutputStream out;
-      String exportFile = props.getProperty(EXPORT_FILE_PROPERTY);
-      if (exportFile == null) {
-        out = System.out;
-      } else {
-        out = new FileOutputStream(exportFile);
-      }
+      exporter = createExporter(props);
 
-      // if no exporter is provided the default text one will be used
-      String exporterStr = props.getProperty(EXPORTER_PROPERTY,
-          "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
-      try {
-        exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class)
-            .newInstance(out);
-      } catch (Exception e) {
-        System.err.println("Could not find exporter " + exporterStr
-            + ", will use default text reporter.");
-        e.printStackTrace();
-        exporter = new TextMeasurementsExporter(out);
+      // the overall throughput is that of the steady state, after the warm-up
+      if (warmuptime > 0) {
+        exporter.write("WARMUP", "RunTime(ms)", warmuptime);
+        exporter.write("WARMUP", "Operations", warmupopcount);
       }
-
-      exporter.write("OVERALL", "RunTime(ms)", runtime);
-      double throughput = 1000.0 * (opcount) / (runtime);
+      exporter.write("OVERALL", "RunTime(ms)", runtime - warmuptime);
+      double throughput = 1000.0 * (opcount - warmupopcount) / (runtime - warmuptime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
+      exportThreadBalance(exporter, clients, starttime);
+
       final Map<String, Long[]> gcs = Utils.getGCStatst();
       long totalGCCount = 0;
       long totalGCTime = 0;
@@ -265,6 +370,16 @@ public final class Client {
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      if (schedulemonitor != null) {
+        schedulemonitor.exportMeasurements(exporter);
+      }
+      if (concurrency != null) {
+        concurrency.exportMeasurements(exporter);
+      }
+      if (pipeline != null) {
+        pipeline.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
       if (exporter != null) {
@@ -277,6 +392,14 @@ public final class Client {
   public static void main(String[] args) {
     Properties props = parseArguments(args);
 
+    CoordinatorConnection coordinator = null;
+    try {
+      coordinator = CoordinatorConnection.connect(props);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Could not connect to the coordinator: " + e.getMessage());
+      System.exit(-1);
+    }
+
     boolean status = Boolean.valueOf(props.getProperty(STATUS_PROPERTY, String.valueOf(false)));
     String label = props.getProperty(LABEL_PROPERTY, "");
 
@@ -287,9 +410,23 @@ public final class Client {
     String dbname = props.getProperty(DB_PROPERTY, "com.yahoo.ycsb.BasicDB");
     int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
 
-    //compute the target throughput
+    LoadSchedule schedule = null;
+    ArrivalScheduler arrivals = null;
+    try {
+      schedule = LoadSchedule.fromProperties(props);
+      arrivals = ArrivalScheduler.create(props, target, schedule);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+    if (schedule != null && coordinator != null) {
+      System.err.println(Coordinator.SCHEDULE_UNSUPPORTED);
+      System.exit(0);
+    }
+
+    //compute the target throughput, open-loop arrivals and load schedules pace all threads together instead
     double targetperthreadperms = -1;
-    if (target > 0) {
+    if (target > 0 && arrivals == null && schedule == null) {
       double targetperthread = ((double) target) / ((double) threadcount);
       targetperthreadperms = targetperthread / 1000.0;
     }
@@ -310,6 +447,39 @@ public final class Client {
 
     final List<ClientThread> clients = initDb(dbname, props, threadcount, targetperthreadperms,
         workload, tracer, completeLatch);
+    for (ClientThread client : clients) {
+      client.setArrivalScheduler(arrivals);
+      if (arrivals == null) {
+        client.setLoadSchedule(schedule);
+      }
+    }
+
+    try {
+      concurrency = ConcurrencyController.create(props, workload, Measurements.getMeasurements(), threadcount,
+          completeLatch);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(0);
+    }
+    if (concurrency != null) {
+      if (target > 0 || arrivals != null || schedule != null) {
+        System.err.println("Adaptive concurrency searches the saturation point of a closed loop, it can't be "
+            + "combined with a target, open-loop arrivals or a load schedule.");
+        System.exit(0);
+      }
+      for (ClientThread client : clients) {
+        client.setConcurrencyController(concurrency);
+      }
+    }
+
+    if (schedule != null) {
+      try {
+        schedulemonitor = new LoadScheduleMonitor(schedule, workload, Measurements.getMeasurements(), props);
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(0);
+      }
+    }
 
     if (status) {
       boolean standardstatus = false;
@@ -321,6 +491,7 @@ public final class Client {
           Measurements.MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT).equals("true");
       statusthread = new StatusThread(completeLatch, clients, label, standardstatus, statusIntervalSeconds,
           trackJVMStats);
+      statusthread.setPipeline(pipeline);
       statusthread.start();
     }
 
@@ -331,33 +502,90 @@ public final class Client {
 
     try (final TraceScope span = tracer.newScope(CLIENT_WORKLOAD_SPAN)) {
 
-      final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
-      for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+      final ClientThreadLauncher launcher;
+      try {
+        launcher = ClientThreadLauncher.create(props, tracer);
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(0);
+        return;
+      }
+
+      if (coordinator != null) {
+        try {
+          coordinator.awaitStart(() -> {
+            int ops = 0;
+            for (ClientThread client : clients) {
+              ops += client.getOpsDone();
+            }
+            return ops;
+          });
+        } catch (IOException | InterruptedException e) {
+          System.err.println("Lost the coordinator before the start: " + e.getMessage());
+          System.exit(-1);
+        }
       }
 
       st = System.currentTimeMillis();
 
-      for (Thread t : threads.keySet()) {
-        t.start();
+      Measurements.getMeasurements().setWarmupListener(() -> {
+        int ops = 0;
+        for (ClientThread client : clients) {
+          ops += client.getOpsDone();
+        }
+        warmupops = ops;
+        warmupendtime = System.currentTimeMillis();
+        System.err.println("Warm-up done after " + ops + " operations.");
+      });
+      Measurements.getMeasurements().startWarmup();
+
+      if (schedule != null) {
+        schedule.start();
+        schedulemonitor.start();
+      }
+      if (arrivals != null) {
+        arrivals.start();
+      }
+      if (concurrency != null) {
+        concurrency.start();
       }
+      if (pipeline != null) {
+        pipeline.start();
+      }
+      launcher.start(clients);
 
       if (maxExecutionTime > 0) {
-        terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
+        terminator = new TerminatorThread(maxExecutionTime, completeLatch, workload);
         terminator.start();
       }
 
-      opsDone = 0;
-
-      for (Map.Entry<Thread, ClientThread> entry : threads.entrySet()) {
+      try {
+        launcher.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+      if (arrivals != null) {
+        arrivals.stop();
+      }
+      if (schedulemonitor != null) {
+        schedulemonitor.finish();
+      }
+      if (concurrency != null) {
+        concurrency.finish();
+      }
+      if (pipeline != null) {
         try {
-          entry.getKey().join();
-          opsDone += entry.getValue().getOpsDone();
+          pipeline.stop();
         } catch (InterruptedException ignored) {
           // ignored
         }
       }
 
+      opsDone = 0;
+      for (ClientThread client : clients) {
+        opsDone += client.getOpsDone();
+      }
+
       en = System.currentTimeMillis();
     }
 
@@ -389,7 +617,13 @@ public final class Client {
 
     try {
       try (final TraceScope span = tracer.newScope(CLIENT_EXPORT_MEASUREMENTS_SPAN)) {
-        exportMeasurements(props, opsDone, en - st);
+        final boolean warmup = Measurements.getMeasurements().isWarmingUp() || warmupendtime != 0;
+        if (warmup && (warmupendtime == 0 || warmupendtime >= en)) {
+          System.err.println("The run ended during the warm-up, reporting the throughput of the whole run.");
+          exportMeasurements(props, opsDone, en - st, 0, 0, clients, st);
+        } else {
+          exportMeasurements(props, opsDone, en - st, warmup ? warmupendtime - st : 0, warmupops, clients, st);
+        }
       }
     } catch (IOException e) {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -397,6 +631,15 @@ public final class Client {
       System.exit(-1);
     }
 
+    if (coordinator != null) {
+      try {
+        coordinator.finish(opsDone, en - st);
+      } catch (IOException e) {
+        System.err.println("Could not send the results to the coordinator: " + e.getMessage());
+        System.exit(-1);
+      }
+    }
+
     System.exit(0);
   }
 
@@ -405,6 +648,16 @@ public final class Client {
                                            CountDownLatch completeLatch) {
     boolean initFailed = false;
     boolean dotransactions = Boolean.valueOf(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    final String engine = props.getProperty(CLIENT_ENGINE_PROPERTY, CLIENT_ENGINE_PROPERTY_DEFAULT);
+    if (!engine.equals("blocking") && !engine.equals("async")) {
+      System.err.println("Unknown " + CLIENT_ENGINE_PROPERTY + " " + engine + ", must be blocking or async.");
+      System.exit(0);
+    }
+    final boolean async = engine.equals("async");
+    final int asyncinflight = Integer.parseInt(
+        props.getProperty(ASYNC_IN_FLIGHT_PROPERTY, ASYNC_IN_FLIGHT_PROPERTY_DEFAULT));
+    final int asyncadapterthreads = Integer.parseInt(
+        props.getProperty(ASYNC_ADAPTER_THREADS_PROPERTY, ASYNC_ADAPTER_THREADS_PROPERTY_DEFAULT));
 
     final List<ClientThread> clients = new ArrayList<>(threadcount);
     try (final TraceScope span = tracer.newScope(CLIENT_INIT_SPAN)) {
@@ -419,12 +672,59 @@ public final class Client {
         }
       }
 
+      OperationBudget budget = null;
+      try {
+        budget = OperationBudget.create(props, opcount, threadcount);
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(0);
+      }
+
+      DBPool pool = null;
+      try {
+        pool = DBPool.create(dbname, props, tracer);
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(0);
+      } catch (UnknownDBException e) {
+        System.out.println("Unknown DB " + dbname + ": " + e.getMessage());
+        System.exit(0);
+      }
+      if (pool != null) {
+        if (async) {
+          System.err.println(DBPool.POOL_SIZE_PROPERTY + " is for the blocking engine, the async engine shares "
+              + ASYNC_ADAPTER_THREADS_PROPERTY + " DB instances already.");
+          System.exit(0);
+        }
+        System.err.println(threadcount + " client threads share " + pool.getSize() + " DB instances.");
+      }
+
+      try {
+        pipeline = OperationPipeline.create(props, workload, dotransactions, threadcount);
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.exit(0);
+      }
+      if (pipeline != null && async) {
+        System.err.println(OperationPipeline.PIPELINE_PROPERTY + " is for the blocking engine, the async engine "
+            + "doesn't wait on the DB while it prepares the next operations.");
+        System.exit(0);
+      }
+
       for (int threadid = 0; threadid < threadcount; threadid++) {
-        DB db;
+        DB db = null;
+        AsyncDB asyncdb = null;
         try {
-          db = DBFactory.newDB(dbname, props, tracer);
+          if (async) {
+            asyncdb = DBFactory.newAsyncDB(dbname, props.getProperty(ASYNC_DB_PROPERTY), asyncadapterthreads, props,
+                tracer);
+          } else if (pool != null) {
+            db = pool.lease();
+          } else {
+            db = DBFactory.newDB(dbname, props, tracer);
+          }
         } catch (UnknownDBException e) {
-          System.out.println("Unknown DB " + dbname);
+          System.out.println("Unknown DB " + dbname + ": " + e.getMessage());
           initFailed = true;
           break;
         }
@@ -436,10 +736,15 @@ public final class Client {
           ++threadopcount;
         }
 
-        ClientThread t = new ClientThread(db, dotransactions, workload, props, threadopcount, targetperthreadperms,
-            completeLatch);
+        ClientThread t = async
+            ? new ClientThread(asyncdb, asyncinflight, dotransactions, workload, props, threadopcount,
+                targetperthreadperms, completeLatch)
+            : new ClientThread(db, dotransactions, workload, props, threadopcount, targetperthreadperms,
+                completeLatch);
         t.setThreadId(threadid);
         t.setThreadCount(threadcount);
+        t.setOperationBudget(budget);
+        t.setPipeline(pipeline);
         clients.add(t);
       }
 
@@ -523,7 +828,7 @@ public final class Client {
     return null;
   }
 
-  private static Properties parseArguments(String[] args) {
+  static Properties parseArguments(String[] args) {
     Properties props = new Properties();
     System.err.print("Command line:");
     for (String arg : args) {
@@ -2,12 +2,18 @@ package com.yahoo.ycsb;
 
 import com.yahoo.ycsb.measurements.Measurements;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
 /**
- * A thread for executing transactions or data inserts to the database.
+ * A thread for executing transactions or data inserts to the database. With a {@link DB} each operation is waited
+ * for; with an {@link AsyncDB} up to maxInFlight operations are in flight at once.
  */
 public class ClientThread implements Runnable {
   // Counts down each of the clients completing.
@@ -15,6 +21,36 @@ public class ClientThread implements Runnable {
 
   private static boolean spinSleep;
   private DB db;
+  private AsyncDB asyncdb;
+  private int maxinflight;
+  /**
+   * Operations that completed, for the async engine; opsdone counts the ones issued.
+   */
+  private final AtomicInteger opscompleted = new AtomicInteger();
+  private volatile boolean workloaddone;
+  /**
+   * Null for closed-loop pacing.
+   */
+  private ArrivalScheduler arrivals;
+  /**
+   * Null when pacing, if any, is at a fixed rate.
+   */
+  private LoadSchedule schedule;
+  private long scheduleDeadlineNs;
+  /**
+   * Null when every thread always runs.
+   */
+  private ConcurrencyController concurrency;
+  /**
+   * Null when this thread does a fixed opcount.
+   */
+  private OperationBudget budget;
+  private int claimed;
+  /**
+   * Null when this thread prepares its own operations.
+   */
+  private OperationPipeline pipeline;
+  private volatile long finishTimeMillis;
   private boolean dotransactions;
   private Workload workload;
   private int opcount;
@@ -56,6 +92,28 @@ public class ClientThread implements Runnable {
     this.completeLatch = completeLatch;
   }
 
+  /**
+   * Constructor for the async engine.
+   *
+   * @param asyncdb              the AsyncDB implementation to use
+   * @param maxInFlight          the most operations in flight at a time
+   * @param dotransactions       true to do transactions, false to insert data
+   * @param workload             the workload to use
+   * @param props                the properties defining the experiment
+   * @param opcount              the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch        The latch tracking the completion of all clients.
+   */
+  public ClientThread(AsyncDB asyncdb, int maxInFlight, boolean dotransactions, Workload workload, Properties props,
+                      int opcount, double targetperthreadperms, CountDownLatch completeLatch) {
+    this(null, dotransactions, workload, props, opcount, targetperthreadperms, completeLatch);
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+    }
+    this.asyncdb = asyncdb;
+    this.maxinflight = maxInFlight;
+  }
+
   public void setThreadId(final int threadId) {
     threadid = threadId;
   }
@@ -64,20 +122,68 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
+  /**
+   * Takes the start of every operation from an open-loop schedule instead of pacing this thread by itself.
+   */
+  public void setArrivalScheduler(final ArrivalScheduler arrivalScheduler) {
+    arrivals = arrivalScheduler;
+  }
+
+  /**
+   * Paces this thread, with its 1/threadcount share of the load, at the schedule's rate. Not used together with an
+   * arrival scheduler, which follows the schedule itself.
+   */
+  public void setLoadSchedule(final LoadSchedule loadSchedule) {
+    schedule = loadSchedule;
+  }
+
+  /**
+   * Lets the controller hold this thread while it is above the concurrency limit.
+   */
+  public void setConcurrencyController(final ConcurrencyController controller) {
+    concurrency = controller;
+  }
+
+  /**
+   * Takes the operations to do from a budget shared with the other threads instead of a fixed opcount.
+   */
+  public void setOperationBudget(final OperationBudget operationBudget) {
+    budget = operationBudget;
+  }
+
+  /**
+   * Takes the operations to run from a ring filled by a generator thread instead of preparing them itself.
+   */
+  public void setPipeline(final OperationPipeline operationPipeline) {
+    pipeline = operationPipeline;
+  }
+
+  /**
+   * @return When this thread was done issuing operations, 0 while it isn't.
+   */
+  public long getFinishTimeMillis() {
+    return finishTimeMillis;
+  }
+
   public int getOpsDone() {
-    return opsdone;
+    return asyncdb == null ? opsdone : opscompleted.get();
   }
 
   @Override
   public void run() {
     try {
-      db.init();
+      if (asyncdb != null) {
+        asyncdb.init();
+      } else {
+        db.init();
+      }
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
       return;
     }
 
+    measurements.setThreadId(threadid);
     try {
       workloadstate = workload.initThread(props, threadid, threadcount);
     } catch (WorkloadException e) {
@@ -97,29 +203,19 @@ public class ClientThread implements Runnable {
       sleepUntil(System.nanoTime() + randomMinorDelay);
     }
     try {
-      if (dotransactions) {
-        long startTimeNanos = System.nanoTime();
-
-        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
-
-          if (!workload.doTransaction(db, workloadstate)) {
-            break;
-          }
-
-          opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
+      if (asyncdb != null) {
+        runAsync();
       } else {
         long startTimeNanos = System.nanoTime();
 
-        while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
+        while (hasWork() && !workload.isStopRequested()) {
 
-          if (!workload.doInsert(db, workloadstate)) {
+          if (!awaitActive() || !awaitArrival() || !doOperation()) {
             break;
           }
 
           opsdone++;
+          measurements.operationDone();
 
           throttleNanos(startTimeNanos);
         }
@@ -130,9 +226,15 @@ public class ClientThread implements Runnable {
       System.exit(0);
     }
 
+    finishTimeMillis = System.currentTimeMillis();
+
     try {
       measurements.setIntendedStartTimeNs(0);
-      db.cleanup();
+      if (asyncdb != null) {
+        asyncdb.cleanup();
+      } else {
+        db.cleanup();
+      }
     } catch (DBException e) {
       e.printStackTrace();
       e.printStackTrace(System.out);
@@ -141,6 +243,112 @@ public class ClientThread implements Runnable {
     }
   }
 
+  /**
+   * Issues operations while fewer than maxinflight are in flight, then waits for the last ones to complete.
+   */
+  private void runAsync() throws InterruptedException, ExecutionException {
+    final Semaphore inflight = new Semaphore(maxinflight);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    long startTimeNanos = System.nanoTime();
+
+    while (hasWork() && !workload.isStopRequested() && !workloaddone && failure.get() == null) {
+      if (!awaitActive()) {
+        break;
+      }
+      inflight.acquire();
+      if (!awaitArrival()) {
+        inflight.release();
+        break;
+      }
+      final CompletableFuture<Boolean> op;
+      try {
+        op = dotransactions
+            ? workload.doTransactionAsync(asyncdb, workloadstate) : workload.doInsertAsync(asyncdb, workloadstate);
+      } catch (RuntimeException e) {
+        inflight.release();
+        throw e;
+      }
+      op.whenComplete((more, error) -> {
+        try {
+          if (error != null) {
+            failure.compareAndSet(null, error);
+          } else if (Boolean.TRUE.equals(more)) {
+            opscompleted.incrementAndGet();
+            measurements.operationDone();
+          } else {
+            workloaddone = true;
+          }
+        } finally {
+          inflight.release();
+        }
+      });
+
+      opsdone++;
+
+      throttleNanos(startTimeNanos);
+    }
+
+    inflight.acquire(maxinflight);
+    if (failure.get() != null) {
+      throw new ExecutionException(failure.get());
+    }
+  }
+
+  /**
+   * @return true if this thread has another operation to do, claiming some from the budget if it has one.
+   */
+  private boolean hasWork() {
+    if (budget == null) {
+      return opcount == 0 || opsdone < opcount;
+    }
+    if (claimed == 0) {
+      claimed = budget.claim();
+      if (claimed == 0) {
+        return false;
+      }
+    }
+    claimed--;
+    return true;
+  }
+
+  /**
+   * Runs one transaction or insert, the next one of the pipeline if there is one.
+   *
+   * @return false if the workload has no more work to do.
+   */
+  private boolean doOperation() {
+    if (pipeline != null) {
+      return pipeline.execute(threadid, db, workloadstate);
+    }
+    return dotransactions ? workload.doTransaction(db, workloadstate) : workload.doInsert(db, workloadstate);
+  }
+
+  /**
+   * With a concurrency controller, waits while this thread is above the concurrency limit.
+   *
+   * @return false if the workload was stopped.
+   */
+  private boolean awaitActive() throws InterruptedException {
+    return concurrency == null || concurrency.awaitActive(threadid);
+  }
+
+  /**
+   * With an arrival scheduler, waits for the next arrival and makes it the intended start time of the operation.
+   *
+   * @return false if the scheduler was stopped.
+   */
+  private boolean awaitArrival() throws InterruptedException {
+    if (arrivals == null) {
+      return true;
+    }
+    final long intended = arrivals.next(workload);
+    if (intended == ArrivalScheduler.STOPPED) {
+      return false;
+    }
+    measurements.setIntendedStartTimeNs(intended);
+    return true;
+  }
+
   private static void sleepUntil(long deadline) {
     while (System.nanoTime() < deadline) {
       if (!spinSleep) {
@@ -150,6 +358,21 @@ public class ClientThread implements Runnable {
   }
 
   private void throttleNanos(long startTimeNanos) {
+    if (schedule != null) {
+      if (scheduleDeadlineNs == 0) {
+        scheduleDeadlineNs = startTimeNanos;
+      }
+      scheduleDeadlineNs = schedule.nextDeadlineNs(scheduleDeadlineNs, threadcount);
+      if (scheduleDeadlineNs >= schedule.endNs()) {
+        // the schedule is over for every thread
+        sleepUntil(schedule.endNs());
+        workload.requestStop();
+        return;
+      }
+      sleepUntil(scheduleDeadlineNs);
+      measurements.setIntendedStartTimeNs(scheduleDeadlineNs);
+      return;
+    }
     //throttle the operations
     if (targetOpsPerMs > 0) {
       // delay until next tick
@@ -163,7 +386,11 @@ public class ClientThread implements Runnable {
    * The total amount of work this thread is still expected to do.
    */
   int getOpsTodo() {
-    int todo = opcount - opsdone;
+    if (budget != null) {
+      // what no thread claimed yet is counted once, by the first thread
+      return claimed + (threadid == 0 ? (int) Math.min(Integer.MAX_VALUE, budget.getRemaining()) : 0);
+    }
+    int todo = opcount - getOpsDone();
     return todo < 0 ? 0 : todo;
   }
 }
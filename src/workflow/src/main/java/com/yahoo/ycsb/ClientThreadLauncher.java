@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.apache.htrace.core.Tracer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the client threads and waits for them, according to the threadmode property:
+ * <ul>
+ * <li><b>platform</b>: one platform thread per client thread (the default).
+ * <li><b>virtual</b>: one virtual thread per client thread, so that a run can simulate a very large number of
+ * blocking clients without a thread stack each. Virtual threads are looked up by reflection, so the client still
+ * builds and runs on Java 8. Where the runtime has none, the client threads are run by a pool of
+ * threadmode.poolsize platform threads; only that many of them run at a time.
+ * </ul>
+ */
+final class ClientThreadLauncher {
+
+  /**
+   * How client threads are run: platform or virtual.
+   */
+  static final String THREAD_MODE_PROPERTY = "threadmode";
+
+  static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
+  /**
+   * The size of the platform thread pool used when threadmode is virtual but the runtime has no virtual threads.
+   */
+  static final String POOL_SIZE_PROPERTY = "threadmode.poolsize";
+
+  static final String POOL_SIZE_PROPERTY_DEFAULT = "256";
+
+  /**
+   * Thread.ofVirtual() and Thread.Builder#unstarted(Runnable), or null if the runtime has no virtual threads.
+   */
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    try {
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+      // fails on runtimes where virtual threads are a preview feature that isn't enabled
+      ofVirtual.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      ofVirtual = null;
+      unstarted = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+  }
+
+  private final Tracer tracer;
+  private final boolean virtual;
+  private final int poolsize;
+  private final List<Thread> threads = new ArrayList<>();
+  private ExecutorService pool;
+
+  private ClientThreadLauncher(Tracer tracer, boolean virtual, int poolsize) {
+    this.tracer = tracer;
+    this.virtual = virtual;
+    this.poolsize = poolsize;
+  }
+
+  /**
+   * @return A launcher for the configured thread mode.
+   * @throws IllegalArgumentException If threadmode is neither platform nor virtual.
+   */
+  static ClientThreadLauncher create(Properties props, Tracer tracer) {
+    final String mode = props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT);
+    final int poolsize = Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY, POOL_SIZE_PROPERTY_DEFAULT));
+    switch (mode) {
+    case "platform":
+      return new ClientThreadLauncher(tracer, false, 0);
+    case "virtual":
+      if (poolsize < 1) {
+        throw new IllegalArgumentException(POOL_SIZE_PROPERTY + " must be at least 1, was " + poolsize);
+      }
+      return new ClientThreadLauncher(tracer, true, poolsize);
+    default:
+      throw new IllegalArgumentException("Unknown " + THREAD_MODE_PROPERTY + " " + mode
+          + ", must be platform or virtual.");
+    }
+  }
+
+  /**
+   * @return Whether this runtime can run client threads on virtual threads.
+   */
+  static boolean virtualThreadsSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Starts all clients.
+   */
+  void start(List<ClientThread> clients) {
+    if (virtual && !virtualThreadsSupported()) {
+      System.err.println("Virtual threads are not available in this runtime, running the " + clients.size()
+          + " client threads on a pool of " + poolsize + " platform threads.");
+      final AtomicInteger counter = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(Math.min(poolsize, Math.max(1, clients.size())),
+          r -> new Thread(r, "ClientThread-pool-" + counter.getAndIncrement()));
+      for (ClientThread client : clients) {
+        pool.execute(tracer.wrap(client, "ClientThread"));
+      }
+      pool.shutdown();
+      return;
+    }
+    for (ClientThread client : clients) {
+      final Runnable runnable = tracer.wrap(client, "ClientThread");
+      threads.add(virtual ? newVirtualThread(runnable) : new Thread(runnable));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+  }
+
+  /**
+   * Waits until every client has run to completion.
+   */
+  void join() throws InterruptedException {
+    if (pool != null) {
+      while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+        // keep waiting, clients end on their own or when the workload is asked to stop
+      }
+      return;
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+  }
+
+  private static Thread newVirtualThread(Runnable runnable) {
+    try {
+      return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), runnable);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Could not create a virtual thread", e);
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches for the concurrency with the best throughput while the run is going. Of the threadcount client threads
+ * only the first limit ones issue operations, the others wait. Every interval the limit is adjusted with AIMD: it
+ * grows by concurrency.increase while the p99 latency meets concurrency.latencytargetms, and is multiplied by
+ * concurrency.decrease when the latency misses the target, or when the throughput dropped after the last increase,
+ * the sign that the database is past its saturation point.
+ * <p>
+ * The result includes the throughput and latency measured at every concurrency, and the concurrency that gave the
+ * best throughput within the latency target. Once a client thread is done with its operations the search stops and
+ * every thread runs, so the search is meant for runs bounded by maxexecutiontime.
+ */
+public final class ConcurrencyController extends Thread {
+
+  /**
+   * fixed (default) to run every client thread, adaptive to search for the best concurrency.
+   */
+  public static final String CONCURRENCY_PROPERTY = "concurrency";
+
+  public static final String CONCURRENCY_PROPERTY_DEFAULT = "fixed";
+
+  /**
+   * The concurrency the search starts with.
+   */
+  public static final String INITIAL_PROPERTY = "concurrency.initial";
+
+  public static final String INITIAL_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The concurrency is never taken below this.
+   */
+  public static final String MIN_PROPERTY = "concurrency.min";
+
+  public static final String MIN_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The time in milliseconds each concurrency is measured for before it's adjusted.
+   */
+  public static final String INTERVAL_PROPERTY = "concurrency.intervalms";
+
+  public static final String INTERVAL_PROPERTY_DEFAULT = "2000";
+
+  /**
+   * The p99 latency target in milliseconds, 0 to search only on throughput.
+   */
+  public static final String LATENCY_TARGET_PROPERTY = "concurrency.latencytargetms";
+
+  public static final String LATENCY_TARGET_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How many threads are added after an interval that met the target.
+   */
+  public static final String INCREASE_PROPERTY = "concurrency.increase";
+
+  public static final String INCREASE_PROPERTY_DEFAULT = "1";
+
+  /**
+   * What the concurrency is multiplied by after an interval that missed the target.
+   */
+  public static final String DECREASE_PROPERTY = "concurrency.decrease";
+
+  public static final String DECREASE_PROPERTY_DEFAULT = "0.75";
+
+  /**
+   * The share of throughput that may be lost after an increase before it counts as saturation.
+   */
+  public static final String TOLERANCE_PROPERTY = "concurrency.tolerance";
+
+  public static final String TOLERANCE_PROPERTY_DEFAULT = "0.05";
+
+  /**
+   * What was measured at one concurrency.
+   */
+  static final class LevelStats {
+    private final Histogram histogram = new Histogram(3);
+    private long elapsedNs;
+    private int intervals;
+
+    double throughput() {
+      return elapsedNs == 0 ? 0 : histogram.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNs;
+    }
+
+    long p99() {
+      return histogram.getValueAtPercentile(99);
+    }
+  }
+
+  private final Workload workload;
+  private final Measurements measurements;
+  private final CountDownLatch completeLatch;
+  private final int max;
+  private final int min;
+  private final long intervalNs;
+  private final long latencyTargetUs;
+  private final int increase;
+  private final double decrease;
+  private final double tolerance;
+  private final Map<Integer, LevelStats> levels = new TreeMap<>();
+  private final Recorder recorder = new Recorder(3);
+  private final Object gate = new Object();
+  private volatile int limit;
+  private volatile boolean done;
+  private double lastThroughput = -1;
+  private boolean increased;
+
+  /**
+   * @return A controller for the given properties, or null when the concurrency is fixed.
+   * @throws IllegalArgumentException If the properties are invalid.
+   */
+  public static ConcurrencyController create(Properties props, Workload workload, Measurements measurements,
+                                             int threadcount, CountDownLatch completeLatch) {
+    final String mode = props.getProperty(CONCURRENCY_PROPERTY, CONCURRENCY_PROPERTY_DEFAULT);
+    switch (mode) {
+    case "fixed":
+      return null;
+    case "adaptive":
+      return new ConcurrencyController(props, workload, measurements, threadcount, completeLatch);
+    default:
+      throw new IllegalArgumentException("Unknown " + CONCURRENCY_PROPERTY + " " + mode
+          + ", must be fixed or adaptive.");
+    }
+  }
+
+  ConcurrencyController(Properties props, Workload workload, Measurements measurements, int threadcount,
+                        CountDownLatch completeLatch) {
+    super("ConcurrencyController");
+    setDaemon(true);
+    this.workload = workload;
+    this.measurements = measurements;
+    this.completeLatch = completeLatch;
+    this.max = threadcount;
+    this.min = Integer.parseInt(props.getProperty(MIN_PROPERTY, MIN_PROPERTY_DEFAULT));
+    this.intervalNs = TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT)));
+    this.latencyTargetUs = (long) (Double.parseDouble(
+        props.getProperty(LATENCY_TARGET_PROPERTY, LATENCY_TARGET_PROPERTY_DEFAULT)) * 1000);
+    this.increase = Integer.parseInt(props.getProperty(INCREASE_PROPERTY, INCREASE_PROPERTY_DEFAULT));
+    this.decrease = Double.parseDouble(props.getProperty(DECREASE_PROPERTY, DECREASE_PROPERTY_DEFAULT));
+    this.tolerance = Double.parseDouble(props.getProperty(TOLERANCE_PROPERTY, TOLERANCE_PROPERTY_DEFAULT));
+    final int initial = Integer.parseInt(props.getProperty(INITIAL_PROPERTY, INITIAL_PROPERTY_DEFAULT));
+    if (min < 1 || min > max || increase < 1 || decrease <= 0 || decrease >= 1 || intervalNs <= 0) {
+      throw new IllegalArgumentException("Need 1 <= " + MIN_PROPERTY + " <= threadcount, " + INCREASE_PROPERTY
+          + " >= 1, 0 < " + DECREASE_PROPERTY + " < 1 and a positive " + INTERVAL_PROPERTY);
+    }
+    this.limit = Math.max(min, Math.min(max, initial));
+  }
+
+  /**
+   * Waits while the given client thread is above the concurrency limit.
+   *
+   * @return false if the workload was stopped meanwhile.
+   */
+  public boolean awaitActive(int threadId) throws InterruptedException {
+    if (threadId < limit) {
+      return true;
+    }
+    synchronized (gate) {
+      while (threadId >= limit && !workload.isStopRequested()) {
+        // woken up when the limit changes, the timeout only notices a stop
+        gate.wait(100);
+      }
+    }
+    return !workload.isStopRequested();
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  private void setLimit(int newLimit) {
+    synchronized (gate) {
+      limit = newLimit;
+      gate.notifyAll();
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    measurements.addWindowRecorder(recorder);
+    System.err.println("Adaptive concurrency starting at " + limit + " of " + max + " threads.");
+    super.start();
+  }
+
+  @Override
+  public void run() {
+    Histogram interval = null;
+    long from = System.nanoTime();
+    while (!done) {
+      try {
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(intervalNs));
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (workload.isStopRequested()) {
+        break;
+      }
+      if (completeLatch.getCount() < max) {
+        System.err.println("A client thread is done, running every thread from now on.");
+        break;
+      }
+      interval = recorder.getIntervalHistogram(interval);
+      final long to = System.nanoTime();
+      onInterval(interval, to - from);
+      from = to;
+    }
+    measurements.removeWindowRecorder(recorder);
+    setLimit(max);
+  }
+
+  /**
+   * Ends the search and lets every thread run.
+   */
+  public void finish() {
+    done = true;
+    interrupt();
+    try {
+      join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Accounts one interval to the current concurrency and adjusts it. An interval without any completed operation
+   * misses the latency target.
+   */
+  void onInterval(Histogram interval, long elapsedNs) {
+    final int current = limit;
+    final LevelStats level = levels.computeIfAbsent(current, k -> new LevelStats());
+    level.histogram.add(interval);
+    level.elapsedNs += elapsedNs;
+    level.intervals++;
+
+    final double throughput = interval.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNs;
+    final long p99 = interval.getValueAtPercentile(99);
+    final String reason;
+    int next;
+    if (latencyTargetUs > 0 && (interval.getTotalCount() == 0 || p99 > latencyTargetUs)) {
+      reason = "p99 above the target of " + latencyTargetUs + " us";
+      next = (int) (current * decrease);
+    } else if (increased && throughput < lastThroughput * (1 - tolerance)) {
+      reason = "throughput dropped from " + String.format("%.2f", lastThroughput) + " ops/sec";
+      next = (int) (current * decrease);
+    } else {
+      reason = current == max ? "at threadcount" : "within target";
+      next = current + increase;
+    }
+    next = Math.max(min, Math.min(max, next));
+    System.err.println(String.format("Concurrency %d: %.2f ops/sec, p99=%d us, %s -> %d", current, throughput, p99,
+        reason, next));
+    increased = next > current;
+    lastThroughput = throughput;
+    if (next != current) {
+      setLimit(next);
+    }
+  }
+
+  /**
+   * @return The concurrency with the best throughput whose p99 latency met the target, 0 if none did.
+   */
+  public int getBestConcurrency() {
+    int best = 0;
+    double bestThroughput = 0;
+    for (Map.Entry<Integer, LevelStats> e : levels.entrySet()) {
+      final LevelStats level = e.getValue();
+      if ((latencyTargetUs <= 0 || level.p99() <= latencyTargetUs) && level.throughput() > bestThroughput) {
+        best = e.getKey();
+        bestThroughput = level.throughput();
+      }
+    }
+    return best;
+  }
+
+  LevelStats getLevel(int concurrency) {
+    return levels.get(concurrency);
+  }
+
+  /**
+   * Writes the result of every concurrency that was measured and the best one.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    for (Map.Entry<Integer, LevelStats> e : levels.entrySet()) {
+      final LevelStats level = e.getValue();
+      final String metric = "CONCURRENCY-" + e.getKey();
+      exporter.write(metric, "Intervals", level.intervals);
+      exporter.write(metric, "Throughput(ops/sec)", level.throughput());
+      exporter.write(metric, "99thPercentileLatency(us)", level.p99());
+    }
+    final int best = getBestConcurrency();
+    exporter.write("CONCURRENCY", "BestConcurrency", best);
+    exporter.write("CONCURRENCY", "BestThroughput(ops/sec)", best == 0 ? 0 : levels.get(best).throughput());
+  }
+}
@@ -0,0 +1,455 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Runs one load from several client processes and merges their results into one report. The coordinator takes the
+ * same arguments as {@link Client}, waits for coordinator.workers workers to connect, and gives each a disjoint
+ * share of the key range (insertstart and insertcount), of the operationcount and of the target. Once every worker
+ * is initialized it starts them all at the same time, then collects the HdrHistograms they measure, every
+ * coordinator.intervalms, and exports the merged measurements with the configured exporter.
+ * <p>
+ * A worker is a {@link Client} run with -p coordinator=host:port. With coordinator.spawn=true (the default) the
+ * coordinator starts the workers itself, as JVMs on this machine with the same class path and arguments, logging
+ * to worker-N.log in coordinator.logdir. With coordinator.spawn=false it waits for workers started by hand, e.g. on
+ * other machines.
+ * <p>
+ * A load schedule can't be coordinated: every worker would run the whole plan, and judge the SLO on its own share
+ * of the load. Both the coordinator and its workers refuse schedule and schedule.file.
+ * <p>
+ * Latencies are always measured in HdrHistograms. Files a single client would write, such as DanWorkload's
+ * key-space manifest, are written by every worker on its own, and merged by the workload's
+ * {@link Workload#mergeWorkers} once they are all done; workers on other machines need them on shared storage.
+ * <p>
+ * Worker and coordinator exchange lines of tab separated fields:
+ * <ul>
+ * <li>HELLO, from the worker once connected.
+ * <li>PROPERTY key value, to the worker, the properties that differ for it, then ASSIGNED.
+ * <li>READY, from the worker once its workload is initialized, and START epochmillis, to the worker, when to
+ * start.
+ * <li>INTERVAL name histogram, from the worker, the values measured since the last interval, as a base64
+ * compressed HdrHistogram, then TICK operations.
+ * <li>STATUS name code description count, from the worker when it is done, then DONE operations runtimems.
+ * </ul>
+ */
+public final class Coordinator {
+
+  /**
+   * host:port of the coordinator, which makes a {@link Client} a worker.
+   */
+  public static final String COORDINATOR_PROPERTY = "coordinator";
+
+  /**
+   * The index of a worker, from 0, set by the coordinator.
+   */
+  public static final String WORKER_PROPERTY = "coordinator.worker";
+
+  /**
+   * How many workers take part.
+   */
+  public static final String WORKERS_PROPERTY = "coordinator.workers";
+
+  public static final String WORKERS_PROPERTY_DEFAULT = "2";
+
+  /**
+   * The port to listen on, 0 for any free one.
+   */
+  public static final String PORT_PROPERTY = "coordinator.port";
+
+  public static final String PORT_PROPERTY_DEFAULT = "0";
+
+  /**
+   * true to start the workers on this machine, false to wait for them to connect.
+   */
+  public static final String SPAWN_PROPERTY = "coordinator.spawn";
+
+  public static final String SPAWN_PROPERTY_DEFAULT = "true";
+
+  /**
+   * Where spawned workers log.
+   */
+  public static final String LOG_DIR_PROPERTY = "coordinator.logdir";
+
+  public static final String LOG_DIR_PROPERTY_DEFAULT = ".";
+
+  /**
+   * How often workers send what they measured, in milliseconds.
+   */
+  public static final String INTERVAL_PROPERTY = "coordinator.intervalms";
+
+  public static final String INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * How long after every worker is ready they start, in milliseconds, so that the start message reaches all of
+   * them in time.
+   */
+  public static final String START_DELAY_PROPERTY = "coordinator.startdelayms";
+
+  public static final String START_DELAY_PROPERTY_DEFAULT = "1000";
+
+  static final String HELLO = "HELLO";
+  static final String PROPERTY = "PROPERTY";
+  static final String ASSIGNED = "ASSIGNED";
+  static final String READY = "READY";
+  static final String START = "START";
+  static final String INTERVAL = "INTERVAL";
+  static final String TICK = "TICK";
+  static final String STATUS = "STATUS";
+  static final String DONE = "DONE";
+
+  static final String SCHEDULE_UNSUPPORTED = "A load schedule can't be split across coordinated workers, run it "
+      + "from a single client, or give the coordinator a target instead.";
+
+  /**
+   * What the coordinator knows about one worker.
+   */
+  private static final class Worker {
+    private final int index;
+    private final Socket socket;
+    private final BufferedReader in;
+    private final PrintWriter out;
+    private volatile long operations;
+    private volatile long runtime;
+    private volatile boolean done;
+
+    Worker(int index, Socket socket) throws IOException {
+      this.index = index;
+      this.socket = socket;
+      this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+    }
+
+    String[] expect(String keyword) throws IOException {
+      final String[] fields = read();
+      if (fields == null || !fields[0].equals(keyword)) {
+        throw new IOException("Worker " + index + " sent " + Arrays.toString(fields) + " instead of " + keyword);
+      }
+      return fields;
+    }
+
+    String[] read() throws IOException {
+      final String line = in.readLine();
+      return line == null ? null : line.split("\t", -1);
+    }
+  }
+
+  private Coordinator() {
+    // not used
+  }
+
+  /**
+   * @return The properties worker index of count gets on top of its own: its index, its share of the key range,
+   * of the operations and of the target.
+   */
+  static Properties assign(Properties props, int index, int count) {
+    final Properties assigned = new Properties();
+    assigned.setProperty(WORKER_PROPERTY, String.valueOf(index));
+    final long recordcount = Long.parseLong(
+        props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    final long insertstart = Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,
+        Workload.INSERT_START_PROPERTY_DEFAULT));
+    final long insertcount = Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY,
+        String.valueOf(recordcount - insertstart)));
+    if (insertcount > 0) {
+      assigned.setProperty(Workload.INSERT_START_PROPERTY,
+          String.valueOf(insertstart + shareStart(insertcount, index, count)));
+      assigned.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(share(insertcount, index, count)));
+    }
+
+    final long operationcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+    if (operationcount > 0) {
+      assigned.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(share(operationcount, index, count)));
+    }
+    final long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target > 0) {
+      assigned.setProperty(Client.TARGET_PROPERTY, String.valueOf(Math.max(1, share(target, index, count))));
+    }
+    assigned.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    final String exportfile = props.getProperty(Client.EXPORT_FILE_PROPERTY);
+    if (exportfile != null) {
+      assigned.setProperty(Client.EXPORT_FILE_PROPERTY, exportfile + ".worker-" + index);
+    }
+    return assigned;
+  }
+
+  /**
+   * @return The size of share index of total split in count, the first ones one bigger when it doesn't divide.
+   */
+  static long share(long total, int index, int count) {
+    return total / count + (index < total % count ? 1 : 0);
+  }
+
+  private static long shareStart(long total, int index, int count) {
+    return index * (total / count) + Math.min(index, total % count);
+  }
+
+  static String encode(Histogram histogram) {
+    final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+    return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+  }
+
+  static Histogram decode(String encoded) throws DataFormatException {
+    return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+  }
+
+  public static void main(String[] args) {
+    final Properties props = Client.parseArguments(args);
+    final int count = Integer.parseInt(props.getProperty(WORKERS_PROPERTY, WORKERS_PROPERTY_DEFAULT));
+    final int port = Integer.parseInt(props.getProperty(PORT_PROPERTY, PORT_PROPERTY_DEFAULT));
+    if (count < 1) {
+      System.err.println(WORKERS_PROPERTY + " must be at least 1.");
+      System.exit(0);
+    }
+
+    boolean coordinated = false;
+    try (ServerSocket server = new ServerSocket(port)) {
+      coordinated = coordinate(args, props, server);
+    } catch (IOException e) {
+      System.err.println("Could not listen on port " + port + ": " + e.getMessage());
+    }
+    System.exit(coordinated ? 0 : -1);
+  }
+
+  /**
+   * Runs one coordinated load, with the workers that connect to server, and exports the merged measurements.
+   *
+   * @param args The arguments spawned workers get, those of {@link Client}.
+   * @return false if coordination failed.
+   */
+  static boolean coordinate(String[] args, Properties props, ServerSocket server) {
+    if (props.getProperty(LoadSchedule.SCHEDULE_PROPERTY) != null
+        || props.getProperty(LoadSchedule.SCHEDULE_FILE_PROPERTY) != null) {
+      System.err.println(SCHEDULE_UNSUPPORTED);
+      return false;
+    }
+    final int count = Integer.parseInt(props.getProperty(WORKERS_PROPERTY, WORKERS_PROPERTY_DEFAULT));
+    final boolean spawn = Boolean.parseBoolean(props.getProperty(SPAWN_PROPERTY, SPAWN_PROPERTY_DEFAULT));
+    final long startDelay = Long.parseLong(props.getProperty(START_DELAY_PROPERTY, START_DELAY_PROPERTY_DEFAULT));
+
+    final Properties measurementprops = new Properties();
+    measurementprops.putAll(props);
+    measurementprops.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    final Measurements measurements = new Measurements(measurementprops);
+    // as in a client, for the workload mergeWorkers creates
+    Measurements.setProperties(measurementprops);
+
+    final List<Worker> workers = new ArrayList<>(count);
+    final List<Process> processes = new ArrayList<>();
+    try {
+      System.err.println("Coordinator listening on port " + server.getLocalPort() + " for " + count + " workers.");
+      if (spawn) {
+        for (int i = 0; i < count; i++) {
+          processes.add(spawn(args, server.getLocalPort(), i, props));
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        final Worker worker = new Worker(i, server.accept());
+        worker.expect(HELLO);
+        for (Map.Entry<Object, Object> e : assign(props, i, count).entrySet()) {
+          worker.out.println(PROPERTY + "\t" + e.getKey() + "\t" + e.getValue());
+        }
+        worker.out.println(ASSIGNED);
+        workers.add(worker);
+        System.err.println("Worker " + i + " connected from " + worker.socket.getInetAddress() + ".");
+      }
+      for (Worker worker : workers) {
+        worker.expect(READY);
+      }
+      final long start = System.currentTimeMillis() + startDelay;
+      for (Worker worker : workers) {
+        worker.out.println(START + "\t" + start);
+      }
+      System.err.println("Starting " + count + " workers.");
+
+      final List<Thread> readers = new ArrayList<>();
+      for (Worker worker : workers) {
+        final Thread reader = new Thread(() -> collect(worker, measurements), "Coordinator-worker-" + worker.index);
+        reader.start();
+        readers.add(reader);
+      }
+      reportStatus(workers, start, readers,
+          Long.parseLong(props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT)));
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      for (Process process : processes) {
+        process.waitFor();
+      }
+      export(props, workers, measurements);
+      mergeWorkers(props, count);
+    } catch (IOException e) {
+      System.err.println("Coordination failed: " + e.getMessage());
+      e.printStackTrace();
+      for (Process process : processes) {
+        process.destroy();
+      }
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return true;
+  }
+
+  private static Process spawn(String[] args, int port, int index, Properties props) throws IOException {
+    final List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Client.class.getName());
+    command.addAll(Arrays.asList(args));
+    command.add("-p");
+    command.add(COORDINATOR_PROPERTY + "=" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port);
+    final File log = new File(props.getProperty(LOG_DIR_PROPERTY, LOG_DIR_PROPERTY_DEFAULT),
+        "worker-" + index + ".log");
+    return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+  }
+
+  /**
+   * Merges what one worker sends until it is done.
+   */
+  private static void collect(Worker worker, Measurements measurements) {
+    try {
+      String[] fields;
+      while ((fields = worker.read()) != null) {
+        switch (fields[0]) {
+        case INTERVAL:
+          measurements.mergeHdrHistogram(fields[1], decode(fields[2]));
+          break;
+        case TICK:
+          worker.operations = Long.parseLong(fields[1]);
+          break;
+        case STATUS:
+          measurements.mergeStatus(fields[1], new Status(fields[2], fields[3]), Integer.parseInt(fields[4]));
+          break;
+        case DONE:
+          worker.operations = Long.parseLong(fields[1]);
+          worker.runtime = Long.parseLong(fields[2]);
+          worker.done = true;
+          worker.socket.close();
+          return;
+        default:
+          throw new IOException("Unexpected message " + Arrays.toString(fields));
+        }
+      }
+      System.err.println("Worker " + worker.index + " disconnected before it was done.");
+    } catch (IOException | DataFormatException | RuntimeException e) {
+      System.err.println("Lost worker " + worker.index + ": " + e);
+    }
+  }
+
+  /**
+   * Prints the operations of all the workers together, every interval, until they are all done.
+   */
+  private static void reportStatus(List<Worker> workers, long start, List<Thread> readers, long interval)
+      throws InterruptedException {
+    long last = 0;
+    long lastTime = start;
+    while (true) {
+      boolean alive = false;
+      for (Thread reader : readers) {
+        reader.join(interval / readers.size() + 1);
+        alive |= reader.isAlive();
+      }
+      if (!alive) {
+        return;
+      }
+      long operations = 0;
+      for (Worker worker : workers) {
+        operations += worker.operations;
+      }
+      final long now = System.currentTimeMillis();
+      if (now > lastTime) {
+        System.err.println(String.format("%d sec: %d operations; %.2f current ops/sec", (now - start) / 1000,
+            operations, (operations - last) * 1000.0 / (now - lastTime)));
+      }
+      last = operations;
+      lastTime = now;
+    }
+  }
+
+  /**
+   * Lets the workload merge what its workers wrote on their own.
+   */
+  private static void mergeWorkers(Properties props, int count) throws IOException {
+    final String workloadname = props.getProperty(Client.WORKLOAD_PROPERTY);
+    if (workloadname == null) {
+      return;
+    }
+    try {
+      final Workload workload = (Workload) Coordinator.class.getClassLoader().loadClass(workloadname)
+          .getDeclaredConstructor().newInstance();
+      workload.mergeWorkers(props, count);
+    } catch (ReflectiveOperationException | WorkloadException e) {
+      throw new IOException("Could not merge the files the workers of " + workloadname + " wrote", e);
+    }
+  }
+
+  private static void export(Properties props, List<Worker> workers, Measurements measurements)
+      throws IOException {
+    long operations = 0;
+    long runtime = 0;
+    final Map<Integer, Worker> failed = new LinkedHashMap<>();
+    for (Worker worker : workers) {
+      operations += worker.operations;
+      runtime = Math.max(runtime, worker.runtime);
+      if (!worker.done) {
+        failed.put(worker.index, worker);
+      }
+    }
+    if (!failed.isEmpty()) {
+      System.err.println("Workers " + failed.keySet() + " didn't finish, their results are partial.");
+    }
+    try (MeasurementsExporter exporter = Client.createExporter(props)) {
+      exporter.write("OVERALL", "RunTime(ms)", runtime);
+      exporter.write("OVERALL", "Throughput(ops/sec)", runtime == 0 ? 0 : 1000.0 * operations / runtime);
+      exporter.write("OVERALL", "Workers", workers.size());
+      for (Worker worker : workers) {
+        exporter.write("WORKER-" + worker.index, "Operations", worker.operations);
+        exporter.write("WORKER-" + worker.index, "RunTime(ms)", worker.runtime);
+      }
+      measurements.exportMeasurements(exporter);
+    }
+    System.err.println("Merged the results of " + workers.size() + " workers in "
+        + TimeUnit.MILLISECONDS.toSeconds(runtime) + " seconds.");
+  }
+}
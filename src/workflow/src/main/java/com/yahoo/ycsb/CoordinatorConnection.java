@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.IntSupplier;
+
+/**
+ * The worker's side of a {@link Coordinator} run: takes the properties assigned to this worker, waits for the
+ * common start and sends what is measured, see the coordinator for the protocol.
+ */
+final class CoordinatorConnection {
+
+  private final Socket socket;
+  private final BufferedReader in;
+  private final PrintWriter out;
+  private final long intervalMs;
+  private final Map<String, Histogram> sent = new HashMap<>();
+  private Thread reporter;
+  private volatile IntSupplier operations;
+
+  private CoordinatorConnection(Socket socket, long intervalMs) throws IOException {
+    this.socket = socket;
+    this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    this.intervalMs = intervalMs;
+  }
+
+  /**
+   * Connects to the coordinator named by the coordinator property and sets the properties it assigns.
+   *
+   * @return null if the property isn't set.
+   */
+  static CoordinatorConnection connect(Properties props) throws IOException {
+    final String address = props.getProperty(Coordinator.COORDINATOR_PROPERTY);
+    if (address == null) {
+      return null;
+    }
+    final int colon = address.lastIndexOf(':');
+    if (colon < 0) {
+      throw new IOException(Coordinator.COORDINATOR_PROPERTY + " must be host:port, was " + address);
+    }
+    final Socket socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    final CoordinatorConnection connection = new CoordinatorConnection(socket, Long.parseLong(
+        props.getProperty(Coordinator.INTERVAL_PROPERTY, Coordinator.INTERVAL_PROPERTY_DEFAULT)));
+    connection.send(Coordinator.HELLO);
+    while (true) {
+      final String[] fields = connection.read();
+      if (fields[0].equals(Coordinator.ASSIGNED)) {
+        break;
+      }
+      connection.expect(fields, Coordinator.PROPERTY);
+      props.setProperty(fields[1], fields[2]);
+    }
+    System.err.println("Connected to the coordinator at " + address + ", running insertstart="
+        + props.getProperty(Workload.INSERT_START_PROPERTY) + " insertcount="
+        + props.getProperty(Client.INSERT_COUNT_PROPERTY) + ".");
+    return connection;
+  }
+
+  /**
+   * Tells the coordinator this worker is ready and waits until the common start time.
+   *
+   * @param operationsDone Counts the operations done so far, for the coordinator's status.
+   */
+  void awaitStart(IntSupplier operationsDone) throws IOException, InterruptedException {
+    operations = operationsDone;
+    send(Coordinator.READY);
+    final String[] fields = read();
+    expect(fields, Coordinator.START);
+    final long wait = Long.parseLong(fields[1]) - System.currentTimeMillis();
+    if (wait > 0) {
+      Thread.sleep(wait);
+    }
+    reporter = new Thread(this::report, "CoordinatorReporter");
+    reporter.setDaemon(true);
+    reporter.start();
+  }
+
+  private void report() {
+    try {
+      while (true) {
+        Thread.sleep(intervalMs);
+        sendIntervals();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Sends the values measured since the last call, and the operations done so far.
+   */
+  private synchronized void sendIntervals() {
+    for (Map.Entry<String, Histogram> e : Measurements.getMeasurements().getHdrHistogramTotals().entrySet()) {
+      final Histogram total = e.getValue();
+      final Histogram delta = total.copy();
+      final Histogram previous = sent.get(e.getKey());
+      if (previous != null) {
+        delta.subtract(previous);
+      }
+      sent.put(e.getKey(), total);
+      if (delta.getTotalCount() > 0) {
+        out.println(Coordinator.INTERVAL + "\t" + e.getKey() + "\t" + Coordinator.encode(delta));
+      }
+    }
+    out.println(Coordinator.TICK + "\t" + operations.getAsInt());
+    out.flush();
+  }
+
+  /**
+   * Sends the last values, the return codes and the totals, and disconnects.
+   */
+  void finish(int opsDone, long runtimeMs) throws IOException {
+    if (reporter != null) {
+      reporter.interrupt();
+      try {
+        reporter.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    sendIntervals();
+    for (Map.Entry<String, Map<Status, Integer>> e : Measurements.getMeasurements().getStatusCounts().entrySet()) {
+      for (Map.Entry<Status, Integer> status : e.getValue().entrySet()) {
+        out.println(Coordinator.STATUS + "\t" + e.getKey() + "\t" + status.getKey().getName() + "\t"
+            + status.getKey().getDescription() + "\t" + status.getValue());
+      }
+    }
+    send(Coordinator.DONE + "\t" + opsDone + "\t" + runtimeMs);
+    socket.close();
+  }
+
+  private void send(String line) {
+    out.println(line);
+    out.flush();
+  }
+
+  private String[] read() throws IOException {
+    final String line = in.readLine();
+    if (line == null) {
+      throw new IOException("The coordinator closed the connection");
+    }
+    return line.split("\t", -1);
+  }
+
+  private void expect(String[] fields, String keyword) throws IOException {
+    if (!fields[0].equals(keyword)) {
+      throw new IOException("The coordinator sent " + Arrays.toString(fields) + " instead of " + keyword);
+    }
+  }
+}
@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -88,6 +89,16 @@ public abstract class DB {
    */
   public abstract Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result);
 
+  /**
+   * Read a record without measuring the read, for reads that measure something else rather than being part of the
+   * load, e.g. polling whether a write became visible. Only the wrappers that measure operations override it.
+   *
+   * @see #read(String, String, Set, Map)
+   */
+  public Status readUnmeasured(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return read(table, key, fields, result);
+  }
+
   /**
    * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored
    * in a HashMap.
@@ -124,6 +135,31 @@ public abstract class DB {
    */
   public abstract Status insert(String table, String key, Map<String, ByteIterator> values);
 
+  /**
+   * Insert several records into the same table in one operation. keys.get(i) is inserted with values.get(i).
+   * <p>
+   * The default implementation inserts the records one by one and stops at the first record that is not
+   * inserted successfully. Bindings whose store supports multi-row writes (batches, multi-row INSERTs) should
+   * override it so that a batch costs one round trip.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values The field/value pairs of each record, in the same order as keys
+   * @return The result of the operation: OK only if every record was inserted.
+   */
+  public Status insertBatch(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+    if (keys.size() != values.size()) {
+      return Status.BAD_REQUEST;
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      final Status res = insert(table, keys.get(i), values.get(i));
+      if (res == null || !res.isOk()) {
+        return res;
+      }
+    }
+    return Status.OK;
+  }
+
   /**
    * Delete a record from the database.
    *
@@ -48,4 +48,38 @@ public final class DBFactory {
     return new DBWrapper(ret, tracer);
   }
 
+  /**
+   * Creates an asynchronous DB layer. If asyncdbname is set that AsyncDB class is loaded, otherwise adapterthreads
+   * instances of the blocking DB class dbname are run by a {@link BlockingAsyncDB}.
+   */
+  public static AsyncDB newAsyncDB(String dbname, String asyncdbname, int adapterthreads, Properties properties,
+                                   final Tracer tracer) throws UnknownDBException {
+    ClassLoader classLoader = DBFactory.class.getClassLoader();
+
+    AsyncDB ret;
+
+    if (asyncdbname != null) {
+      try {
+        ret = (AsyncDB) classLoader.loadClass(asyncdbname).getDeclaredConstructor().newInstance();
+      } catch (Exception e) {
+        throw new UnknownDBException("Could not load AsyncDB " + asyncdbname, e);
+      }
+    } else {
+      final DB[] dbs = new DB[adapterthreads];
+      for (int i = 0; i < adapterthreads; i++) {
+        try {
+          dbs[i] = (DB) classLoader.loadClass(dbname).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+          throw new UnknownDBException("Could not load DB " + dbname, e);
+        }
+        dbs[i].setProperties(properties);
+      }
+      ret = new BlockingAsyncDB(dbs);
+    }
+
+    ret.setProperties(properties);
+
+    return new AsyncDBWrapper(ret, tracer);
+  }
+
 }
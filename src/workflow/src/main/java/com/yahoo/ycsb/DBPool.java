@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.Tracer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of DB instances shared by all the client threads, for when one binding instance per thread would
+ * open more sessions and connections than the database under test should see. Each operation borrows an idle
+ * instance, so an instance is still only used by one thread at a time, and returns it when done.
+ * <p>
+ * The time waited for an instance is measured as POOL-WAIT, whose return codes count the operations that got one
+ * (OK) and the ones that didn't (SERVICE_UNAVAILABLE). An operation that gets no instance fails with
+ * SERVICE_UNAVAILABLE without reaching the database.
+ */
+public final class DBPool {
+
+  /**
+   * How many DB instances the client threads share, 0 (default) for one instance per thread.
+   */
+  public static final String POOL_SIZE_PROPERTY = "dbpool.size";
+
+  public static final String POOL_SIZE_PROPERTY_DEFAULT = "0";
+
+  /**
+   * wait (default) to wait for an instance, failfast to fail the operation when none is idle.
+   */
+  public static final String POLICY_PROPERTY = "dbpool.policy";
+
+  public static final String POLICY_PROPERTY_DEFAULT = "wait";
+
+  /**
+   * With the wait policy, how long to wait for an instance in milliseconds before failing the operation, 0 to
+   * wait as long as it takes.
+   */
+  public static final String TIMEOUT_PROPERTY = "dbpool.timeoutms";
+
+  public static final String TIMEOUT_PROPERTY_DEFAULT = "0";
+
+  public static final String POOL_WAIT_MEASUREMENT = "POOL-WAIT";
+
+  private final DB[] dbs;
+  private final BlockingQueue<DB> idle;
+  private final boolean failFast;
+  private final long timeoutNs;
+  private final Measurements measurements;
+  /**
+   * The leases initialized and not cleaned up yet.
+   */
+  private int leases;
+  private DBException initFailure;
+
+  DBPool(DB[] dbs, boolean failFast, long timeoutMs, Measurements measurements) {
+    this.dbs = dbs;
+    this.idle = new ArrayBlockingQueue<>(dbs.length);
+    this.failFast = failFast;
+    this.timeoutNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    this.measurements = measurements;
+  }
+
+  /**
+   * @return A pool of dbpool.size instances of dbname, or null when every thread has its own.
+   * @throws IllegalArgumentException If the properties are invalid.
+   * @throws UnknownDBException If dbname can't be loaded.
+   */
+  public static DBPool create(String dbname, Properties props, Tracer tracer)
+      throws UnknownDBException {
+    final int size = Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY, POOL_SIZE_PROPERTY_DEFAULT));
+    if (size <= 0) {
+      return null;
+    }
+    final String policy = props.getProperty(POLICY_PROPERTY, POLICY_PROPERTY_DEFAULT);
+    if (!policy.equals("wait") && !policy.equals("failfast")) {
+      throw new IllegalArgumentException("Unknown " + POLICY_PROPERTY + " " + policy + ", must be wait or failfast.");
+    }
+    final DB[] dbs = new DB[size];
+    for (int i = 0; i < size; i++) {
+      dbs[i] = DBFactory.newDB(dbname, props, tracer);
+      if (dbs[i] == null) {
+        throw new UnknownDBException("Could not load DB " + dbname);
+      }
+    }
+    return new DBPool(dbs, policy.equals("failfast"),
+        Long.parseLong(props.getProperty(TIMEOUT_PROPERTY, TIMEOUT_PROPERTY_DEFAULT)), Measurements.getMeasurements());
+  }
+
+  /**
+   * @return The DB a client thread uses, which borrows an instance of the pool for every operation.
+   */
+  public DB lease() {
+    return new PooledDB();
+  }
+
+  public int getSize() {
+    return dbs.length;
+  }
+
+  /**
+   * The first lease to be initialized initializes every instance, on its own thread.
+   */
+  private synchronized void init() throws DBException {
+    if (initFailure != null) {
+      throw initFailure;
+    }
+    if (leases++ > 0) {
+      return;
+    }
+    try {
+      for (DB db : dbs) {
+        db.init();
+        idle.add(db);
+      }
+    } catch (DBException e) {
+      leases--;
+      initFailure = e;
+      throw e;
+    }
+  }
+
+  /**
+   * The last lease to be cleaned up cleans up every instance.
+   */
+  private synchronized void cleanup() throws DBException {
+    if (--leases > 0) {
+      return;
+    }
+    idle.clear();
+    DBException failure = null;
+    for (DB db : dbs) {
+      try {
+        db.cleanup();
+      } catch (DBException e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * @return An idle instance, or null if none could be had under the policy.
+   */
+  private DB borrow() {
+    final long start = System.nanoTime();
+    DB db = idle.poll();
+    if (db == null && !failFast) {
+      try {
+        db = timeoutNs == 0 ? idle.take() : idle.poll(timeoutNs, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    measurements.measureHdrHistogram(POOL_WAIT_MEASUREMENT, (int) ((System.nanoTime() - start) / 1000));
+    measurements.reportHdrHistogramStatus(POOL_WAIT_MEASUREMENT, db == null ? Status.SERVICE_UNAVAILABLE : Status.OK);
+    return db;
+  }
+
+  private void giveBack(DB db) {
+    idle.add(db);
+  }
+
+  /**
+   * What a client thread sees of the pool.
+   */
+  private final class PooledDB extends DB {
+    @Override
+    public void init() throws DBException {
+      DBPool.this.init();
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+      DBPool.this.cleanup();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.read(table, key, fields, result);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status readUnmeasured(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.readUnmeasured(table, key, fields, result);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.scan(table, startkey, recordcount, fields, result);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.update(table, key, values);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.insert(table, key, values);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status insertBatch(String table, List<String> keys, List<Map<String, ByteIterator>> values) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.insertBatch(table, keys, values);
+      } finally {
+        giveBack(db);
+      }
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      final DB db = borrow();
+      if (db == null) {
+        return Status.SERVICE_UNAVAILABLE;
+      }
+      try {
+        return db.delete(table, key);
+      } finally {
+        giveBack(db);
+      }
+    }
+  }
+}
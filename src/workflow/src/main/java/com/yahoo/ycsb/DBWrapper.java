@@ -32,35 +32,61 @@ public class DBWrapper extends DB {
   private final DB db;
   private final Measurements measurements;
   private final Tracer tracer;
-
-  private boolean reportLatencyForEachError = false;
-  private Set<String> latencyTrackedErrors = new HashSet<String>();
-
-  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY = "reportlatencyforeacherror";
-  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT = "false";
-
-  private static final String LATENCY_TRACKED_ERRORS_PROPERTY = "latencytrackederrors";
+  private final LatencyRecorder latency;
+  private final boolean tracing;
 
   private final String scopeStringCleanup;
   private final String scopeStringDelete;
   private final String scopeStringInit;
   private final String scopeStringInsert;
+  private final String scopeStringInsertBatch;
   private final String scopeStringRead;
   private final String scopeStringScan;
   private final String scopeStringUpdate;
 
+  private final LatencyRecorder.Operation opDelete;
+  private final LatencyRecorder.Operation opInsert;
+  private final LatencyRecorder.Operation opInsertBatch;
+  private final LatencyRecorder.Operation opRead;
+  private final LatencyRecorder.Operation opScan;
+  private final LatencyRecorder.Operation opUpdate;
+
   public DBWrapper(final DB db, final Tracer tracer) {
     this.db = db;
     measurements = Measurements.getMeasurements();
     this.tracer = tracer;
+    latency = new LatencyRecorder(measurements);
+    tracing = isTracing(tracer);
     final String simple = db.getClass().getSimpleName();
     scopeStringCleanup = simple + "#cleanup";
     scopeStringDelete = simple + "#delete";
     scopeStringInit = simple + "#init";
     scopeStringInsert = simple + "#insert";
+    scopeStringInsertBatch = simple + "#insertBatch";
     scopeStringRead = simple + "#read";
     scopeStringScan = simple + "#scan";
     scopeStringUpdate = simple + "#update";
+    opDelete = latency.operation("DELETE");
+    opInsert = latency.operation("INSERT");
+    opInsertBatch = latency.operation("INSERT-BATCH");
+    opRead = latency.operation("READ");
+    opScan = latency.operation("SCAN");
+    opUpdate = latency.operation("UPDATE");
+  }
+
+  /**
+   * @return true if the tracer has somewhere to send spans. Without a span receiver, a trace scope costs time on
+   * every operation for nothing, so the wrappers don't open any.
+   */
+  static boolean isTracing(Tracer tracer) {
+    return tracer.getTracerPool().getReceivers().length > 0;
+  }
+
+  /**
+   * @return A new trace scope, or null when not tracing, which try-with-resources skips.
+   */
+  private TraceScope trace(String scope) {
+    return tracing ? tracer.newScope(scope) : null;
   }
 
   /**
@@ -82,24 +108,9 @@ public class DBWrapper extends DB {
    * Called once per DB instance; there is one DB instance per client thread.
    */
   public void init() throws DBException {
-    try (final TraceScope span = tracer.newScope(scopeStringInit)) {
+    try (final TraceScope span = trace(scopeStringInit)) {
       db.init();
-
-      this.reportLatencyForEachError = Boolean.parseBoolean(getProperties().
-          getProperty(REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY,
-              REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT));
-
-      if (!reportLatencyForEachError) {
-        String latencyTrackedErrorsProperty = getProperties().getProperty(LATENCY_TRACKED_ERRORS_PROPERTY, null);
-        if (latencyTrackedErrorsProperty != null) {
-          this.latencyTrackedErrors = new HashSet<String>(Arrays.asList(
-              latencyTrackedErrorsProperty.split(",")));
-        }
-      }
-
-      System.err.println("DBWrapper: report latency for each error is " +
-          this.reportLatencyForEachError + " and specific error codes to track" +
-          " for latency are: " + this.latencyTrackedErrors.toString());
+      latency.configure(getProperties());
     }
   }
 
@@ -108,12 +119,12 @@ public class DBWrapper extends DB {
    * Called once per DB instance; there is one DB instance per client thread.
    */
   public void cleanup() throws DBException {
-    try (final TraceScope span = tracer.newScope(scopeStringCleanup)) {
+    try (final TraceScope span = trace(scopeStringCleanup)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       db.cleanup();
       long en = System.nanoTime();
-      measure("CLEANUP", Status.OK, ist, st, en);
+      latency.measureCleanup(ist, st, en);
     }
   }
 
@@ -129,17 +140,24 @@ public class DBWrapper extends DB {
    */
   public Status read(String table, String key, Set<String> fields,
                      Map<String, ByteIterator> result) {
-    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+    try (final TraceScope span = trace(scopeStringRead)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.read(table, key, fields, result);
       long en = System.nanoTime();
-      measure("READ", res, ist, st, en);
-      measurements.reportStatus("READ", res);
+      latency.record(opRead, table, res, ist, st, en);
       return res;
     }
   }
 
+  /**
+   * Read a record straight from the wrapped DB, without measuring or tracing it.
+   */
+  @Override
+  public Status readUnmeasured(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+    return db.read(table, key, fields, result);
+  }
+
   /**
    * Perform a range scan for a set of records in the database.
    * Each field/value pair from the result will be stored in a HashMap.
@@ -153,34 +171,16 @@ public class DBWrapper extends DB {
    */
   public Status scan(String table, String startkey, int recordcount,
                      Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
-    try (final TraceScope span = tracer.newScope(scopeStringScan)) {
+    try (final TraceScope span = trace(scopeStringScan)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.scan(table, startkey, recordcount, fields, result);
       long en = System.nanoTime();
-      measure("SCAN", res, ist, st, en);
-      measurements.reportStatus("SCAN", res);
+      latency.record(opScan, table, res, ist, st, en);
       return res;
     }
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
-                       long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result == null || !result.isOk()) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
-      }
-    }
-    measurements.measure(measurementName,
-        (int) ((endTimeNanos - startTimeNanos) / 1000));
-    measurements.measureIntended(measurementName,
-        (int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
-  }
-
   /**
    * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the
    * record with the specified record key, overwriting any existing values with the same field name.
@@ -192,13 +192,12 @@ public class DBWrapper extends DB {
    */
   public Status update(String table, String key,
                        Map<String, ByteIterator> values) {
-    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+    try (final TraceScope span = trace(scopeStringUpdate)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.update(table, key, values);
       long en = System.nanoTime();
-      measure("UPDATE", res, ist, st, en);
-      measurements.reportStatus("UPDATE", res);
+      latency.record(opUpdate, table, res, ist, st, en);
       return res;
     }
   }
@@ -215,13 +214,35 @@ public class DBWrapper extends DB {
    */
   public Status insert(String table, String key,
                        Map<String, ByteIterator> values) {
-    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+    try (final TraceScope span = trace(scopeStringInsert)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.insert(table, key, values);
       long en = System.nanoTime();
-      measure("INSERT", res, ist, st, en);
-      measurements.reportStatus("INSERT", res);
+      latency.record(opInsert, table, res, ist, st, en);
+      return res;
+    }
+  }
+
+  /**
+   * Insert several records into the same table. The whole batch is measured as one INSERT-BATCH operation.
+   * A failed batch doesn't tell which records were inserted, so a caller that retries it sends the whole batch
+   * again, and each attempt is measured as an operation of its own.
+   *
+   * @param table The name of the table
+   * @param keys The record keys of the records to insert.
+   * @param values The field/value pairs of each record, in the same order as keys
+   * @return The result of the operation.
+   */
+  @Override
+  public Status insertBatch(String table, List<String> keys,
+                            List<Map<String, ByteIterator>> values) {
+    try (final TraceScope span = trace(scopeStringInsertBatch)) {
+      long ist = measurements.getIntendedtartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.insertBatch(table, keys, values);
+      long en = System.nanoTime();
+      latency.record(opInsertBatch, table, res, ist, st, en);
       return res;
     }
   }
@@ -234,13 +255,12 @@ public class DBWrapper extends DB {
    * @return The result of the operation.
    */
   public Status delete(String table, String key) {
-    try (final TraceScope span = tracer.newScope(scopeStringDelete)) {
+    try (final TraceScope span = trace(scopeStringDelete)) {
       long ist = measurements.getIntendedtartTimeNs();
       long st = System.nanoTime();
       Status res = db.delete(table, key);
       long en = System.nanoTime();
-      measure("DELETE", res, ist, st, en);
-      measurements.reportStatus("DELETE", res);
+      latency.record(opDelete, table, res, ist, st, en);
       return res;
     }
   }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the latency and return code of DB operations, for {@link DBWrapper} and {@link AsyncDBWrapper}.
+ * Failed operations are measured as "OP-FAILED", or as "OP-STATUS" when reportlatencyforeacherror is set or the
+ * status is one of latencytrackederrors. With measurement.dimensions set, each operation is also measured under its
+ * table, return code and thread group. Each operation resolves its measurement handles once, see
+ * {@link Operation}, so that recording one allocates nothing.
+ */
+final class LatencyRecorder {
+
+  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY = "reportlatencyforeacherror";
+  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT = "false";
+
+  private static final String LATENCY_TRACKED_ERRORS_PROPERTY = "latencytrackederrors";
+
+  private final Measurements measurements;
+  private final Measurements.Handle cleanup;
+  private boolean reportLatencyForEachError = false;
+  private Set<String> latencyTrackedErrors = new HashSet<String>();
+
+  LatencyRecorder(Measurements measurements) {
+    this.measurements = measurements;
+    cleanup = measurements.getHandle("CLEANUP");
+  }
+
+  /**
+   * The measurement handles of one kind of operation: the one it is counted and measured under when it succeeds,
+   * the one of its failures, and one for each return code that is measured on its own, kept once first reported.
+   */
+  final class Operation {
+    private final String name;
+    private final Measurements.Handle ok;
+    private final Measurements.Handle failed;
+    private final ConcurrentHashMap<Status, Measurements.Handle> byStatus = new ConcurrentHashMap<>();
+
+    private Operation(String name) {
+      this.name = name;
+      ok = measurements.getHandle(name);
+      failed = measurements.getHandle(name + "-FAILED");
+    }
+
+    private Measurements.Handle measured(Status result) {
+      if (result == null) {
+        return failed;
+      }
+      if (result.isOk()) {
+        return ok;
+      }
+      if (!reportLatencyForEachError && !latencyTrackedErrors.contains(result.getName())) {
+        return failed;
+      }
+      Measurements.Handle handle = byStatus.get(result);
+      if (handle == null) {
+        handle = byStatus.computeIfAbsent(result, status -> measurements.getHandle(name + "-" + status.getName()));
+      }
+      return handle;
+    }
+  }
+
+  /**
+   * @return The handles to record the given operation, e.g. "READ", with.
+   */
+  Operation operation(String name) {
+    return new Operation(name);
+  }
+
+  /**
+   * Reads which failed operations get a measurement of their own.
+   */
+  void configure(Properties p) {
+    this.reportLatencyForEachError = Boolean.parseBoolean(
+        p.getProperty(REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY, REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT));
+
+    if (!reportLatencyForEachError) {
+      String latencyTrackedErrorsProperty = p.getProperty(LATENCY_TRACKED_ERRORS_PROPERTY, null);
+      if (latencyTrackedErrorsProperty != null) {
+        this.latencyTrackedErrors = new HashSet<String>(Arrays.asList(
+            latencyTrackedErrorsProperty.split(",")));
+      }
+    }
+
+    System.err.println("DBWrapper: report latency for each error is " +
+        this.reportLatencyForEachError + " and specific error codes to track" +
+        " for latency are: " + this.latencyTrackedErrors.toString());
+  }
+
+  private void measure(Operation op, String table, int group, Status result, long intendedStartTimeNanos,
+                       long startTimeNanos, long endTimeNanos) {
+    final Measurements.Handle handle = op.measured(result);
+    final int latency = (int) ((endTimeNanos - startTimeNanos) / 1000);
+    final int intendedLatency = (int) ((endTimeNanos - intendedStartTimeNanos) / 1000);
+    handle.measure(latency);
+    handle.measureIntended(intendedLatency);
+    measurements.measureWindow(latency, intendedLatency);
+    measurements.measureDimensions(op.name, table, result, group, latency, intendedLatency);
+  }
+
+  /**
+   * Measures the cleanup of a DB, which isn't part of the load and so isn't reported to the window recorder.
+   */
+  void measureCleanup(long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    cleanup.measure((int) ((endTimeNanos - startTimeNanos) / 1000));
+    cleanup.measureIntended((int) ((endTimeNanos - intendedStartTimeNanos) / 1000));
+  }
+
+  /**
+   * Measures an operation issued and completed by the calling thread, and counts its return code.
+   */
+  void record(Operation op, String table, Status result, long intendedStartTimeNanos, long startTimeNanos,
+              long endTimeNanos) {
+    record(op, table, measurements.getThreadGroup(), result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+  }
+
+  /**
+   * Measures the operation and counts its return code.
+   *
+   * @param group The thread group that issued the operation, which may have completed on another thread.
+   */
+  void record(Operation op, String table, int group, Status result, long intendedStartTimeNanos,
+              long startTimeNanos, long endTimeNanos) {
+    measure(op, table, group, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    op.ok.reportStatus(result);
+  }
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A target rate that changes over the run, made of steps that follow each other. It is given with the schedule
+ * property, or one step per line in the file named by schedule.file, steps separated by commas or new lines:
+ * <ul>
+ * <li><b>step RATE DURATION</b>: RATE operations per second for DURATION.
+ * <li><b>ramp FROM TO DURATION</b>: a rate going linearly from FROM to TO over DURATION.
+ * <li><b>spike RATE DURATION</b>: like step, reported as a spike.
+ * <li><b>stairs FROM TO INCREMENT DURATION</b>: steps of DURATION each, from FROM up to TO by INCREMENT, to look
+ * for the saturation point in one run.
+ * </ul>
+ * Durations are in seconds unless they end with ms, s, m or h. Lines starting with # are comments. When the last
+ * step ends, the run is stopped.
+ */
+public final class LoadSchedule {
+
+  public static final String SCHEDULE_PROPERTY = "schedule";
+
+  public static final String SCHEDULE_FILE_PROPERTY = "schedule.file";
+
+  /**
+   * Rates are never taken below this, so a paced thread doesn't sleep for the rest of the run at a rate of 0.
+   */
+  static final double MIN_RATE = 1;
+
+  /**
+   * One step of the schedule.
+   */
+  public static final class Step {
+    private final String kind;
+    private final double fromRate;
+    private final double toRate;
+    private final long startNs;
+    private final long durationNs;
+
+    Step(String kind, double fromRate, double toRate, long startNs, long durationNs) {
+      this.kind = kind;
+      this.fromRate = fromRate;
+      this.toRate = toRate;
+      this.startNs = startNs;
+      this.durationNs = durationNs;
+    }
+
+    public String getKind() {
+      return kind;
+    }
+
+    public long getStartNs() {
+      return startNs;
+    }
+
+    public long getDurationNs() {
+      return durationNs;
+    }
+
+    /**
+     * @return The average target rate of the step.
+     */
+    public double getTargetRate() {
+      return (fromRate + toRate) / 2;
+    }
+
+    double rateAt(long offsetNs) {
+      return fromRate + (toRate - fromRate) * offsetNs / durationNs;
+    }
+
+    @Override
+    public String toString() {
+      return fromRate == toRate
+          ? kind + " " + format(fromRate) + " ops/sec"
+          : kind + " " + format(fromRate) + "-" + format(toRate) + " ops/sec";
+    }
+
+    private static String format(double rate) {
+      return rate == Math.rint(rate) ? String.valueOf((long) rate) : String.valueOf(rate);
+    }
+  }
+
+  private final List<Step> steps;
+  private final long durationNs;
+  private volatile long originNs;
+
+  private LoadSchedule(List<Step> steps) {
+    this.steps = Collections.unmodifiableList(steps);
+    final Step last = steps.get(steps.size() - 1);
+    this.durationNs = last.startNs + last.durationNs;
+  }
+
+  /**
+   * @return The schedule given by the schedule or schedule.file property, or null if neither is set.
+   * @throws IllegalArgumentException If the schedule can't be read or parsed.
+   */
+  public static LoadSchedule fromProperties(Properties props) {
+    final String spec = props.getProperty(SCHEDULE_PROPERTY);
+    final String file = props.getProperty(SCHEDULE_FILE_PROPERTY);
+    if (spec != null && file != null) {
+      throw new IllegalArgumentException("Set only one of " + SCHEDULE_PROPERTY + " and " + SCHEDULE_FILE_PROPERTY);
+    }
+    if (file != null) {
+      try {
+        return parse(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Could not read " + SCHEDULE_FILE_PROPERTY + " " + file, e);
+      }
+    }
+    return spec == null ? null : parse(spec);
+  }
+
+  /**
+   * Parses a schedule, see the class comment for the format.
+   *
+   * @throws IllegalArgumentException If the schedule is malformed or empty.
+   */
+  public static LoadSchedule parse(String spec) {
+    final List<Step> steps = new ArrayList<>();
+    long start = 0;
+    for (String entry : spec.split("[,\\n]")) {
+      final String line = entry.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      final String[] f = line.split("\\s+");
+      final String kind = f[0].toLowerCase(Locale.ROOT);
+      switch (kind) {
+      case "step":
+      case "spike":
+        expectArgs(line, f, 2);
+        start = add(steps, kind, rate(f[1]), rate(f[1]), start, duration(f[2]));
+        break;
+      case "ramp":
+        expectArgs(line, f, 3);
+        start = add(steps, kind, rate(f[1]), rate(f[2]), start, duration(f[3]));
+        break;
+      case "stairs":
+        expectArgs(line, f, 4);
+        final double to = rate(f[2]);
+        final double increment = rate(f[3]);
+        if (increment <= 0) {
+          throw new IllegalArgumentException("The stairs increment must be positive: " + line);
+        }
+        final long each = duration(f[4]);
+        for (double r = rate(f[1]); r <= to; r += increment) {
+          start = add(steps, "step", r, r, start, each);
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown schedule step '" + line + "', must be step, ramp, spike or stairs");
+      }
+    }
+    if (steps.isEmpty()) {
+      throw new IllegalArgumentException("Empty schedule");
+    }
+    return new LoadSchedule(steps);
+  }
+
+  private static long add(List<Step> steps, String kind, double from, double to, long start, long duration) {
+    steps.add(new Step(kind, from, to, start, duration));
+    return start + duration;
+  }
+
+  private static void expectArgs(String line, String[] fields, int count) {
+    if (fields.length != count + 1) {
+      throw new IllegalArgumentException("Expected " + count + " arguments: " + line);
+    }
+  }
+
+  private static double rate(String s) {
+    final double rate = Double.parseDouble(s);
+    if (rate < 0) {
+      throw new IllegalArgumentException("Negative rate " + s);
+    }
+    return rate;
+  }
+
+  static long duration(String s) {
+    final String lower = s.toLowerCase(Locale.ROOT);
+    final long nanos;
+    if (lower.endsWith("ms")) {
+      nanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(lower.substring(0, lower.length() - 2)));
+    } else if (lower.endsWith("s")) {
+      nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(lower.substring(0, lower.length() - 1)));
+    } else if (lower.endsWith("m")) {
+      nanos = TimeUnit.MINUTES.toNanos(Long.parseLong(lower.substring(0, lower.length() - 1)));
+    } else if (lower.endsWith("h")) {
+      nanos = TimeUnit.HOURS.toNanos(Long.parseLong(lower.substring(0, lower.length() - 1)));
+    } else {
+      nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(lower));
+    }
+    if (nanos <= 0) {
+      throw new IllegalArgumentException("Durations must be positive: " + s);
+    }
+    return nanos;
+  }
+
+  /**
+   * Makes now the start of the schedule. Called once, when the client threads are started.
+   */
+  public void start() {
+    originNs = System.nanoTime();
+  }
+
+  public List<Step> getSteps() {
+    return steps;
+  }
+
+  public long getDurationNs() {
+    return durationNs;
+  }
+
+  /**
+   * @return The index of the step at the given time, which is past the last step once the schedule ended.
+   */
+  int stepAt(long nanoTime) {
+    final long offset = nanoTime - originNs;
+    for (int i = 0; i < steps.size(); i++) {
+      if (offset < steps.get(i).startNs + steps.get(i).durationNs) {
+        return i;
+      }
+    }
+    return steps.size();
+  }
+
+  /**
+   * @return The target rate in operations per second at the given System.nanoTime(), at least {@link #MIN_RATE}.
+   */
+  public double rateAt(long nanoTime) {
+    final long offset = Math.max(0, nanoTime - originNs);
+    final int i = stepAt(nanoTime);
+    if (i == steps.size()) {
+      return Math.max(MIN_RATE, steps.get(i - 1).toRate);
+    }
+    final Step step = steps.get(i);
+    return Math.max(MIN_RATE, step.rateAt(offset - step.startNs));
+  }
+
+  /**
+   * @return The time between two operations at the given time, for a share 1/parts of the load.
+   */
+  public double intervalNs(long nanoTime, int parts) {
+    return TimeUnit.SECONDS.toNanos(1) * parts / rateAt(nanoTime);
+  }
+
+  /**
+   * The rate is integrated over slices of this length, so that an interval started at a low rate ends as soon as
+   * the rate goes up.
+   */
+  private static final long SLICE_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * @return When the operation after the one due at deadlineNs is due, for a share 1/parts of the load.
+   */
+  public long nextDeadlineNs(long deadlineNs, int parts) {
+    double owed = 1;
+    long t = deadlineNs;
+    while (true) {
+      final double perNs = rateAt(t) / parts / TimeUnit.SECONDS.toNanos(1);
+      final double needNs = owed / perNs;
+      if (needNs <= SLICE_NS) {
+        return t + (long) needNs;
+      }
+      owed -= perNs * SLICE_NS;
+      t += SLICE_NS;
+    }
+  }
+
+  /**
+   * @return The System.nanoTime() at which the schedule ends.
+   */
+  public long endNs() {
+    return originNs + durationNs;
+  }
+}
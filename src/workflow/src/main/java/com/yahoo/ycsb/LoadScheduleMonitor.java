@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Follows a run with a {@link LoadSchedule}: it collects the throughput and latency percentiles of every step,
+ * stops the workload when the schedule ends, and stops it early when the p99 latency is above the SLO for
+ * slo.intervals intervals in a row. The throughput counts workload operations, the unit of the schedule's rates,
+ * while the latencies are those of the database operations, the intended ones when measurement.interval measures
+ * them.
+ * <p>
+ * The result includes the maximum sustainable throughput: the highest throughput of a step that met the SLO in
+ * every interval and reached at least slo.throughputratio of its target rate.
+ */
+public final class LoadScheduleMonitor extends Thread {
+
+  /**
+   * The p99 latency objective in milliseconds, 0 for none.
+   */
+  public static final String SLO_P99_PROPERTY = "slo.p99ms";
+
+  public static final String SLO_P99_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How many intervals in a row the p99 latency may be above the objective before the run is stopped.
+   */
+  public static final String SLO_INTERVALS_PROPERTY = "slo.intervals";
+
+  public static final String SLO_INTERVALS_PROPERTY_DEFAULT = "3";
+
+  /**
+   * The length of an interval in milliseconds.
+   */
+  public static final String SLO_INTERVAL_PROPERTY = "slo.intervalms";
+
+  public static final String SLO_INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * The share of its target rate a step must reach to count as sustained.
+   */
+  public static final String SLO_THROUGHPUT_RATIO_PROPERTY = "slo.throughputratio";
+
+  public static final String SLO_THROUGHPUT_RATIO_PROPERTY_DEFAULT = "0.9";
+
+  /**
+   * What was measured during one step.
+   */
+  static final class StepStats {
+    private final Histogram histogram = new Histogram(3);
+    private long operations;
+    private long elapsedNs;
+    private int violations;
+
+    double throughput() {
+      return elapsedNs == 0 ? 0 : operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNs;
+    }
+
+    long p99() {
+      return histogram.getValueAtPercentile(99);
+    }
+
+    int violations() {
+      return violations;
+    }
+  }
+
+  private final LoadSchedule schedule;
+  private final Workload workload;
+  private final Measurements measurements;
+  private final long sloP99Us;
+  private final int sloIntervals;
+  private final long intervalNs;
+  private final double throughputRatio;
+  private final StepStats[] stats;
+  private final Recorder recorder = new Recorder(3);
+  private final LongAdder operations = new LongAdder();
+  private int consecutiveViolations;
+  private volatile boolean stoppedBySlo;
+  private volatile boolean done;
+
+  public LoadScheduleMonitor(LoadSchedule schedule, Workload workload, Measurements measurements, Properties props) {
+    super("LoadScheduleMonitor");
+    setDaemon(true);
+    this.schedule = schedule;
+    this.workload = workload;
+    this.measurements = measurements;
+    this.sloP99Us = (long) (Double.parseDouble(props.getProperty(SLO_P99_PROPERTY, SLO_P99_PROPERTY_DEFAULT)) * 1000);
+    this.sloIntervals = Integer.parseInt(props.getProperty(SLO_INTERVALS_PROPERTY, SLO_INTERVALS_PROPERTY_DEFAULT));
+    this.intervalNs = TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(props.getProperty(SLO_INTERVAL_PROPERTY, SLO_INTERVAL_PROPERTY_DEFAULT)));
+    this.throughputRatio = Double.parseDouble(
+        props.getProperty(SLO_THROUGHPUT_RATIO_PROPERTY, SLO_THROUGHPUT_RATIO_PROPERTY_DEFAULT));
+    if (sloIntervals < 1 || intervalNs <= 0) {
+      throw new IllegalArgumentException(SLO_INTERVALS_PROPERTY + " and " + SLO_INTERVAL_PROPERTY
+          + " must be positive");
+    }
+    this.stats = new StepStats[schedule.getSteps().size()];
+    for (int i = 0; i < stats.length; i++) {
+      stats[i] = new StepStats();
+    }
+  }
+
+  /**
+   * Starts recording. The schedule must have been started.
+   */
+  @Override
+  public synchronized void start() {
+    measurements.addWindowRecorder(recorder);
+    measurements.addWindowCounter(operations);
+    super.start();
+  }
+
+  /**
+   * Intervals end at step boundaries too, so that every interval belongs to one step.
+   */
+  @Override
+  public void run() {
+    final List<LoadSchedule.Step> steps = schedule.getSteps();
+    final long origin = schedule.endNs() - schedule.getDurationNs();
+    long from = origin;
+    long counted = 0;
+    Histogram interval = null;
+    while (!done) {
+      final int step = schedule.stepAt(from);
+      if (step == steps.size()) {
+        System.err.println("Load schedule finished, stopping the workload.");
+        workload.requestStop();
+        break;
+      }
+      final LoadSchedule.Step current = steps.get(step);
+      final long to = Math.min(from + intervalNs, origin + current.getStartNs() + current.getDurationNs());
+      while (!done && System.nanoTime() < to) {
+        LockSupport.parkNanos(to - System.nanoTime());
+      }
+      interval = recorder.getIntervalHistogram(interval);
+      final long total = operations.sum();
+      onInterval(step, interval, total - counted, System.nanoTime() - from);
+      counted = total;
+      if (step != schedule.stepAt(to)) {
+        System.err.println(describe(step));
+      }
+      from = to;
+    }
+    measurements.removeWindowRecorder(recorder);
+    measurements.removeWindowCounter(operations);
+  }
+
+  /**
+   * Ends monitoring, e.g. when every client thread is done before the schedule is.
+   */
+  public void finish() {
+    done = true;
+    LockSupport.unpark(this);
+    try {
+      join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Accounts one interval to a step and applies the stop rule. An interval without any completed operation counts
+   * as above the objective, the database answered nothing in it.
+   *
+   * @param interval   The latencies of the database operations in the interval.
+   * @param operations The workload operations done in the interval.
+   */
+  void onInterval(int step, Histogram interval, long operations, long elapsedNs) {
+    final StepStats s = stats[step];
+    s.histogram.add(interval);
+    s.operations += operations;
+    s.elapsedNs += elapsedNs;
+    if (sloP99Us <= 0) {
+      return;
+    }
+    if (interval.getTotalCount() == 0 || interval.getValueAtPercentile(99) > sloP99Us) {
+      s.violations++;
+      consecutiveViolations++;
+    } else {
+      consecutiveViolations = 0;
+    }
+    if (consecutiveViolations >= sloIntervals && !stoppedBySlo) {
+      stoppedBySlo = true;
+      done = true;
+      System.err.println("p99 latency above the SLO of " + sloP99Us + " us for " + consecutiveViolations
+          + " intervals in a row at " + schedule.getSteps().get(step) + ", stopping the workload.");
+      System.err.println(describe(step));
+      workload.requestStop();
+    }
+  }
+
+  StepStats getStats(int step) {
+    return stats[step];
+  }
+
+  public boolean isStoppedBySlo() {
+    return stoppedBySlo;
+  }
+
+  /**
+   * @return The highest throughput of a step that met the SLO in all its intervals and reached at least
+   * slo.throughputratio of its target, 0 if there is none.
+   */
+  public double getMaxSustainableThroughput() {
+    double max = 0;
+    for (int i = 0; i < stats.length; i++) {
+      final StepStats s = stats[i];
+      if (s.elapsedNs > 0 && s.violations == 0
+          && s.throughput() >= throughputRatio * schedule.getSteps().get(i).getTargetRate()) {
+        max = Math.max(max, s.throughput());
+      }
+    }
+    return max;
+  }
+
+  private String describe(int step) {
+    final StepStats s = stats[step];
+    return String.format("Step %d (%s): %.2f ops/sec, p99=%d us, intervals above SLO: %d", step + 1,
+        schedule.getSteps().get(step), s.throughput(), s.p99(), s.violations);
+  }
+
+  /**
+   * Writes the result of every step that ran and the maximum sustainable throughput.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    for (int i = 0; i < stats.length; i++) {
+      final StepStats s = stats[i];
+      if (s.elapsedNs == 0) {
+        continue;
+      }
+      final String metric = "SCHEDULE-STEP-" + (i + 1);
+      exporter.write(metric, "TargetThroughput(ops/sec)", schedule.getSteps().get(i).getTargetRate());
+      exporter.write(metric, "Throughput(ops/sec)", s.throughput());
+      exporter.write(metric, "Operations", s.operations);
+      exporter.write(metric, "99thPercentileLatency(us)", s.p99());
+      exporter.write(metric, "IntervalsAboveSLO", s.violations);
+    }
+    exporter.write("SCHEDULE", "MaxSustainableThroughput(ops/sec)", getMaxSustainableThroughput());
+    exporter.write("SCHEDULE", "StoppedBySLO", stoppedBySlo ? 1 : 0);
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The operations of a run, shared by all its client threads. Instead of a fixed 1/threadcount share each thread
+ * claims chunks of operations as it goes, so threads that are faster do more of them and the run ends when the
+ * total is done, not when the slowest thread is. Chunks shrink as the budget runs out, the last operations are
+ * claimed a few at a time, so no thread is left with a big chunk when the others are done.
+ */
+public final class OperationBudget {
+
+  /**
+   * static (default) to give every thread a fixed share of the operations, shared to claim them as threads go.
+   */
+  public static final String OPERATION_BUDGET_PROPERTY = "operationbudget";
+
+  public static final String OPERATION_BUDGET_PROPERTY_DEFAULT = "static";
+
+  /**
+   * The most operations a thread claims at a time.
+   */
+  public static final String CHUNK_PROPERTY = "operationbudget.chunk";
+
+  public static final String CHUNK_PROPERTY_DEFAULT = "1000";
+
+  private final AtomicLong remaining;
+  private final long maxChunk;
+  private final int threadcount;
+
+  OperationBudget(long total, long maxChunk, int threadcount) {
+    if (maxChunk < 1) {
+      throw new IllegalArgumentException(CHUNK_PROPERTY + " must be at least 1, was " + maxChunk);
+    }
+    this.remaining = new AtomicLong(total);
+    this.maxChunk = maxChunk;
+    this.threadcount = threadcount;
+  }
+
+  /**
+   * @return A shared budget of total operations, or null for fixed shares or when the run isn't bounded by a number
+   * of operations.
+   * @throws IllegalArgumentException If the properties are invalid.
+   */
+  public static OperationBudget create(Properties props, long total, int threadcount) {
+    final String mode = props.getProperty(OPERATION_BUDGET_PROPERTY, OPERATION_BUDGET_PROPERTY_DEFAULT);
+    switch (mode) {
+    case "static":
+      return null;
+    case "shared":
+      return total <= 0 ? null
+          : new OperationBudget(total, Long.parseLong(props.getProperty(CHUNK_PROPERTY, CHUNK_PROPERTY_DEFAULT)),
+              threadcount);
+    default:
+      throw new IllegalArgumentException("Unknown " + OPERATION_BUDGET_PROPERTY + " " + mode
+          + ", must be static or shared.");
+    }
+  }
+
+  /**
+   * Claims the next operations to do: a share of what's left, at most the chunk size, so that the chunks get
+   * smaller towards the end.
+   *
+   * @return How many operations were claimed, 0 once the budget is spent.
+   */
+  public int claim() {
+    while (true) {
+      final long left = remaining.get();
+      if (left <= 0) {
+        return 0;
+      }
+      final long chunk = Math.max(1, Math.min(maxChunk, left / (2L * threadcount)));
+      if (remaining.compareAndSet(left, left - chunk)) {
+        return (int) chunk;
+      }
+    }
+  }
+
+  /**
+   * @return The operations not claimed yet.
+   */
+  public long getRemaining() {
+    return Math.max(0, remaining.get());
+  }
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Splits the work of the client threads in two: generator threads choose the operations and build their keys and
+ * values, client threads only run them against the DB. Each client thread takes its operations from its own
+ * {@link SpscRing}, filled by one of the generators, so neither side takes a lock.
+ * <p>
+ * How full the rings are tells where the limit of a run is: rings that stay full mean the client threads wait on
+ * the DB, rings that run empty mean they wait on the generators, that is on the client itself.
+ */
+public final class OperationPipeline {
+
+  /**
+   * true to prepare the operations on generator threads, for a {@link PipelinedWorkload}.
+   */
+  public static final String PIPELINE_PROPERTY = "pipeline";
+
+  public static final String PIPELINE_PROPERTY_DEFAULT = "false";
+
+  /**
+   * The number of generator threads, each fills the rings of threadcount/generators client threads.
+   */
+  public static final String GENERATORS_PROPERTY = "pipeline.generators";
+
+  public static final String GENERATORS_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The most operations prepared ahead for one client thread, rounded up to a power of two.
+   */
+  public static final String RING_SIZE_PROPERTY = "pipeline.ringsize";
+
+  public static final String RING_SIZE_PROPERTY_DEFAULT = "1024";
+
+  // how often a client thread retries an empty ring before it parks
+  private static final int SPINS = 100;
+  private static final long PARK_NS = 10_000;
+
+  /**
+   * The ring of one client thread. Each counter is written by one side only.
+   */
+  private static final class Lane {
+    private final SpscRing<PreparedOperation> ring;
+    private volatile boolean done;
+    // consumer side
+    private volatile long taken;
+    private volatile long occupancySum;
+    private volatile long starved;
+    // producer side
+    private volatile long full;
+
+    private Lane(int ringSize) {
+      ring = new SpscRing<>(ringSize);
+    }
+  }
+
+  private final Workload workload;
+  private final PipelinedWorkload prepared;
+  private final Properties props;
+  private final boolean dotransactions;
+  private final int threadcount;
+  private final Lane[] lanes;
+  private final List<Thread> generators = new ArrayList<>();
+  private volatile boolean stopped;
+  private volatile Throwable failure;
+
+  OperationPipeline(Workload workload, Properties props, boolean dotransactions, int threadcount, int generatorcount,
+                    int ringSize) {
+    if (!(workload instanceof PipelinedWorkload)) {
+      throw new IllegalArgumentException(workload.getClass().getName() + " can't prepare its operations ahead, "
+          + PIPELINE_PROPERTY + " needs a " + PipelinedWorkload.class.getSimpleName() + ".");
+    }
+    if (generatorcount < 1 || generatorcount > threadcount) {
+      throw new IllegalArgumentException(GENERATORS_PROPERTY + " must be between 1 and the thread count "
+          + threadcount + ", was " + generatorcount);
+    }
+    this.workload = workload;
+    this.prepared = (PipelinedWorkload) workload;
+    this.props = props;
+    this.dotransactions = dotransactions;
+    this.threadcount = threadcount;
+    lanes = new Lane[threadcount];
+    for (int i = 0; i < threadcount; i++) {
+      lanes[i] = new Lane(ringSize);
+    }
+    for (int g = 0; g < generatorcount; g++) {
+      final List<Lane> own = new ArrayList<>();
+      for (int i = g; i < threadcount; i += generatorcount) {
+        own.add(lanes[i]);
+      }
+      final int generatorid = g;
+      final Thread generator = new Thread(() -> generate(generatorid, generatorcount, own),
+          "OperationGenerator-" + g);
+      generator.setDaemon(true);
+      generators.add(generator);
+    }
+  }
+
+  /**
+   * @return A pipeline for threadcount client threads, or null if operations aren't prepared ahead.
+   * @throws IllegalArgumentException If the properties are invalid or the workload can't prepare its operations.
+   */
+  public static OperationPipeline create(Properties props, Workload workload, boolean dotransactions,
+                                         int threadcount) {
+    if (!Boolean.parseBoolean(props.getProperty(PIPELINE_PROPERTY, PIPELINE_PROPERTY_DEFAULT))) {
+      return null;
+    }
+    return new OperationPipeline(workload, props, dotransactions, threadcount,
+        Integer.parseInt(props.getProperty(GENERATORS_PROPERTY, GENERATORS_PROPERTY_DEFAULT)),
+        Integer.parseInt(props.getProperty(RING_SIZE_PROPERTY, RING_SIZE_PROPERTY_DEFAULT)));
+  }
+
+  public void start() {
+    for (Thread generator : generators) {
+      generator.start();
+    }
+  }
+
+  /**
+   * Stops the generators, once the client threads are done.
+   */
+  public void stop() throws InterruptedException {
+    stopped = true;
+    for (Thread generator : generators) {
+      generator.join();
+    }
+  }
+
+  /**
+   * Keeps the rings of the given lanes full, in turns, until the workload is done or the pipeline is stopped.
+   * Generators get the thread ids after those of the client threads.
+   */
+  private void generate(int generatorid, int generatorcount, List<Lane> own) {
+    try {
+      final Object state = workload.initThread(props, threadcount + generatorid, threadcount + generatorcount);
+      PreparedOperation next = null;
+      while (!stopped && !workload.isStopRequested()) {
+        boolean offered = false;
+        for (Lane lane : own) {
+          if (next == null) {
+            next = dotransactions ? prepared.prepareTransaction(state) : prepared.prepareInsert(state);
+            if (next == null) {
+              return;
+            }
+          }
+          if (lane.ring.offer(next)) {
+            next = null;
+            offered = true;
+          } else {
+            lane.full++;
+          }
+        }
+        if (!offered) {
+          LockSupport.parkNanos(PARK_NS);
+        }
+      }
+    } catch (WorkloadException | RuntimeException e) {
+      failure = e;
+    } finally {
+      for (Lane lane : own) {
+        lane.done = true;
+      }
+    }
+  }
+
+  /**
+   * Runs the next operation prepared for a client thread, waiting for one if its ring is empty.
+   *
+   * @return false if the workload has no more work to do or was stopped.
+   * @throws IllegalStateException If the generator of the ring failed.
+   */
+  public boolean execute(int threadid, DB db, Object threadstate) {
+    final Lane lane = lanes[threadid];
+    final int occupancy = lane.ring.size();
+    PreparedOperation op = lane.ring.poll();
+    if (op == null) {
+      lane.starved++;
+      for (int spins = 0; op == null; spins++) {
+        if (lane.done) {
+          // whatever was offered before the generator was done is in the ring by now
+          op = lane.ring.poll();
+          if (op == null) {
+            if (failure != null) {
+              throw new IllegalStateException("The operation generator failed", failure);
+            }
+            return false;
+          }
+          break;
+        }
+        if (workload.isStopRequested()) {
+          return false;
+        }
+        if (spins < SPINS) {
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(PARK_NS);
+        }
+        op = lane.ring.poll();
+      }
+    }
+    lane.taken++;
+    lane.occupancySum += occupancy;
+    return op.execute(db, threadstate);
+  }
+
+  /**
+   * @return The operations in all the rings now, as a fraction of their capacity.
+   */
+  public double getOccupancy() {
+    long size = 0;
+    for (Lane lane : lanes) {
+      size += lane.ring.size();
+    }
+    return (double) size / ((long) lanes.length * lanes[0].ring.capacity());
+  }
+
+  /**
+   * @return The operations in the emptiest ring now, as a fraction of its capacity.
+   */
+  public double getMinOccupancy() {
+    int min = Integer.MAX_VALUE;
+    for (Lane lane : lanes) {
+      min = Math.min(min, lane.ring.size());
+    }
+    return (double) min / lanes[0].ring.capacity();
+  }
+
+  /**
+   * @return How many times a client thread found its ring empty and had to wait for a generator.
+   */
+  public long getStarved() {
+    long starved = 0;
+    for (Lane lane : lanes) {
+      starved += lane.starved;
+    }
+    return starved;
+  }
+
+  /**
+   * @return How many times a generator found a ring full and had to wait for its client thread.
+   */
+  public long getFull() {
+    long full = 0;
+    for (Lane lane : lanes) {
+      full += lane.full;
+    }
+    return full;
+  }
+
+  /**
+   * @return The average fraction of its ring that was prepared ahead when a client thread took an operation.
+   */
+  public double getAverageOccupancy() {
+    long taken = 0;
+    long sum = 0;
+    for (Lane lane : lanes) {
+      taken += lane.taken;
+      sum += lane.occupancySum;
+    }
+    return taken == 0 ? 0 : (double) sum / taken / lanes[0].ring.capacity();
+  }
+
+  /**
+   * A short summary for the status line.
+   */
+  public String getSummary() {
+    return String.format("[PIPELINE: Occupancy=%.1f%%, MinOccupancy=%.1f%%, Starved=%d, Full=%d]",
+        100 * getOccupancy(), 100 * getMinOccupancy(), getStarved(), getFull());
+  }
+
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    exporter.write("PIPELINE", "Generators", generators.size());
+    exporter.write("PIPELINE", "RingSize", lanes[0].ring.capacity());
+    exporter.write("PIPELINE", "AverageOccupancy(%)", 100 * getAverageOccupancy());
+    exporter.write("PIPELINE", "Starved", getStarved());
+    exporter.write("PIPELINE", "Full", getFull());
+  }
+}
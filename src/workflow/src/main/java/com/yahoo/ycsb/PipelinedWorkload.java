@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+/**
+ * A workload whose operations can be prepared ahead of time, on threads other than the ones that run them against
+ * the DB, see {@link OperationPipeline}.
+ */
+public interface PipelinedWorkload {
+
+  /**
+   * Prepares the next transaction: chooses the operation and builds its keys and values. Called concurrently from
+   * several generator threads, each with its own state.
+   *
+   * @param threadstate The state of the generator thread, from {@link Workload#initThread}.
+   * @return The operation, or null if the workload has no more work to do.
+   */
+  PreparedOperation prepareTransaction(Object threadstate);
+
+  /**
+   * Prepares the next insert of the load phase.
+   *
+   * @param threadstate The state of the generator thread, from {@link Workload#initThread}.
+   * @return The operation, or null if the workload has no more work to do.
+   */
+  PreparedOperation prepareInsert(Object threadstate);
+}
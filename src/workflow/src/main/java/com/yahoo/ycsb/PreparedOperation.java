@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+/**
+ * One operation of a {@link PipelinedWorkload}, with its key and values chosen by a generator thread, to be run
+ * by a client thread.
+ */
+public interface PreparedOperation {
+
+  /**
+   * Runs the operation. Anything the operation still has to choose when it runs, it chooses with the state of the
+   * client thread that runs it, never with that of the generator thread.
+   *
+   * @param db          The DB of the client thread.
+   * @param threadstate The workload state of the client thread, from {@link Workload#initThread}.
+   * @return false if the workload has no more work to do.
+   */
+  boolean execute(DB db, Object threadstate);
+}
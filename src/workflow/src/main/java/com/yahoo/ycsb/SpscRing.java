@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue for exactly one producer thread and one consumer thread. Neither side takes a lock: each owns
+ * the index it advances and publishes it with an ordered write, and reads the other side's index only when its
+ * cached copy says the ring is full, or empty.
+ *
+ * @param <E> The type of the elements.
+ */
+public final class SpscRing<E> {
+
+  private final Object[] buffer;
+  private final int mask;
+
+  /**
+   * The next slot to poll, advanced by the consumer.
+   */
+  private final AtomicLong head = new AtomicLong();
+
+  /**
+   * The next slot to offer to, advanced by the producer.
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  // the producer's last view of head, and the consumer's last view of tail
+  private long cachedHead;
+  private long cachedTail;
+
+  /**
+   * @param capacity The most elements in the ring, rounded up to a power of two.
+   */
+  public SpscRing(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("The capacity of a ring must be between 1 and 2^30, was " + capacity);
+    }
+    final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+    buffer = new Object[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Called by the producer only.
+   *
+   * @return false if the ring is full.
+   */
+  public boolean offer(E element) {
+    if (element == null) {
+      throw new NullPointerException();
+    }
+    final long t = tail.get();
+    if (t - cachedHead >= buffer.length) {
+      cachedHead = head.get();
+      if (t - cachedHead >= buffer.length) {
+        return false;
+      }
+    }
+    buffer[(int) t & mask] = element;
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Called by the consumer only.
+   *
+   * @return The oldest element, or null if the ring is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public E poll() {
+    final long h = head.get();
+    if (h >= cachedTail) {
+      cachedTail = tail.get();
+      if (h >= cachedTail) {
+        return null;
+      }
+    }
+    final int slot = (int) h & mask;
+    final E element = (E) buffer[slot];
+    buffer[slot] = null;
+    head.lazySet(h + 1);
+    return element;
+  }
+
+  /**
+   * @return The number of elements in the ring, from any thread, as of some recent point in time.
+   */
+  public int size() {
+    final long h = head.get();
+    final long size = tail.get() - h;
+    return (int) Math.max(0, Math.min(buffer.length, size));
+  }
+
+  public int capacity() {
+    return buffer.length;
+  }
+}
@@ -27,6 +27,9 @@ public class StatusThread extends Thread {
   private final String label;
   private final boolean standardstatus;
 
+  // Null if the client threads prepare their own operations.
+  private OperationPipeline pipeline;
+
   // The interval for reporting status.
   private long sleeptimeNs;
 
@@ -78,6 +81,13 @@ public class StatusThread extends Thread {
     this.trackJVMStats = trackJVMStats;
   }
 
+  /**
+   * Adds how full the rings of the pipeline are to the status.
+   */
+  public void setPipeline(OperationPipeline operationPipeline) {
+    pipeline = operationPipeline;
+  }
+
   /**
    * Run and periodically report status.
    */
@@ -157,6 +167,9 @@ public class StatusThread extends Thread {
       msg.append("est completion in ").append(RemainingFormatter.format(estremaining));
     }
 
+    if (pipeline != null) {
+      msg.append(pipeline.getSummary()).append(" ");
+    }
     msg.append(Measurements.getMeasurements().getSummary());
 
     System.err.println(msg);
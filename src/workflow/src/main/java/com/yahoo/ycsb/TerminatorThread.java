@@ -17,6 +17,9 @@
 package com.yahoo.ycsb;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A thread that waits for the maximum specified time and then interrupts all the client
@@ -28,14 +31,28 @@ import java.util.Collection;
 public class TerminatorThread extends Thread {
 
   private final Collection<? extends Thread> threads;
+  private final CountDownLatch completeLatch;
   private long maxExecutionTime;
   private Workload workload;
   private long waitTimeOutInMS;
 
   public TerminatorThread(long maxExecutionTime, Collection<? extends Thread> threads,
                           Workload workload) {
+    this(maxExecutionTime, threads, null, workload);
+  }
+
+  /**
+   * Waits for the clients through the latch they count down on completion, whatever threads they run on.
+   */
+  public TerminatorThread(long maxExecutionTime, CountDownLatch completeLatch, Workload workload) {
+    this(maxExecutionTime, Collections.<Thread>emptyList(), completeLatch, workload);
+  }
+
+  private TerminatorThread(long maxExecutionTime, Collection<? extends Thread> threads,
+                           CountDownLatch completeLatch, Workload workload) {
     this.maxExecutionTime = maxExecutionTime;
     this.threads = threads;
+    this.completeLatch = completeLatch;
     this.workload = workload;
     waitTimeOutInMS = 2000;
     System.err.println("Maximum execution time specified as: " + maxExecutionTime + " secs");
@@ -64,5 +81,15 @@ public class TerminatorThread extends Thread {
         }
       }
     }
+    while (completeLatch != null && completeLatch.getCount() > 0) {
+      try {
+        if (!completeLatch.await(waitTimeOutInMS, TimeUnit.MILLISECONDS)) {
+          System.out.println("Still waiting for " + completeLatch.getCount() + " client threads to complete. " +
+              "Workload status: " + workload.isStopRequested());
+        }
+      } catch (InterruptedException e) {
+        // Do nothing. Don't know why I was interrupted.
+      }
+    }
   }
 }
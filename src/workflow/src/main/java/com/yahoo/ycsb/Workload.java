@@ -17,6 +17,7 @@
 
 package com.yahoo.ycsb;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Properties;
 
@@ -83,6 +84,16 @@ public abstract class Workload {
   public void cleanup() throws WorkloadException {
   }
 
+  /**
+   * Merge what the workers of a coordinated run wrote on their own, such as files kept between runs. Called by
+   * {@link Coordinator} once every worker is done, on an instance of its own that init() was not called on.
+   * Workers know their index from the {@link Coordinator#WORKER_PROPERTY} property.
+   *
+   * @param workers How many workers took part.
+   */
+  public void mergeWorkers(Properties p, int workers) throws WorkloadException {
+  }
+
   /**
    * Do one insert operation. Because it will be called concurrently from multiple client threads, this
    * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each
@@ -105,6 +116,29 @@ public abstract class Workload {
    */
   public abstract boolean doTransaction(DB db, Object threadstate);
 
+  /**
+   * Do one insert operation through an asynchronous DB, for the async client engine. The returned future completes
+   * with what {@link #doInsert} would have returned. Several operations of the same thread can be in flight at
+   * once, so state touched on completion must be thread safe; the threadstate itself should only be used before
+   * this method returns.
+   * <p>
+   * The default implementation calls doInsert on a blocking view of the DB, so workloads that don't override it
+   * keep one operation in flight per client thread.
+   */
+  public CompletableFuture<Boolean> doInsertAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doInsert(db.blocking(), threadstate));
+  }
+
+  /**
+   * Do one transaction operation through an asynchronous DB, for the async client engine. See
+   * {@link #doInsertAsync} for the threading rules.
+   * <p>
+   * The default implementation calls doTransaction on a blocking view of the DB.
+   */
+  public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+    return CompletableFuture.completedFuture(doTransaction(db.blocking(), threadstate));
+  }
+
   /**
    * Allows scheduling a request to stop the workload.
    */
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * 64 bit FNV hash of the record number written in decimal, the same as the hashed keys of
+ * {@link com.yahoo.ycsb.workloads.CoreWorkload}.
+ */
+public class Fnv64KeyCodec implements KeyCodec {
+
+  @Override
+  public String encode(long keynum) {
+    return Long.toString(Utils.fnvhash64(keynum));
+  }
+}
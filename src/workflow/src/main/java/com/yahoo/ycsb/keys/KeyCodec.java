@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+/**
+ * Turns a record number into the hashed part of a database key.
+ * <p>
+ * Implementations are shared by all client threads, so they must be thread safe. They are called for every
+ * generated key, so any scratch state (digests, buffers) should be kept per thread rather than allocated
+ * per call. Implementations must have a public no-argument constructor so they can be loaded by
+ * {@link KeyCodecFactory}.
+ */
+public interface KeyCodec {
+
+  /**
+   * Encode the given record number.
+   *
+   * @param keynum The record number.
+   * @return The encoded key. The same record number must always produce the same key.
+   */
+  String encode(long keynum);
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * Creates a {@link KeyCodec} from its short name or by dynamically classloading the specified class.
+ */
+public final class KeyCodecFactory {
+  private KeyCodecFactory() {
+    // not used
+  }
+
+  /**
+   * The name of the property selecting the key codec. Options are "md5", "fnv64", "murmur128" or the fully
+   * qualified name of a {@link KeyCodec} implementation.
+   */
+  public static final String KEY_CODEC_PROPERTY = "keycodec";
+
+  public static KeyCodec newKeyCodec(String name) throws WorkloadException {
+    switch (name) {
+    case "md5":
+      return new Md5KeyCodec();
+    case "fnv64":
+      return new Fnv64KeyCodec();
+    case "murmur128":
+      return new Murmur128KeyCodec();
+    default:
+      break;
+    }
+
+    try {
+      Class<?> codecclass = KeyCodecFactory.class.getClassLoader().loadClass(name);
+      return (KeyCodec) codecclass.getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new WorkloadException("Unknown key codec \"" + name + "\"", e);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+/**
+ * Buffer helpers shared by the codecs in this package.
+ */
+final class KeyCodecSupport {
+  private KeyCodecSupport() {
+    // not used
+  }
+
+  /**
+   * Enough room for the decimal form of any long, including the sign.
+   */
+  static final int MAX_DECIMAL_LENGTH = 20;
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Writes the ASCII decimal form of a value right-aligned into the buffer, as {@link Long#toString(long)} would.
+   *
+   * @param val The value to write.
+   * @param buf A buffer of at least {@link #MAX_DECIMAL_LENGTH} bytes.
+   * @return The offset of the first written byte; the digits run to the end of the buffer.
+   */
+  static int writeDecimal(long val, byte[] buf) {
+    int pos = buf.length;
+    boolean negative = val < 0;
+    // work on the negative range so Long.MIN_VALUE does not overflow
+    long rest = negative ? val : -val;
+    do {
+      buf[--pos] = (byte) ('0' - (rest % 10));
+      rest /= 10;
+    } while (rest != 0);
+    if (negative) {
+      buf[--pos] = '-';
+    }
+    return pos;
+  }
+
+  /**
+   * Writes the lower case hex form of the given bytes into the buffer.
+   *
+   * @param bytes The bytes to encode.
+   * @param chars A buffer of at least twice the length of bytes.
+   * @param stripLeadingZeros If true, leading zero digits are dropped like {@link java.math.BigInteger#toString(int)}
+   *                          does for a positive value.
+   * @return The encoded string.
+   */
+  static String toHex(byte[] bytes, char[] chars, boolean stripLeadingZeros) {
+    int len = 0;
+    for (byte b : bytes) {
+      chars[len++] = HEX_DIGITS[(b >> 4) & 0x0f];
+      chars[len++] = HEX_DIGITS[b & 0x0f];
+    }
+    int start = 0;
+    if (stripLeadingZeros) {
+      while (start < len - 1 && chars[start] == '0') {
+        start++;
+      }
+    }
+    return new String(chars, start, len - start);
+  }
+
+  /**
+   * Writes the lower case, zero padded hex form of the given longs into the buffer.
+   */
+  static String toHex(long hi, long lo, char[] chars) {
+    for (int i = 15; i >= 0; i--) {
+      chars[i] = HEX_DIGITS[(int) (hi & 0x0f)];
+      chars[i + 16] = HEX_DIGITS[(int) (lo & 0x0f)];
+      hi >>>= 4;
+      lo >>>= 4;
+    }
+    return new String(chars, 0, 32);
+  }
+}
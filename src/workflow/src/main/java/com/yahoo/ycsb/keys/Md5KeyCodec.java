@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 of the decimal record number, written as hex without leading zeros. This is the format
+ * {@code new BigInteger(1, md5(Long.toString(keynum))).toString(16)} produces, so keys match data
+ * loaded by earlier versions of the Dan workload.
+ */
+public class Md5KeyCodec implements KeyCodec {
+
+  private static final int DIGEST_LENGTH = 16;
+
+  /**
+   * Per thread scratch state; {@link MessageDigest} is not thread safe and is expensive to look up.
+   */
+  private static final class State {
+    private final MessageDigest digest;
+    private final byte[] input = new byte[KeyCodecSupport.MAX_DECIMAL_LENGTH];
+    private final byte[] output = new byte[DIGEST_LENGTH];
+    private final char[] chars = new char[DIGEST_LENGTH * 2];
+
+    State() {
+      try {
+        digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("MD5 is not available in this JVM", e);
+      }
+    }
+  }
+
+  private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+  @Override
+  public String encode(long keynum) {
+    final State s = state.get();
+    final int off = KeyCodecSupport.writeDecimal(keynum, s.input);
+    s.digest.update(s.input, off, s.input.length - off);
+    try {
+      s.digest.digest(s.output, 0, DIGEST_LENGTH);
+    } catch (DigestException e) {
+      throw new IllegalStateException("Could not compute MD5 digest", e);
+    }
+    return KeyCodecSupport.toHex(s.output, s.chars, true);
+  }
+}
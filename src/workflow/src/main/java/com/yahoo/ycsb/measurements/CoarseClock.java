@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wall clock time, to the millisecond, read from a field instead of a system call. A daemon thread updates it
+ * every millisecond, once something first asks for it.
+ */
+final class CoarseClock {
+
+  private static volatile long nowMillis = System.currentTimeMillis();
+
+  static {
+    final Thread ticker = new Thread(() -> {
+      while (true) {
+        nowMillis = System.currentTimeMillis();
+        try {
+          TimeUnit.MILLISECONDS.sleep(1);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }, "CoarseClock");
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  private CoarseClock() {
+  }
+
+  static long currentTimeMillis() {
+    return nowMillis;
+  }
+}
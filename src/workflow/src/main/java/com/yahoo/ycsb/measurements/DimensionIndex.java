@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves the measurement of an operation against a table, with a return code, from a thread group. Lookups go
+ * through nested maps keyed by the strings and statuses the caller already holds, so that once a series exists,
+ * finding it again allocates nothing. A series is named after its dimensions, e.g. "INSERT table=device status=OK";
+ * dimensions that aren't measured are left out of the name and don't split the series.
+ */
+final class DimensionIndex {
+  private static final String ANY = "";
+
+  private final boolean byTable;
+  private final boolean byStatus;
+  private final boolean byGroup;
+  private final Function<String, OneMeasurement> factory;
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<Status, Groups>>> index =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The series of one operation, table and status, by thread group.
+   */
+  private static final class Groups {
+    private volatile OneMeasurement[] series = new OneMeasurement[1];
+  }
+
+  DimensionIndex(boolean byTable, boolean byStatus, boolean byGroup, Function<String, OneMeasurement> factory) {
+    this.byTable = byTable;
+    this.byStatus = byStatus;
+    this.byGroup = byGroup;
+    this.factory = factory;
+  }
+
+  /**
+   * @return The measurement of the given dimensions, created the first time they are seen.
+   */
+  OneMeasurement get(String operation, String table, Status status, int group) {
+    final String t = byTable && table != null ? table : ANY;
+    final Status s = byStatus ? status : Status.OK;
+    final int g = byGroup ? group : 0;
+
+    ConcurrentHashMap<String, ConcurrentHashMap<Status, Groups>> tables = index.get(operation);
+    if (tables == null) {
+      tables = index.computeIfAbsent(operation, k -> new ConcurrentHashMap<>());
+    }
+    ConcurrentHashMap<Status, Groups> statuses = tables.get(t);
+    if (statuses == null) {
+      statuses = tables.computeIfAbsent(t, k -> new ConcurrentHashMap<>());
+    }
+    Groups groups = statuses.get(s);
+    if (groups == null) {
+      groups = statuses.computeIfAbsent(s, k -> new Groups());
+    }
+    final OneMeasurement[] series = groups.series;
+    if (g < series.length && series[g] != null) {
+      return series[g];
+    }
+    return create(groups, operation, t, s, g);
+  }
+
+  private OneMeasurement create(Groups groups, String operation, String table, Status status, int group) {
+    synchronized (groups) {
+      OneMeasurement[] series = groups.series;
+      if (group < series.length && series[group] != null) {
+        return series[group];
+      }
+      if (group >= series.length) {
+        series = Arrays.copyOf(series, Math.max(group + 1, series.length * 2));
+      } else {
+        series = series.clone();
+      }
+      series[group] = factory.apply(name(operation, table, status, group));
+      groups.series = series;
+      return series[group];
+    }
+  }
+
+  private String name(String operation, String table, Status status, int group) {
+    final StringBuilder name = new StringBuilder(operation);
+    if (byTable) {
+      name.append(" table=").append(table);
+    }
+    if (byStatus) {
+      name.append(" status=").append(status.getName());
+    }
+    if (byGroup) {
+      name.append(" group=").append(group);
+    }
+    return name.toString();
+  }
+}
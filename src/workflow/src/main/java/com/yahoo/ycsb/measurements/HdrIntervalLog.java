@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+
+/**
+ * The interval lines of the HdrHistogram log format, as written by {@link org.HdrHistogram.HistogramLogWriter}.
+ * The HdrHistogram version we use encodes them with javax.xml.bind, which newer runtimes don't have, so they are
+ * encoded and decoded here.
+ */
+final class HdrIntervalLog {
+
+  /**
+   * The latencies are in us, the max value column in s.
+   */
+  private static final double MAX_VALUE_UNIT_RATIO = 1000000.0;
+
+  /**
+   * The comment with the time the intervals are timed from, as later HdrHistogram versions write it.
+   */
+  static final String BASE_TIME = "[BaseTime: ";
+
+  private static final String START_TIME = "[StartTime: ";
+
+  /**
+   * Gets the intervals of a log.
+   */
+  interface Visitor {
+    /**
+     * @param startSec The start of the interval, in s since the start of the log.
+     * @param endSec   The end of the interval.
+     */
+    void visit(double startSec, double endSec, Histogram interval);
+  }
+
+  private HdrIntervalLog() {
+  }
+
+  /**
+   * @param baseTime The start of the log, in ms since the epoch.
+   * @return The line of the interval, with its start and end time stamps, and a line separator.
+   */
+  static String format(Histogram interval, long baseTime) {
+    // encoded as a copy of a fixed range: HdrHistogram underestimates the buffer for a histogram that resized
+    final Histogram fixed = new Histogram(Math.max(2, interval.getMaxValue()), 3);
+    fixed.add(interval);
+    final ByteBuffer buffer = ByteBuffer.allocate(fixed.getNeededByteBufferCapacity());
+    final int length = fixed.encodeIntoCompressedByteBuffer(buffer);
+    final double start = (interval.getStartTimeStamp() - baseTime) / 1000.0;
+    final double end = (interval.getEndTimeStamp() - baseTime) / 1000.0;
+    return String.format(Locale.US, "%.3f,%.3f,%.3f,%s%n", start, end - start,
+        interval.getMaxValue() / MAX_VALUE_UNIT_RATIO,
+        Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+  }
+
+  /**
+   * @return The time the intervals of a log are timed from, in s since the epoch: its base time, else its start
+   * time, else NaN if it has neither.
+   * @throws IOException If the log can't be read.
+   */
+  static double baseTime(File log) throws IOException {
+    double start = Double.NaN;
+    try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+      String line;
+      while ((line = reader.readLine()) != null && line.startsWith("#")) {
+        if (line.startsWith(BASE_TIME, 1)) {
+          return seconds(log, line, BASE_TIME);
+        }
+        if (line.startsWith(START_TIME, 1)) {
+          start = seconds(log, line, START_TIME);
+        }
+      }
+    }
+    return start;
+  }
+
+  private static double seconds(File log, String line, String prefix) throws IOException {
+    final String value = line.substring(1 + prefix.length()).split(" ", 2)[0];
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      throw new IOException("Not a time of " + log + ": " + line, e);
+    }
+  }
+
+  /**
+   * Reads the intervals of a log, skipping its comments and legend.
+   *
+   * @throws IOException If the log can't be read or an interval can't be decoded.
+   */
+  static void read(File log, Visitor visitor) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#") || line.startsWith("\"")) {
+          continue;
+        }
+        final String[] fields = line.split(",");
+        if (fields.length != 4) {
+          throw new IOException("Not an interval of " + log + ": " + line);
+        }
+        try {
+          final double start = Double.parseDouble(fields[0]);
+          final double length = Double.parseDouble(fields[1]);
+          final Histogram interval = Histogram.decodeFromCompressedByteBuffer(
+              ByteBuffer.wrap(Base64.getDecoder().decode(fields[3])), 0);
+          visitor.visit(start, start + length, interval);
+        } catch (IllegalArgumentException | DataFormatException e) {
+          throw new IOException("Not an interval of " + log + ": " + line, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the interval logs written with hdrhistogram.fileoutput and prints the latency of any slice of a run: a
+ * time window, a set of operations, or both, without running it again.
+ * <p>
+ * Usage: java com.yahoo.ycsb.measurements.HdrLogQuery [-from s] [-to s] [-ops READ,UPDATE] [-percentiles 50,99]
+ * logs... where each log is a .hdr file or a directory of them, and -from and -to are seconds since the start of
+ * the run: the intervals that start between them are added up. The run starts at the earliest base time of the
+ * logs, and the intervals of the other logs are shifted by how much later theirs is, so that every log is on the
+ * same time line. With more than one operation, their union is printed as ALL as well.
+ */
+public final class HdrLogQuery {
+
+  private static final String LOGGING_FOR = "#[Logging for: ";
+
+  private double from = 0;
+  private double to = Double.MAX_VALUE;
+  private Set<String> operations;
+  private List<Double> percentiles = Arrays.asList(50.0, 90.0, 95.0, 99.0, 99.9, 99.99);
+  private final List<File> logs = new ArrayList<>();
+
+  private HdrLogQuery() {
+  }
+
+  public static void usageMessage() {
+    System.out.println("Usage: java com.yahoo.ycsb.measurements.HdrLogQuery [options] logs...");
+    System.out.println("  logs: .hdr files written with hdrhistogram.fileoutput=true, or directories of them");
+    System.out.println("Options:");
+    System.out.println("  -from s: only the intervals that start s seconds or more into the run (default: 0)");
+    System.out.println("  -to s: only the intervals that start at most s seconds into the run (default: the end)");
+    System.out.println("  -ops READ,UPDATE: only these operations (default: all)");
+    System.out.println("  -percentiles 50,99: the percentiles to print (default: 50,90,95,99,99.9,99.99)");
+  }
+
+  public static void main(String[] args) throws IOException {
+    final HdrLogQuery query;
+    try {
+      query = parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      usageMessage();
+      System.exit(1);
+      return;
+    }
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(System.out);
+    try {
+      query.run(exporter);
+    } finally {
+      exporter.close();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException If the arguments are invalid.
+   */
+  static HdrLogQuery parseArguments(String[] args) {
+    final HdrLogQuery query = new HdrLogQuery();
+    int argindex = 0;
+    while (argindex < args.length && args[argindex].startsWith("-")) {
+      if (argindex + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing argument value for " + args[argindex] + ".");
+      }
+      final String value = args[argindex + 1];
+      switch (args[argindex]) {
+      case "-from":
+        query.from = Double.parseDouble(value);
+        break;
+      case "-to":
+        query.to = Double.parseDouble(value);
+        break;
+      case "-ops":
+        query.operations = new HashSet<>(Arrays.asList(value.split(",")));
+        break;
+      case "-percentiles":
+        query.percentiles = new ArrayList<>();
+        for (String percentile : value.split(",")) {
+          query.percentiles.add(Double.parseDouble(percentile));
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown option " + args[argindex]);
+      }
+      argindex += 2;
+    }
+    for (; argindex < args.length; argindex++) {
+      final File log = new File(args[argindex]);
+      if (log.isDirectory()) {
+        final File[] files = log.listFiles((dir, name) -> name.endsWith(".hdr"));
+        if (files != null) {
+          Arrays.sort(files);
+          query.logs.addAll(Arrays.asList(files));
+        }
+      } else {
+        query.logs.add(log);
+      }
+    }
+    if (query.logs.isEmpty()) {
+      throw new IllegalArgumentException("No logs to read.");
+    }
+    if (query.from > query.to) {
+      throw new IllegalArgumentException("-from " + query.from + " is after -to " + query.to);
+    }
+    return query;
+  }
+
+  /**
+   * Adds up the intervals of each operation in the time window and exports their latency.
+   */
+  void run(MeasurementsExporter exporter) throws IOException {
+    final Map<File, Double> baseTimes = new LinkedHashMap<>();
+    double runStart = Double.NaN;
+    for (File log : logs) {
+      final String operation = operation(log);
+      if (operations == null || operations.contains(operation)) {
+        final double baseTime = HdrIntervalLog.baseTime(log);
+        baseTimes.put(log, baseTime);
+        if (Double.isNaN(runStart) || baseTime < runStart) {
+          runStart = baseTime;
+        }
+      }
+    }
+
+    final Map<String, Histogram> selected = new LinkedHashMap<>();
+    final Map<String, Integer> intervals = new LinkedHashMap<>();
+    for (Map.Entry<File, Double> entry : baseTimes.entrySet()) {
+      final File log = entry.getKey();
+      final String operation = operation(log);
+      // a log without a base time is taken to start with the run
+      final double offset = Double.isNaN(entry.getValue()) ? 0 : entry.getValue() - runStart;
+      final Histogram total = selected.computeIfAbsent(operation, op -> new Histogram(3));
+      HdrIntervalLog.read(log, (start, end, interval) -> {
+        if (start + offset >= from && start + offset <= to) {
+          total.add(interval);
+          intervals.merge(operation, 1, Integer::sum);
+        }
+      });
+    }
+
+    final Histogram all = new Histogram(3);
+    int allintervals = 0;
+    for (Map.Entry<String, Histogram> entry : selected.entrySet()) {
+      final int count = intervals.getOrDefault(entry.getKey(), 0);
+      export(exporter, entry.getKey(), entry.getValue(), count);
+      all.add(entry.getValue());
+      allintervals += count;
+    }
+    if (selected.size() > 1) {
+      export(exporter, "ALL", all, allintervals);
+    }
+  }
+
+  private void export(MeasurementsExporter exporter, String name, Histogram histogram, int count)
+      throws IOException {
+    exporter.write(name, "Intervals", count);
+    exporter.write(name, "Operations", histogram.getTotalCount());
+    if (histogram.getTotalCount() == 0) {
+      return;
+    }
+    exporter.write(name, "AverageLatency(us)", histogram.getMean());
+    exporter.write(name, "MinLatency(us)", histogram.getMinValue());
+    exporter.write(name, "MaxLatency(us)", histogram.getMaxValue());
+    for (Double percentile : percentiles) {
+      exporter.write(name, OneMeasurementHdrHistogram.ordinal(percentile) + "PercentileLatency(us)",
+          histogram.getValueAtPercentile(percentile));
+    }
+  }
+
+  /**
+   * @return The operation a log is for, from its first comment, else its file name.
+   */
+  static String operation(File log) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+      final String first = reader.readLine();
+      if (first != null && first.startsWith(LOGGING_FOR) && first.endsWith("]")) {
+        return first.substring(LOGGING_FOR.length(), first.length() - 1);
+      }
+    }
+    final String name = log.getName();
+    return name.endsWith(".hdr") ? name.substring(0, name.length() - ".hdr".length()) : name;
+  }
+}
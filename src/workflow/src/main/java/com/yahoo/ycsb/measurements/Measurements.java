@@ -20,9 +20,20 @@ package com.yahoo.ycsb.measurements;
 import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -49,6 +60,42 @@ public class Measurements {
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY = "measurement.trackjvm";
   public static final String MEASUREMENT_TRACK_JVM_PROPERTY_DEFAULT = "false";
 
+  /**
+   * How long the warm-up lasts in seconds from the start of the run, 0 for none.
+   */
+  public static final String WARMUP_TIME_PROPERTY = "warmup.time";
+  public static final String WARMUP_TIME_PROPERTY_DEFAULT = "0";
+
+  /**
+   * How many operations the warm-up lasts, 0 for none. These are workload operations, as operationcount counts
+   * them, whatever number of DB operations each one makes. With warmup.time too, the warm-up ends at whichever
+   * comes first.
+   */
+  public static final String WARMUP_OPS_PROPERTY = "warmup.ops";
+  public static final String WARMUP_OPS_PROPERTY_DEFAULT = "0";
+
+  /**
+   * separate (default) to measure the warm-up operations as WARMUP-op, drop to not measure them.
+   */
+  public static final String WARMUP_MEASUREMENTS_PROPERTY = "warmup.measurements";
+  public static final String WARMUP_MEASUREMENTS_PROPERTY_DEFAULT = "separate";
+
+  public static final String WARMUP_PREFIX = "WARMUP-";
+
+  /**
+   * Which dimensions to break DB operation latencies down by, as a comma separated list of table, status and group,
+   * e.g. "table,status". Each combination is measured as a series of its own, e.g. "INSERT table=device status=OK",
+   * alongside the usual per operation measurement. Empty (default) for none. The warm-up isn't broken down.
+   */
+  public static final String DIMENSIONS_PROPERTY = "measurement.dimensions";
+  public static final String DIMENSIONS_PROPERTY_DEFAULT = "";
+
+  /**
+   * How many consecutive client threads make a thread group, for the group dimension.
+   */
+  public static final String DIMENSIONS_GROUP_SIZE_PROPERTY = "measurement.dimensions.groupsize";
+  public static final String DIMENSIONS_GROUP_SIZE_PROPERTY_DEFAULT = "1";
+
   private static Measurements singleton = null;
   private static Properties measurementproperties = null;
 
@@ -71,6 +118,20 @@ public class Measurements {
   private final MeasurementType measurementType;
   private final int measurementInterval;
   private final Properties props;
+  private final CopyOnWriteArrayList<Recorder> windowRecorders = new CopyOnWriteArrayList<>();
+  private final CopyOnWriteArrayList<LongAdder> windowCounters = new CopyOnWriteArrayList<>();
+  private final long warmupTimeNs;
+  private final long warmupOps;
+  private final boolean dropWarmup;
+  private volatile boolean warmingUp;
+  private volatile long warmupEndNs;
+  private final AtomicLong warmupOpsLeft = new AtomicLong();
+  private final AtomicBoolean warmupEnded = new AtomicBoolean();
+  private volatile Runnable warmupListener;
+  private volatile long runStartMs = System.currentTimeMillis();
+  private final ConcurrentHashMap<String, OneMeasurement> dimensionMesurementMap = new ConcurrentHashMap<>();
+  private final DimensionIndex dimensions;
+  private final int groupSize;
 
   /**
    * Create a new object with the specified properties.
@@ -119,6 +180,108 @@ public class Measurements {
     default:
       throw new IllegalArgumentException("unknown " + MEASUREMENT_INTERVAL + "=" + mIntervalString);
     }
+
+    warmupTimeNs = (long) (Double.parseDouble(
+        this.props.getProperty(WARMUP_TIME_PROPERTY, WARMUP_TIME_PROPERTY_DEFAULT)) * TimeUnit.SECONDS.toNanos(1));
+    warmupOps = Long.parseLong(this.props.getProperty(WARMUP_OPS_PROPERTY, WARMUP_OPS_PROPERTY_DEFAULT));
+    String mWarmupString = this.props.getProperty(WARMUP_MEASUREMENTS_PROPERTY, WARMUP_MEASUREMENTS_PROPERTY_DEFAULT);
+    switch (mWarmupString) {
+    case "separate":
+      dropWarmup = false;
+      break;
+    case "drop":
+      dropWarmup = true;
+      break;
+    default:
+      throw new IllegalArgumentException("unknown " + WARMUP_MEASUREMENTS_PROPERTY + "=" + mWarmupString);
+    }
+
+    boolean byTable = false;
+    boolean byStatus = false;
+    boolean byGroup = false;
+    for (String dimension : this.props.getProperty(DIMENSIONS_PROPERTY, DIMENSIONS_PROPERTY_DEFAULT).split(",")) {
+      switch (dimension.trim()) {
+      case "":
+        break;
+      case "table":
+        byTable = true;
+        break;
+      case "status":
+        byStatus = true;
+        break;
+      case "group":
+        byGroup = true;
+        break;
+      default:
+        throw new IllegalArgumentException("unknown " + DIMENSIONS_PROPERTY + " dimension " + dimension);
+      }
+    }
+    dimensions = byTable || byStatus || byGroup ? new DimensionIndex(byTable, byStatus, byGroup, name -> {
+      final OneMeasurement m = constructOneMeasurement(name);
+      dimensionMesurementMap.put(name, m);
+      return m;
+    }) : null;
+    groupSize = Integer.parseInt(
+        this.props.getProperty(DIMENSIONS_GROUP_SIZE_PROPERTY, DIMENSIONS_GROUP_SIZE_PROPERTY_DEFAULT));
+    if (groupSize < 1) {
+      throw new IllegalArgumentException(DIMENSIONS_GROUP_SIZE_PROPERTY + " must be at least 1");
+    }
+  }
+
+  /**
+   * Marks the start of the run, which the HdrHistogram interval logs of every measurement are timed from, and
+   * starts the warm-up, if one is configured. Called when the run starts, so that loading the workload isn't part
+   * of it.
+   */
+  public void startWarmup() {
+    runStartMs = System.currentTimeMillis();
+    if (warmupTimeNs <= 0 && warmupOps <= 0) {
+      return;
+    }
+    warmupEndNs = warmupTimeNs > 0 ? System.nanoTime() + warmupTimeNs : Long.MAX_VALUE;
+    warmupOpsLeft.set(warmupOps > 0 ? warmupOps : Long.MAX_VALUE);
+    warmingUp = true;
+  }
+
+  /**
+   * Sets what to run once, when the warm-up ends.
+   */
+  public void setWarmupListener(Runnable listener) {
+    warmupListener = listener;
+  }
+
+  /**
+   * @return true while the warm-up lasts.
+   */
+  public boolean isWarmingUp() {
+    if (!warmingUp) {
+      return false;
+    }
+    if (System.nanoTime() >= warmupEndNs) {
+      endWarmup();
+      return false;
+    }
+    return true;
+  }
+
+  private void endWarmup() {
+    if (warmupEnded.compareAndSet(false, true)) {
+      warmingUp = false;
+      final Runnable listener = warmupListener;
+      if (listener != null) {
+        listener.run();
+      }
+    }
+  }
+
+  /**
+   * @return The name to measure an operation under, null if it isn't measured.
+   */
+  private String phase(String operation) {
+    if (!isWarmingUp()) {
+      return operation;
+    }
+    return dropWarmup ? null : WARMUP_PREFIX + operation;
   }
 
   private OneMeasurement constructOneMeasurement(String name) {
@@ -126,14 +289,14 @@ public class Measurements {
     case HISTOGRAM:
       return new OneMeasurementHistogram(name, props);
     case HDRHISTOGRAM:
-      return new OneMeasurementHdrHistogram(name, props);
+      return new OneMeasurementHdrHistogram(name, props, runStartMs);
     case HDRHISTOGRAM_AND_HISTOGRAM:
       return new TwoInOneMeasurement(name,
-          new OneMeasurementHdrHistogram("Hdr" + name, props),
+          new OneMeasurementHdrHistogram("Hdr" + name, props, runStartMs),
           new OneMeasurementHistogram("Bucket" + name, props));
     case HDRHISTOGRAM_AND_RAW:
       return new TwoInOneMeasurement(name,
-          new OneMeasurementHdrHistogram("Hdr" + name, props),
+          new OneMeasurementHdrHistogram("Hdr" + name, props, runStartMs),
           new OneMeasurementRaw("Raw" + name, props));
     case TIMESERIES:
       return new OneMeasurementTimeSeries(name, props);
@@ -146,6 +309,7 @@ public class Measurements {
 
   static class StartTimeHolder {
     protected long time;
+    protected int group;
 
     long startTime() {
       if (time == 0) {
@@ -176,6 +340,51 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * Sets which client thread the calling thread is, for the group dimension.
+   */
+  public void setThreadId(int threadid) {
+    if (dimensions != null) {
+      tlIntendedStartTime.get().group = threadid / groupSize;
+    }
+  }
+
+  /**
+   * @return The thread group of the calling thread, 0 if it isn't a client thread.
+   */
+  public int getThreadGroup() {
+    return dimensions == null ? 0 : tlIntendedStartTime.get().group;
+  }
+
+  /**
+   * @return true if DB operations are broken down by {@link #DIMENSIONS_PROPERTY}.
+   */
+  public boolean hasDimensions() {
+    return dimensions != null;
+  }
+
+  /**
+   * Report the latency of one DB operation under its dimensions, if any are measured. The intended latency is
+   * recorded when measurement.interval measures it, else the plain latency.
+   *
+   * @param operation The operation, e.g. "INSERT", whatever its return code.
+   * @param table The table the operation ran against, null if none.
+   * @param status The return code of the operation.
+   * @param group The thread group that issued it, from {@link #getThreadGroup()}.
+   */
+  public void measureDimensions(String operation, String table, Status status, int group,
+                                int latency, int intendedLatency) {
+    if (dimensions == null || isWarmingUp()) {
+      return;
+    }
+    measure(getDimensionMeasurement(operation, table, status, group),
+        measurementInterval == 0 ? latency : intendedLatency);
+  }
+
+  OneMeasurement getDimensionMeasurement(String operation, String table, Status status, int group) {
+    return dimensions.get(operation, table, status == null ? Status.ERROR : status, group);
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
    * value.
@@ -184,15 +393,11 @@ public class Measurements {
     if (measurementInterval == 1) {
       return;
     }
-    try {
-      OneMeasurement m = getOpMeasurement(operation);
-      m.measure(latency);
-    } catch (java.lang.ArrayIndexOutOfBoundsException e) {
-      // This seems like a terribly hacky way to cover up for a bug in the measurement code
-      System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
-      e.printStackTrace();
-      e.printStackTrace(System.out);
+    final String name = phase(operation);
+    if (name == null) {
+      return;
     }
+    measure(getOpMeasurement(name), latency);
   }
 
   /**
@@ -203,8 +408,19 @@ public class Measurements {
     if (measurementInterval == 0) {
       return;
     }
+    final String name = phase(operation);
+    if (name == null) {
+      return;
+    }
+    measure(getOpIntendedMeasurement(name), latency);
+  }
+
+  /**
+   * Records a latency, reporting a value the measurement can't hold, e.g. a negative one, instead of failing the
+   * operation that measured it.
+   */
+  private static void measure(OneMeasurement m, int latency) {
     try {
-      OneMeasurement m = getOpIntendedMeasurement(operation);
       m.measure(latency);
     } catch (java.lang.ArrayIndexOutOfBoundsException e) {
       // This seems like a terribly hacky way to cover up for a bug in the measurement code
@@ -214,14 +430,82 @@ public class Measurements {
     }
   }
 
+  /**
+   * Also records the latency of every database operation in the given recorder, until it is removed. The intended
+   * latency is recorded when it is measured, else the plain latency. Used to watch the latency of the whole load,
+   * e.g. against an SLO.
+   */
+  public void addWindowRecorder(Recorder recorder) {
+    windowRecorders.add(recorder);
+  }
+
+  public void removeWindowRecorder(Recorder recorder) {
+    windowRecorders.remove(recorder);
+  }
+
+  /**
+   * Also counts every workload operation done in the given counter, until it is removed. A workload operation may
+   * take several database operations, this counts in the unit the client paces and reports its throughput in.
+   */
+  public void addWindowCounter(LongAdder counter) {
+    windowCounters.add(counter);
+  }
+
+  public void removeWindowCounter(LongAdder counter) {
+    windowCounters.remove(counter);
+  }
+
+  /**
+   * Reports the latencies of one database operation to the window recorders, if there are any.
+   */
+  public void measureWindow(int latency, int intendedLatency) {
+    if (windowRecorders.isEmpty()) {
+      return;
+    }
+    final long value = Math.max(0, measurementInterval == 0 ? latency : intendedLatency);
+    for (Recorder recorder : windowRecorders) {
+      recorder.recordValue(value);
+    }
+  }
+
+  /**
+   * Report a single value of a metric that is always kept in an HdrHistogram, whatever the measurementtype and
+   * measurement.interval settings are. Meant for values that are not operation latencies, e.g. "VISIBILITY", the
+   * time until a write is seen by another client.
+   */
+  public void measureHdrHistogram(String metric, int value) {
+    final String name = phase(metric);
+    if (name != null) {
+      getHdrHistogramMeasurement(name).measure(value);
+    }
+  }
+
+  /**
+   * Report a return code for a metric recorded with {@link #measureHdrHistogram}.
+   */
+  public void reportHdrHistogramStatus(String metric, Status status) {
+    final String name = phase(metric);
+    if (name != null) {
+      getHdrHistogramMeasurement(name).reportStatus(status);
+    }
+  }
+
+  /**
+   * Gets the measurement of a metric, creating it on first use. Here and in the getters below it is created with
+   * computeIfAbsent, so that no measurement is created and dropped: some open files and start threads.
+   */
+  private OneMeasurement getHdrHistogramMeasurement(String metric) {
+    OneMeasurement m = opToMesurementMap.get(metric);
+    if (m == null) {
+      m = opToMesurementMap.computeIfAbsent(metric, name -> new OneMeasurementHdrHistogram(name, props, runStartMs));
+    }
+    return m;
+  }
+
   private OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = opToMesurementMap.get(operation);
     if (m == null) {
-      m = constructOneMeasurement(operation);
-      OneMeasurement oldM = opToMesurementMap.putIfAbsent(operation, m);
-      if (oldM != null) {
-        m = oldM;
-      }
+      m = opToMesurementMap.computeIfAbsent(operation, this::constructOneMeasurement);
     }
     return m;
   }
@@ -230,25 +514,171 @@ public class Measurements {
     OneMeasurement m = opToIntendedMesurementMap.get(operation);
     if (m == null) {
       final String name = measurementInterval == 1 ? operation : "Intended-" + operation;
-      m = constructOneMeasurement(name);
-      OneMeasurement oldM = opToIntendedMesurementMap.putIfAbsent(operation, m);
-      if (oldM != null) {
-        m = oldM;
-      }
+      m = opToIntendedMesurementMap.computeIfAbsent(operation, op -> constructOneMeasurement(name));
     }
     return m;
   }
 
+  /**
+   * Counts a workload operation towards the warm-up and in the window counters. Client threads call it once for
+   * every operation they are done with, in the unit the client counts its operations and throughput in.
+   */
+  public void operationDone() {
+    for (LongAdder counter : windowCounters) {
+      counter.increment();
+    }
+    if (isWarmingUp() && warmupOpsLeft.decrementAndGet() <= 0) {
+      endWarmup();
+    }
+  }
+
   /**
    * Report a return code for a single DB operation.
    */
   public void reportStatus(final String operation, final Status status) {
+    String name = operation;
+    if (isWarmingUp()) {
+      if (dropWarmup) {
+        return;
+      }
+      name = WARMUP_PREFIX + operation;
+    }
     OneMeasurement m = measurementInterval == 1 ?
-        getOpIntendedMeasurement(operation) :
-        getOpMeasurement(operation);
+        getOpIntendedMeasurement(name) :
+        getOpMeasurement(name);
     m.reportStatus(status);
   }
 
+  /**
+   * @return A handle to measure the given operation with, like {@link #measure}, {@link #measureIntended} and
+   * {@link #reportStatus} do but without looking the measurement up by name on every call.
+   */
+  public Handle getHandle(String operation) {
+    return new Handle(operation);
+  }
+
+  /**
+   * The measurements of one operation, resolved on first use and kept, so that an operation that is never measured
+   * isn't exported either. The warm-up is measured under a measurement of its own, as by name.
+   */
+  public final class Handle {
+    private static final int INTENDED = 1;
+    private static final int WARMUP = 2;
+
+    private final String operation;
+    private final AtomicReferenceArray<OneMeasurement> resolved = new AtomicReferenceArray<>(4);
+
+    private Handle(String operation) {
+      this.operation = operation;
+    }
+
+    public String getOperation() {
+      return operation;
+    }
+
+    private OneMeasurement get(int slot) {
+      final OneMeasurement m = resolved.get(slot);
+      if (m != null) {
+        return m;
+      }
+      final String name = (slot & WARMUP) != 0 ? WARMUP_PREFIX + operation : operation;
+      resolved.set(slot, (slot & INTENDED) != 0 ? getOpIntendedMeasurement(name) : getOpMeasurement(name));
+      return resolved.get(slot);
+    }
+
+    /**
+     * @return The slot to measure in, -1 to not measure.
+     */
+    private int phase(boolean warm) {
+      if (!warm) {
+        return 0;
+      }
+      return dropWarmup ? -1 : WARMUP;
+    }
+
+    public void measure(int latency) {
+      if (measurementInterval == 1) {
+        return;
+      }
+      final int slot = phase(isWarmingUp());
+      if (slot >= 0) {
+        Measurements.measure(get(slot), latency);
+      }
+    }
+
+    public void measureIntended(int latency) {
+      if (measurementInterval == 0) {
+        return;
+      }
+      final int slot = phase(isWarmingUp());
+      if (slot >= 0) {
+        Measurements.measure(get(slot | INTENDED), latency);
+      }
+    }
+
+    /**
+     * Report the return code of the operation.
+     */
+    public void reportStatus(Status status) {
+      final int slot = phase(isWarmingUp());
+      if (slot >= 0) {
+        get(measurementInterval == 1 ? slot | INTENDED : slot).reportStatus(status);
+      }
+    }
+  }
+
+  /**
+   * @return By measurement name, a copy of every value measured so far, for the measurements kept in an
+   * HdrHistogram.
+   */
+  public Map<String, Histogram> getHdrHistogramTotals() {
+    final Map<String, Histogram> totals = new HashMap<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      if (m instanceof OneMeasurementHdrHistogram) {
+        totals.put(m.getName(), ((OneMeasurementHdrHistogram) m).getTotalHistogram());
+      }
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      if (m instanceof OneMeasurementHdrHistogram) {
+        totals.put(m.getName(), ((OneMeasurementHdrHistogram) m).getTotalHistogram());
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * @return By measurement name, how many times each return code was reported.
+   */
+  public Map<String, Map<Status, Integer>> getStatusCounts() {
+    final Map<String, Map<Status, Integer>> counts = new HashMap<>();
+    for (OneMeasurement m : opToMesurementMap.values()) {
+      counts.put(m.getName(), m.getStatusCounts());
+    }
+    for (OneMeasurement m : opToIntendedMesurementMap.values()) {
+      counts.put(m.getName(), m.getStatusCounts());
+    }
+    return counts;
+  }
+
+  /**
+   * Adds values measured by another process to the HdrHistogram measurement of the given name, as named by the
+   * other process.
+   */
+  public void mergeHdrHistogram(String name, Histogram values) {
+    final OneMeasurement m = getHdrHistogramMeasurement(name);
+    if (!(m instanceof OneMeasurementHdrHistogram)) {
+      throw new IllegalStateException(name + " isn't measured in an HdrHistogram");
+    }
+    ((OneMeasurementHdrHistogram) m).add(values);
+  }
+
+  /**
+   * Adds return codes counted by another process to the measurement of the given name.
+   */
+  public void mergeStatus(String name, Status status, int count) {
+    getHdrHistogramMeasurement(name).reportStatus(status, count);
+  }
+
   /**
    * Export the current measurements to a suitable format.
    *
@@ -262,6 +692,9 @@ public class Measurements {
     for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
       measurement.exportMeasurements(exporter);
     }
+    for (OneMeasurement measurement : dimensionMesurementMap.values()) {
+      measurement.exportMeasurements(exporter);
+    }
   }
 
   /**
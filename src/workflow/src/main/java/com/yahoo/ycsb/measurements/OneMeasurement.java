@@ -21,9 +21,10 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A single measured metric (such as READ LATENCY).
@@ -31,7 +32,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public abstract class OneMeasurement {
 
   private final String name;
-  private final ConcurrentHashMap<Status, AtomicInteger> returncodes;
+  private final ConcurrentHashMap<Status, LongAdder> returncodes;
 
   public String getName() {
     return name;
@@ -50,20 +51,39 @@ public abstract class OneMeasurement {
   public abstract String getSummary();
 
   /**
-   * No need for synchronization, using CHM to deal with that.
+   * No need for synchronization, using CHM to deal with that, and a {@link LongAdder} per code, so that threads
+   * reporting the same code don't contend on one counter.
    */
   public void reportStatus(Status status) {
-    AtomicInteger counter = returncodes.get(status);
+    reportStatus(status, 1);
+  }
+
+  /**
+   * Counts a return code several times, e.g. when merging the counts of another process.
+   */
+  public void reportStatus(Status status, int count) {
+    LongAdder counter = returncodes.get(status);
 
     if (counter == null) {
-      counter = new AtomicInteger();
-      AtomicInteger other = returncodes.putIfAbsent(status, counter);
+      counter = new LongAdder();
+      LongAdder other = returncodes.putIfAbsent(status, counter);
       if (other != null) {
         counter = other;
       }
     }
 
-    counter.incrementAndGet();
+    counter.add(count);
+  }
+
+  /**
+   * @return How many times each return code was reported so far.
+   */
+  public Map<Status, Integer> getStatusCounts() {
+    final Map<Status, Integer> counts = new HashMap<>();
+    for (Map.Entry<Status, LongAdder> entry : returncodes.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().intValue());
+    }
+    return counts;
   }
 
   /**
@@ -75,8 +95,8 @@ public abstract class OneMeasurement {
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
-    for (Map.Entry<Status, AtomicInteger> entry : returncodes.entrySet()) {
-      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
+    for (Map.Entry<Status, LongAdder> entry : returncodes.entrySet()) {
+      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().intValue());
     }
   }
 }
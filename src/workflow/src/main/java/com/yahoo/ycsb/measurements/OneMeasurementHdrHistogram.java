@@ -21,7 +21,7 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
 import org.HdrHistogram.HistogramLogWriter;
-import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -30,20 +30,92 @@ import java.io.PrintStream;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Take measurements and maintain a HdrHistogram of a given metric, such as READ LATENCY.
- *
+ * Every thread records into a {@link SingleWriterRecorder} of its own, see {@link ThreadShards}, their intervals
+ * are added up for the summary and the export.
+ * <p>
+ * With hdrhistogram.fileoutput, the intervals are also logged to name.hdr every hdrhistogram.fileoutput.intervalms,
+ * whether there is a status thread or not. {@link HdrLogQuery} reads these logs back. The intervals are timed from
+ * a base time, the start of the run for the measurements of {@link Measurements}, which every log records, so that
+ * the logs of measurements created at different times line up.
  */
 public class OneMeasurementHdrHistogram extends OneMeasurement {
 
+  /**
+   * The recorder of one thread, with the histogram its last interval came in, which the next interval recycles.
+   * The count is written by the thread only, with ordered writes, so that idle shards are skipped.
+   */
+  private static final class HdrShard {
+    private final SingleWriterRecorder recorder = new SingleWriterRecorder(3);
+    private final AtomicLong recorded = new AtomicLong();
+    private long accumulated;
+    private Histogram spare;
+
+    void record(int value) {
+      recorder.recordValue(value);
+      recorded.lazySet(recorded.get() + 1);
+    }
+
+    /**
+     * @return The values recorded since the last call, or null if there are none. The histogram is reused by the
+     * next call.
+     */
+    Histogram interval() {
+      final long count = recorded.get();
+      if (count == accumulated) {
+        return null;
+      }
+      accumulated = count;
+      spare = recorder.getIntervalHistogram(spare);
+      return spare;
+    }
+  }
+
   // we need one log per measurement histogram
   private final PrintStream log;
   private final HistogramLogWriter histogramLogWriter;
 
-  private final Recorder histogram;
-  private Histogram totalHistogram;
+  private final ThreadShards<HdrShard> histogram = new ThreadShards<>(HdrShard::new);
+  private final Histogram totalHistogram = new Histogram(3);
+
+  // the values since the last summary, and since the last interval logged
+  private final Histogram summaryHistogram = new Histogram(3);
+  private final Histogram logHistogram;
+  private long lastLogTime;
+  private ScheduledFuture<?> logTask;
+  private final LongSupplier clock;
+
+  /**
+   * The name of the property for logging the intervals to a file.
+   */
+  public static final String FILE_OUTPUT_PROPERTY = "hdrhistogram.fileoutput";
+
+  /**
+   * The name of the property for the prefix of the log files, e.g. a directory.
+   */
+  public static final String OUTPUT_PATH_PROPERTY = "hdrhistogram.output.path";
+
+  /**
+   * The name of the property for the length of a logged interval, in ms.
+   */
+  public static final String LOG_INTERVAL_PROPERTY = "hdrhistogram.fileoutput.intervalms";
+
+  public static final String LOG_INTERVAL_PROPERTY_DEFAULT = "1000";
+
+  /**
+   * Logs the intervals of every measurement.
+   */
+  private static ScheduledExecutorService logScheduler;
 
   /**
    * The name of the property for deciding what percentile values to output.
@@ -68,16 +140,36 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   private final List<Double> percentiles;
 
   public OneMeasurementHdrHistogram(String name, Properties props) {
+    this(name, props, System.currentTimeMillis());
+  }
+
+  /**
+   * @param baseTime The time the logged intervals are timed from, in ms since the epoch.
+   */
+  public OneMeasurementHdrHistogram(String name, Properties props, long baseTime) {
+    this(name, props, baseTime, System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock The time the log intervals start and end at, in ms since the epoch.
+   */
+  OneMeasurementHdrHistogram(String name, Properties props, long baseTime, LongSupplier clock) {
     super(name);
+    this.clock = clock;
     percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
     verbose = Boolean.valueOf(props.getProperty(VERBOSE_PROPERTY, String.valueOf(false)));
-    boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
+    boolean shouldLog = Boolean.parseBoolean(props.getProperty(FILE_OUTPUT_PROPERTY, "false"));
     if (!shouldLog) {
       log = null;
       histogramLogWriter = null;
+      logHistogram = null;
     } else {
+      final long interval = Long.parseLong(props.getProperty(LOG_INTERVAL_PROPERTY, LOG_INTERVAL_PROPERTY_DEFAULT));
+      if (interval < 1) {
+        throw new IllegalArgumentException(LOG_INTERVAL_PROPERTY + " must be at least 1, was " + interval);
+      }
       try {
-        final String hdrOutputFilename = props.getProperty("hdrhistogram.output.path", "") + name + ".hdr";
+        final String hdrOutputFilename = props.getProperty(OUTPUT_PATH_PROPERTY, "") + name + ".hdr";
         log = new PrintStream(new FileOutputStream(hdrOutputFilename), false);
       } catch (FileNotFoundException e) {
         throw new RuntimeException("Failed to open hdr histogram output file", e);
@@ -85,34 +177,72 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       histogramLogWriter = new HistogramLogWriter(log);
       histogramLogWriter.outputComment("[Logging for: " + name + "]");
       histogramLogWriter.outputLogFormatVersion();
-      long now = System.currentTimeMillis();
+      long now = clock.getAsLong();
       histogramLogWriter.outputStartTime(now);
-      histogramLogWriter.setBaseTime(now);
+      histogramLogWriter.setBaseTime(baseTime);
+      histogramLogWriter.outputComment(HdrIntervalLog.BASE_TIME + String.format(Locale.US, "%.3f", baseTime / 1000.0)
+          + " (seconds since epoch)]");
       histogramLogWriter.outputLegend();
+      logHistogram = new Histogram(3);
+      lastLogTime = now;
+      logTask = getLogScheduler().scheduleAtFixedRate(() -> {
+        try {
+          logInterval();
+        } catch (RuntimeException e) {
+          // a failed run would cancel the next ones
+          System.err.println("Failed to log an interval of " + name + ": " + e);
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getLogScheduler() {
+    if (logScheduler == null) {
+      logScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "HdrHistogramLog");
+        thread.setDaemon(true);
+        return thread;
+      });
     }
-    histogram = new Recorder(3);
+    return logScheduler;
+  }
+
+  /**
+   * Logs the values since the last interval logged, called every log interval and at the export.
+   */
+  synchronized void logInterval() {
+    accumulate();
+    final long now = clock.getAsLong();
+    logHistogram.setStartTimeStamp(lastLogTime);
+    logHistogram.setEndTimeStamp(now);
+    log.print(HdrIntervalLog.format(logHistogram, histogramLogWriter.getBaseTime()));
+    log.flush();
+    logHistogram.reset();
+    lastLogTime = now;
   }
 
   /**
    * It appears latency is reported in micros.
-   * Using {@link Recorder} to support concurrent updates to histogram.
+   * Each thread records into its own recorder, so threads don't contend on the histogram.
    */
   public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+    histogram.get().record(latencyInMicros);
   }
 
   /**
    * This is called from a main thread, on orderly termination.
    */
   @Override
-  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    // accumulate the last interval which was not caught by status thread
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
-    if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    // log the last interval which was not caught by the log task
+    if (histogramLogWriter != null && logTask != null) {
+      logTask.cancel(false);
+      logTask = null;
+      logInterval();
       // we can close now
       log.close();
     }
+    accumulate();
     exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
     exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
     exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
@@ -142,37 +272,59 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
   /**
    * This is called periodically from the StatusThread. There's a single
-   * StatusThread per Client process. We optionally serialize the interval to
-   * log on this opportunity.
+   * StatusThread per Client process. The interval is that since the last
+   * summary, the log has intervals of its own.
    *
    * @see com.yahoo.ycsb.measurements.OneMeasurement#getSummary()
    */
   @Override
-  public String getSummary() {
-    Histogram intervalHistogram = getIntervalHistogramAndAccumulate();
-    // we use the summary interval as the histogram file interval.
-    if (histogramLogWriter != null) {
-      histogramLogWriter.outputIntervalHistogram(intervalHistogram);
-    }
+  public synchronized String getSummary() {
+    accumulate();
+    final Histogram intervalHistogram = summaryHistogram;
 
     DecimalFormat d = new DecimalFormat("#.##");
-    return "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
+    final String summary = "[" + getName() + ": Count=" + intervalHistogram.getTotalCount() + ", Max="
         + intervalHistogram.getMaxValue() + ", Min=" + intervalHistogram.getMinValue() + ", Avg="
         + d.format(intervalHistogram.getMean()) + ", 90=" + d.format(intervalHistogram.getValueAtPercentile(90))
         + ", 99=" + d.format(intervalHistogram.getValueAtPercentile(99)) + ", 99.9="
         + d.format(intervalHistogram.getValueAtPercentile(99.9)) + ", 99.99="
         + d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
+    summaryHistogram.reset();
+    return summary;
   }
 
-  private Histogram getIntervalHistogramAndAccumulate() {
-    Histogram intervalHistogram = histogram.getIntervalHistogram();
-    // add this to the total time histogram.
-    if (totalHistogram == null) {
-      totalHistogram = intervalHistogram;
-    } else {
-      totalHistogram.add(intervalHistogram);
+  /**
+   * @return A copy of every value measured so far.
+   */
+  public synchronized Histogram getTotalHistogram() {
+    accumulate();
+    return totalHistogram.copy();
+  }
+
+  /**
+   * Adds values measured elsewhere, e.g. by another process.
+   */
+  public synchronized void add(Histogram values) {
+    accumulate();
+    totalHistogram.add(values);
+  }
+
+  /**
+   * Moves what the threads recorded since the last call to the total, and to the summary and log intervals.
+   * Shards that recorded nothing since are skipped, the others hand over their interval in a recycled histogram.
+   */
+  private void accumulate() {
+    for (HdrShard shard : histogram.all()) {
+      final Histogram threadInterval = shard.interval();
+      if (threadInterval == null) {
+        continue;
+      }
+      totalHistogram.add(threadInterval);
+      summaryHistogram.add(threadInterval);
+      if (logHistogram != null) {
+        logHistogram.add(threadInterval);
+      }
     }
-    return intervalHistogram;
   }
 
   /**
@@ -205,7 +357,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param i number
    * @return ordinal string
    */
-  private String ordinal(Double i) {
+  static String ordinal(Double i) {
     String[] suffixes = new String[]{"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
     Integer j = i.intValue();
     if (i % 1 == 0) {
@@ -22,10 +22,12 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ LATENCY.
- *
+ * Every thread records into a histogram of its own, see {@link ThreadShards}, they are added up for the summary
+ * and the export.
  */
 public class OneMeasurementHistogram extends OneMeasurement {
   public static final String BUCKETS = "histogram.buckets";
@@ -37,100 +39,143 @@ public class OneMeasurementHistogram extends OneMeasurement {
    */
   private final int buckets;
 
+  // the layout of a shard: its counters, then the buckets of its histogram
   /**
-   * Groups operations in discrete blocks of 1ms width.
+   * The total number of reported operations.
    */
-  private long[] histogram;
+  private static final int OPERATIONS = 0;
 
   /**
-   * Counts all operations outside the histogram's range.
+   * The sum of each latency measurement over all operations.
+   * Calculated in us.
    */
-  private long histogramoverflow;
+  private static final int TOTAL_LATENCY = 1;
 
   /**
-   * The total number of reported operations.
+   * The sum of each latency measurement squared over all operations, as the bits of a double.
+   * Used to calculate variance of latency.
    */
-  private long operations;
+  private static final int TOTAL_SQUARED_LATENCY = 2;
+
+  private static final int MIN = 3;
+  private static final int MAX = 4;
 
   /**
-   * The sum of each latency measurement over all operations.
-   * Calculated in ms.
+   * Counts all operations outside the histogram's range.
    */
-  private long totallatency;
+  private static final int OVERFLOW = 5;
 
   /**
-   * The sum of each latency measurement squared over all operations. 
-   * Used to calculate variance of latency.
-   * Calculated in ms. 
+   * Groups operations in discrete blocks of 1ms width, from this index on.
+   */
+  private static final int FIRST_BUCKET = 6;
+
+  /**
+   * Each shard is written by its own thread only, with ordered writes, so that readers see whole updates.
    */
-  private double totalsquaredlatency;
+  private final ThreadShards<AtomicLongArray> shards;
 
   /**
    * Whether or not to emit the histogram buckets.
    */
   private final boolean verbose;
-  
-  //keep a windowed version of these stats for printing status
-  private long windowoperations;
-  private long windowtotallatency;
 
-  private int min;
-  private int max;
+  //the totals at the last summary, to print the stats of the window since
+  private long lastoperations;
+  private long lasttotallatency;
 
   public OneMeasurementHistogram(String name, Properties props) {
     super(name);
     buckets = Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
     verbose = Boolean.valueOf(props.getProperty(VERBOSE_PROPERTY, String.valueOf(false)));
-    histogram = new long[buckets];
-    histogramoverflow = 0;
-    operations = 0;
-    totallatency = 0;
-    totalsquaredlatency = 0;
-    windowoperations = 0;
-    windowtotallatency = 0;
-    min = -1;
-    max = -1;
+    shards = new ThreadShards<>(() -> {
+      final AtomicLongArray shard = new AtomicLongArray(FIRST_BUCKET + buckets);
+      shard.set(MIN, -1);
+      shard.set(MAX, -1);
+      return shard;
+    });
   }
 
   /* (non-Javadoc)
    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
    */
-  public synchronized void measure(int latency) {
+  public void measure(int latency) {
     //latency reported in us and collected in bucket by ms.
-    if (latency / 1000 >= buckets) {
-      histogramoverflow++;
-    } else {
-      histogram[latency / 1000]++;
+    final int bucket = latency / 1000;
+    if (bucket < 0) {
+      throw new ArrayIndexOutOfBoundsException(bucket);
     }
-    operations++;
-    totallatency += latency;
-    totalsquaredlatency += ((double) latency) * ((double) latency);
-    windowoperations++;
-    windowtotallatency += latency;
-
+    final AtomicLongArray shard = shards.get();
+    increment(shard, bucket >= buckets ? OVERFLOW : FIRST_BUCKET + bucket, 1);
+    increment(shard, OPERATIONS, 1);
+    increment(shard, TOTAL_LATENCY, latency);
+    shard.lazySet(TOTAL_SQUARED_LATENCY, Double.doubleToRawLongBits(
+        Double.longBitsToDouble(shard.get(TOTAL_SQUARED_LATENCY)) + ((double) latency) * ((double) latency)));
+
+    final long min = shard.get(MIN);
     if ((min < 0) || (latency < min)) {
-      min = latency;
+      shard.lazySet(MIN, latency);
     }
 
+    final long max = shard.get(MAX);
     if ((max < 0) || (latency > max)) {
-      max = latency;
+      shard.lazySet(MAX, latency);
     }
   }
 
+  /**
+   * Only the thread of the shard writes it, so there is no need for an atomic add.
+   */
+  private static void increment(AtomicLongArray shard, int index, long delta) {
+    shard.lazySet(index, shard.get(index) + delta);
+  }
+
+  /**
+   * @return The shards added up, in the layout of a shard, with the squared latencies as a plain sum.
+   */
+  private double[] merge() {
+    final double[] total = new double[FIRST_BUCKET + buckets];
+    total[MIN] = -1;
+    total[MAX] = -1;
+    for (AtomicLongArray shard : shards.all()) {
+      if (shard.get(OPERATIONS) == 0) {
+        continue;
+      }
+      for (int i = 0; i < total.length; i++) {
+        switch (i) {
+        case TOTAL_SQUARED_LATENCY:
+          total[i] += Double.longBitsToDouble(shard.get(i));
+          break;
+        case MIN:
+          total[i] = total[i] < 0 ? shard.get(i) : Math.min(total[i], shard.get(i));
+          break;
+        case MAX:
+          total[i] = Math.max(total[i], shard.get(i));
+          break;
+        default:
+          total[i] += shard.get(i);
+        }
+      }
+    }
+    return total;
+  }
+
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    double mean = totallatency / ((double) operations);
-    double variance = totalsquaredlatency / ((double) operations) - (mean * mean);
+    final double[] total = merge();
+    final long operations = (long) total[OPERATIONS];
+    double mean = total[TOTAL_LATENCY] / ((double) operations);
+    double variance = total[TOTAL_SQUARED_LATENCY] / ((double) operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
     exporter.write(getName(), "AverageLatency(us)", mean);
     exporter.write(getName(), "LatencyVariance(us)", variance);
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exporter.write(getName(), "MinLatency(us)", (int) total[MIN]);
+    exporter.write(getName(), "MaxLatency(us)", (int) total[MAX]);
 
     long opcounter=0;
     boolean done95th = false;
     for (int i = 0; i < buckets; i++) {
-      opcounter += histogram[i];
+      opcounter += (long) total[FIRST_BUCKET + i];
       if ((!done95th) && (((double) opcounter) / ((double) operations) >= 0.95)) {
         exporter.write(getName(), "95thPercentileLatency(us)", i * 1000);
         done95th = true;
@@ -145,22 +190,29 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
     if (verbose) {
       for (int i = 0; i < buckets; i++) {
-        exporter.write(getName(), Integer.toString(i), histogram[i]);
+        exporter.write(getName(), Integer.toString(i), (long) total[FIRST_BUCKET + i]);
       }
       
-      exporter.write(getName(), ">" + buckets, histogramoverflow);
+      exporter.write(getName(), ">" + buckets, (long) total[OVERFLOW]);
     }
   }
 
   @Override
-  public String getSummary() {
-    if (windowoperations == 0) {
+  public synchronized String getSummary() {
+    long operations = 0;
+    long totallatency = 0;
+    for (AtomicLongArray shard : shards.all()) {
+      operations += shard.get(OPERATIONS);
+      totallatency += shard.get(TOTAL_LATENCY);
+    }
+    final long windowoperations = operations - lastoperations;
+    if (windowoperations <= 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
-    double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
+    double report = ((double) (totallatency - lasttotallatency)) / ((double) windowoperations);
+    lastoperations = operations;
+    lasttotallatency = totallatency;
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 }
@@ -19,52 +19,65 @@ package com.yahoo.ycsb.measurements;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Record a series of measurements as raw data points without down sampling,
  * optionally write to an output file when configured.
+ * Every thread fills chunks of data points of its own, see {@link ThreadShards}, and hands them to a
+ * {@link RawSampleStore} when they are full, which keeps them in a file, so the heap used doesn't grow with the
+ * length of the run. With an output file, the data points are streamed to it during the run; else they are printed
+ * at the export. Either way the rows come a chunk of one thread after the other, so they are in time order within a
+ * thread but not across threads: sort them by timestamp for a timeline.
+ * <p>
+ * Data points recorded once the export started are ignored.
  *
  */
 public class OneMeasurementRaw extends OneMeasurement {
   /**
-   * One raw data point, two fields: timestamp (ms) when the datapoint is
-   * inserted, and the value.
+   * The data points of one thread not handed to the store yet. Only the thread touches the chunk, and it hands
+   * the chunk over when it is full, without a lock. The export raises {@link #exported} and then waits for a data
+   * point being added to be done before it takes the chunk: a thread that adds after that sees the flag, and leaves
+   * the chunk alone. The counts, for the summary, are written by the thread only, with ordered writes.
    */
-  class RawDataPoint {
-    private final long timestamp;
-    private final int value;
-
-    public RawDataPoint(int value) {
-      this.timestamp = System.currentTimeMillis();
-      this.value = value;
-    }
-
-    public long timeStamp() {
-      return timestamp;
-    }
-
-    public int value() {
-      return value;
+  private final class RawShard {
+    private RawSampleStore.Chunk chunk = store.newChunk();
+    private volatile boolean adding;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    void add(long timestamp, int value) {
+      adding = true;
+      if (!exported) {
+        if (chunk.isFull()) {
+          store.write(chunk);
+          chunk = store.newChunk();
+        }
+        chunk.add(timestamp, value);
+        totalLatency.lazySet(totalLatency.get() + value);
+        count.lazySet(count.get() + 1);
+      }
+      adding = false;
     }
-  }
 
-  class RawDataPointComparator implements Comparator<RawDataPoint> {
-    @Override
-    public int compare(RawDataPoint p1, RawDataPoint p2) {
-      if (p1.value() < p2.value()) {
-        return -1;
-      } else if (p1.value() == p2.value()) {
-        return 0;
-      } else {
-        return 1;
+    /**
+     * Called once {@link #exported} is raised: waits for the data point being added, if any, then hands what the
+     * thread still holds to the store.
+     */
+    void close() {
+      while (adding) {
+        Thread.yield();
+      }
+      if (chunk != null) {
+        store.write(chunk);
+        chunk = null;
       }
     }
   }
@@ -88,18 +101,25 @@ public class OneMeasurementRaw extends OneMeasurement {
   public static final String NO_SUMMARY_STATS = "measurement.raw.no_summary";
   public static final String NO_SUMMARY_STATS_DEFAULT = "false";
 
+  /**
+   * The directory of the files that keep the data points during the run. Default is the temporary directory.
+   */
+  public static final String SPILL_DIR = "measurement.raw.spill_dir";
+
   private final PrintStream outputStream;
 
   private boolean noSummaryStats = false;
 
-  private LinkedList<RawDataPoint> measurements;
-  private long totalLatency = 0;
+  private final RawSampleStore store;
+
+  private final ThreadShards<RawShard> shards = new ThreadShards<>(RawShard::new);
 
-  // A window of stats to print summary for at the next getSummary() call.
-  // It's supposed to be a one line summary, so we will just print count and
-  // average.
-  private int windowOperations = 0;
-  private long windowTotalLatency = 0;
+  private volatile boolean exported;
+
+  // The totals at the last summary, to print the count and average of the
+  // window since. It's supposed to be a one line summary.
+  private long lastOperations = 0;
+  private long lastTotalLatency = 0;
 
   public OneMeasurementRaw(String name, Properties props) {
     super(name);
@@ -110,12 +130,14 @@ public class OneMeasurementRaw extends OneMeasurement {
           outputFilePath);
 
       try {
-        outputStream = new PrintStream(
-            new FileOutputStream(outputFilePath, true),
-            true);
+        outputStream = new PrintStream(new BufferedOutputStream(
+            new FileOutputStream(outputFilePath, true)),
+            false);
       } catch (FileNotFoundException e) {
         throw new RuntimeException("Failed to open raw data output file", e);
       }
+      outputStream.println(getName() +
+          " latency raw data: op, timestamp(ms), latency(us)");
 
     } else {
       System.out.println("Raw data measurement: will output to stdout.");
@@ -126,36 +148,41 @@ public class OneMeasurementRaw extends OneMeasurement {
     noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
 
-    measurements = new LinkedList<>();
+    try {
+      store = new RawSampleStore(name, new File(props.getProperty(SPILL_DIR, System.getProperty("java.io.tmpdir"))),
+          outputStream == System.out ? null : outputStream);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create the raw data points file", e);
+    }
   }
 
   @Override
-  public synchronized void measure(int latency) {
-    totalLatency += latency;
-    windowTotalLatency += latency;
-    windowOperations++;
-
-    measurements.add(new RawDataPoint(latency));
+  public void measure(int latency) {
+    shards.get().add(CoarseClock.currentTimeMillis(), latency);
   }
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter)
       throws IOException {
-    // Output raw data points first then print out a summary of percentiles to
-    // stdout.
-
-    outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
-    for (RawDataPoint point : measurements) {
-      outputStream.println(
-          String.format("%s,%d,%d", getName(), point.timeStamp(),
-              point.value()));
+    // Hand over what the threads still hold, then output the raw data points
+    // if they weren't streamed and print out a summary of percentiles.
+    exported = true;
+    long totalLatency = 0;
+    for (RawShard shard : shards.all()) {
+      shard.close();
+      totalLatency += shard.totalLatency.get();
     }
-    if (outputStream != System.out) {
+    store.flush();
+
+    if (outputStream == System.out) {
+      outputStream.println(getName() +
+          " latency raw data: op, timestamp(ms), latency(us)");
+      store.scan((timestamp, value) -> outputStream.println(getName() + "," + timestamp + "," + value));
+    } else {
       outputStream.close();
     }
 
-    int totalOps = measurements.size();
+    final long totalOps = store.size();
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
@@ -163,44 +190,50 @@ public class OneMeasurementRaw extends OneMeasurement {
       exporter.write(getName(), "Average",
           (double) totalLatency / (double) totalOps);
 
-      Collections.sort(measurements, new RawDataPointComparator());
-
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int) (totalOps * 0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int) (totalOps * 0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int) (totalOps * 0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int) (totalOps * 0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int) (totalOps * 0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int) (totalOps * 0.99)).value());
-      exporter.write(getName(), "p99.9",
-          measurements.get((int) (totalOps * 0.999)).value());
-      exporter.write(getName(), "p99.99",
-          measurements.get((int) (totalOps * 0.9999)).value());
+      final double[] percentiles = {0.01, 0.05, 0.5, 0.9, 0.95, 0.99, 0.999, 0.9999};
+      final long[] ranks = new long[percentiles.length + 2];
+      ranks[0] = 0;
+      ranks[1] = totalOps - 1;
+      for (int i = 0; i < percentiles.length; i++) {
+        ranks[i + 2] = (long) (totalOps * percentiles[i]);
+      }
+      final int[] values = store.select(ranks);
+
+      exporter.write(getName(), "Min", values[0]);
+      exporter.write(getName(), "Max", values[1]);
+      exporter.write(getName(), "p1", values[2]);
+      exporter.write(getName(), "p5", values[3]);
+      exporter.write(getName(), "p50", values[4]);
+      exporter.write(getName(), "p90", values[5]);
+      exporter.write(getName(), "p95", values[6]);
+      exporter.write(getName(), "p99", values[7]);
+      exporter.write(getName(), "p99.9", values[8]);
+      exporter.write(getName(), "p99.99", values[9]);
     }
+    store.close();
 
     exportStatusCounts(exporter);
   }
 
   @Override
   public synchronized String getSummary() {
-    if (windowOperations == 0) {
+    long operations = 0;
+    long totalLatency = 0;
+    for (RawShard shard : shards.all()) {
+      operations += shard.count.get();
+      totalLatency += shard.totalLatency.get();
+    }
+    final long windowOperations = operations - lastOperations;
+    if (windowOperations <= 0) {
       return "";
     }
 
     String toReturn = String.format("%s count: %d, average latency(us): %.2f",
         getName(), windowOperations,
-        (double) windowTotalLatency / (double) windowOperations);
+        (double) (totalLatency - lastTotalLatency) / (double) windowOperations);
 
-    windowTotalLatency = 0;
-    windowOperations = 0;
+    lastOperations = operations;
+    lastTotalLatency = totalLatency;
 
     return toReturn;
   }
@@ -21,8 +21,11 @@ import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 class SeriesUnit {
   /**
@@ -40,6 +43,8 @@ class SeriesUnit {
 
 /**
  * A time series measurement of a metric, such as READ LATENCY.
+ * Every thread sums its measurements per unit of time on its own, see {@link ThreadShards}, and reads the time
+ * from the {@link CoarseClock}. The units of all threads are added up for the export.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement {
 
@@ -49,79 +54,124 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   public static final String GRANULARITY = "timeseries.granularity";
   public static final String GRANULARITY_DEFAULT = "1000";
 
-  private final int granularity;
-  private final Vector<SeriesUnit> measurements;
-
-  private long start = -1;
-  private long currentunit = -1;
-  private long count = 0;
-  private long sum = 0;
-  private long operations = 0;
-  private long totallatency = 0;
-
-  //keep a windowed version of these stats for printing status
-  private int windowoperations = 0;
-  private long windowtotallatency = 0;
-
-  private int min = -1;
-  private int max = -1;
+  // the layout of the counters of a shard
+  private static final int OPERATIONS = 0;
+  private static final int TOTAL_LATENCY = 1;
+  private static final int MIN = 2;
+  private static final int MAX = 3;
 
-  public OneMeasurementTimeSeries(String name, Properties props) {
-    super(name);
-    granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
-    measurements = new Vector<>();
-  }
+  /**
+   * The measurements of one thread. Written by its thread only, with ordered writes.
+   */
+  private static final class SeriesShard {
+    private final AtomicLongArray counters = new AtomicLongArray(4);
+    /**
+     * The count and the sum of each unit, at 2 * unit and 2 * unit + 1.
+     */
+    private volatile AtomicLongArray units = new AtomicLongArray(2 * 64);
+
+    SeriesShard() {
+      counters.set(MIN, -1);
+      counters.set(MAX, -1);
+    }
 
-  private synchronized void checkEndOfUnit(boolean forceend) {
-    long now = System.currentTimeMillis();
+    void add(int unit, int latency) {
+      AtomicLongArray current = units;
+      if (2 * unit + 1 >= current.length()) {
+        final AtomicLongArray more = new AtomicLongArray(Math.max(2 * current.length(), 2 * unit + 2));
+        for (int i = 0; i < current.length(); i++) {
+          more.set(i, current.get(i));
+        }
+        units = more;
+        current = more;
+      }
+      increment(current, 2 * unit, 1);
+      increment(current, 2 * unit + 1, latency);
+
+      increment(counters, OPERATIONS, 1);
+      increment(counters, TOTAL_LATENCY, latency);
+      if (latency > counters.get(MAX)) {
+        counters.lazySet(MAX, latency);
+      }
+      final long min = counters.get(MIN);
+      if ((latency < min) || (min < 0)) {
+        counters.lazySet(MIN, latency);
+      }
+    }
 
-    if (start < 0) {
-      currentunit = 0;
-      start = now;
+    private static void increment(AtomicLongArray array, int index, long delta) {
+      array.lazySet(index, array.get(index) + delta);
     }
+  }
 
-    long unit = ((now - start) / granularity) * granularity;
+  private final int granularity;
+  private final ThreadShards<SeriesShard> shards = new ThreadShards<>(SeriesShard::new);
 
-    if ((unit > currentunit) || (forceend)) {
-      double avg = ((double) sum) / ((double) count);
-      measurements.add(new SeriesUnit(currentunit, avg));
+  /**
+   * When the first measurement was taken, -1 before.
+   */
+  private final AtomicLong start = new AtomicLong(-1);
 
-      currentunit = unit;
+  //the totals at the last summary, to print the stats of the window since
+  private long lastoperations = 0;
+  private long lasttotallatency = 0;
 
-      count = 0;
-      sum = 0;
-    }
+  public OneMeasurementTimeSeries(String name, Properties props) {
+    super(name);
+    granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
   }
 
   @Override
   public void measure(int latency) {
-    checkEndOfUnit(false);
-
-    count++;
-    sum += latency;
-    totallatency += latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency += latency;
-
-    if (latency > max) {
-      max = latency;
-    }
-
-    if ((latency < min) || (min < 0)) {
-      min = latency;
+    final long now = CoarseClock.currentTimeMillis();
+    long first = start.get();
+    if (first < 0) {
+      start.compareAndSet(-1, now);
+      first = start.get();
     }
+    shards.get().add((int) (Math.max(0, now - first) / granularity), latency);
   }
 
 
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
+    long operations = 0;
+    long totallatency = 0;
+    long min = -1;
+    long max = -1;
+    final List<SeriesUnit> measurements = new ArrayList<>();
+    final List<AtomicLongArray> units = new ArrayList<>();
+    int length = 0;
+    for (SeriesShard shard : shards.all()) {
+      final long shardoperations = shard.counters.get(OPERATIONS);
+      if (shardoperations == 0) {
+        continue;
+      }
+      operations += shardoperations;
+      totallatency += shard.counters.get(TOTAL_LATENCY);
+      min = min < 0 ? shard.counters.get(MIN) : Math.min(min, shard.counters.get(MIN));
+      max = Math.max(max, shard.counters.get(MAX));
+      units.add(shard.units);
+      length = Math.max(length, shard.units.length());
+    }
+    for (int unit = 0; 2 * unit < length; unit++) {
+      long count = 0;
+      long sum = 0;
+      for (AtomicLongArray shardunits : units) {
+        if (2 * unit < shardunits.length()) {
+          count += shardunits.get(2 * unit);
+          sum += shardunits.get(2 * unit + 1);
+        }
+      }
+      if (count > 0) {
+        measurements.add(new SeriesUnit((long) unit * granularity, ((double) sum) / ((double) count)));
+      }
+    }
 
     exporter.write(getName(), "Operations", operations);
     exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exporter.write(getName(), "MinLatency(us)", (int) min);
+    exporter.write(getName(), "MaxLatency(us)", (int) max);
 
     // TODO: 95th and 99th percentile latency
 
@@ -132,14 +182,21 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
   }
 
   @Override
-  public String getSummary() {
-    if (windowoperations == 0) {
+  public synchronized String getSummary() {
+    long operations = 0;
+    long totallatency = 0;
+    for (SeriesShard shard : shards.all()) {
+      operations += shard.counters.get(OPERATIONS);
+      totallatency += shard.counters.get(TOTAL_LATENCY);
+    }
+    final long windowoperations = operations - lastoperations;
+    if (windowoperations <= 0) {
       return "";
     }
     DecimalFormat d = new DecimalFormat("#.##");
-    double report = ((double) windowtotallatency) / ((double) windowoperations);
-    windowtotallatency = 0;
-    windowoperations = 0;
+    double report = ((double) (totallatency - lasttotallatency)) / ((double) windowoperations);
+    lastoperations = operations;
+    lasttotallatency = totallatency;
     return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
   }
 
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The raw data points of a measurement, kept in an append-only file instead of on the heap. Recording threads fill
+ * chunks of primitive arrays and hand them over full; a writer thread appends them to the file, streams them as
+ * text lines if asked to, and gives the chunks back for reuse. The heap holds a few chunks whatever the length of
+ * the run, and a recording thread only waits if the writer falls behind by more than {@link #QUEUED_CHUNKS}.
+ * <p>
+ * Percentiles are selected exactly, in two passes over the file with 16-bit radix counts, without sorting.
+ */
+final class RawSampleStore implements Closeable {
+
+  static final int CHUNK = 4096;
+
+  private static final int QUEUED_CHUNKS = 64;
+
+  // a timestamp and a value
+  private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES;
+
+  private static final int RADIX = 1 << 16;
+
+  /**
+   * Data points in time order, filled by one thread.
+   */
+  static final class Chunk {
+    final long[] timestamps = new long[CHUNK];
+    final int[] values = new int[CHUNK];
+    int size;
+
+    boolean isFull() {
+      return size == CHUNK;
+    }
+
+    void add(long timestamp, int value) {
+      timestamps[size] = timestamp;
+      values[size] = value;
+      size++;
+    }
+  }
+
+  /**
+   * Gets the data points of a scan, in the order they were written.
+   */
+  interface Visitor {
+    void visit(long timestamp, int value);
+  }
+
+  private static final Chunk END = new Chunk();
+
+  private final String name;
+  private final File file;
+  private final FileChannel channel;
+  private final PrintStream lines;
+  private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+  private final ConcurrentLinkedQueue<Chunk> free = new ConcurrentLinkedQueue<>();
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK * RECORD_BYTES);
+  private final Thread writer;
+  private volatile boolean flushed;
+  private volatile IOException failure;
+  private long size;
+
+  /**
+   * @param name  The name of the measurement, for the text lines.
+   * @param dir   Where to create the file.
+   * @param lines Where to stream the data points as text lines while they are written, null not to.
+   */
+  RawSampleStore(String name, File dir, PrintStream lines) throws IOException {
+    this.name = name;
+    this.lines = lines;
+    file = File.createTempFile("raw-" + name + "-", ".bin", dir);
+    file.deleteOnExit();
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    writer = new Thread(this::drain, "RawSampleWriter-" + name);
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * @return An empty chunk, a reused one if there is one.
+   */
+  Chunk newChunk() {
+    final Chunk chunk = free.poll();
+    return chunk == null ? new Chunk() : chunk;
+  }
+
+  /**
+   * Hands a chunk over to be written, waiting while too many are queued. Once the store is flushed, chunks are
+   * written right away by the calling thread.
+   */
+  void write(Chunk chunk) {
+    if (chunk.size == 0) {
+      free.offer(chunk);
+      return;
+    }
+    if (!flushed) {
+      try {
+        queue.put(chunk);
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    append(chunk);
+  }
+
+  private void drain() {
+    try {
+      Chunk chunk;
+      while ((chunk = queue.take()) != END) {
+        append(chunk);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private synchronized void append(Chunk chunk) {
+    buffer.clear();
+    for (int i = 0; i < chunk.size; i++) {
+      buffer.putLong(chunk.timestamps[i]).putInt(chunk.values[i]);
+    }
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, size * RECORD_BYTES + buffer.position());
+      }
+    } catch (IOException e) {
+      failure = e;
+    }
+    if (lines != null) {
+      for (int i = 0; i < chunk.size; i++) {
+        lines.println(name + "," + chunk.timestamps[i] + "," + chunk.values[i]);
+      }
+    }
+    size += chunk.size;
+    chunk.size = 0;
+    free.offer(chunk);
+  }
+
+  /**
+   * Waits until every chunk handed over is written.
+   *
+   * @throws IOException If writing any of them failed.
+   */
+  void flush() throws IOException {
+    if (!flushed) {
+      flushed = true;
+      try {
+        queue.put(END);
+        writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing the raw data points of " + name, e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * @return The number of data points written.
+   */
+  synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Reads every data point written, in order.
+   */
+  synchronized void scan(Visitor visitor) throws IOException {
+    final ByteBuffer read = ByteBuffer.allocateDirect(CHUNK * RECORD_BYTES);
+    final long end = size * RECORD_BYTES;
+    long position = 0;
+    while (position < end) {
+      read.clear();
+      read.limit((int) Math.min(read.capacity(), end - position));
+      while (read.hasRemaining()) {
+        if (channel.read(read, position + read.position()) < 0) {
+          throw new IOException("The raw data points of " + name + " were cut short");
+        }
+      }
+      read.flip();
+      while (read.hasRemaining()) {
+        visitor.visit(read.getLong(), read.getInt());
+      }
+      position += read.limit();
+    }
+  }
+
+  /**
+   * Finds the values of the given ranks in sorted order, 0 being the smallest value: a first pass counts the
+   * values by their high 16 bits, which tells the group of each rank, a second pass counts the values of those
+   * groups by their low 16 bits.
+   *
+   * @param ranks Ranks between 0 and size() - 1.
+   * @return The value of each rank.
+   */
+  synchronized int[] select(long... ranks) throws IOException {
+    final long[] high = new long[RADIX];
+    scan((timestamp, value) -> high[unsigned(value) >>> 16]++);
+
+    final int[] groups = new int[ranks.length];
+    final long[] within = new long[ranks.length];
+    final Map<Integer, long[]> low = new HashMap<>();
+    for (int i = 0; i < ranks.length; i++) {
+      if (ranks[i] < 0 || ranks[i] >= size) {
+        throw new IllegalArgumentException("Rank " + ranks[i] + " of " + size + " data points");
+      }
+      long below = 0;
+      int group = 0;
+      while (below + high[group] <= ranks[i]) {
+        below += high[group++];
+      }
+      groups[i] = group;
+      within[i] = ranks[i] - below;
+      low.computeIfAbsent(group, g -> new long[RADIX]);
+    }
+
+    scan((timestamp, value) -> {
+      final long[] counts = low.get(unsigned(value) >>> 16);
+      if (counts != null) {
+        counts[unsigned(value) & (RADIX - 1)]++;
+      }
+    });
+
+    final int[] values = new int[ranks.length];
+    for (int i = 0; i < ranks.length; i++) {
+      final long[] counts = low.get(groups[i]);
+      long below = 0;
+      int bits = 0;
+      while (below + counts[bits] <= within[i]) {
+        below += counts[bits++];
+      }
+      values[i] = ((groups[i] << 16) | bits) ^ Integer.MIN_VALUE;
+    }
+    return values;
+  }
+
+  /**
+   * Flips the sign bit, so that the unsigned order of the bits is the signed order of the values.
+   */
+  private static int unsigned(int value) {
+    return value ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * Deletes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+    channel.close();
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+}
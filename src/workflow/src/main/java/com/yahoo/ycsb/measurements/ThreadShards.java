@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * The per-thread parts of a measurement. Each thread that records gets a shard of its own, that only it writes,
+ * so recording takes no lock and shares no cache line with other threads. Readers go through all the shards and
+ * merge them, when a summary or the export asks for it.
+ * <p>
+ * Shards outlive their threads, what a thread recorded is still merged after it is gone.
+ *
+ * @param <S> The type of a shard.
+ */
+final class ThreadShards<S> {
+
+  private final CopyOnWriteArrayList<S> all = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<S> local;
+
+  ThreadShards(Supplier<S> factory) {
+    local = ThreadLocal.withInitial(() -> {
+      final S shard = factory.get();
+      all.add(shard);
+      return shard;
+    });
+  }
+
+  /**
+   * @return The shard of the calling thread.
+   */
+  S get() {
+    return local.get();
+  }
+
+  /**
+   * @return Every shard so far, to merge.
+   */
+  List<S> all() {
+    return all;
+  }
+}
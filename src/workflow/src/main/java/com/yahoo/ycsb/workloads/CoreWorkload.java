@@ -20,6 +20,8 @@ package com.yahoo.ycsb.workloads;
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.*;
 import com.yahoo.ycsb.generator.UniformLongGenerator;
+import com.yahoo.ycsb.keys.KeyCodec;
+import com.yahoo.ycsb.keys.KeyCodecFactory;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
@@ -63,6 +65,12 @@ import java.util.*;
  * order ("hashed") (default: hashed)
  * <LI><b>fieldnameprefix</b>: what should be a prefix for field names, the shorter may decrease the
  * required storage size (default: "field")
+ * <LI><b>keycodec</b>: how record numbers are hashed into keys when insertorder is "hashed" - md5, fnv64,
+ * murmur128 or a {@link KeyCodec} class name (default: fnv64)
+ * <LI><b>deterministicvalueformat</b>: the format of the values written and verified when dataintegrity is on -
+ * legacy (readable by earlier versions) or checksum (verified without rebuilding the value), see
+ * {@link DeterministicValues} (default: legacy)
+ * <LI><b>deterministicvalueseed</b>: the seed of the checksum format's filler (default: 0)
  * </ul>
  */
 public class CoreWorkload extends Workload {
@@ -185,6 +193,11 @@ public class CoreWorkload extends Workload {
    */
   private boolean dataintegrity;
 
+  /**
+   * Builds and verifies the field values when dataintegrity is on.
+   */
+  private DeterministicValues deterministicvalues;
+
   /**
    * The name of the property for the proportion of transactions that are reads.
    */
@@ -341,6 +354,11 @@ public class CoreWorkload extends Workload {
    */
   public static final String FIELD_NAME_PREFIX_DEFAULT = "field";
 
+  /**
+   * Default key codec. Matches the keys generated before codecs were configurable.
+   */
+  public static final String KEY_CODEC_PROPERTY_DEFAULT = "fnv64";
+
   protected NumberGenerator keysequence;
   protected DiscreteGenerator operationchooser;
   protected NumberGenerator keychooser;
@@ -353,6 +371,7 @@ public class CoreWorkload extends Workload {
   protected int zeropadding;
   protected int insertionRetryLimit;
   protected int insertionRetryInterval;
+  protected KeyCodec keycodec;
 
   private Measurements measurements = Measurements.getMeasurements();
 
@@ -429,6 +448,8 @@ public class CoreWorkload extends Workload {
     }
     zeropadding =
         Integer.parseInt(p.getProperty(ZERO_PADDING_PROPERTY, ZERO_PADDING_PROPERTY_DEFAULT));
+    keycodec = KeyCodecFactory.newKeyCodec(
+        p.getProperty(KeyCodecFactory.KEY_CODEC_PROPERTY, KEY_CODEC_PROPERTY_DEFAULT));
 
     readallfields = Boolean.parseBoolean(
         p.getProperty(READ_ALL_FIELDS_PROPERTY, READ_ALL_FIELDS_PROPERTY_DEFAULT));
@@ -445,6 +466,7 @@ public class CoreWorkload extends Workload {
       System.err.println("Must have constant field size to check data integrity.");
       System.exit(-1);
     }
+    deterministicvalues = DeterministicValues.fromProperties(p);
 
     if (p.getProperty(INSERT_ORDER_PROPERTY, INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed") == 0) {
       orderedinserts = false;
@@ -515,10 +537,7 @@ public class CoreWorkload extends Workload {
   }
 
   protected String buildKeyName(long keynum) {
-    if (!orderedinserts) {
-      keynum = Utils.hash(keynum);
-    }
-    String value = Long.toString(keynum);
+    String value = orderedinserts ? Long.toString(keynum) : keycodec.encode(keynum);
     int fill = zeropadding - value.length();
     String prekey = "user";
     for (int i = 0; i < fill; i++) {
@@ -569,18 +588,7 @@ public class CoreWorkload extends Workload {
    * Build a deterministic value given the key information.
    */
   private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextValue().intValue();
-    StringBuilder sb = new StringBuilder(size);
-    sb.append(key);
-    sb.append(':');
-    sb.append(fieldkey);
-    while (sb.length() < size) {
-      sb.append(':');
-      sb.append(sb.toString().hashCode());
-    }
-    sb.setLength(size);
-
-    return sb.toString();
+    return deterministicvalues.build(key, fieldkey, fieldlengthgenerator.nextValue().intValue());
   }
 
   /**
@@ -671,7 +679,8 @@ public class CoreWorkload extends Workload {
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(buildDeterministicValue(key, entry.getKey()))) {
+        if (!deterministicvalues.verify(key, entry.getKey(), entry.getValue().toString(),
+            fieldlengthgenerator.nextValue().intValue())) {
           verifyStatus = Status.UNEXPECTED_STATE;
           break;
         }
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.WorkloadException;
+
+import java.nio.CharBuffer;
+import java.util.Properties;
+
+/**
+ * Builds and verifies the deterministic field values written when {@code dataintegrity} is on. Both formats are
+ * built in time linear in the value size.
+ * <ul>
+ * <li>legacy: {@code key:field} followed by {@code :<hashCode of everything so far>} until the size is reached.
+ * Identical to the values earlier versions wrote, so existing data still verifies; verifying rebuilds the value.
+ * <li>checksum: 8 hex digits of an FNV-1a checksum over key, field and the rest of the value, followed by filler
+ * drawn from a generator seeded with the value seed, key and field. Verifying recomputes the checksum of the
+ * value that was read and builds nothing.
+ * </ul>
+ * Instances are immutable and can be shared by all client threads.
+ */
+public final class DeterministicValues {
+
+  /**
+   * The name of the property for the deterministic value format, "legacy" or "checksum".
+   */
+  public static final String FORMAT_PROPERTY = "deterministicvalueformat";
+
+  /**
+   * The default format, readable by earlier versions.
+   */
+  public static final String FORMAT_PROPERTY_DEFAULT = "legacy";
+
+  /**
+   * The name of the property for the seed of the checksum format filler.
+   */
+  public static final String SEED_PROPERTY = "deterministicvalueseed";
+
+  public static final String SEED_PROPERTY_DEFAULT = "0";
+
+  /**
+   * The deterministic value formats.
+   */
+  public enum Format {
+    LEGACY,
+    CHECKSUM
+  }
+
+  private static final int CHECKSUM_LENGTH = 8;
+  private static final int FNV_OFFSET_BASIS_32 = 0x811c9dc5;
+  private static final int FNV_PRIME_32 = 16777619;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private static final char[] FILLER =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private final Format format;
+  private final long seed;
+
+  public DeterministicValues(Format format, long seed) {
+    this.format = format;
+    this.seed = seed;
+  }
+
+  /**
+   * Creates the generator configured by the deterministicvalueformat and deterministicvalueseed properties.
+   */
+  public static DeterministicValues fromProperties(Properties p) throws WorkloadException {
+    final String name = p.getProperty(FORMAT_PROPERTY, FORMAT_PROPERTY_DEFAULT);
+    final Format format;
+    if (name.equals("legacy")) {
+      format = Format.LEGACY;
+    } else if (name.equals("checksum")) {
+      format = Format.CHECKSUM;
+    } else {
+      throw new WorkloadException("Unknown deterministic value format \"" + name + "\"");
+    }
+    return new DeterministicValues(format, Long.parseLong(p.getProperty(SEED_PROPERTY, SEED_PROPERTY_DEFAULT)));
+  }
+
+  public Format getFormat() {
+    return format;
+  }
+
+  /**
+   * @return The value of the given field of the given record.
+   */
+  public String build(String key, String field, int size) {
+    return format == Format.LEGACY ? buildLegacy(key, field, size) : buildChecksum(key, field, size);
+  }
+
+  /**
+   * @return Whether value is the value of the given field of the given record.
+   */
+  public boolean verify(String key, String field, String value, int size) {
+    if (value.length() != size) {
+      return false;
+    }
+    if (format == Format.LEGACY || size <= CHECKSUM_LENGTH) {
+      return value.equals(build(key, field, size));
+    }
+    final int checksum = checksum(key, field, value);
+    for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+      if (value.charAt(i) != HEX[(checksum >>> (28 - 4 * i)) & 0xf]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Same output as appending {@code sb.toString().hashCode()} in a loop, but keeps the hash code up to date while
+   * appending instead of recomputing it over the whole value every time.
+   */
+  private static String buildLegacy(String key, String field, int size) {
+    final StringBuilder sb = new StringBuilder(size + 12);
+    sb.append(key);
+    sb.append(':');
+    sb.append(field);
+    int hash = 0;
+    for (int i = 0; i < sb.length(); i++) {
+      hash = 31 * hash + sb.charAt(i);
+    }
+    while (sb.length() < size) {
+      sb.append(':');
+      hash = 31 * hash + ':';
+      final int start = sb.length();
+      sb.append(hash);
+      for (int i = start; i < sb.length(); i++) {
+        hash = 31 * hash + sb.charAt(i);
+      }
+    }
+    sb.setLength(size);
+    return sb.toString();
+  }
+
+  private String buildChecksum(String key, String field, int size) {
+    final char[] value = new char[size];
+    long state = seed;
+    state = mix(state, key);
+    state = mix(state, field);
+    if (size <= CHECKSUM_LENGTH) {
+      // no room for filler, the value is the start of a hash of key and field
+      writeHex((int) (state ^ (state >>> 32)), value, 0, size);
+      return new String(value);
+    }
+    long bits = 0;
+    int bitsLeft = 0;
+    for (int i = CHECKSUM_LENGTH; i < size; i++) {
+      if (bitsLeft < 6) {
+        state += 0x9e3779b97f4a7c15L;
+        bits = splitMix(state);
+        bitsLeft = 64;
+      }
+      value[i] = FILLER[(int) (bits & 0x3f)];
+      bits >>>= 6;
+      bitsLeft -= 6;
+    }
+    writeHex(checksum(key, field, value), value, 0, CHECKSUM_LENGTH);
+    return new String(value);
+  }
+
+  private static int checksum(String key, String field, CharSequence value) {
+    int hash = FNV_OFFSET_BASIS_32;
+    hash = fnv(hash, key);
+    hash = (hash ^ ':') * FNV_PRIME_32;
+    hash = fnv(hash, field);
+    hash = (hash ^ ':') * FNV_PRIME_32;
+    for (int i = CHECKSUM_LENGTH; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME_32;
+    }
+    return hash;
+  }
+
+  private static int checksum(String key, String field, char[] value) {
+    return checksum(key, field, CharBuffer.wrap(value));
+  }
+
+  private static int fnv(int hash, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      hash = (hash ^ s.charAt(i)) * FNV_PRIME_32;
+    }
+    return hash;
+  }
+
+  private static long mix(long state, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      state = (state ^ s.charAt(i)) * 0x100000001b3L;
+    }
+    return splitMix(state);
+  }
+
+  private static long splitMix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static void writeHex(int value, char[] dst, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      dst[offset + i] = HEX[(value >>> (28 - 4 * i)) & 0xf];
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteArrayByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPayloadEncoding {
+
+    private static Map<String, ByteIterator> encode(PayloadEncoding encoding, Measurement.Type type, double[] values,
+                                                    long timestamp) {
+        final Map<String, ByteIterator> row = new HashMap<>();
+        row.put(Measurement.SENSOR_ID, new ByteArrayByteIterator("s1".getBytes()));
+        encoding.encode(row, type, values, timestamp, new StringBuilder());
+        return row;
+    }
+
+    private static long size(Map<String, ByteIterator> row) {
+        long size = 0;
+        for (ByteIterator value : row.values()) {
+            size += value.bytesLeft();
+        }
+        return size;
+    }
+
+    @Test
+    public void everyEncodingRoundTrips() {
+        final SplittableRandom random = new SplittableRandom(11);
+        final long now = System.currentTimeMillis();
+        for (PayloadEncoding encoding : PayloadEncoding.values()) {
+            for (Measurement.Type type : Measurement.Type.values()) {
+                for (int i = 0; i < 50; i ++) {
+                    final Measurement expected = type.generate("m", "s1", now + i, random);
+                    final Measurement decoded = encoding.decode(expected.dbValues(encoding));
+                    assertEquals(decoded.type, type, encoding.name());
+                    assertEquals(decoded.sensorId, "s1");
+                    assertEquals(decoded.values, expected.values, encoding.name());
+                    assertEquals(decoded.timestamp, expected.timestamp, encoding.name());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void textHandlesExponentsAndSigns() {
+        final double[] values = {1.0E-5, -2.5};
+        final Map<String, ByteIterator> row = encode(PayloadEncoding.TEXT, Measurement.Type.GEO, values, 1);
+        final Measurement decoded = PayloadEncoding.TEXT.decode(row);
+        assertEquals(decoded.values, new String[] {"1.0E-5", "-2.5"});
+    }
+
+    @Test
+    public void binaryEncodingsAreSmaller() {
+        final double[] values = {42};
+        final long now = System.currentTimeMillis();
+        final long text = size(encode(PayloadEncoding.TEXT, Measurement.Type.TEMPERATURE, values, now));
+        final long binary = size(encode(PayloadEncoding.BINARY, Measurement.Type.TEMPERATURE, values, now));
+        final long varint = size(encode(PayloadEncoding.VARINT, Measurement.Type.TEMPERATURE, values, now));
+        assertTrue(binary < text, binary + " < " + text);
+        assertTrue(varint < binary, varint + " < " + binary);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void truncatedValuesAreRejected() {
+        final Map<String, ByteIterator> row =
+                encode(PayloadEncoding.BINARY, Measurement.Type.GEO, new double[] {0.5, 0.25}, 1);
+        row.put(Measurement.VALUES, new ByteArrayByteIterator(new byte[8]));
+        PayloadEncoding.BINARY.decode(row);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void missingFieldsAreRejected() {
+        final Map<String, ByteIterator> row =
+                encode(PayloadEncoding.VARINT, Measurement.Type.SPEED, new double[] {0.5}, 1);
+        row.remove(Measurement.TIMESTAMP);
+        PayloadEncoding.VARINT.decode(row);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void unknownNamesAreRejected() {
+        PayloadEncoding.fromName("json");
+    }
+}
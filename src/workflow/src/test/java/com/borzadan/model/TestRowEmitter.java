@@ -0,0 +1,109 @@
+package com.borzadan.model;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class TestRowEmitter {
+
+    private static final class Recorder implements RowVisitor {
+        final List<String> tables = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+        final List<Map<String, ByteIterator>> rows = new ArrayList<>();
+        final List<Map<String, String>> copies = new ArrayList<>();
+
+        @Override
+        public void visit(String table, String key, Map<String, ByteIterator> fields) {
+            tables.add(table);
+            keys.add(key);
+            rows.add(fields);
+            copies.add(StringByteIterator.getStringMap(fields));
+        }
+    }
+
+    @Test
+    public void measurementRowsMatchModel() {
+        final RowEmitter emitter = new RowEmitter(1);
+        final Recorder recorder = new Recorder();
+        final SplittableRandom emitted = new SplittableRandom(5);
+        final SplittableRandom generated = new SplittableRandom(5);
+        for (Measurement.Type type : Measurement.Type.values()) {
+            emitter.measurement("m-" + type, "s1", type, emitted, recorder);
+            final Map<String, String> expected =
+                    StringByteIterator.getStringMap(type.generate("m-" + type, "s1", generated).dbValues());
+            final Map<String, String> actual = recorder.copies.get(recorder.copies.size() - 1);
+            // the timestamps are taken at slightly different times
+            expected.remove(Measurement.TIMESTAMP);
+            assertFalse(actual.remove(Measurement.TIMESTAMP).isEmpty());
+            assertEquals(actual, expected);
+            assertEquals(recorder.tables.get(recorder.tables.size() - 1), Measurement.TABLE_NAME);
+        }
+    }
+
+    @Test
+    public void deviceAndSensorRowsMatchModel() {
+        final RowEmitter emitter = new RowEmitter(1);
+        final Recorder recorder = new Recorder();
+        emitter.device("d1", recorder);
+        emitter.sensor("s1", "d1", recorder);
+
+        final Device d = new Device();
+        d.id = "d1";
+        d.name = "device-d1";
+        final Sensor s = new Sensor();
+        s.id = "s1";
+        s.deviceId = "d1";
+        s.name = "sensor-s1";
+
+        assertEquals(recorder.tables.get(0), Device.TABLE_NAME);
+        assertEquals(recorder.keys.get(0), "d1");
+        assertEquals(recorder.copies.get(0), StringByteIterator.getStringMap(d.dbValues()));
+        assertEquals(recorder.tables.get(1), Sensor.TABLE_NAME);
+        assertEquals(recorder.keys.get(1), "s1");
+        assertEquals(recorder.copies.get(1), StringByteIterator.getStringMap(s.dbValues()));
+    }
+
+    @Test
+    public void fieldMapsAreReusedPerSlot() {
+        final RowEmitter emitter = new RowEmitter(2);
+        final Recorder recorder = new Recorder();
+        for (int i = 0; i < 4; i ++) {
+            emitter.sensor("s" + i, "d", recorder);
+        }
+        assertNotSame(recorder.rows.get(0), recorder.rows.get(1));
+        assertSame(recorder.rows.get(0), recorder.rows.get(2));
+        assertSame(recorder.rows.get(1), recorder.rows.get(3));
+        assertEquals(recorder.copies.get(1).get(Sensor.NAME), "sensor-s1");
+    }
+
+    @Test
+    public void textFieldsAreRefilledInPlace() {
+        final RowEmitter emitter = new RowEmitter(1);
+        final Recorder recorder = new Recorder();
+        final SplittableRandom random = new SplittableRandom(5);
+        emitter.sensor("s0", "d0", recorder);
+        final ByteIterator name = recorder.rows.get(0).get(Sensor.NAME);
+        emitter.sensor("s1", "d1", recorder);
+        assertSame(recorder.rows.get(1).get(Sensor.NAME), name);
+        assertEquals(recorder.copies.get(1).get(Sensor.NAME), "sensor-s1");
+        assertEquals(recorder.copies.get(1).get(Sensor.DEVICE_ID), "d1");
+
+        emitter.measurement("m0", "s0", Measurement.Type.TEMPERATURE, 1000L, random, recorder);
+        final ByteIterator timestamp = recorder.rows.get(2).get(Measurement.TIMESTAMP);
+        emitter.measurement("m1", "s1", Measurement.Type.TEMPERATURE, 2000L, random, recorder);
+        assertSame(recorder.rows.get(3).get(Measurement.TIMESTAMP), timestamp);
+        assertEquals(recorder.copies.get(3).get(Measurement.TIMESTAMP), "2000");
+        assertEquals(recorder.copies.get(3).get(Measurement.SENSOR_ID), "s1");
+        assertEquals(PayloadEncoding.TEXT.decode(recorder.rows.get(3)).timestamp, "2000");
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+import com.borzadan.model.RowEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class TestDanThreadState {
+
+  private static OperationChooser chooser() {
+    final OperationChooser chooser = new OperationChooser();
+    chooser.addValue(0.5, "READ");
+    chooser.addValue(0.3, "UPDATE");
+    chooser.addValue(0.2, "INSERT");
+    return chooser;
+  }
+
+  private static DanThreadState state(long seed, int threadId, OperationChooser chooser) {
+    return new DanThreadState(seed, threadId, chooser, new RowEmitter(1));
+  }
+
+  private static List<Object> draw(DanThreadState state, int n) {
+    final List<Object> choices = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      choices.add(state.nextOperation());
+      choices.add(state.nextMeasurementType());
+      choices.add(state.nextInt(1000));
+    }
+    return choices;
+  }
+
+  @Test
+  public void sameSeedAndThreadReplays() {
+    final OperationChooser chooser = chooser();
+    assertEquals(draw(state(42, 3, chooser), 100), draw(state(42, 3, chooser), 100));
+  }
+
+  @Test
+  public void threadsGetDifferentStreams() {
+    final OperationChooser chooser = chooser();
+    assertNotEquals(draw(state(42, 0, chooser), 100), draw(state(42, 1, chooser), 100));
+    assertNotEquals(draw(state(42, 0, chooser), 100), draw(state(43, 0, chooser), 100));
+  }
+
+  @Test
+  public void adjacentSeedsDoNotShareThreadStreams() {
+    final OperationChooser chooser = chooser();
+    assertNotEquals(draw(state(42, 1, chooser), 100), draw(state(43, 0, chooser), 100));
+    assertNotEquals(draw(state(43, 1, chooser), 100), draw(state(42, 2, chooser), 100));
+  }
+
+  @Test
+  public void chooserFollowsWeights() {
+    final OperationChooser chooser = new OperationChooser();
+    chooser.addValue(0, "READ");
+    chooser.addValue(1, "UPDATE");
+    final DanThreadState state = state(7, 0, chooser);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(state.nextOperation(), "UPDATE");
+    }
+    assertNull(new OperationChooser().next(state.random()));
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+import com.borzadan.workload.KeyspaceManifest.Entity;
+
+public class TestKeyspaceManifest {
+
+  @Test
+  public void missingFileIsEmpty() throws IOException {
+    final Path dir = Files.createTempDirectory("manifest");
+    final KeyspaceManifest manifest = KeyspaceManifest.read(dir.resolve("none"));
+    assertFalse(manifest.isLoaded());
+    for (Entity e : Entity.values()) {
+      assertEquals(manifest.highWaterMark(e), 0);
+      assertEquals(manifest.acknowledged(e), 0);
+    }
+  }
+
+  @Test
+  public void roundTripsAndAccumulatesAcrossRuns() throws IOException {
+    final Path file = Files.createTempDirectory("manifest").resolve("keyspace.manifest");
+    final KeyspaceManifest first = KeyspaceManifest.read(file);
+    first.acknowledge(Entity.DEVICE, 0);
+    first.acknowledge(Entity.SENSOR, 0, 10);
+    first.acknowledge(Entity.MEASUREMENT, 1, 21);
+    first.write(file);
+
+    final KeyspaceManifest second = KeyspaceManifest.read(file);
+    assertTrue(second.isLoaded());
+    assertEquals(second.highWaterMark(Entity.DEVICE), 1);
+    assertEquals(second.highWaterMark(Entity.SENSOR), 10);
+    assertEquals(second.highWaterMark(Entity.MEASUREMENT), 21);
+    second.acknowledge(Entity.MEASUREMENT, 21, 31);
+    second.write(file);
+
+    final KeyspaceManifest third = KeyspaceManifest.read(file);
+    assertEquals(third.highWaterMark(Entity.MEASUREMENT), 31);
+    assertEquals(third.acknowledged(Entity.MEASUREMENT), 30);
+    assertEquals(third.acknowledged(Entity.SENSOR), 10);
+    try (Stream<Path> files = Files.list(file.getParent())) {
+      assertEquals(files.count(), 1, "no temporary file is left behind");
+    }
+  }
+
+  @Test
+  public void mergeAddsWhatWorkersAcknowledged() {
+    final KeyspaceManifest merged = new KeyspaceManifest();
+    merged.acknowledge(Entity.DEVICE, 0, 10);
+    final KeyspaceManifest worker = new KeyspaceManifest();
+    worker.acknowledge(Entity.DEVICE, 10, 15);
+    worker.acknowledge(Entity.SENSOR, 100, 150);
+    merged.merge(worker);
+    merged.merge(new KeyspaceManifest());
+
+    assertEquals(merged.highWaterMark(Entity.DEVICE), 15);
+    assertEquals(merged.acknowledged(Entity.DEVICE), 15);
+    assertEquals(merged.highWaterMark(Entity.SENSOR), 150);
+    assertEquals(merged.acknowledged(Entity.SENSOR), 50);
+    assertEquals(merged.highWaterMark(Entity.MEASUREMENT), 0);
+    assertEquals(ranges(merged, Entity.DEVICE), "[0, 15)");
+  }
+
+  @Test
+  public void findsTheIdsMissingFromTheRange() {
+    final KeyspaceManifest manifest = new KeyspaceManifest();
+    assertTrue(manifest.unacknowledged(Entity.DEVICE, 0).isEmpty());
+    manifest.acknowledge(Entity.DEVICE, 0, 10);
+    assertTrue(manifest.unacknowledged(Entity.DEVICE, 0).isEmpty());
+    manifest.acknowledge(Entity.DEVICE, 20, 25);
+    assertEquals(manifest.highWaterMark(Entity.DEVICE), 25);
+    assertEquals(describe(manifest.unacknowledged(Entity.DEVICE, 0)), "[10, 20)");
+    assertEquals(describe(manifest.unacknowledged(Entity.MEASUREMENT, 1)), "");
+    manifest.acknowledge(Entity.MEASUREMENT, 3, 5);
+    assertEquals(describe(manifest.unacknowledged(Entity.MEASUREMENT, 1)), "[1, 3)");
+  }
+
+  @Test
+  public void coalescesRangesAndCountsIdsOnce() throws IOException {
+    final KeyspaceManifest manifest = new KeyspaceManifest();
+    final KeyspaceManifest.Ids ids = new KeyspaceManifest.Ids();
+    for (long id : new long[] {5, 6, 7, 9, 10, 20}) {
+      ids.add(id);
+    }
+    manifest.acknowledge(Entity.SENSOR, ids);
+    assertEquals(ranges(manifest, Entity.SENSOR), "[5, 8) [9, 11) [20, 21)");
+    manifest.acknowledge(Entity.SENSOR, 6);
+    manifest.acknowledge(Entity.SENSOR, 8);
+    manifest.acknowledge(Entity.SENSOR, 11, 20);
+    assertEquals(ranges(manifest, Entity.SENSOR), "[5, 21)");
+    assertEquals(manifest.acknowledged(Entity.SENSOR), 16);
+    manifest.acknowledge(Entity.SENSOR, 0, 3);
+    manifest.acknowledge(Entity.SENSOR, 2, 30);
+    assertEquals(ranges(manifest, Entity.SENSOR), "[0, 30)");
+
+    final Path file = Files.createTempDirectory("manifest").resolve("keyspace.manifest");
+    manifest.acknowledge(Entity.DEVICE, 0, 4);
+    manifest.acknowledge(Entity.DEVICE, 6, 8);
+    manifest.write(file);
+    final KeyspaceManifest read = KeyspaceManifest.read(file);
+    assertEquals(ranges(read, Entity.DEVICE), "[0, 4) [6, 8)");
+    assertEquals(read.acknowledged(Entity.DEVICE), 6);
+    assertEquals(ranges(read, Entity.SENSOR), "[0, 30)");
+  }
+
+  @Test
+  public void readsADenseManifestWithoutRanges() throws IOException {
+    final Path file = Files.createTempFile("manifest", ".properties");
+    Files.write(file, "device.low=0\ndevice.highwatermark=4\ndevice.acknowledged=4\n".getBytes("UTF-8"));
+    assertEquals(ranges(KeyspaceManifest.read(file), Entity.DEVICE), "[0, 4)");
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void refusesAManifestWithoutRangesWhoseCountIsSmallerThanItsWidth() throws IOException {
+    final Path file = Files.createTempFile("manifest", ".properties");
+    Files.write(file, "device.low=0\ndevice.highwatermark=4\ndevice.acknowledged=3\n".getBytes("UTF-8"));
+    KeyspaceManifest.read(file);
+  }
+
+  @Test
+  public void concurrentAcknowledgementsAreAllCounted() {
+    final KeyspaceManifest manifest = new KeyspaceManifest();
+    IntStream.range(0, 10_000).parallel().forEach(i -> manifest.acknowledge(Entity.MEASUREMENT, i + 1));
+    assertEquals(manifest.acknowledged(Entity.MEASUREMENT), 10_000);
+    assertEquals(manifest.highWaterMark(Entity.MEASUREMENT), 10_001);
+    assertEquals(ranges(manifest, Entity.MEASUREMENT), "[1, 10001)");
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void malformedFileIsRejected() throws IOException {
+    final Path file = Files.createTempFile("manifest", ".properties");
+    Files.write(file, "device.acknowledged=3\n".getBytes("UTF-8"));
+    KeyspaceManifest.read(file);
+  }
+
+  private static String ranges(KeyspaceManifest manifest, Entity entity) {
+    return describe(manifest.ranges(entity));
+  }
+
+  private static String describe(List<long[]> ranges) {
+    return ranges.stream().map(r -> "[" + r[0] + ", " + r[1] + ")").collect(Collectors.joining(" "));
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+
+public class TestMeasurementKeyLayout {
+
+  private final MeasurementKeyLayout layout = new MeasurementKeyLayout(1000);
+
+  @Test
+  public void newerBucketsSortFirst() {
+    final String older = layout.key("abc", 1_000, 7);
+    final String newer = layout.key("abc", 5_000, 3);
+    assertTrue(newer.compareTo(older) < 0);
+  }
+
+  @Test
+  public void higherSequenceSortsFirstWithinBucket() {
+    assertTrue(layout.key("abc", 1_900, 10).compareTo(layout.key("abc", 1_200, 2)) < 0);
+    assertEquals(layout.key("abc", 1_200, 2).substring(0, 21), layout.key("abc", 1_900, 10).substring(0, 21));
+  }
+
+  @Test
+  public void firstKeysOfBucketAreLatest() {
+    final TreeMap<String, Long> keys = new TreeMap<>();
+    for (long sequence = 0; sequence < 100; sequence++) {
+      keys.put(layout.key("abc", 1_000 + sequence, sequence), sequence);
+    }
+    final Iterator<Long> scan = keys.tailMap(layout.latestStartKey("abc")).values().iterator();
+    for (long expected = 99; expected > 89; expected--) {
+      assertEquals(scan.next().longValue(), expected);
+    }
+  }
+
+  @Test
+  public void scanStartKeysBoundTheSensor() {
+    final String key = layout.key("abc", 5_000, 1);
+    assertTrue(key.startsWith(layout.latestStartKey("abc")));
+    assertTrue(layout.latestStartKey("abc").compareTo(key) < 0);
+    // a range ending at or after the measurement starts before it, one ending earlier starts after it
+    assertTrue(layout.rangeStartKey("abc", 5_000).compareTo(key) < 0);
+    assertTrue(layout.rangeStartKey("abc", 9_000).compareTo(key) < 0);
+    assertTrue(layout.rangeStartKey("abc", 4_000).compareTo(key) > 0);
+    // other sensors are outside the prefix
+    assertTrue(layout.key("abd", 0, 0).compareTo(layout.latestStartKey("abc")) > 0);
+    assertFalse(layout.key("abd", 0, 0).startsWith(layout.latestStartKey("abc")));
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.borzadan.workload;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+
+import com.borzadan.model.Measurement;
+import com.borzadan.model.PayloadEncoding;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+public class TestVisibilityProbe {
+
+  private static final Tracer TRACER =
+      new Tracer.Builder("TestVisibilityProbe").conf(HTraceConfiguration.EMPTY).build();
+
+  /**
+   * Serves a single measurement row whose timestamp the test sets.
+   */
+  private static class TimestampDB extends DB {
+    private String timestamp = "50";
+    private int reads;
+    private Runnable onRead = () -> { };
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      reads++;
+      onRead.run();
+      result.put(Measurement.TIMESTAMP, new StringByteIterator(timestamp));
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_IMPLEMENTED;
+    }
+  }
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void otherThreadsRecordVisibility() throws IOException {
+    final Properties props = new Properties();
+    // the visibility histogram is an HdrHistogram whatever the configured measurement type is
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "histogram");
+    final Measurements measurements = new Measurements(props);
+    final VisibilityProbe probe = new VisibilityProbe(10, 60_000, 0, PayloadEncoding.TEXT, measurements);
+    final TimestampDB db = new TimestampDB();
+
+    probe.published("m1", 100, 0);
+    probe.pollOne(db, 0);
+    assertEquals(db.reads, 0, "the writer doesn't poll its own write");
+
+    probe.pollOne(db, 1);
+    assertEquals(db.reads, 1);
+    assertTrue(measurements.getSummary().isEmpty(), "not visible yet");
+
+    db.timestamp = "100";
+    probe.pollOne(db, 2);
+    assertEquals(db.reads, 2);
+    assertTrue(measurements.getSummary().contains("[VISIBILITY: Count=1,"), measurements.getSummary());
+
+    probe.pollOne(db, 1);
+    assertEquals(db.reads, 2, "a visible probe is done");
+    assertTrue(export(measurements).contains("[VISIBILITY], Return=OK, 1"));
+  }
+
+  @Test
+  public void invisibleWritesTimeOut() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    final VisibilityProbe probe = new VisibilityProbe(10, 0, 0, PayloadEncoding.TEXT, measurements);
+    final TimestampDB db = new TimestampDB();
+
+    probe.published("m1", 100, 0);
+    probe.pollOne(db, 1);
+    probe.pollOne(db, 1);
+    assertEquals(db.reads, 1);
+    assertTrue(export(measurements).contains("[VISIBILITY], Return=TIMEOUT, 1"));
+  }
+
+  @Test
+  public void probesThatNoLongerFitAreDropped() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    final VisibilityProbe probe = new VisibilityProbe(1, 60_000, 0, PayloadEncoding.TEXT, measurements);
+    final TimestampDB db = new TimestampDB();
+    // a new write takes the only pending slot while the probe is being read
+    db.onRead = () -> probe.published("m2", 100, 0);
+
+    probe.published("m1", 100, 0);
+    probe.pollOne(db, 1);
+    assertTrue(export(measurements).contains("[VISIBILITY], Return=DROPPED, 1"));
+  }
+
+  @Test
+  public void versionsAreUniqueAndAfterTheCurrentMillisecond() {
+    final VisibilityProbe probe =
+        new VisibilityProbe(1, 60_000, 0, PayloadEncoding.TEXT, new Measurements(new Properties()));
+    long last = 0;
+    for (int i = 0; i < 1000; i++) {
+      final long now = System.currentTimeMillis();
+      final long version = probe.nextVersion();
+      assertTrue(version > now);
+      assertTrue(version > last);
+      last = version;
+    }
+  }
+
+  @Test
+  public void probeReadsAreNotMeasured() throws Exception {
+    Measurements.setProperties(new Properties());
+    final Measurements measurements = Measurements.getMeasurements();
+    final DBWrapper wrapper = new DBWrapper(new TimestampDB(), TRACER);
+    final Integer before = measurements.getStatusCounts().getOrDefault("READ", new HashMap<>()).get(Status.OK);
+
+    final VisibilityProbe probe = new VisibilityProbe(10, 60_000, 0, PayloadEncoding.TEXT, measurements);
+    probe.published("m1", 100, 0);
+    probe.pollOne(wrapper, 1);
+    assertEquals(measurements.getStatusCounts().getOrDefault("READ", new HashMap<>()).get(Status.OK), before);
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link ArrivalScheduler}.
+ */
+public class TestArrivalScheduler {
+
+  private static class IdleWorkload extends Workload {
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return true;
+    }
+  }
+
+  private static ArrivalScheduler create(String mode, double target) {
+    final Properties props = new Properties();
+    props.setProperty(ArrivalScheduler.ARRIVALS_PROPERTY, mode);
+    return ArrivalScheduler.create(props, target, null);
+  }
+
+  @Test
+  public void closedLoopHasNoScheduler() {
+    assertNull(ArrivalScheduler.create(new Properties(), 1000, null));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void openLoopNeedsATarget() {
+    create("poisson", 0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownModeIsRejected() {
+    create("bursty", 1000);
+  }
+
+  @Test
+  public void poissonGapsAverageTheInterval() {
+    final ArrivalScheduler scheduler = create("poisson", 1000);
+    double sum = 0;
+    final int n = 200_000;
+    for (int i = 0; i < n; i++) {
+      sum += scheduler.nextIntervalNs(0);
+    }
+    final double mean = sum / n;
+    assertTrue(Math.abs(mean - 1_000_000) < 20_000, "mean gap " + mean);
+  }
+
+  @Test
+  public void constantArrivalsFollowTheTimelineWhenTakenLate() throws Exception {
+    final Workload workload = new IdleWorkload();
+    final ArrivalScheduler scheduler = create("constant", 10_000);
+    scheduler.start();
+    // nobody takes arrivals for a while, they queue up with their own times
+    Thread.sleep(50);
+    final long taken = System.nanoTime();
+    final long first = scheduler.next(workload);
+    long previous = first;
+    for (int i = 0; i < 100; i++) {
+      final long arrival = scheduler.next(workload);
+      assertEquals(arrival - previous, 100_000, 1);
+      previous = arrival;
+    }
+    assertTrue(taken - first > TimeUnit.MILLISECONDS.toNanos(40), "the first arrival is as old as the wait");
+    scheduler.stop();
+  }
+
+  @Test
+  public void stoppedSchedulerReleasesWaiters() throws Exception {
+    final ArrivalScheduler scheduler = create("constant", 0.001);
+    scheduler.start();
+    final Workload workload = new IdleWorkload();
+    scheduler.next(workload);
+    scheduler.stop();
+    assertEquals(scheduler.next(workload), ArrivalScheduler.STOPPED);
+  }
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link AsyncDB}, its blocking adapter and wrapper, and the async client engine.
+ */
+public class TestAsyncDB {
+
+  private static final Tracer TRACER = new Tracer.Builder("TestAsyncDB").conf(HTraceConfiguration.EMPTY).build();
+
+  @BeforeClass
+  public void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  /**
+   * Records which thread ran each operation.
+   */
+  private static class ThreadRecordingDB extends DB {
+    private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+    private volatile Thread initThread;
+
+    @Override
+    public void init() {
+      initThread = Thread.currentThread();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      threads.add(Thread.currentThread());
+      result.put("field", new StringByteIterator(key));
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      threads.add(Thread.currentThread());
+      return key.equals("bad") ? Status.ERROR : Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_IMPLEMENTED;
+    }
+  }
+
+  /**
+   * Completes operations only when the test says so.
+   */
+  private static class ManualAsyncDB extends AsyncDB {
+    private final List<CompletableFuture<Status>> pending = Collections.synchronizedList(new ArrayList<>());
+
+    private CompletableFuture<Status> issue() {
+      final CompletableFuture<Status> future = new CompletableFuture<>();
+      pending.add(future);
+      return future;
+    }
+
+    @Override
+    public CompletableFuture<Status> read(String table, String key, Set<String> fields,
+                                          Map<String, ByteIterator> result) {
+      return issue();
+    }
+
+    @Override
+    public CompletableFuture<Status> scan(String table, String startkey, int recordcount, Set<String> fields,
+                                          Vector<HashMap<String, ByteIterator>> result) {
+      return issue();
+    }
+
+    @Override
+    public CompletableFuture<Status> update(String table, String key, Map<String, ByteIterator> values) {
+      return issue();
+    }
+
+    @Override
+    public CompletableFuture<Status> insert(String table, String key, Map<String, ByteIterator> values) {
+      return issue();
+    }
+
+    @Override
+    public CompletableFuture<Status> delete(String table, String key) {
+      return issue();
+    }
+  }
+
+  @Test
+  public void adapterRunsEachDbOnItsOwnThread() throws Exception {
+    final ThreadRecordingDB first = new ThreadRecordingDB();
+    final ThreadRecordingDB second = new ThreadRecordingDB();
+    final BlockingAsyncDB db = new BlockingAsyncDB(new DB[]{first, second});
+    db.init();
+    assertFalse(first.initThread == Thread.currentThread());
+
+    final List<CompletableFuture<Status>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(db.insert("t", "k" + i, Collections.<String, ByteIterator>emptyMap()));
+    }
+    for (CompletableFuture<Status> f : futures) {
+      assertEquals(f.get(), Status.OK);
+    }
+    final Map<String, ByteIterator> result = new HashMap<>();
+    assertEquals(db.read("t", "k", null, result).get(), Status.OK);
+    assertEquals(result.get("field").toString(), "k");
+    db.cleanup();
+
+    assertEquals(first.threads.size(), 1);
+    assertEquals(second.threads.size(), 1);
+    assertTrue(first.threads.contains(first.initThread));
+    assertFalse(first.threads.equals(second.threads));
+  }
+
+  @Test
+  public void insertBatchStopsAtFirstFailure() throws Exception {
+    final ThreadRecordingDB recording = new ThreadRecordingDB();
+    final AsyncDB db = new BlockingAsyncDB(new DB[]{recording}) {
+      @Override
+      public CompletableFuture<Status> insertBatch(String table, List<String> keys,
+                                                   List<Map<String, ByteIterator>> values) {
+        // the AsyncDB default, one insert after the other
+        return super.insertBatch(table, keys, values);
+      }
+    };
+    final Map<String, ByteIterator> row = Collections.emptyMap();
+    assertEquals(db.insertBatch("t", Arrays.asList("a", "bad", "c"),
+        Arrays.asList(row, row, row)).get(), Status.ERROR);
+  }
+
+  @Test
+  public void wrapperMeasuresAtCompletion() throws Exception {
+    final ManualAsyncDB manual = new ManualAsyncDB();
+    final AsyncDBWrapper db = new AsyncDBWrapper(manual, TRACER);
+    final Measurements measurements = Measurements.getMeasurements();
+    measurements.getSummary();
+
+    final CompletableFuture<Status> future = db.delete("t", "k");
+    assertFalse(measurements.getSummary().contains("[DELETE"), "measured before completion");
+    manual.pending.get(0).complete(Status.OK);
+    assertEquals(future.get(), Status.OK);
+    assertTrue(measurements.getSummary().contains("[DELETE: Count=1,"), measurements.getSummary());
+  }
+
+  @Test
+  public void blockingViewWaitsForTheOperation() {
+    final AsyncDB db = new BlockingAsyncDB(new DB[]{new ThreadRecordingDB()});
+    assertEquals(db.blocking().insert("t", "k", Collections.<String, ByteIterator>emptyMap()), Status.OK);
+    assertEquals(db.blocking().insert("t", "bad", Collections.<String, ByteIterator>emptyMap()), Status.ERROR);
+  }
+
+  @Test
+  public void engineBoundsOperationsInFlight() throws Exception {
+    final ManualAsyncDB manual = new ManualAsyncDB();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final Workload workload = new Workload() {
+      @Override
+      public boolean doInsert(DB db, Object threadstate) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean doTransaction(DB db, Object threadstate) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return db.read("t", "k", null, new HashMap<>()).thenApply(status -> {
+          inFlight.decrementAndGet();
+          return true;
+        });
+      }
+    };
+    final CountDownLatch done = new CountDownLatch(1);
+    final ClientThread client = new ClientThread(manual, 4, true, workload, new Properties(), 100, -1, done);
+    final Thread thread = new Thread(client);
+    thread.start();
+
+    int completed = 0;
+    while (completed < 100) {
+      if (completed < manual.pending.size()) {
+        manual.pending.get(completed++).complete(Status.OK);
+      } else {
+        Thread.yield();
+      }
+    }
+    thread.join(10_000);
+    assertEquals(done.getCount(), 0);
+    assertEquals(client.getOpsDone(), 100);
+    assertTrue(maxInFlight.get() <= 4, "in flight " + maxInFlight.get());
+  }
+
+  @Test
+  public void engineStopsOnAnOperationCompletedWithNull() throws Exception {
+    final Workload workload = new Workload() {
+      @Override
+      public boolean doInsert(DB db, Object threadstate) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean doTransaction(DB db, Object threadstate) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public CompletableFuture<Boolean> doTransactionAsync(AsyncDB db, Object threadstate) {
+        return CompletableFuture.completedFuture(null);
+      }
+    };
+    final CountDownLatch done = new CountDownLatch(1);
+    final ClientThread client =
+        new ClientThread(new ManualAsyncDB(), 2, true, workload, new Properties(), 100, -1, done);
+    final Thread thread = new Thread(client);
+    thread.setDaemon(true);
+    thread.start();
+    thread.join(10_000);
+    assertEquals(done.getCount(), 0, "the client thread is stuck waiting for its operations");
+  }
+}
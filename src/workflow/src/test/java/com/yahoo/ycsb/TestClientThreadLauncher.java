@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link ClientThreadLauncher}.
+ */
+public class TestClientThreadLauncher {
+
+  private static final Tracer TRACER =
+      new Tracer.Builder("TestClientThreadLauncher").conf(HTraceConfiguration.EMPTY).build();
+
+  private static class NoopDB extends DB {
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  private static class ReadWorkload extends Workload {
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return db.insert("t", "k", new HashMap<String, ByteIterator>()).isOk();
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return db.read("t", "k", null, new HashMap<String, ByteIterator>()).isOk();
+    }
+  }
+
+  @BeforeClass
+  public void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  private static int runClients(Properties props, int clientcount, int opsPerClient) throws Exception {
+    final CountDownLatch latch = new CountDownLatch(clientcount);
+    final Workload workload = new ReadWorkload();
+    final List<ClientThread> clients = new ArrayList<>();
+    for (int i = 0; i < clientcount; i++) {
+      final ClientThread client = new ClientThread(new NoopDB(), true, workload, props, opsPerClient, -1, latch);
+      client.setThreadId(i);
+      client.setThreadCount(clientcount);
+      clients.add(client);
+    }
+    final ClientThreadLauncher launcher = ClientThreadLauncher.create(props, TRACER);
+    launcher.start(clients);
+    launcher.join();
+    assertTrue(latch.await(0, TimeUnit.SECONDS));
+    int done = 0;
+    for (ClientThread client : clients) {
+      done += client.getOpsDone();
+    }
+    return done;
+  }
+
+  @Test
+  public void platformThreads() throws Exception {
+    assertEquals(runClients(new Properties(), 8, 100), 800);
+  }
+
+  @Test
+  public void virtualThreadsOrBoundedPool() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(ClientThreadLauncher.THREAD_MODE_PROPERTY, "virtual");
+    props.setProperty(ClientThreadLauncher.POOL_SIZE_PROPERTY, "4");
+    assertEquals(runClients(props, 1000, 10), 10000);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void unknownModeIsRejected() {
+    final Properties props = new Properties();
+    props.setProperty(ClientThreadLauncher.THREAD_MODE_PROPERTY, "green");
+    ClientThreadLauncher.create(props, TRACER);
+  }
+}
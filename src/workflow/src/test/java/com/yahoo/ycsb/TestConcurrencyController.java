@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link ConcurrencyController}.
+ */
+public class TestConcurrencyController {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private static class IdleWorkload extends Workload {
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return true;
+    }
+  }
+
+  @BeforeClass
+  public static void setUp() {
+    Measurements.setProperties(new Properties());
+  }
+
+  private static ConcurrencyController create(Workload workload, String latencyTargetMs) {
+    final Properties props = new Properties();
+    props.setProperty(ConcurrencyController.CONCURRENCY_PROPERTY, "adaptive");
+    props.setProperty(ConcurrencyController.INITIAL_PROPERTY, "4");
+    props.setProperty(ConcurrencyController.INCREASE_PROPERTY, "2");
+    props.setProperty(ConcurrencyController.DECREASE_PROPERTY, "0.5");
+    props.setProperty(ConcurrencyController.LATENCY_TARGET_PROPERTY, latencyTargetMs);
+    return ConcurrencyController.create(props, workload, Measurements.getMeasurements(), 16,
+        new CountDownLatch(16));
+  }
+
+  private static Histogram latencies(long count, long valueUs) {
+    final Histogram histogram = new Histogram(3);
+    histogram.recordValueWithCount(valueUs, count);
+    return histogram;
+  }
+
+  @Test
+  public void fixedByDefault() {
+    assertNull(ConcurrencyController.create(new Properties(), new IdleWorkload(), Measurements.getMeasurements(), 4,
+        new CountDownLatch(4)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsGrowingDecreases() {
+    final Properties props = new Properties();
+    props.setProperty(ConcurrencyController.CONCURRENCY_PROPERTY, "adaptive");
+    props.setProperty(ConcurrencyController.DECREASE_PROPERTY, "1.5");
+    ConcurrencyController.create(props, new IdleWorkload(), Measurements.getMeasurements(), 4, new CountDownLatch(4));
+  }
+
+  @Test
+  public void increasesAdditivelyAndDecreasesMultiplicatively() {
+    final ConcurrencyController controller = create(new IdleWorkload(), "10");
+    controller.onInterval(latencies(4000, 2000), SECOND);
+    assertEquals(controller.getLimit(), 6);
+    controller.onInterval(latencies(6000, 3000), SECOND);
+    assertEquals(controller.getLimit(), 8);
+    // latency collapses at 8 threads
+    controller.onInterval(latencies(6500, 20000), SECOND);
+    assertEquals(controller.getLimit(), 4);
+    controller.onInterval(latencies(4000, 2000), SECOND);
+    assertEquals(controller.getLimit(), 6);
+
+    assertEquals(controller.getBestConcurrency(), 6);
+    assertEquals(controller.getLevel(4).throughput(), 4000.0, 1e-9);
+  }
+
+  @Test
+  public void backsOffWhenThroughputDrops() {
+    final ConcurrencyController controller = create(new IdleWorkload(), "0");
+    controller.onInterval(latencies(4000, 2000), SECOND);
+    controller.onInterval(latencies(5000, 2000), SECOND);
+    assertEquals(controller.getLimit(), 8);
+    controller.onInterval(latencies(3000, 2000), SECOND);
+    assertEquals(controller.getLimit(), 4);
+    assertEquals(controller.getBestConcurrency(), 6);
+  }
+
+  @Test
+  public void holdsThreadsAboveTheLimit() throws Exception {
+    final Workload workload = new IdleWorkload();
+    final ConcurrencyController controller = create(workload, "10");
+    assertTrue(controller.awaitActive(3));
+
+    final boolean[] active = new boolean[1];
+    final Thread waiting = new Thread(() -> {
+      try {
+        active[0] = controller.awaitActive(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiting.start();
+    waiting.join(200);
+    assertTrue(waiting.isAlive());
+
+    controller.onInterval(latencies(4000, 2000), SECOND);
+    waiting.join(5000);
+    assertFalse(waiting.isAlive());
+    assertTrue(active[0]);
+  }
+}
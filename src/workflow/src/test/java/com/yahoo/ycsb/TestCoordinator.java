@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link Coordinator}.
+ */
+public class TestCoordinator {
+
+  @Test
+  public void splitsTheKeyRangeWithoutGapsOrOverlaps() {
+    final Properties props = new Properties();
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Workload.INSERT_START_PROPERTY, "10");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "100");
+    props.setProperty(Client.TARGET_PROPERTY, "1000");
+
+    long next = 10;
+    long operations = 0;
+    for (int i = 0; i < 3; i++) {
+      final Properties assigned = Coordinator.assign(props, i, 3);
+      assertEquals(Long.parseLong(assigned.getProperty(Workload.INSERT_START_PROPERTY)), next);
+      next += Long.parseLong(assigned.getProperty(Client.INSERT_COUNT_PROPERTY));
+      operations += Long.parseLong(assigned.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      assertEquals(assigned.getProperty(Client.TARGET_PROPERTY), i == 0 ? "334" : "333");
+      assertEquals(assigned.getProperty(Measurements.MEASUREMENT_TYPE_PROPERTY), "hdrhistogram");
+    }
+    assertEquals(next, 1000);
+    assertEquals(operations, 100);
+  }
+
+  @Test
+  public void leavesUnboundedRunsAlone() {
+    final Properties assigned = Coordinator.assign(new Properties(), 1, 2);
+    assertNull(assigned.getProperty(Client.INSERT_COUNT_PROPERTY));
+    assertNull(assigned.getProperty(Client.OPERATION_COUNT_PROPERTY));
+    assertNull(assigned.getProperty(Client.TARGET_PROPERTY));
+  }
+
+  @Test
+  public void namesWorkerExportFiles() {
+    final Properties props = new Properties();
+    props.setProperty(Client.EXPORT_FILE_PROPERTY, "run.report");
+    assertEquals(Coordinator.assign(props, 2, 3).getProperty(Client.EXPORT_FILE_PROPERTY), "run.report.worker-2");
+  }
+
+  @Test
+  public void histogramsSurviveTheWire() throws Exception {
+    final Histogram histogram = new Histogram(3);
+    for (int i = 1; i <= 1000; i++) {
+      histogram.recordValue(i * 10);
+    }
+    final String encoded = Coordinator.encode(histogram);
+    assertFalse(encoded.contains("\t"));
+    assertEquals(Coordinator.decode(encoded), histogram);
+  }
+
+  @Test
+  public void mergesWorkerMeasurements() throws Exception {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    final Measurements worker1 = new Measurements(props);
+    final Measurements worker2 = new Measurements(props);
+    for (int i = 0; i < 10; i++) {
+      worker1.measure("READ", 100);
+      worker1.reportStatus("READ", Status.OK);
+      worker2.measure("READ", 300);
+      worker2.reportStatus("READ", Status.OK);
+    }
+    worker2.reportStatus("READ", Status.ERROR);
+
+    final Measurements merged = new Measurements(props);
+    for (Measurements worker : new Measurements[]{worker1, worker2}) {
+      merged.mergeHdrHistogram("READ", Coordinator.decode(Coordinator.encode(worker.getHdrHistogramTotals()
+          .get("READ"))));
+      for (Map.Entry<Status, Integer> e : worker.getStatusCounts().get("READ").entrySet()) {
+        merged.mergeStatus("READ", e.getKey(), e.getValue());
+      }
+    }
+    final Histogram total = merged.getHdrHistogramTotals().get("READ");
+    assertEquals(total.getTotalCount(), 20);
+    assertEquals(total.getMean(), 200, 1);
+    assertEquals(merged.getStatusCounts().get("READ").get(Status.OK).intValue(), 20);
+    assertEquals(merged.getStatusCounts().get("READ").get(Status.ERROR).intValue(), 1);
+  }
+
+  @Test(timeOut = 10000)
+  public void refusesLoadSchedules() throws Exception {
+    for (String property : new String[]{LoadSchedule.SCHEDULE_PROPERTY, LoadSchedule.SCHEDULE_FILE_PROPERTY}) {
+      final Properties props = new Properties();
+      props.setProperty(property, "step 100 10s");
+      try (ServerSocket server = new ServerSocket(0)) {
+        // refused before any worker is spawned or awaited
+        assertFalse(Coordinator.coordinate(new String[0], props, server));
+      }
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void workerProcessesLoadThroughTheSocket() throws Exception {
+    final Path dir = Files.createTempDirectory("coordinator");
+    final Path manifest = dir.resolve("keyspace.manifest");
+    final Path report = dir.resolve("run.report");
+    final String[] args = {
+        "-load", "-db", BasicDB.class.getName(),
+        "-p", Client.WORKLOAD_PROPERTY + "=com.borzadan.workload.DanWorkload",
+        "-p", Client.RECORD_COUNT_PROPERTY + "=4",
+        "-p", "requestdistribution=sequential",
+        "-p", "dataintegrity=false",
+        "-p", BasicDB.VERBOSE + "=false",
+        "-p", "keyspacemanifest=" + manifest,
+        "-p", Client.EXPORT_FILE_PROPERTY + "=" + report,
+        "-p", Coordinator.LOG_DIR_PROPERTY + "=" + dir,
+        "-p", Coordinator.INTERVAL_PROPERTY + "=100",
+        "-p", Coordinator.START_DELAY_PROPERTY + "=100",
+    };
+    final Properties props = Client.parseArguments(args);
+    try (ServerSocket server = new ServerSocket(0)) {
+      assertTrue(Coordinator.coordinate(args, props, server));
+    }
+
+    final String exported = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+    assertTrue(exported.contains("[OVERALL], Workers, 2"), exported);
+    assertTrue(exported.contains("[WORKER-0], Operations, 2"), exported);
+    assertTrue(exported.contains("[WORKER-1], Operations, 2"), exported);
+
+    final Properties merged = new Properties();
+    try (InputStream in = Files.newInputStream(manifest)) {
+      merged.load(in);
+    }
+    assertEquals(merged.getProperty("device.low"), "0");
+    assertEquals(merged.getProperty("device.highwatermark"), "4");
+    assertEquals(merged.getProperty("device.acknowledged"), "4");
+    // each worker numbers its sensors past those of the workers before it
+    assertEquals(merged.getProperty("sensor.highwatermark"), "40");
+    assertEquals(merged.getProperty("sensor.acknowledged"), "40");
+    assertEquals(merged.getProperty("device.ranges"), "0-4");
+    assertEquals(merged.getProperty("sensor.ranges"), "0-40");
+    assertFalse(Files.exists(dir.resolve("keyspace.manifest.worker-0")));
+    assertFalse(Files.exists(dir.resolve("keyspace.manifest.worker-1")));
+  }
+}
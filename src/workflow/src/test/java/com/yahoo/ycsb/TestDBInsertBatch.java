@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Test class for the default {@link DB#insertBatch} implementation.
+ */
+public class TestDBInsertBatch {
+
+  private static class RecordingDB extends DB {
+    private final List<String> inserted = new ArrayList<>();
+    private final String failingKey;
+
+    RecordingDB(String failingKey) {
+      this.failingKey = failingKey;
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.NOT_IMPLEMENTED;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      if (key.equals(failingKey)) {
+        return Status.ERROR;
+      }
+      inserted.add(table + "/" + key);
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.NOT_IMPLEMENTED;
+    }
+  }
+
+  private static List<Map<String, ByteIterator>> rows(int n) {
+    final List<Map<String, ByteIterator>> rows = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      rows.add(Collections.<String, ByteIterator>emptyMap());
+    }
+    return rows;
+  }
+
+  @Test
+  public void insertsEveryRow() {
+    final RecordingDB db = new RecordingDB(null);
+    assertEquals(db.insertBatch("t", Arrays.asList("a", "b", "c"), rows(3)), Status.OK);
+    assertEquals(db.inserted, Arrays.asList("t/a", "t/b", "t/c"));
+  }
+
+  @Test
+  public void stopsAtFirstFailure() {
+    final RecordingDB db = new RecordingDB("b");
+    assertEquals(db.insertBatch("t", Arrays.asList("a", "b", "c"), rows(3)), Status.ERROR);
+    assertEquals(db.inserted, Collections.singletonList("t/a"));
+  }
+
+  @Test
+  public void rejectsMismatchedSizes() {
+    final RecordingDB db = new RecordingDB(null);
+    assertEquals(db.insertBatch("t", Arrays.asList("a", "b"), rows(1)), Status.BAD_REQUEST);
+    assertEquals(db.inserted.size(), 0);
+  }
+}
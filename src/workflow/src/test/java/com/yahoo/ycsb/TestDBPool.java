@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link DBPool}.
+ */
+public class TestDBPool {
+
+  /**
+   * Counts its lifecycle calls and holds inserts until released, to keep instances busy.
+   */
+  private static class HoldingDB extends DB {
+    private final AtomicInteger inits;
+    private final AtomicInteger cleanups;
+    private final CountDownLatch entered;
+    private final CountDownLatch release;
+
+    HoldingDB(AtomicInteger inits, AtomicInteger cleanups, CountDownLatch entered, CountDownLatch release) {
+      this.inits = inits;
+      this.cleanups = cleanups;
+      this.entered = entered;
+      this.release = release;
+    }
+
+    @Override
+    public void init() {
+      inits.incrementAndGet();
+    }
+
+    @Override
+    public void cleanup() {
+      cleanups.incrementAndGet();
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  private AtomicInteger inits;
+  private AtomicInteger cleanups;
+
+  private DBPool pool(int size, boolean failFast, long timeoutMs, CountDownLatch entered, CountDownLatch release) {
+    Measurements.setProperties(new Properties());
+    inits = new AtomicInteger();
+    cleanups = new AtomicInteger();
+    final DB[] dbs = new DB[size];
+    for (int i = 0; i < size; i++) {
+      dbs[i] = new HoldingDB(inits, cleanups, entered, release);
+    }
+    return new DBPool(dbs, failFast, timeoutMs, Measurements.getMeasurements());
+  }
+
+  @Test
+  public void offByDefault() throws UnknownDBException {
+    assertNull(DBPool.create(BasicDB.class.getName(), new Properties(), null));
+  }
+
+  @Test
+  public void sharesInitAndCleanupBetweenLeases() throws DBException {
+    final DBPool pool = pool(2, false, 0, new CountDownLatch(0), new CountDownLatch(0));
+    final DB first = pool.lease();
+    final DB second = pool.lease();
+    first.init();
+    second.init();
+    assertEquals(inits.get(), 2);
+    assertEquals(first.read("t", "k", null, null), Status.OK);
+    first.cleanup();
+    assertEquals(cleanups.get(), 0);
+    second.cleanup();
+    assertEquals(cleanups.get(), 2);
+  }
+
+  @Test
+  public void failsFastWhenEveryInstanceIsBusy() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final DBPool pool = pool(1, true, 0, entered, release);
+    final DB busy = pool.lease();
+    final DB other = pool.lease();
+    busy.init();
+    other.init();
+
+    final Thread holder = new Thread(() -> busy.insert("t", "k", Collections.<String, ByteIterator>emptyMap()));
+    holder.start();
+    entered.await();
+    assertEquals(other.read("t", "k", null, null), Status.SERVICE_UNAVAILABLE);
+    release.countDown();
+    holder.join();
+    assertEquals(other.read("t", "k", null, null), Status.OK);
+  }
+
+  @Test
+  public void waitsUpToTheTimeout() throws Exception {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final DBPool pool = pool(1, false, 50, entered, release);
+    final DB busy = pool.lease();
+    final DB other = pool.lease();
+    busy.init();
+    other.init();
+
+    final Thread holder = new Thread(() -> busy.insert("t", "k", Collections.<String, ByteIterator>emptyMap()));
+    holder.start();
+    entered.await();
+    final long start = System.nanoTime();
+    assertEquals(other.delete("t", "k"), Status.SERVICE_UNAVAILABLE);
+    assertTrue((System.nanoTime() - start) / 1_000_000 >= 40);
+    release.countDown();
+    holder.join();
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Measures what {@link DBWrapper} adds to each call of a DB that does nothing: a few hundred ns at most, and no
+ * allocation, whether the call succeeds or fails. The timing check is in the performance group, which the default
+ * build leaves out.
+ */
+public class TestDBWrapperOverhead {
+
+  private static final Tracer TRACER =
+      new Tracer.Builder("TestDBWrapperOverhead").conf(HTraceConfiguration.EMPTY).build();
+  private static final int CALLS = 200_000;
+  private static final int ROUNDS = 5;
+
+  @BeforeClass(alwaysRun = true)
+  public void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  /**
+   * Reads nothing, and fails the reads of key "bad".
+   */
+  private static class NoopDB extends DB {
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return "bad".equals(key) ? Status.ERROR : Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  /**
+   * @return The time of the fastest of a few rounds of reads, per read, in ns.
+   */
+  private static double nanosPerRead(DB db, String key) {
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < CALLS; i++) {
+        db.read("usertable", key, null, null);
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return (double) best / CALLS;
+  }
+
+  /**
+   * @return The bytes allocated by the calling thread per read.
+   */
+  private static double bytesPerRead(DB db, String key) {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long id = Thread.currentThread().getId();
+    final long before = threads.getThreadAllocatedBytes(id);
+    for (int i = 0; i < CALLS; i++) {
+      db.read("usertable", key, null, null);
+    }
+    return (double) (threads.getThreadAllocatedBytes(id) - before) / CALLS;
+  }
+
+  private static DBWrapper wrap(DB db) throws DBException {
+    final DBWrapper wrapper = new DBWrapper(db, TRACER);
+    wrapper.setProperties(new Properties());
+    wrapper.init();
+    return wrapper;
+  }
+
+  @Test(groups = "performance")
+  public void addsOnlyNanosecondsPerCall() throws DBException {
+    final DB db = new NoopDB();
+    final DB wrapper = wrap(db);
+    nanosPerRead(db, "key");
+    nanosPerRead(wrapper, "key");
+
+    final double bare = nanosPerRead(db, "key");
+    final double wrapped = nanosPerRead(wrapper, "key");
+    assertTrue(wrapped - bare < 1000, "the wrapper adds " + (wrapped - bare) + " ns per read");
+  }
+
+  @Test
+  public void allocatesNothingPerCall() throws DBException {
+    final DB wrapper = wrap(new NoopDB());
+    // the first calls resolve the measurements, and get the JIT to compile the path
+    bytesPerRead(wrapper, "key");
+    bytesPerRead(wrapper, "bad");
+
+    final double ok = bytesPerRead(wrapper, "key");
+    final double failed = bytesPerRead(wrapper, "bad");
+    assertTrue(ok < 1, ok + " bytes allocated per read");
+    assertTrue(failed < 1, failed + " bytes allocated per failed read");
+  }
+
+  @Test
+  public void skipsTracingWithoutSpanReceivers() {
+    assertFalse(DBWrapper.isTracing(TRACER));
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link LoadSchedule} and the stop rule of {@link LoadScheduleMonitor}.
+ */
+public class TestLoadSchedule {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private static class StoppableWorkload extends Workload {
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      return true;
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      return true;
+    }
+  }
+
+  private static Histogram latencies(long count, long valueUs) {
+    final Histogram histogram = new Histogram(3);
+    histogram.recordValueWithCount(valueUs, count);
+    return histogram;
+  }
+
+  @Test
+  public void parsesSteps() {
+    final LoadSchedule schedule = LoadSchedule.parse("# warm up\nramp 100 1000 10s, step 1000 2m\nspike 5000 500ms");
+    assertEquals(schedule.getSteps().size(), 3);
+    assertEquals(schedule.getSteps().get(0).getTargetRate(), 550.0);
+    assertEquals(schedule.getSteps().get(1).getStartNs(), 10 * SECOND);
+    assertEquals(schedule.getSteps().get(2).getKind(), "spike");
+    assertEquals(schedule.getDurationNs(), 130 * SECOND + TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+  @Test
+  public void expandsStairs() {
+    final LoadSchedule schedule = LoadSchedule.parse("stairs 1000 3000 1000 30");
+    assertEquals(schedule.getSteps().size(), 3);
+    assertEquals(schedule.getSteps().get(2).getTargetRate(), 3000.0);
+    assertEquals(schedule.getDurationNs(), 90 * SECOND);
+  }
+
+  @Test
+  public void noScheduleByDefault() {
+    assertNull(LoadSchedule.fromProperties(new Properties()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsUnknownSteps() {
+    LoadSchedule.parse("hold 100 10s");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsMissingArguments() {
+    LoadSchedule.parse("ramp 100 10s");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsEmptySchedules() {
+    LoadSchedule.parse("# nothing\n");
+  }
+
+  @Test
+  public void followsRamps() {
+    final LoadSchedule schedule = LoadSchedule.parse("ramp 0 1000 10s, step 2000 10s");
+    schedule.start();
+    final long origin = schedule.endNs() - schedule.getDurationNs();
+    assertEquals(schedule.rateAt(origin + 5 * SECOND), 500.0, 1e-9);
+    assertEquals(schedule.rateAt(origin), LoadSchedule.MIN_RATE);
+    assertEquals(schedule.rateAt(origin + 15 * SECOND), 2000.0);
+    assertEquals(schedule.stepAt(origin + 25 * SECOND), 2);
+  }
+
+  @Test
+  public void deadlinesFollowTheRate() {
+    final LoadSchedule schedule = LoadSchedule.parse("step 10 1s, step 1000 1s");
+    schedule.start();
+    final long origin = schedule.endNs() - schedule.getDurationNs();
+    // 10 ops/sec over 2 threads is one every 200 ms for each thread
+    assertEquals(schedule.nextDeadlineNs(origin, 2) - origin, TimeUnit.MILLISECONDS.toNanos(200), 1000);
+    // an interval started at the low rate ends soon after the rate went up
+    final long deadline = schedule.nextDeadlineNs(origin + TimeUnit.MILLISECONDS.toNanos(900), 2);
+    assertTrue(deadline - origin < TimeUnit.MILLISECONDS.toNanos(1010), String.valueOf(deadline - origin));
+  }
+
+  @Test
+  public void stopsAfterConsecutiveViolations() {
+    Measurements.setProperties(new Properties());
+    final Properties props = new Properties();
+    props.setProperty(LoadScheduleMonitor.SLO_P99_PROPERTY, "10");
+    props.setProperty(LoadScheduleMonitor.SLO_INTERVALS_PROPERTY, "2");
+    final LoadSchedule schedule = LoadSchedule.parse("stairs 100 300 100 10s");
+    final Workload workload = new StoppableWorkload();
+    final LoadScheduleMonitor monitor =
+        new LoadScheduleMonitor(schedule, workload, Measurements.getMeasurements(), props);
+
+    // 100 and 200 ops/sec are sustained well under 10 ms
+    monitor.onInterval(0, latencies(1000, 2000), 1000, 10 * SECOND);
+    monitor.onInterval(1, latencies(1900, 5000), 1900, 10 * SECOND);
+    // 300 ops/sec misses the SLO once, recovers, then misses it twice in a row
+    monitor.onInterval(2, latencies(300, 50000), 300, SECOND);
+    monitor.onInterval(2, latencies(300, 5000), 300, SECOND);
+    assertFalse(workload.isStopRequested());
+    monitor.onInterval(2, latencies(300, 50000), 300, SECOND);
+    monitor.onInterval(2, new Histogram(3), 0, SECOND);
+
+    assertTrue(workload.isStopRequested());
+    assertTrue(monitor.isStoppedBySlo());
+    assertEquals(monitor.getStats(2).violations(), 3);
+    assertEquals(monitor.getMaxSustainableThroughput(), 190.0, 1e-9);
+  }
+
+  @Test
+  public void stepsBelowTheTargetAreNotSustained() {
+    Measurements.setProperties(new Properties());
+    final Properties props = new Properties();
+    props.setProperty(LoadScheduleMonitor.SLO_P99_PROPERTY, "10");
+    final LoadScheduleMonitor monitor = new LoadScheduleMonitor(LoadSchedule.parse("step 1000 10s"),
+        new StoppableWorkload(), Measurements.getMeasurements(), props);
+    monitor.onInterval(0, latencies(5000, 1000), 5000, 10 * SECOND);
+    assertEquals(monitor.getMaxSustainableThroughput(), 0.0);
+  }
+
+  @Test
+  public void countsWorkloadOperationsNotDatabaseCalls() {
+    Measurements.setProperties(new Properties());
+    final LoadScheduleMonitor monitor = new LoadScheduleMonitor(LoadSchedule.parse("step 1000 10s"),
+        new StoppableWorkload(), Measurements.getMeasurements(), new Properties());
+    // 5000 operations of two database calls each: half the target rate, whatever the calls add up to
+    monitor.onInterval(0, latencies(10000, 1000), 5000, 10 * SECOND);
+    assertEquals(monitor.getStats(0).throughput(), 500.0, 1e-9);
+    assertEquals(monitor.getMaxSustainableThroughput(), 0.0);
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OperationBudget}.
+ */
+public class TestOperationBudget {
+
+  private static Properties shared(String chunk) {
+    final Properties props = new Properties();
+    props.setProperty(OperationBudget.OPERATION_BUDGET_PROPERTY, "shared");
+    props.setProperty(OperationBudget.CHUNK_PROPERTY, chunk);
+    return props;
+  }
+
+  @Test
+  public void staticByDefault() {
+    assertNull(OperationBudget.create(new Properties(), 1000, 4));
+  }
+
+  @Test
+  public void noBudgetForUnboundedRuns() {
+    assertNull(OperationBudget.create(shared("10"), 0, 4));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsUnknownModes() {
+    final Properties props = new Properties();
+    props.setProperty(OperationBudget.OPERATION_BUDGET_PROPERTY, "stolen");
+    OperationBudget.create(props, 1000, 4);
+  }
+
+  @Test
+  public void chunksShrinkTowardsTheEnd() {
+    final OperationBudget budget = OperationBudget.create(shared("100"), 1000, 2);
+    assertEquals(budget.claim(), 100);
+    long claimed = 100;
+    int last = 100;
+    int chunk;
+    while ((chunk = budget.claim()) > 0) {
+      assertTrue(chunk <= last);
+      last = chunk;
+      claimed += chunk;
+    }
+    assertEquals(last, 1);
+    assertEquals(claimed, 1000);
+    assertEquals(budget.getRemaining(), 0);
+  }
+
+  @Test
+  public void threadsClaimTheExactTotal() throws InterruptedException {
+    final OperationBudget budget = OperationBudget.create(shared("7"), 100_000, 8);
+    final AtomicLong claimed = new AtomicLong();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      final Thread thread = new Thread(() -> {
+        int chunk;
+        while ((chunk = budget.claim()) > 0) {
+          claimed.addAndGet(chunk);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(claimed.get(), 100_000);
+  }
+}
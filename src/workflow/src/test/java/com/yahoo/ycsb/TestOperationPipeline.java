@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OperationPipeline}.
+ */
+public class TestOperationPipeline {
+
+  /**
+   * Prepares the numbers up to a limit, and runs each by adding it to a sum.
+   */
+  private static final class CountingWorkload extends Workload implements PipelinedWorkload {
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicInteger run = new AtomicInteger();
+    private final int limit;
+
+    private CountingWorkload(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public PreparedOperation prepareTransaction(Object threadstate) {
+      final int n = next.getAndIncrement();
+      if (n >= limit) {
+        return null;
+      }
+      return (db, clientstate) -> {
+        sum.addAndGet(n);
+        run.incrementAndGet();
+        return true;
+      };
+    }
+
+    @Override
+    public PreparedOperation prepareInsert(Object threadstate) {
+      return prepareTransaction(threadstate);
+    }
+
+    @Override
+    public boolean doInsert(DB db, Object threadstate) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean doTransaction(DB db, Object threadstate) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static Properties pipelined(String generators, String ringsize) {
+    final Properties props = new Properties();
+    props.setProperty(OperationPipeline.PIPELINE_PROPERTY, "true");
+    props.setProperty(OperationPipeline.GENERATORS_PROPERTY, generators);
+    props.setProperty(OperationPipeline.RING_SIZE_PROPERTY, ringsize);
+    return props;
+  }
+
+  @Test
+  public void offByDefault() {
+    assertNull(OperationPipeline.create(new Properties(), new CountingWorkload(10), true, 2));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void needsAPipelinedWorkload() {
+    OperationPipeline.create(pipelined("1", "16"), new CoreWorkload(), true, 2);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsMoreGeneratorsThanThreads() {
+    OperationPipeline.create(pipelined("3", "16"), new CountingWorkload(10), true, 2);
+  }
+
+  @Test
+  public void everyPreparedOperationRunsOnce() throws InterruptedException {
+    final int limit = 50_000;
+    final CountingWorkload workload = new CountingWorkload(limit);
+    final OperationPipeline pipeline = OperationPipeline.create(pipelined("2", "32"), workload, true, 4);
+    pipeline.start();
+    final List<Thread> clients = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final int threadid = i;
+      final Thread client = new Thread(() -> {
+        while (pipeline.execute(threadid, null, null)) {
+          // run until the generators are done
+        }
+      });
+      client.start();
+      clients.add(client);
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    pipeline.stop();
+
+    assertEquals(workload.run.get(), limit);
+    assertEquals(workload.sum.get(), (long) limit * (limit - 1) / 2);
+    assertEquals(pipeline.getOccupancy(), 0.0);
+  }
+
+  @Test
+  public void ringsFillUpAheadOfASlowClient() throws InterruptedException {
+    final CountingWorkload workload = new CountingWorkload(Integer.MAX_VALUE);
+    final OperationPipeline pipeline = OperationPipeline.create(pipelined("1", "8"), workload, true, 1);
+    pipeline.start();
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (pipeline.getOccupancy() < 1.0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(pipeline.getOccupancy(), 1.0);
+    assertTrue(pipeline.execute(0, null, null));
+    assertEquals(workload.run.get(), 1);
+    workload.requestStop();
+    pipeline.stop();
+    assertTrue(pipeline.getFull() > 0);
+    assertTrue(pipeline.getAverageOccupancy() > 0.5);
+    assertFalse(pipeline.getSummary().isEmpty());
+  }
+}
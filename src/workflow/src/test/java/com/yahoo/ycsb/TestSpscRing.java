@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link SpscRing}.
+ */
+public class TestSpscRing {
+
+  @Test
+  public void capacityIsRoundedUpToAPowerOfTwo() {
+    assertEquals(new SpscRing<Integer>(1).capacity(), 1);
+    assertEquals(new SpscRing<Integer>(5).capacity(), 8);
+    assertEquals(new SpscRing<Integer>(1024).capacity(), 1024);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsAnEmptyRing() {
+    new SpscRing<Integer>(0);
+  }
+
+  @Test
+  public void firstInFirstOutAcrossTheWrap() {
+    final SpscRing<Integer> ring = new SpscRing<>(4);
+    assertNull(ring.poll());
+    int next = 0;
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(ring.offer(round * 4 + i));
+      }
+      assertFalse(ring.offer(-1));
+      assertEquals(ring.size(), 4);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(ring.poll().intValue(), next++);
+      }
+      assertNull(ring.poll());
+      assertEquals(ring.size(), 0);
+    }
+  }
+
+  @Test
+  public void oneProducerOneConsumer() throws InterruptedException {
+    final SpscRing<Long> ring = new SpscRing<>(64);
+    final long count = 200_000;
+    final Thread producer = new Thread(() -> {
+      for (long i = 0; i < count; i++) {
+        while (!ring.offer(i)) {
+          Thread.yield();
+        }
+      }
+    });
+    producer.start();
+    for (long expected = 0; expected < count; expected++) {
+      Long value;
+      while ((value = ring.poll()) == null) {
+        Thread.yield();
+      }
+      assertEquals(value.longValue(), expected);
+    }
+    producer.join();
+    assertNull(ring.poll());
+  }
+}
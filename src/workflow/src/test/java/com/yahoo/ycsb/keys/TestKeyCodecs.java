@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.keys;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+
+public class TestKeyCodecs {
+
+  @Test
+  public void md5MatchesLegacyEncoding() throws Exception {
+    final KeyCodec codec = KeyCodecFactory.newKeyCodec("md5");
+    boolean sawLeadingZero = false;
+    for (long i = -100; i < 5000; i++) {
+      final String expected = legacyMd5(String.valueOf(i));
+      sawLeadingZero |= expected.length() < 32;
+      assertEquals(codec.encode(i), expected);
+    }
+    // make sure the zero stripping path was exercised
+    assertTrue(sawLeadingZero);
+    assertEquals(codec.encode(Long.MAX_VALUE), legacyMd5(String.valueOf(Long.MAX_VALUE)));
+    assertEquals(codec.encode(Long.MIN_VALUE), legacyMd5(String.valueOf(Long.MIN_VALUE)));
+  }
+
+  @Test
+  public void fnv64MatchesCoreWorkloadHash() throws Exception {
+    final KeyCodec codec = KeyCodecFactory.newKeyCodec("fnv64");
+    for (long i = 0; i < 1000; i++) {
+      assertEquals(codec.encode(i), Long.toString(Utils.hash(i)));
+    }
+  }
+
+  @Test
+  public void murmur128IsFixedWidthAndDistinct() throws Exception {
+    final KeyCodec codec = KeyCodecFactory.newKeyCodec("murmur128");
+    final Set<String> seen = new HashSet<>();
+    for (long i = 0; i < 10000; i++) {
+      final String key = codec.encode(i);
+      assertEquals(key.length(), 32);
+      assertEquals(codec.encode(i), key);
+      assertTrue(seen.add(key));
+    }
+    assertNotEquals(codec.encode(1), codec.encode(-1));
+  }
+
+  @Test
+  public void loadsCodecByClassName() throws Exception {
+    final KeyCodec codec = KeyCodecFactory.newKeyCodec(Fnv64KeyCodec.class.getName());
+    assertTrue(codec instanceof Fnv64KeyCodec);
+  }
+
+  @Test (expectedExceptions = WorkloadException.class)
+  public void unknownCodec() throws Exception {
+    KeyCodecFactory.newKeyCodec("crc7");
+  }
+
+  private static String legacyMd5(String id) throws Exception {
+    final MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+    messageDigest.update(id.getBytes(), 0, id.length());
+    return new BigInteger(1, messageDigest.digest()).toString(16);
+  }
+}
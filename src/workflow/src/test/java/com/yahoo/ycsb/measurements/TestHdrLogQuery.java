@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the interval logs of {@link OneMeasurementHdrHistogram} and {@link HdrLogQuery}.
+ */
+public class TestHdrLogQuery {
+
+  /**
+   * Logs READ and UPDATE latencies of 100 us in the first interval of 100 ms, then READ latencies of 5000 us in the
+   * fifth. The intervals are logged by hand, on a clock of the test's own.
+   *
+   * @return The directory of the logs.
+   */
+  private static File logRun() throws Exception {
+    final File dir = Files.createTempDirectory("hdr").toFile();
+    dir.deleteOnExit();
+    final Properties props = logProperties(dir);
+    // long enough that the log task never runs during the test
+    props.setProperty(OneMeasurementHdrHistogram.LOG_INTERVAL_PROPERTY, "3600000");
+    final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    final OneMeasurementHdrHistogram read = new OneMeasurementHdrHistogram("READ", props, clock.get(), clock::get);
+    final OneMeasurementHdrHistogram update =
+        new OneMeasurementHdrHistogram("UPDATE", props, clock.get(), clock::get);
+
+    for (int i = 0; i < 100; i++) {
+      read.measure(100);
+      update.measure(100);
+    }
+    for (int interval = 0; interval < 4; interval++) {
+      clock.addAndGet(100);
+      read.logInterval();
+      update.logInterval();
+    }
+    for (int i = 0; i < 50; i++) {
+      read.measure(5000);
+    }
+    clock.addAndGet(100);
+
+    export(dir, read, update);
+    return dir;
+  }
+
+  private static void export(File dir, OneMeasurementHdrHistogram... histograms) throws IOException {
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(new ByteArrayOutputStream());
+    for (OneMeasurementHdrHistogram histogram : histograms) {
+      histogram.exportMeasurements(exporter);
+    }
+    exporter.close();
+    for (File log : dir.listFiles()) {
+      log.deleteOnExit();
+    }
+  }
+
+  private static Properties logProperties(File dir) {
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementHdrHistogram.FILE_OUTPUT_PROPERTY, "true");
+    props.setProperty(OneMeasurementHdrHistogram.OUTPUT_PATH_PROPERTY, dir.getPath() + File.separator);
+    return props;
+  }
+
+  private static String query(String... args) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    HdrLogQuery.parseArguments(args).run(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void queriesOperationsAndTimeWindows() throws Exception {
+    final String dir = logRun().getPath();
+
+    final String whole = query(dir);
+    assertTrue(whole.contains("[READ], Operations, 150"), whole);
+    assertTrue(whole.contains("[UPDATE], Operations, 100"), whole);
+    assertTrue(whole.contains("[ALL], Operations, 250"), whole);
+
+    final String reads = query("-ops", "READ", "-percentiles", "99", dir);
+    assertTrue(reads.contains("[READ], 99thPercentileLatency(us), 50"), reads);
+    assertFalse(reads.contains("UPDATE"), reads);
+    assertFalse(reads.contains("ALL"), reads);
+
+    final String start = query("-ops", "READ", "-to", "0.25", dir);
+    assertTrue(start.contains("[READ], Operations, 100"), start);
+    assertTrue(start.contains("[READ], MaxLatency(us), 100"), start);
+
+    final String end = query("-ops", "READ", "-from", "0.35", dir);
+    assertTrue(end.contains("[READ], Operations, 50"), end);
+    assertTrue(end.contains("[READ], MinLatency(us), 4999") || end.contains("[READ], MinLatency(us), 5000"), end);
+  }
+
+  /**
+   * A measurement created 300 ms into the run logs on the run's time line, and so does the log of another process
+   * whose run started 500 ms later.
+   */
+  @Test
+  public void alignsLogsStartedAtDifferentTimes() throws Exception {
+    final File dir = Files.createTempDirectory("hdr").toFile();
+    dir.deleteOnExit();
+    final Properties props = logProperties(dir);
+    props.setProperty(OneMeasurementHdrHistogram.LOG_INTERVAL_PROPERTY, "3600000");
+    final long runStart = System.currentTimeMillis();
+    final AtomicLong clock = new AtomicLong(runStart);
+    final OneMeasurementHdrHistogram read = new OneMeasurementHdrHistogram("READ", props, runStart, clock::get);
+    read.measure(100);
+    clock.addAndGet(100);
+    read.logInterval();
+
+    clock.addAndGet(200);
+    final OneMeasurementHdrHistogram failed =
+        new OneMeasurementHdrHistogram("INSERT-FAILED", props, runStart, clock::get);
+    failed.measure(100);
+    clock.addAndGet(100);
+    failed.logInterval();
+
+    final AtomicLong otherClock = new AtomicLong(runStart + 500);
+    final OneMeasurementHdrHistogram update =
+        new OneMeasurementHdrHistogram("UPDATE", props, otherClock.get(), otherClock::get);
+    update.measure(100);
+    otherClock.addAndGet(100);
+    update.logInterval();
+    export(dir, read, failed, update);
+
+    final String start = query("-to", "0.05", dir.getPath());
+    assertTrue(start.contains("[READ], Operations, 1"), start);
+    assertTrue(start.contains("[INSERT-FAILED], Operations, 0"), start);
+    assertTrue(start.contains("[UPDATE], Operations, 0"), start);
+
+    final String failures = query("-from", "0.25", "-to", "0.35", dir.getPath());
+    assertTrue(failures.contains("[READ], Operations, 0"), failures);
+    assertTrue(failures.contains("[INSERT-FAILED], Operations, 1"), failures);
+    assertTrue(failures.contains("[UPDATE], Operations, 0"), failures);
+
+    final String other = query("-from", "0.45", "-to", "0.55", dir.getPath());
+    assertTrue(other.contains("[INSERT-FAILED], Operations, 0"), other);
+    assertTrue(other.contains("[UPDATE], Operations, 1"), other);
+  }
+
+  @Test(timeOut = 10000)
+  public void logsIntervalsWithoutAStatusThread() throws Exception {
+    final File dir = Files.createTempDirectory("hdr").toFile();
+    dir.deleteOnExit();
+    final Properties props = logProperties(dir);
+    props.setProperty(OneMeasurementHdrHistogram.LOG_INTERVAL_PROPERTY, "10");
+    final OneMeasurementHdrHistogram read = new OneMeasurementHdrHistogram("READ", props);
+    read.measure(100);
+
+    final File log = new File(dir, "READ.hdr");
+    log.deleteOnExit();
+    final AtomicLong logged = new AtomicLong();
+    while (logged.get() == 0) {
+      Thread.sleep(10);
+      HdrIntervalLog.read(log, (start, end, interval) -> logged.addAndGet(interval.getTotalCount()));
+    }
+    read.exportMeasurements(new TextMeasurementsExporter(new ByteArrayOutputStream()));
+    assertEquals(logged.get(), 1);
+  }
+
+  @Test
+  public void namesTheOperationAfterTheLog() throws IOException {
+    final File log = File.createTempFile("SCAN", ".hdr");
+    log.deleteOnExit();
+    assertEquals(HdrLogQuery.operation(log), log.getName().replace(".hdr", ""));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void needsLogs() {
+    HdrLogQuery.parseArguments(new String[]{"-ops", "READ"});
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Records from many threads at once into every measurement type: nothing is lost when the threads' parts are
+ * merged, and the cost of recording a value doesn't grow with the number of threads.
+ */
+public class TestMeasurementContention {
+
+  private static final int VALUES_PER_THREAD = 20_000;
+
+  @DataProvider(name = "types")
+  public static Object[][] types() {
+    return new Object[][]{{"histogram"}, {"hdrhistogram"}, {"timeseries"}, {"raw"}};
+  }
+
+  private static Measurements create(String type) throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    final File raw = File.createTempFile("raw", ".csv");
+    raw.deleteOnExit();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, raw.getPath());
+    return new Measurements(props);
+  }
+
+  /**
+   * Every thread records the values 0 to VALUES_PER_THREAD - 1.
+   *
+   * @return The time it took to record a value, in ns of one processor: the time the threads took, times the
+   * processors they ran on, per value. A lock shows, its waits stretch the time while the processors idle.
+   */
+  private static double record(Measurements measurements, int threads) throws InterruptedException {
+    final CountDownLatch ready = new CountDownLatch(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> recorders = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final Thread recorder = new Thread(() -> {
+        ready.countDown();
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < VALUES_PER_THREAD; i++) {
+          measurements.measure("READ", i);
+          measurements.reportStatus("READ", Status.OK);
+        }
+      });
+      recorder.start();
+      recorders.add(recorder);
+    }
+    ready.await();
+    final long begin = System.nanoTime();
+    start.countDown();
+    for (Thread recorder : recorders) {
+      recorder.join();
+    }
+    final long elapsed = System.nanoTime() - begin;
+    final int processors = Math.min(threads, Runtime.getRuntime().availableProcessors());
+    return (double) elapsed * processors / ((long) threads * VALUES_PER_THREAD);
+  }
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test(dataProvider = "types")
+  public void mergesWhatEveryThreadRecorded(String type) throws Exception {
+    final Measurements measurements = create(type);
+    final int threads = 64;
+    record(measurements, threads);
+    final String exported = export(measurements);
+    final long total = (long) threads * VALUES_PER_THREAD;
+    assertTrue(exported.contains("[READ], Operations, " + total)
+        || exported.contains("[READ], Total Operations, " + total), exported);
+    assertTrue(exported.contains("[READ], Return=OK, " + total), exported);
+    assertTrue(exported.contains("MinLatency(us), 0") || exported.contains("[READ], Min, 0"), exported);
+  }
+
+  /**
+   * Times the recording, so it is in the performance group, left out of the default build.
+   */
+  @Test(dataProvider = "types", groups = "performance")
+  public void recordingCostStaysFlat(String type) throws Exception {
+    // warm up the JIT first
+    record(create(type), 4);
+    record(create(type), 4);
+
+    final double single = record(create(type), 1);
+    double worst = single;
+    final StringBuilder costs = new StringBuilder(type).append(" ns per value:");
+    for (int threads : new int[]{1, 16, 64, 256}) {
+      final double cost = record(create(type), threads);
+      costs.append(' ').append(threads).append(" threads=").append(String.format("%.0f", cost));
+      worst = Math.max(worst, cost);
+    }
+    // generous, a lock or a shared counter costs several times more under contention
+    assertTrue(worst < 4 * single + 500, costs.toString());
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the measurement.dimensions breakdown of {@link Measurements}.
+ */
+public class TestMeasurementDimensions {
+
+  private static Measurements measurements(String dimensions) {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    props.setProperty(Measurements.DIMENSIONS_PROPERTY, dimensions);
+    props.setProperty(Measurements.DIMENSIONS_GROUP_SIZE_PROPERTY, "2");
+    return new Measurements(props);
+  }
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void exportsEachCombinationAsASeries() throws IOException {
+    final Measurements measurements = measurements("table,status");
+    measurements.measureDimensions("INSERT", "device", Status.OK, 0, 100, 100);
+    measurements.measureDimensions("INSERT", "device", Status.OK, 0, 100, 100);
+    measurements.measureDimensions("INSERT", "sensor", Status.OK, 0, 200, 200);
+    measurements.measureDimensions("INSERT", "device", Status.ERROR, 0, 300, 300);
+
+    final String out = export(measurements);
+    assertTrue(out.contains("[INSERT table=device status=OK], Operations, 2"), out);
+    assertTrue(out.contains("[INSERT table=sensor status=OK], Operations, 1"), out);
+    assertTrue(out.contains("[INSERT table=device status=ERROR], Operations, 1"), out);
+  }
+
+  @Test
+  public void resolvesToCachedHandles() {
+    final Measurements measurements = measurements("table,status");
+    final OneMeasurement m = measurements.getDimensionMeasurement("READ", "device", Status.OK, 0);
+    assertSame(measurements.getDimensionMeasurement("READ", new String("device"), Status.OK, 0), m);
+    assertSame(measurements.getDimensionMeasurement("READ", "device", new Status("OK", Status.OK.getDescription()),
+        0), m);
+    assertNotSame(measurements.getDimensionMeasurement("READ", "sensor", Status.OK, 0), m);
+  }
+
+  @Test
+  public void groupsConsecutiveThreads() throws IOException {
+    final Measurements measurements = measurements("group");
+    measurements.setThreadId(3);
+    measurements.measureDimensions("READ", "device", Status.OK, measurements.getThreadGroup(), 100, 100);
+    measurements.measureDimensions("READ", "sensor", Status.ERROR, 0, 100, 100);
+
+    final String out = export(measurements);
+    assertTrue(out.contains("[READ group=1], Operations, 1"), out);
+    assertTrue(out.contains("[READ group=0], Operations, 1"), out);
+    assertFalse(out.contains("table="), out);
+  }
+
+  @Test
+  public void isOffByDefault() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    assertFalse(measurements.hasDimensions());
+    measurements.measureDimensions("READ", "device", Status.OK, 0, 100, 100);
+    assertFalse(export(measurements).contains("READ"));
+  }
+
+  @Test
+  public void ignoresLatenciesOutOfRange() throws IOException {
+    final Measurements measurements = measurements("table");
+    measurements.measureDimensions("READ", "device", Status.OK, 0, -5000, -5000);
+    measurements.measureDimensions("READ", "device", Status.OK, 0, 100, 100);
+    assertTrue(export(measurements).contains("[READ table=device], Operations, 1"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsUnknownDimensions() {
+    measurements("table,region");
+  }
+}
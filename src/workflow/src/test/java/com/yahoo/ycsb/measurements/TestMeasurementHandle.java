@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link Measurements.Handle}.
+ */
+public class TestMeasurementHandle {
+
+  @DataProvider(name = "types")
+  public static Object[][] types() {
+    return new Object[][]{{"histogram"}, {"hdrhistogram"}};
+  }
+
+  private static String export(Measurements measurements) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    measurements.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test(dataProvider = "types")
+  public void ignoresLatenciesOutOfRange(String type) throws IOException {
+    final Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, type);
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    final Measurements measurements = new Measurements(props);
+    final Measurements.Handle handle = measurements.getHandle("READ");
+    handle.measure(-5000);
+    handle.measureIntended(Integer.MIN_VALUE);
+    handle.measure(100);
+    handle.reportStatus(Status.OK);
+
+    final String out = export(measurements);
+    assertTrue(out.contains("[READ], Operations, 1"), out);
+  }
+
+  @Test
+  public void resolvesOnFirstUse() throws IOException {
+    final Measurements measurements = new Measurements(new Properties());
+    measurements.getHandle("DELETE");
+    final Measurements.Handle read = measurements.getHandle("READ");
+    read.measure(100);
+
+    final String out = export(measurements);
+    assertTrue(out.contains("[READ], Operations, 1"), out);
+    assertFalse(out.contains("DELETE"), out);
+  }
+}
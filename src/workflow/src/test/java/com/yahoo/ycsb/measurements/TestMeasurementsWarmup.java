@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for the warm-up of {@link Measurements}.
+ */
+public class TestMeasurementsWarmup {
+
+  private static Measurements create(String... keyValues) {
+    final Properties props = new Properties();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      props.setProperty(keyValues[i], keyValues[i + 1]);
+    }
+    return new Measurements(props);
+  }
+
+  private static void operation(Measurements measurements) {
+    measurements.measure("READ", 100);
+    measurements.reportStatus("READ", Status.OK);
+    measurements.operationDone();
+  }
+
+  @Test
+  public void noWarmupByDefault() {
+    final Measurements measurements = create();
+    measurements.startWarmup();
+    assertFalse(measurements.isWarmingUp());
+    operation(measurements);
+    assertFalse(measurements.getSummary().contains(Measurements.WARMUP_PREFIX));
+  }
+
+  @Test
+  public void separatesWarmupOperations() {
+    final Measurements measurements = create(Measurements.WARMUP_OPS_PROPERTY, "3");
+    final AtomicInteger ended = new AtomicInteger();
+    measurements.setWarmupListener(ended::incrementAndGet);
+    operation(measurements);
+    assertFalse(measurements.isWarmingUp());
+
+    measurements.startWarmup();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(measurements.isWarmingUp(), i < 3);
+      operation(measurements);
+    }
+    assertEquals(ended.get(), 1);
+    final String summary = measurements.getSummary();
+    assertTrue(summary.contains("[WARMUP-READ: Count=3"), summary);
+    assertTrue(summary.contains("[READ: Count=3"), summary);
+  }
+
+  @Test
+  public void dropsWarmupOperations() {
+    final Measurements measurements = create(Measurements.WARMUP_OPS_PROPERTY, "2",
+        Measurements.WARMUP_MEASUREMENTS_PROPERTY, "drop");
+    measurements.startWarmup();
+    for (int i = 0; i < 3; i++) {
+      operation(measurements);
+    }
+    final String summary = measurements.getSummary();
+    assertFalse(summary.contains(Measurements.WARMUP_PREFIX), summary);
+    assertTrue(summary.contains("[READ: Count=1"), summary);
+  }
+
+  @Test
+  public void countsWorkloadOperationsNotDbOperations() {
+    final Measurements measurements = create(Measurements.WARMUP_OPS_PROPERTY, "2");
+    measurements.startWarmup();
+    // one workload operation that makes three DB operations
+    for (int i = 0; i < 3; i++) {
+      measurements.measure("INSERT", 100);
+      measurements.reportStatus("INSERT", Status.OK);
+    }
+    measurements.operationDone();
+    assertTrue(measurements.isWarmingUp());
+    measurements.operationDone();
+    assertFalse(measurements.isWarmingUp());
+    final String summary = measurements.getSummary();
+    assertTrue(summary.contains("[WARMUP-INSERT: Count=3"), summary);
+  }
+
+  @Test
+  public void endsWarmupAfterItsTime() throws InterruptedException {
+    final Measurements measurements = create(Measurements.WARMUP_TIME_PROPERTY, "0.05");
+    measurements.startWarmup();
+    assertTrue(measurements.isWarmingUp());
+    Thread.sleep(100);
+    assertFalse(measurements.isWarmingUp());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsUnknownWarmupMeasurements() {
+    create(Measurements.WARMUP_MEASUREMENTS_PROPERTY, "keep");
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OneMeasurementHdrHistogram}.
+ */
+public class TestOneMeasurementHdrHistogram {
+
+  private static final int THREADS = 64;
+  private static final int VALUES_PER_THREAD = 1000;
+
+  /**
+   * Every thread records the values 0 to VALUES_PER_THREAD - 1, one thread after the other.
+   */
+  private static void record(OneMeasurementHdrHistogram histogram, Thread[] threads) throws InterruptedException {
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < VALUES_PER_THREAD; i++) {
+          histogram.measure(i);
+        }
+      });
+      threads[t].start();
+      threads[t].join();
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  @Test
+  public void mergesIntervalsWithoutAllocatingPerThread() throws Exception {
+    final OneMeasurementHdrHistogram histogram = new OneMeasurementHdrHistogram("READ", new Properties());
+    final Thread[] threads = new Thread[THREADS];
+    record(histogram, threads);
+    assertTrue(histogram.getSummary().contains("Count=" + THREADS * VALUES_PER_THREAD));
+
+    // the shards' threads are gone, this records into the shard of the test's thread only
+    histogram.measure(7);
+    final long before = allocatedBytes();
+    final String summary = histogram.getSummary();
+    final String idle = histogram.getSummary();
+    final long allocated = allocatedBytes() - before;
+    assertTrue(summary.contains("Count=1,"), summary);
+    assertTrue(idle.contains("Count=0,"), idle);
+    // a histogram of the values recorded above takes tens of KB, one per thread would be MBs
+    assertTrue(allocated < 64 * 1024, allocated + " bytes allocated by two summaries");
+
+    assertEquals(histogram.getTotalHistogram().getTotalCount(), THREADS * VALUES_PER_THREAD + 1);
+  }
+}
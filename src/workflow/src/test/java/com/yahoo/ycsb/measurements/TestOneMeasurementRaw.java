@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link OneMeasurementRaw}.
+ */
+public class TestOneMeasurementRaw {
+
+  private static String export(OneMeasurementRaw raw) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    raw.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  @Test
+  public void ignoresValuesRecordedAfterTheExport() throws Exception {
+    final File output = File.createTempFile("raw", ".csv");
+    output.deleteOnExit();
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    final OneMeasurementRaw raw = new OneMeasurementRaw("READ", props);
+    for (int i = 0; i < 10; i++) {
+      raw.measure(100);
+    }
+    final String exported = export(raw);
+    assertTrue(exported.contains("[READ], Total Operations, 10"), exported);
+
+    // a full chunk more, from this thread and from one that never recorded before
+    for (int i = 0; i < RawSampleStore.CHUNK + 1; i++) {
+      raw.measure(100);
+    }
+    final Thread late = new Thread(() -> {
+      for (int i = 0; i < RawSampleStore.CHUNK + 1; i++) {
+        raw.measure(100);
+      }
+    });
+    late.start();
+    late.join();
+    // the header and the ten values
+    assertEquals(Files.readAllLines(output.toPath()).size(), 11);
+  }
+
+  @Test
+  public void exportsEveryValueOfThreadsStillRecording() throws Exception {
+    final File output = File.createTempFile("raw", ".csv");
+    output.deleteOnExit();
+    final Properties props = new Properties();
+    props.setProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, output.getPath());
+    final OneMeasurementRaw raw = new OneMeasurementRaw("READ", props);
+    final AtomicBoolean stop = new AtomicBoolean();
+    final List<Thread> recorders = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final Thread recorder = new Thread(() -> {
+        while (!stop.get()) {
+          raw.measure(100);
+        }
+      });
+      recorder.start();
+      recorders.add(recorder);
+    }
+    Thread.sleep(100);
+    final String exported = export(raw);
+    stop.set(true);
+    for (Thread recorder : recorders) {
+      recorder.join();
+    }
+    // what is exported is exactly what is in the file, however the export raced the recorders
+    final int rows = Files.readAllLines(output.toPath()).size() - 1;
+    assertTrue(rows > 0);
+    assertTrue(exported.contains("[READ], Total Operations, " + rows + System.lineSeparator()), exported);
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link RawSampleStore}.
+ */
+public class TestRawSampleStore {
+
+  private static File dir() {
+    return new File(System.getProperty("java.io.tmpdir"));
+  }
+
+  /**
+   * Writes the values in chunks, as the recording threads do.
+   */
+  private static void write(RawSampleStore store, int[] values) {
+    RawSampleStore.Chunk chunk = store.newChunk();
+    for (int i = 0; i < values.length; i++) {
+      if (chunk.isFull()) {
+        store.write(chunk);
+        chunk = store.newChunk();
+      }
+      chunk.add(i, values[i]);
+    }
+    store.write(chunk);
+  }
+
+  @Test
+  public void selectsTheSameValuesAsASort() throws IOException {
+    final Random random = new Random(7);
+    final int[] values = new int[3 * RawSampleStore.CHUNK + 123];
+    for (int i = 0; i < values.length; i++) {
+      // mostly small latencies, some huge ones, and a few negative ones
+      values[i] = i % 100 == 0 ? random.nextInt() : random.nextInt(5000);
+    }
+    try (RawSampleStore store = new RawSampleStore("READ", dir(), null)) {
+      write(store, values);
+      store.flush();
+      assertEquals(store.size(), values.length);
+
+      final int[] sorted = values.clone();
+      Arrays.sort(sorted);
+      final long[] ranks = {0, 1, values.length / 100, values.length / 2, values.length * 99L / 100,
+          values.length - 2, values.length - 1};
+      final int[] selected = store.select(ranks);
+      for (int i = 0; i < ranks.length; i++) {
+        assertEquals(selected[i], sorted[(int) ranks[i]], "rank " + ranks[i]);
+      }
+    }
+  }
+
+  @Test
+  public void scansInTheOrderWritten() throws IOException {
+    final int[] values = new int[RawSampleStore.CHUNK + 10];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = values.length - i;
+    }
+    try (RawSampleStore store = new RawSampleStore("READ", dir(), null)) {
+      write(store, values);
+      store.flush();
+      final AtomicLong next = new AtomicLong();
+      store.scan((timestamp, value) -> {
+        assertEquals(timestamp, next.get());
+        assertEquals(value, values[(int) next.getAndIncrement()]);
+      });
+      assertEquals(next.get(), values.length);
+    }
+  }
+
+  @Test
+  public void streamsLinesWhileWriting() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final PrintStream lines = new PrintStream(out, true, "UTF-8");
+    final File file;
+    try (RawSampleStore store = new RawSampleStore("INSERT", dir(), lines)) {
+      write(store, new int[]{5, 7});
+      store.flush();
+      assertEquals(out.toString("UTF-8"), "INSERT,0,5" + System.lineSeparator() + "INSERT,1,7"
+          + System.lineSeparator());
+      file = store.getFile();
+      assertTrue(file.exists());
+    }
+    assertFalse(file.exists());
+  }
+
+  @Test
+  public void writesRightAwayOnceFlushed() throws IOException {
+    try (RawSampleStore store = new RawSampleStore("READ", dir(), null)) {
+      store.flush();
+      write(store, new int[]{1, 2, 3});
+      assertEquals(store.size(), 3);
+      assertEquals(store.select(2)[0], 3);
+    }
+  }
+}
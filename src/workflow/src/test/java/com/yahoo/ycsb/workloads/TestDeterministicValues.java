@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2019 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.WorkloadException;
+
+public class TestDeterministicValues {
+
+  /**
+   * The value builder earlier versions used.
+   */
+  private static String quadraticLegacy(String key, String fieldkey, int size) {
+    StringBuilder sb = new StringBuilder(size);
+    sb.append(key);
+    sb.append(':');
+    sb.append(fieldkey);
+    while (sb.length() < size) {
+      sb.append(':');
+      sb.append(sb.toString().hashCode());
+    }
+    sb.setLength(size);
+    return sb.toString();
+  }
+
+  @Test
+  public void legacyMatchesEarlierValues() {
+    final DeterministicValues values = new DeterministicValues(DeterministicValues.Format.LEGACY, 0);
+    for (int size : new int[] {1, 5, 17, 100, 1000}) {
+      for (int i = 0; i < 20; i++) {
+        final String key = "user" + (i * 7919L);
+        final String expected = quadraticLegacy(key, "field" + i, size);
+        assertEquals(values.build(key, "field" + i, size), expected);
+        assertTrue(values.verify(key, "field" + i, expected, size));
+      }
+    }
+  }
+
+  @Test
+  public void checksumValuesVerifyAndHaveTheRightSize() {
+    final DeterministicValues values = new DeterministicValues(DeterministicValues.Format.CHECKSUM, 42);
+    for (int size : new int[] {1, 8, 9, 100, 4096}) {
+      final String value = values.build("user1", "field0", size);
+      assertEquals(value.length(), size);
+      assertEquals(values.build("user1", "field0", size), value);
+      assertTrue(values.verify("user1", "field0", value, size));
+    }
+  }
+
+  @Test
+  public void checksumDetectsCorruptionAndSwaps() {
+    final DeterministicValues values = new DeterministicValues(DeterministicValues.Format.CHECKSUM, 42);
+    final String value = values.build("user1", "field0", 100);
+    final char[] corrupt = value.toCharArray();
+    corrupt[50] = corrupt[50] == 'x' ? 'y' : 'x';
+    assertFalse(values.verify("user1", "field0", new String(corrupt), 100));
+    assertFalse(values.verify("user2", "field0", value, 100));
+    assertFalse(values.verify("user1", "field1", value, 100));
+    assertFalse(values.verify("user1", "field0", value.substring(1), 100));
+  }
+
+  @Test
+  public void seedChangesTheFillerOnly() {
+    final DeterministicValues seeded = new DeterministicValues(DeterministicValues.Format.CHECKSUM, 1);
+    final DeterministicValues other = new DeterministicValues(DeterministicValues.Format.CHECKSUM, 2);
+    final String value = seeded.build("user1", "field0", 100);
+    assertNotEquals(other.build("user1", "field0", 100), value);
+    // verification doesn't depend on the seed
+    assertTrue(other.verify("user1", "field0", value, 100));
+  }
+
+  @Test
+  public void fromProperties() throws WorkloadException {
+    final Properties p = new Properties();
+    assertEquals(DeterministicValues.fromProperties(p).getFormat(), DeterministicValues.Format.LEGACY);
+    p.setProperty(DeterministicValues.FORMAT_PROPERTY, "checksum");
+    assertEquals(DeterministicValues.fromProperties(p).getFormat(), DeterministicValues.Format.CHECKSUM);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void unknownFormat() throws WorkloadException {
+    final Properties p = new Properties();
+    p.setProperty(DeterministicValues.FORMAT_PROPERTY, "json");
+    DeterministicValues.fromProperties(p);
+  }
+}